@@ -46,6 +46,9 @@ public class NIOByteBufferProvider {
   /** If we are to use memory mapped I/O, the map mode. */
   private MapMode mapMode;
 
+  /** Buffer reused for each allocation. */
+  private ByteBuffer reusedBuffer;
+
   static {
     String mapping = System.getProperty("mappedBuffers");
     useMappedByteBuffer = Boolean.parseBoolean(mapping);
@@ -82,17 +85,33 @@ public class NIOByteBufferProvider {
   }
 
   /**
-   * Allocates memory and copies the desired file data into it.
+   * Drops the buffer reused by this provider so that its memory can be
+   * reclaimed.  Buffers previously returned by this provider must not be
+   * used after they have been released.
+   */
+  public void release() {
+    reusedBuffer = null;
+  }
+
+  /**
+   * Copies the desired file data into memory.  The same buffer is reused
+   * for subsequent allocations (replacing the previously allocated data)
+   * until a larger one is needed.
    * @param bufferStartPosition The absolute position of the start of the
    * buffer.
    * @param newSize The buffer size.
-   * @return A newly allocated NIO byte buffer.
+   * @return The reused NIO byte buffer.
    * @throws IOException If there is an issue aligning or allocating
    * the buffer.
    */
   protected ByteBuffer allocateDirect(long bufferStartPosition, int newSize)
     throws IOException {
-    ByteBuffer buffer = ByteBuffer.allocate(newSize);
+    if (reusedBuffer == null || reusedBuffer.capacity() < newSize) {
+      reusedBuffer = ByteBuffer.allocate(newSize);
+    }
+    ByteBuffer buffer = reusedBuffer;
+    buffer.clear();
+    buffer.limit(newSize);
     channel.read(buffer, bufferStartPosition);
     return buffer;
   }
@@ -131,7 +131,12 @@ public class NIOFileHandle extends AbstractNIOHandle {
 
   /* @see IRandomAccess.close() */
   public void close() throws IOException {
-    raf.close();
+    try {
+      raf.close();
+    } finally {
+      buffer = null;
+      byteBufferProvider.release();
+    }
   }
 
   /* @see IRandomAccess.getFilePointer() */
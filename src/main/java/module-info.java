@@ -1,7 +1,9 @@
 module org.janelia.tmog {
     requires java.base;
     requires java.desktop;
+    requires java.management;
     requires java.sql;
+    requires jdk.unsupported;
     requires java.xml.bind;
 //    requires java.activation;
 //    requires jaxb.runtime;
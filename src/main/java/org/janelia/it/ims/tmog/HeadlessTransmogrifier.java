@@ -0,0 +1,680 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.apache.log4j.Logger;
+import org.janelia.it.ims.tmog.config.ConfigurationException;
+import org.janelia.it.ims.tmog.config.ConfigurationLoader;
+import org.janelia.it.ims.tmog.config.InputFileFilter;
+import org.janelia.it.ims.tmog.config.InputFileSorter;
+import org.janelia.it.ims.tmog.config.ProjectConfiguration;
+import org.janelia.it.ims.tmog.config.TransmogrifierConfiguration;
+import org.janelia.it.ims.tmog.config.output.OutputDirectoryConfiguration;
+import org.janelia.it.ims.tmog.config.preferences.TransmogrifierPreferences;
+import org.janelia.it.ims.tmog.plugin.ExternalDataException;
+import org.janelia.it.ims.tmog.plugin.ExternalSystemException;
+import org.janelia.it.ims.tmog.plugin.PluginDataRow;
+import org.janelia.it.ims.tmog.plugin.RowListener;
+import org.janelia.it.ims.tmog.plugin.RowUpdater;
+import org.janelia.it.ims.tmog.plugin.SessionListener;
+import org.janelia.it.ims.tmog.target.FieldValueFile;
+import org.janelia.it.ims.tmog.target.FileTarget;
+import org.janelia.it.ims.tmog.target.FileTargetWorker;
+import org.janelia.it.ims.tmog.task.LatencyTimer;
+import org.janelia.it.ims.tmog.task.RenameSessionValidator;
+import org.janelia.it.ims.tmog.task.RenameTask;
+import org.janelia.it.ims.tmog.task.SessionLog;
+import org.janelia.it.ims.tmog.task.SessionRecovery;
+import org.janelia.it.ims.tmog.view.CollectorView;
+import org.janelia.it.utils.PathUtil;
+import org.janelia.it.utils.filexfer.FileDigestCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class runs a single rename session without a user interface
+ * (e.g. for unattended ingestion on a server without a display).
+ * <p>
+ * Targets are located and fields are populated with configured defaults
+ * just as they are for the interactive application.  Field values can
+ * also be loaded from a saved default set, a tab separated values file
+ * (see {@link FieldValueFile}), and configured row updaters.
+ * The session is then validated and run with the project's configured
+ * plug-ins.  A machine readable (JSON) summary is written when the
+ * session completes and the process exit code identifies the outcome
+ * (see {@link #EXIT_SUCCESS}, {@link #EXIT_ROW_FAILURES},
+ * {@link #EXIT_INVALID_SESSION}, and {@link #EXIT_SETUP_FAILURE}).
+ * <p>
+ * Any earlier sessions that were interrupted before they finished
+ * (see {@link SessionRecovery}) are recovered, or discarded when
+ * -discardInterrupted is specified, before targets are located.
+ * The outcome for each interrupted session is included in the summary.
+ *
+ * @author Eric Trautman
+ */
+public class HeadlessTransmogrifier {
+
+    /** Exit code when all rows were processed successfully. */
+    public static final int EXIT_SUCCESS = 0;
+
+    /**
+     * Exit code when the session ran but one or more rows failed
+     * or the session was aborted before all rows were processed.
+     */
+    public static final int EXIT_ROW_FAILURES = 1;
+
+    /** Exit code when session data failed validation (nothing was run). */
+    public static final int EXIT_INVALID_SESSION = 2;
+
+    /** Exit code for usage, configuration, or input errors. */
+    public static final int EXIT_SETUP_FAILURE = 3;
+
+    private String configResource;
+    private String projectName;
+    private String inputPath;
+    private String outputPath;
+    private String valuesPath;
+    private String defaultSetName;
+    private String summaryPath;
+    private String sessionName;
+    private boolean isMappedDataLoaded;
+    private boolean isInterruptedSessionDiscarded;
+
+    private JsonObject summary;
+
+    /**
+     * Constructs a session with default options.
+     */
+    public HeadlessTransmogrifier() {
+        this.sessionName = "headless";
+        this.isMappedDataLoaded = false;
+        this.isInterruptedSessionDiscarded = false;
+        this.summary = new JsonObject();
+    }
+
+    /**
+     * Parses command line arguments.
+     *
+     * @param  args  arguments to parse.
+     *
+     * @throws IllegalArgumentException
+     *   if the arguments are invalid.
+     */
+    public void parseArguments(String[] args)
+            throws IllegalArgumentException {
+
+        String name;
+        for (int i = 0; i < args.length; i++) {
+            name = args[i];
+            if ("-loadMappedData".equals(name)) {
+                isMappedDataLoaded = true;
+            } else if ("-discardInterrupted".equals(name)) {
+                isInterruptedSessionDiscarded = true;
+            } else if (i + 1 < args.length) {
+                i++;
+                if ("-config".equals(name)) {
+                    configResource = args[i];
+                } else if ("-project".equals(name)) {
+                    projectName = args[i];
+                } else if ("-input".equals(name)) {
+                    inputPath = args[i];
+                } else if ("-output".equals(name)) {
+                    outputPath = args[i];
+                } else if ("-values".equals(name)) {
+                    valuesPath = args[i];
+                } else if ("-defaults".equals(name)) {
+                    defaultSetName = args[i];
+                } else if ("-summary".equals(name)) {
+                    summaryPath = args[i];
+                } else if ("-session".equals(name)) {
+                    sessionName = args[i];
+                } else {
+                    throw new IllegalArgumentException(
+                            "unknown option '" + name + "'");
+                }
+            } else {
+                throw new IllegalArgumentException(
+                        "option '" + name + "' is unknown or is missing " +
+                        "its value");
+            }
+        }
+
+        if (configResource == null) {
+            throw new IllegalArgumentException("-config must be specified");
+        }
+        if (inputPath == null) {
+            throw new IllegalArgumentException("-input must be specified");
+        }
+    }
+
+    /**
+     * Runs the session and writes its summary.
+     *
+     * @return the process exit code for the session.
+     */
+    public int run() {
+        int exitCode;
+
+        summary.addProperty("session", sessionName);
+        summary.addProperty("config", configResource);
+        summary.addProperty("input", inputPath);
+
+        try {
+            exitCode = runSession();
+        } catch (ConfigurationException | IllegalArgumentException e) {
+            LOG.error("session setup failed", e);
+            setStatus("SETUP_FAILED", e.getMessage());
+            exitCode = EXIT_SETUP_FAILURE;
+        } catch (Throwable t) {
+            LOG.error("unexpected exception in session", t);
+            setStatus("SETUP_FAILED", String.valueOf(t.getMessage()));
+            exitCode = EXIT_SETUP_FAILURE;
+        }
+
+        summary.addProperty("exitCode", exitCode);
+        writeSummary();
+
+        return exitCode;
+    }
+
+    private int runSession()
+            throws ConfigurationException, IllegalArgumentException {
+
+        // default sets are saved with preferences
+        final TransmogrifierPreferences tmogPreferences =
+                TransmogrifierPreferences.getInstance();
+        try {
+            tmogPreferences.load();
+        } catch (ConfigurationException e) {
+            LOG.warn("failed to load preferences, " +
+                     "saved default sets will not be available", e);
+        }
+
+        // use the same digest cache and session logs as the application
+        final File userHome = new File(System.getProperty("user.home"));
+        FileDigestCache.getInstance().load(userHome);
+        SessionLog.setDirectory(new File(userHome, SessionLog.DIRECTORY_NAME));
+        handleInterruptedSessions();
+
+        final TransmogrifierConfiguration config =
+                ConfigurationLoader.loadWithoutDisplay(getConfigUrl());
+        final ProjectConfiguration projectConfig = getProject(config);
+        summary.addProperty("project", projectConfig.getName());
+
+        File input = new File(PathUtil.convertPath(inputPath));
+        if (input.isFile() &&
+            (! projectConfig.getInputFileFilter().hasTargetDataFile())) {
+            // same as a file selection in the user interface
+            input = input.getAbsoluteFile().getParentFile();
+        }
+        final List<FileTarget> targets = getTargets(projectConfig, input);
+
+        int exitCode;
+        if (targets.size() == 0) {
+
+            summary.addProperty("rowCount", 0);
+            setStatus("NO_TARGETS", null);
+            exitCode = EXIT_SUCCESS;
+
+        } else {
+
+            final String sessionOutputPath =
+                    getSessionOutputPath(projectConfig, input, targets);
+            final DataTableModel model =
+                    new DataTableModel("File Name", targets, projectConfig);
+            summary.addProperty("rowCount", model.getRows().size());
+
+            populateFieldValues(projectConfig, model);
+
+            final RenameSessionValidator validator =
+                    new RenameSessionValidator(sessionName, projectConfig);
+            final String validationErrorMessage =
+                    validate(projectConfig, model, validator,
+                             sessionOutputPath);
+
+            if (validationErrorMessage == null) {
+                exitCode = runTask(projectConfig, model, validator,
+                                   sessionOutputPath);
+            } else {
+                setStatus("INVALID", validationErrorMessage);
+                exitCode = EXIT_INVALID_SESSION;
+            }
+
+        }
+
+        return exitCode;
+    }
+
+    /**
+     * Recovers (or discards) any interrupted sessions so that their
+     * files are in a consistent state before targets are located and
+     * adds the outcome for each session to the summary.
+     */
+    private void handleInterruptedSessions() {
+
+        final JsonArray interruptedSessions = new JsonArray();
+        JsonObject session;
+        String recoverySummary;
+        int errorCount;
+        for (SessionRecovery recovery :
+                SessionRecovery.findInterruptedSessions()) {
+
+            session = new JsonObject();
+            session.addProperty("log",
+                                recovery.getLogFile().getAbsolutePath());
+            session.addProperty("task", recovery.getTaskName());
+            session.addProperty("incompleteRowCount",
+                                recovery.getIncompleteRowCount());
+
+            if (isInterruptedSessionDiscarded) {
+                LOG.warn("discarding interrupted session " + recovery);
+                recovery.discard();
+                session.addProperty("action", "discarded");
+            } else {
+                recoverySummary = recovery.recover();
+                errorCount = 0;
+                for (String line : recoverySummary.split("\n")) {
+                    if (line.startsWith("ERROR")) {
+                        errorCount++;
+                    }
+                }
+                if (errorCount > 0) {
+                    LOG.warn(errorCount + " file(s) from interrupted session " +
+                             recovery + " could not be recovered and need " +
+                             "to be checked");
+                }
+                session.addProperty("action", "recovered");
+                session.addProperty("errorCount", errorCount);
+                session.addProperty("recoverySummary", recoverySummary);
+            }
+
+            interruptedSessions.add(session);
+        }
+
+        if (interruptedSessions.size() > 0) {
+            summary.add("interruptedSessions", interruptedSessions);
+        }
+    }
+
+    private URL getConfigUrl()
+            throws ConfigurationException {
+        URL configUrl;
+        try {
+            if (configResource.startsWith("http")) {
+                configUrl = new URL(configResource);
+            } else {
+                final File configFile =
+                        new File(PathUtil.convertPath(configResource));
+                if (! configFile.isFile()) {
+                    throw new ConfigurationException(
+                            "The configuration file " +
+                            configFile.getAbsolutePath() +
+                            " could not be found.");
+                }
+                configUrl = configFile.getAbsoluteFile().toURI().toURL();
+            }
+        } catch (MalformedURLException e) {
+            throw new ConfigurationException(
+                    "Failed to load configuration from " +
+                    configResource + ".", e);
+        }
+        return configUrl;
+    }
+
+    private ProjectConfiguration getProject(TransmogrifierConfiguration config)
+            throws ConfigurationException {
+
+        ProjectConfiguration projectConfig = null;
+        if (projectName == null) {
+            projectConfig = config.getDefaultProjectConfiguration();
+        } else {
+            for (ProjectConfiguration pConfig : config.getProjectList()) {
+                if (projectName.equals(pConfig.getName())) {
+                    projectConfig = pConfig;
+                    break;
+                }
+            }
+        }
+
+        if (projectConfig == null) {
+            if (projectName == null) {
+                throw new ConfigurationException(
+                        "A default project is not defined in " +
+                        configResource + ", so -project must be specified.");
+            } else {
+                throw new ConfigurationException(
+                        "The project '" + projectName +
+                        "' is not defined in " + configResource + ".");
+            }
+        }
+
+        final String taskName = projectConfig.getTaskName();
+        if (CollectorView.TASK_NAME.equals(taskName) ||
+            CollectorView.SAGE_TASK_NAME.equals(taskName)) {
+            throw new ConfigurationException(
+                    "The " + projectConfig.getName() + " project is a " +
+                    taskName + " project.  Only rename projects can be " +
+                    "run without a user interface.");
+        }
+
+        return projectConfig;
+    }
+
+    private List<FileTarget> getTargets(ProjectConfiguration projectConfig,
+                                        File input)
+            throws ConfigurationException, IllegalArgumentException {
+
+        if (! input.exists()) {
+            throw new IllegalArgumentException(
+                    "The input " + input.getAbsolutePath() +
+                    " does not exist.");
+        }
+
+        final InputFileFilter inputFilter = projectConfig.getInputFileFilter();
+        final InputFileSorter inputSorter = projectConfig.getInputFileSorter();
+        final FileTargetWorker fileTargetWorker =
+                new FileTargetWorker(input,
+                                     inputFilter.getFilter(input),
+                                     inputFilter.isRecursiveSearch(),
+                                     inputSorter.getComparator(),
+                                     inputFilter.getTargetNamer(input),
+                                     inputFilter.isFilterDuplicates(),
+                                     inputFilter.getTargetDataFile());
+
+        // locate targets in this thread
+        fileTargetWorker.run();
+
+        List<FileTarget> targets = null;
+        if (! fileTargetWorker.hasFailed()) {
+            try {
+                targets = fileTargetWorker.get();
+            } catch (Exception e) {
+                throw new ConfigurationException(
+                        "Failed to retrieve files from " +
+                        input.getAbsolutePath() + ".", e);
+            }
+        }
+
+        if (targets == null) {
+            final Throwable failureCause = fileTargetWorker.getFailureCause();
+            throw new ConfigurationException(
+                    "Failed to locate files in " + input.getAbsolutePath() +
+                    ".  " + (failureCause == null ? "" :
+                             failureCause.getMessage()),
+                    failureCause);
+        }
+
+        if (fileTargetWorker.hasSummary()) {
+            LOG.info(fileTargetWorker.getSummary());
+            summary.addProperty("targetSummary",
+                                fileTargetWorker.getSummary());
+        }
+
+        return targets;
+    }
+
+    private String getSessionOutputPath(ProjectConfiguration projectConfig,
+                                        File input,
+                                        List<FileTarget> targets)
+            throws ConfigurationException {
+
+        final OutputDirectoryConfiguration odConfig =
+                projectConfig.getOutputDirectory();
+        String sessionOutputPath;
+        if (odConfig.isManuallyChosen()) {
+            if (outputPath == null) {
+                throw new ConfigurationException(
+                        "The output directory for the " +
+                        projectConfig.getName() +
+                        " project must be specified with -output.");
+            }
+            sessionOutputPath = PathUtil.convertPath(outputPath);
+        } else if (odConfig.isDerivedFromEarliestModifiedFile()) {
+            sessionOutputPath =
+                    odConfig.getDerivedPathForEarliestFile(input, targets);
+        } else {
+            // output directories are derived for each row
+            sessionOutputPath = odConfig.getDescription();
+        }
+        return sessionOutputPath;
+    }
+
+    private void populateFieldValues(ProjectConfiguration projectConfig,
+                                     DataTableModel model)
+            throws ConfigurationException {
+
+        final List<DataRow> rows = model.getRows();
+
+        if (defaultSetName != null) {
+            if (! model.containsDefaultSet(defaultSetName)) {
+                throw new ConfigurationException(
+                        "The default set '" + defaultSetName +
+                        "' has not been saved for the " +
+                        projectConfig.getName() + " project.");
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                model.applyFieldDefaultSet(defaultSetName, i);
+            }
+        }
+
+        if (valuesPath != null) {
+            final File valuesFile = new File(PathUtil.convertPath(valuesPath));
+            final FieldValueFile valueFile = new FieldValueFile(valuesFile);
+            try {
+                valueFile.load();
+            } catch (IOException e) {
+                throw new ConfigurationException(
+                        "Failed to read " + valuesPath + ".", e);
+            }
+            final List<String> unmatchedNames = valueFile.applyValues(rows);
+            if (unmatchedNames.size() > 0) {
+                throw new ConfigurationException(
+                        "The following targets in " + valuesPath +
+                        " were not found in " + inputPath + ": " +
+                        unmatchedNames);
+            }
+        }
+
+        if (isMappedDataLoaded) {
+            for (DataRow row : rows) {
+                try {
+                    for (RowUpdater updater :
+                            projectConfig.getRowUpdaters()) {
+                        updater.updateRow(new PluginDataRow(row));
+                    }
+                } catch (ExternalDataException | ExternalSystemException e) {
+                    throw new ConfigurationException(
+                            "Failed to load mapped data for " +
+                            row.getTarget().getName() + ".  " +
+                            e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return an error message if the session is invalid; otherwise null.
+     */
+    private String validate(ProjectConfiguration projectConfig,
+                            DataTableModel model,
+                            RenameSessionValidator validator,
+                            String sessionOutputPath) {
+
+        String errorMessage = null;
+        File sessionOutputDirectory = null;
+
+        final OutputDirectoryConfiguration odConfig =
+                projectConfig.getOutputDirectory();
+        if (odConfig.isDerivedForSession()) {
+            sessionOutputDirectory = new File(sessionOutputPath);
+            errorMessage = OutputDirectoryConfiguration.validateDirectory(
+                    sessionOutputDirectory);
+        }
+
+        if (errorMessage == null) {
+            if (! model.verify()) {
+                errorMessage = model.getErrorMessage();
+            } else if (! validator.validate(
+                    Collections.unmodifiableList(model.getRows()),
+                    sessionOutputDirectory)) {
+                errorMessage = validator.getErrorMessage();
+                final int errorRowIndex = validator.getErrorRowIndex();
+                if (errorRowIndex > -1) {
+                    final DataRow row = model.getRows().get(errorRowIndex);
+                    errorMessage = row.getTarget().getName() + ": " +
+                                   errorMessage;
+                }
+            }
+        }
+
+        return errorMessage;
+    }
+
+    private int runTask(ProjectConfiguration projectConfig,
+                        DataTableModel model,
+                        RenameSessionValidator validator,
+                        String sessionOutputPath) {
+
+        final RenameTask task =
+                RenameTask.getTaskForProject(model,
+                                             projectConfig,
+                                             sessionOutputPath);
+        for (RowListener listener : projectConfig.getRowListeners()) {
+            task.addRowListener(listener);
+        }
+        for (SessionListener listener : projectConfig.getSessionListeners()) {
+            task.addSessionListener(listener);
+        }
+        task.getPluginTimers().addAll(validator.getPluginTimers());
+
+        // run the task in this thread
+        task.run();
+
+        final List<DataRow> rows = model.getRows();
+        final List<Integer> failedRowIndices = task.getFailedRowIndices();
+        final JsonArray failedTargets = new JsonArray();
+        for (Integer rowIndex : failedRowIndices) {
+            failedTargets.add(rows.get(rowIndex).getTarget().getName());
+        }
+        summary.addProperty("failedRowCount", failedRowIndices.size());
+        summary.add("failedTargets", failedTargets);
+
+        final JsonArray timings = new JsonArray();
+        JsonObject timing;
+        for (LatencyTimer timer : task.getPluginTimers().getTimers()) {
+            timing = new JsonObject();
+            timing.addProperty("name", timer.getName());
+            timing.addProperty("count", timer.getCount());
+            timing.addProperty("totalMillis", timer.getTotalMillis());
+            timing.addProperty("p50Millis", timer.getP50Millis());
+            timing.addProperty("p95Millis", timer.getP95Millis());
+            timing.addProperty("maxMillis", timer.getMaxMillis());
+            timings.add(timing);
+        }
+        summary.add("timings", timings);
+
+        final String taskSummary = task.getTaskSummary();
+        LOG.info("task summary:\n" + taskSummary);
+        summary.addProperty("taskSummary", taskSummary);
+
+        final int exitCode;
+        if (! task.isSessionCompleted()) {
+            setStatus("ABORTED",
+                      "session aborted before all " + rows.size() +
+                      " rows were processed (see log for details)");
+            exitCode = EXIT_ROW_FAILURES;
+        } else if (failedRowIndices.size() == 0) {
+            setStatus("SUCCEEDED", null);
+            exitCode = EXIT_SUCCESS;
+        } else {
+            setStatus("FAILED_ROWS",
+                      failedRowIndices.size() + " of " + rows.size() +
+                      " rows failed");
+            exitCode = EXIT_ROW_FAILURES;
+        }
+        return exitCode;
+    }
+
+    private void setStatus(String status,
+                           String message) {
+        summary.addProperty("status", status);
+        if (message != null) {
+            summary.addProperty("message", message);
+        }
+    }
+
+    private void writeSummary() {
+        final String json =
+                new GsonBuilder().setPrettyPrinting().disableHtmlEscaping()
+                        .create().toJson(summary);
+        if (summaryPath == null) {
+            System.out.println(json);
+        } else {
+            try {
+                Files.write(new File(summaryPath).toPath(),
+                            json.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                LOG.error("failed to write summary to " + summaryPath +
+                          ", summary is " + json, e);
+            }
+        }
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println(
+                "\nUSAGE: java " + HeadlessTransmogrifier.class.getName() +
+                " -config <file or URL> -input <directory or data file>\n" +
+                "       [-project <name>] [-output <directory>]\n" +
+                "       [-defaults <saved default set name>]\n" +
+                "       [-values <tab separated field values file>]\n" +
+                "       [-loadMappedData] [-session <name>]\n" +
+                "       [-discardInterrupted]\n" +
+                "       [-summary <JSON summary file>]\n\n" +
+                "Exit codes: " +
+                EXIT_SUCCESS + " (success), " +
+                EXIT_ROW_FAILURES + " (rows failed or session aborted), " +
+                EXIT_INVALID_SESSION + " (validation failed), " +
+                EXIT_SETUP_FAILURE + " (setup failed)\n");
+    }
+
+    public static void main(String[] args) {
+
+        // must be set before any AWT classes are loaded
+        System.setProperty("java.awt.headless", "true");
+
+        LOG.info("starting headless Janelia Transmogrifier version " +
+                 JaneliaTransmogrifier.getVersion());
+
+        final HeadlessTransmogrifier session = new HeadlessTransmogrifier();
+        int exitCode;
+        try {
+            session.parseArguments(args);
+            exitCode = session.run();
+        } catch (IllegalArgumentException e) {
+            System.err.println("\nERROR: " + e.getMessage());
+            printUsage(System.err);
+            exitCode = EXIT_SETUP_FAILURE;
+        }
+
+        System.exit(exitCode);
+    }
+
+    private static final Logger LOG =
+            Logger.getLogger(HeadlessTransmogrifier.class);
+}
@@ -10,8 +10,10 @@ package org.janelia.it.ims.tmog;
 import java.awt.Dimension;
 import java.awt.Image;
 import java.awt.Toolkit;
+import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.jar.Attributes;
@@ -32,9 +34,13 @@ import org.janelia.it.ims.tmog.config.ConfigurationLoader;
 import org.janelia.it.ims.tmog.config.GlobalConfiguration;
 import org.janelia.it.ims.tmog.config.TransmogrifierConfiguration;
 import org.janelia.it.ims.tmog.config.preferences.TransmogrifierPreferences;
+import org.janelia.it.ims.tmog.task.SessionLog;
+import org.janelia.it.ims.tmog.task.SessionRecovery;
 import org.janelia.it.ims.tmog.view.ColorScheme;
 import org.janelia.it.ims.tmog.view.TabbedView;
 import org.janelia.it.ims.tmog.view.component.NarrowOptionPane;
+import org.janelia.it.utils.filexfer.BufferSizeTuner;
+import org.janelia.it.utils.filexfer.FileDigestCache;
 
 /**
  * This class launches the transmogrifier user interface.
@@ -105,6 +111,34 @@ public class JaneliaTransmogrifier extends JFrame implements ConfigurationLoadCo
                     JOptionPane.WARNING_MESSAGE);
         }
 
+        // keep previously calculated file digests next to the preferences file
+        FileDigestCache.getInstance().load(
+                new File(System.getProperty("user.home")));
+
+        // log rename sessions so that interrupted sessions can be recovered
+        SessionLog.setDirectory(new File(System.getProperty("user.home"),
+                                         SessionLog.DIRECTORY_NAME));
+
+        // remember tuned transfer buffer sizes across sessions
+        BufferSizeTuner.getInstance().setPersistence(
+                new BufferSizeTuner.Persistence() {
+                    @Override
+                    public String load(String name) {
+                        return tmogPreferences.getGlobalPreference(name);
+                    }
+
+                    @Override
+                    public void save(final String name,
+                                     final String value) {
+                        // sizes are tuned on transfer threads,
+                        // so save on the event thread with other preferences
+                        SwingUtilities.invokeLater(() -> {
+                            tmogPreferences.setGlobalPreference(name, value);
+                            tmogPreferences.save();
+                        });
+                    }
+                });
+
         try {
             final URL configUrl = ConfigurationLoader.getConfigUrl(configResource);
             final ConfigurationLoader loader = new ConfigurationLoader(configUrl, this);
@@ -168,7 +202,63 @@ public class JaneliaTransmogrifier extends JFrame implements ConfigurationLoadCo
         setSize(frameSize.width, frameSize.height);
         setPreferredSize(frameSize);
 
-        SwingUtilities.invokeLater(() -> setVisible(true));
+        SwingUtilities.invokeLater(() -> {
+            setVisible(true);
+            offerSessionRecovery();
+        });
+    }
+
+    /**
+     * Offers to recover any sessions that were interrupted
+     * (e.g. because the application was killed) before they finished.
+     */
+    private void offerSessionRecovery() {
+        final List<SessionRecovery> recoveries =
+                SessionRecovery.findInterruptedSessions();
+        if (recoveries.size() > 0) {
+
+            int unfinishedCount = 0;
+            for (SessionRecovery recovery : recoveries) {
+                unfinishedCount += recovery.getIncompleteRowCount();
+            }
+
+            final int choice = NarrowOptionPane.showConfirmDialog(
+                    this,
+                    recoveries.size() + " interrupted session(s) with " +
+                    unfinishedCount + " unfinished file(s) were found.  " +
+                    "Would you like to resume them?  Completed work will " +
+                    "be kept (and skipped when the files are processed " +
+                    "again) and partially completed work will be rolled " +
+                    "back.  Choose 'No' to discard the interrupted session " +
+                    "logs or 'Cancel' to decide the next time the " +
+                    "application starts.",
+                    "Resume Interrupted Sessions?",
+                    JOptionPane.YES_NO_CANCEL_OPTION);
+
+            if (choice == JOptionPane.YES_OPTION) {
+                int errorCount = 0;
+                for (SessionRecovery recovery : recoveries) {
+                    for (String line : recovery.recover().split("\n")) {
+                        if (line.startsWith("ERROR")) {
+                            errorCount++;
+                        }
+                    }
+                }
+                NarrowOptionPane.showMessageDialog(
+                        this,
+                        "Recovered " + recoveries.size() + " interrupted " +
+                        "session(s).  " + errorCount + " file(s) could not " +
+                        "be recovered and need to be checked (see the " +
+                        "application log for details).",
+                        "Interrupted Sessions Recovered",
+                        (errorCount == 0) ? JOptionPane.INFORMATION_MESSAGE :
+                                            JOptionPane.WARNING_MESSAGE);
+            } else if (choice == JOptionPane.NO_OPTION) {
+                for (SessionRecovery recovery : recoveries) {
+                    recovery.discard();
+                }
+            }
+        }
     }
 
     @Override
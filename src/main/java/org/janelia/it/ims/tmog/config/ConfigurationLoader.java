@@ -46,6 +46,7 @@ import org.janelia.it.ims.tmog.target.XmlTargetDataFile;
 import org.janelia.it.ims.tmog.view.component.NarrowOptionPane;
 import org.janelia.it.ims.tmog.view.component.ProgressPanel;
 import org.janelia.it.utils.PathUtil;
+import org.janelia.it.utils.filexfer.TransferScheduler;
 import org.xml.sax.SAXException;
 
 import javax.swing.*;
@@ -102,6 +103,57 @@ public class ConfigurationLoader
         this.addPropertyChangeListener(progressPanel);
     }
 
+    /**
+     * Sets up a loader that does not display progress
+     * (see {@link #loadWithoutDisplay}).
+     *
+     * @param  configUrl  URL for configuration data.
+     */
+    private ConfigurationLoader(URL configUrl) {
+        this.configUrl = configUrl;
+        this.config = new TransmogrifierConfiguration();
+        this.completionHandler = null;
+        this.progressFrame = null;
+        this.progressPanel = null;
+    }
+
+    /**
+     * Loads configuration data in the current thread without displaying
+     * any progress or errors (e.g. for headless batch processing).
+     * Progress messages are logged instead.
+     *
+     * @param  configUrl  URL for configuration data.
+     *
+     * @return the loaded configuration.
+     *
+     * @throws ConfigurationException
+     *   if the load fails.
+     */
+    public static TransmogrifierConfiguration loadWithoutDisplay(URL configUrl)
+            throws ConfigurationException {
+
+        final ConfigurationLoader loader = new ConfigurationLoader(configUrl);
+        InputStream configStream = null;
+        try {
+            loader.publishMessage("parsing " + configUrl);
+            configStream = configUrl.openStream();
+            loader.load(configStream);
+        } catch (IOException e) {
+            throw new ConfigurationException(
+                    "Failed to access configuration information.", e);
+        } finally {
+            if (configStream != null) {
+                try {
+                    configStream.close();
+                } catch (IOException e) {
+                    LOG.warn("loadWithoutDisplay: failed to close configuration stream, ignoring error", e);
+                }
+            }
+        }
+
+        return loader.config;
+    }
+
     /**
      * Loads configuration data on a background thread.
      *
@@ -166,7 +218,11 @@ public class ConfigurationLoader
      * @param  message  message to add to progress frame.
      */
     void publishMessage(String message) {
-        publish(message);
+        if (progressPanel == null) {
+            LOG.info(message);
+        } else {
+            publish(message);
+        }
     }
 
     /**
@@ -186,6 +242,9 @@ public class ConfigurationLoader
 
         createSetAndAdd("*/global",
                         GlobalConfiguration.class, digester);
+        createSetAndAdd("*/global/transferLimit",
+                        TransferLimitConfiguration.class,
+                        "addTransferLimit", digester);
         createSetAndAdd("*/project",
                         ProjectConfiguration.class, digester);
 
@@ -323,18 +382,22 @@ public class ConfigurationLoader
                 elementCount++;
                 if (element instanceof ProjectConfiguration) {
                     ProjectConfiguration pConfig = (ProjectConfiguration) element;
-                    publish("loading '" + pConfig.getName() + "' configuration");
+                    publishMessage("loading '" + pConfig.getName() + "' configuration");
                     pConfig.setLoader(this);
                     pConfig.initializeAndVerify();
                     config.addProjectConfiguration(pConfig);
                 } else if (element instanceof GlobalConfiguration) {
-                    publish("loading global configuration");
+                    publishMessage("loading global configuration");
                     GlobalConfiguration globalConfiguration = (GlobalConfiguration) element;
                     globalConfiguration.verify(JaneliaTransmogrifier.getVersion());
+                    globalConfiguration.applyTransferLimits(
+                            TransferScheduler.getInstance());
                     config.setGlobalConfiguration(globalConfiguration);
                 }
-                percentComplete = ((double) elementCount * 100) / (double) totalElementCount;
-                setProgress((int) percentComplete);
+                if (progressPanel != null) {
+                    percentComplete = ((double) elementCount * 100) / (double) totalElementCount;
+                    setProgress((int) percentComplete);
+                }
             }
         } catch (IOException e) {
             throw new ConfigurationException(
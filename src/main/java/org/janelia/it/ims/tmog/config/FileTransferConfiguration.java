@@ -7,10 +7,16 @@
 
 package org.janelia.it.ims.tmog.config;
 
+import org.janelia.it.utils.filexfer.BufferSizeTuner;
 import org.janelia.it.utils.filexfer.DigestAlgorithms;
+import org.janelia.it.utils.filexfer.FileTransferUtil;
 import org.janelia.it.utils.filexfer.SafeFileTransfer;
+import org.janelia.it.utils.filexfer.SyncBatch;
 
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * This class encapsulates configuration information about the
@@ -24,12 +30,41 @@ public class FileTransferConfiguration {
     private String digestAlgorithm;
     private boolean validationRequired;
     private boolean nioRequired;
+    private int maxConcurrentFiles;
+    private int pipelineBufferCount;
+    private boolean asynchronousValidation;
+    private List<String> auditDigestAlgorithms;
+    private boolean moveWithinFileStore;
+    private long mappedDigestThreshold;
+    private boolean zeroCopyTransfer;
+    private boolean autoTuneBufferSize;
+    private long resumableChunkSize;
+    private boolean preallocateTarget;
+    private String syncPolicy;
+    private int syncBatchFileCount;
+    private long syncBatchMegabytes;
+    private int startRowLookAhead;
 
     public FileTransferConfiguration() {
         this.bufferSize = SafeFileTransfer.BUFFER_SIZE;
         this.digestAlgorithm = SafeFileTransfer.DIGEST_ALGORITHM;
         this.validationRequired = true;
         this.nioRequired = false;
+        this.maxConcurrentFiles = 1;
+        this.pipelineBufferCount = 0;
+        this.asynchronousValidation = false;
+        this.auditDigestAlgorithms = new ArrayList<String>();
+        this.moveWithinFileStore = false;
+        this.mappedDigestThreshold =
+                FileTransferUtil.DEFAULT_MAPPED_DIGEST_THRESHOLD;
+        this.zeroCopyTransfer = false;
+        this.autoTuneBufferSize = false;
+        this.resumableChunkSize = 0;
+        this.preallocateTarget = false;
+        this.syncPolicy = FileTransferUtil.SyncPolicy.NONE.name();
+        this.syncBatchFileCount = SyncBatch.DEFAULT_MAX_FILE_COUNT;
+        this.syncBatchMegabytes = SyncBatch.DEFAULT_MAX_BYTES / MEGABYTE;
+        this.startRowLookAhead = 0;
     }
 
     public int getBufferSize() {
@@ -86,6 +121,312 @@ public class FileTransferConfiguration {
         this.nioRequired = nioRequired;
     }
 
+    /**
+     * @return the maximum number of files (rows) that may be
+     *         transferred concurrently within a session.
+     */
+    public int getMaxConcurrentFiles() {
+        return maxConcurrentFiles;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setMaxConcurrentFiles(int maxConcurrentFiles) {
+        this.maxConcurrentFiles = maxConcurrentFiles;
+    }
+
+    /**
+     * @return the number of buffers to use for pipelined (overlapped
+     *         read and write/digest) transfers or zero if pipelining
+     *         is disabled.
+     */
+    public int getPipelineBufferCount() {
+        return pipelineBufferCount;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setPipelineBufferCount(int pipelineBufferCount) {
+        this.pipelineBufferCount = pipelineBufferCount;
+
+        // stream transfer util doesn't support pipelining
+        if (pipelineBufferCount > 0) {
+            nioRequired = true;
+        }
+    }
+
+    /**
+     * @return true if copies should be validated asynchronously
+     *         (allowing validation of one file to overlap with the
+     *         copy of the next file); otherwise false.
+     */
+    public boolean isAsynchronousValidation() {
+        return asynchronousValidation;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setAsynchronousValidation(boolean asynchronousValidation) {
+        this.asynchronousValidation = asynchronousValidation;
+
+        // stream transfer util doesn't support asynchronous validation
+        if (asynchronousValidation) {
+            nioRequired = true;
+        }
+    }
+
+    /**
+     * The parsed list is not named getAuditDigestAlgorithms so that the
+     * configured names remain a writable bean property for the
+     * configuration loader.
+     *
+     * @return names of additional digest algorithms to calculate
+     *         (in the same pass as the transfer digest) for each
+     *         transferred file.
+     */
+    public List<String> getAuditDigestAlgorithmList() {
+        return auditDigestAlgorithms;
+    }
+
+    /**
+     * @param  auditDigestAlgorithms  comma separated list of additional
+     *                                digest algorithm names.
+     */
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setAuditDigestAlgorithms(String auditDigestAlgorithms) {
+        this.auditDigestAlgorithms = new ArrayList<String>();
+        if (auditDigestAlgorithms != null) {
+            String name;
+            for (String algorithm : auditDigestAlgorithms.split(",")) {
+                name = algorithm.trim();
+                if (name.length() > 0) {
+                    this.auditDigestAlgorithms.add(name);
+                }
+            }
+        }
+
+        // stream transfer util doesn't support additional digests
+        if (this.auditDigestAlgorithms.size() > 0) {
+            nioRequired = true;
+        }
+    }
+
+    /**
+     * @return true if files on the same file store as their target
+     *         directory should be atomically moved (and validated)
+     *         instead of copied; otherwise false.
+     */
+    public boolean isMoveWithinFileStore() {
+        return moveWithinFileStore;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setMoveWithinFileStore(boolean moveWithinFileStore) {
+        this.moveWithinFileStore = moveWithinFileStore;
+
+        // stream transfer util doesn't support moves
+        if (moveWithinFileStore) {
+            nioRequired = true;
+        }
+    }
+
+    /**
+     * @return minimum file size (in bytes) for memory mapped digest
+     *         calculation or a negative value if mapping is disabled.
+     */
+    public long getMappedDigestThreshold() {
+        return mappedDigestThreshold;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setMappedDigestThreshold(long mappedDigestThreshold) {
+        this.mappedDigestThreshold = mappedDigestThreshold;
+    }
+
+    /**
+     * @return true if validated copies should move data with kernel
+     *         zero copy transfers (calculating digests from a memory
+     *         mapped read of the source); otherwise false.
+     */
+    public boolean isZeroCopyTransfer() {
+        return zeroCopyTransfer;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setZeroCopyTransfer(boolean zeroCopyTransfer) {
+        this.zeroCopyTransfer = zeroCopyTransfer;
+
+        // stream transfer util doesn't support zero copy transfers
+        if (zeroCopyTransfer) {
+            nioRequired = true;
+        }
+    }
+
+    /**
+     * @return true if the transfer buffer size should be tuned (and
+     *         remembered) for each destination file store; otherwise false.
+     */
+    public boolean isAutoTuneBufferSize() {
+        return autoTuneBufferSize;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setAutoTuneBufferSize(boolean autoTuneBufferSize) {
+        this.autoTuneBufferSize = autoTuneBufferSize;
+
+        // stream transfer util doesn't support configurable buffer sizes
+        if (autoTuneBufferSize) {
+            nioRequired = true;
+        }
+    }
+
+    /**
+     * @return chunk size for resumable (journaled) transfers or zero if
+     *         resumable transfers are disabled.
+     */
+    public long getResumableChunkSize() {
+        return resumableChunkSize;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setResumableChunkSize(long resumableChunkSize) {
+        this.resumableChunkSize = resumableChunkSize;
+
+        // stream transfer util doesn't support resumable transfers
+        if (resumableChunkSize > 0) {
+            nioRequired = true;
+        }
+    }
+
+    /**
+     * @return true if copy targets should be extended to their final
+     *         size before any data is written; otherwise false.
+     */
+    public boolean isPreallocateTarget() {
+        return preallocateTarget;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setPreallocateTarget(boolean preallocateTarget) {
+        this.preallocateTarget = preallocateTarget;
+
+        // stream transfer util doesn't support preallocation
+        if (preallocateTarget) {
+            nioRequired = true;
+        }
+    }
+
+    /**
+     * @return the configured name of the policy for syncing copied files.
+     */
+    public String getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    /**
+     * The typed policy is not named getSyncPolicy so that the configured
+     * name remains a writable bean property for the configuration loader.
+     *
+     * @return the policy for syncing copied files.
+     *
+     * @throws IllegalArgumentException
+     *   if the configured policy name is invalid
+     *   (see {@link #verify}).
+     */
+    public FileTransferUtil.SyncPolicy getSyncPolicyType()
+            throws IllegalArgumentException {
+        return FileTransferUtil.SyncPolicy.valueOf(syncPolicy.toUpperCase());
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setSyncPolicy(String syncPolicy) {
+        this.syncPolicy = syncPolicy.trim();
+
+        // stream transfer util doesn't support sync policies
+        if (! FileTransferUtil.SyncPolicy.NONE.name().equalsIgnoreCase(
+                this.syncPolicy)) {
+            nioRequired = true;
+        }
+    }
+
+    /**
+     * @return number of files that triggers a batched sync.
+     */
+    public int getSyncBatchFileCount() {
+        return syncBatchFileCount;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setSyncBatchFileCount(int syncBatchFileCount) {
+        this.syncBatchFileCount = syncBatchFileCount;
+    }
+
+    /**
+     * @return number of megabytes that triggers a batched sync.
+     */
+    public long getSyncBatchMegabytes() {
+        return syncBatchMegabytes;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setSyncBatchMegabytes(long syncBatchMegabytes) {
+        this.syncBatchMegabytes = syncBatchMegabytes;
+    }
+
+    /**
+     * @return the maximum number of rows whose start row plug-ins may
+     *         run while earlier rows are being transferred or zero if
+     *         rows are started one at a time.  Look-ahead assumes that
+     *         start row plug-ins are thread-safe (plug-ins that are not
+     *         must implement
+     *         {@link org.janelia.it.ims.tmog.plugin.OrderedRowListener}).
+     */
+    public int getStartRowLookAhead() {
+        return startRowLookAhead;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setStartRowLookAhead(int startRowLookAhead) {
+        this.startRowLookAhead = startRowLookAhead;
+    }
+
+    /**
+     * @return a new batch for syncing a session's copies or null
+     *         if copies are not synced in batches.
+     */
+    public SyncBatch createSyncBatch() {
+        SyncBatch batch = null;
+        if (getSyncPolicyType() == FileTransferUtil.SyncPolicy.BATCH) {
+            batch = new SyncBatch(syncBatchFileCount,
+                                  syncBatchMegabytes * MEGABYTE);
+        }
+        return batch;
+    }
+
+    /**
+     * Creates a transfer utility with this configuration's buffer,
+     * digest, and copy mode settings.  Copies made with the utility
+     * are not synced (callers apply any sync policy since batches
+     * are shared by a session).
+     *
+     * @return a new transfer utility.
+     *
+     * @throws NoSuchAlgorithmException
+     *   if a configured digest algorithm is not supported.
+     */
+    public FileTransferUtil createFileTransferUtil()
+            throws NoSuchAlgorithmException {
+        final FileTransferUtil util = new FileTransferUtil(bufferSize,
+                                                           digestAlgorithm);
+        util.setPipelineBufferCount(pipelineBufferCount);
+        util.setAuditDigestAlgorithms(auditDigestAlgorithms);
+        util.setMappedDigestThreshold(mappedDigestThreshold);
+        util.setZeroCopyTransfer(zeroCopyTransfer);
+        util.setResumableChunkSize(resumableChunkSize);
+        util.setPreallocateTarget(preallocateTarget);
+        if (autoTuneBufferSize) {
+            util.setBufferSizeTuner(BufferSizeTuner.getInstance());
+        }
+        return util;
+    }
+
     @Override
     public String toString() {
         return "FileTransferConfiguration{" +
@@ -93,6 +434,20 @@ public class FileTransferConfiguration {
                ", digestAlgorithm='" + digestAlgorithm + '\'' +
                ", validationRequired=" + validationRequired +
                ", nioRequired=" + nioRequired +
+               ", maxConcurrentFiles=" + maxConcurrentFiles +
+               ", pipelineBufferCount=" + pipelineBufferCount +
+               ", asynchronousValidation=" + asynchronousValidation +
+               ", auditDigestAlgorithms=" + auditDigestAlgorithms +
+               ", moveWithinFileStore=" + moveWithinFileStore +
+               ", mappedDigestThreshold=" + mappedDigestThreshold +
+               ", zeroCopyTransfer=" + zeroCopyTransfer +
+               ", autoTuneBufferSize=" + autoTuneBufferSize +
+               ", resumableChunkSize=" + resumableChunkSize +
+               ", preallocateTarget=" + preallocateTarget +
+               ", syncPolicy='" + syncPolicy + '\'' +
+               ", syncBatchFileCount=" + syncBatchFileCount +
+               ", syncBatchMegabytes=" + syncBatchMegabytes +
+               ", startRowLookAhead=" + startRowLookAhead +
                '}';
     }
 
@@ -116,12 +471,84 @@ public class FileTransferConfiguration {
             }
         }
 
+        for (String algorithm : auditDigestAlgorithms) {
+            try {
+                DigestAlgorithms.getMessageDigest(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new ConfigurationException(
+                        "The configured file transfer audit digest " +
+                        "algorithm '" + algorithm + "' is not valid.  " +
+                        "Accepted values are: " +
+                        DigestAlgorithms.getValidNames() + ".",
+                        e);
+            }
+        }
+
+        if (maxConcurrentFiles < 1) {
+            throw new ConfigurationException(
+                    "The configured maximum number of concurrent file " +
+                    "transfers (" + maxConcurrentFiles + ") must be " +
+                    "greater than zero.");
+        }
+
+        if ((pipelineBufferCount != 0) &&
+            (pipelineBufferCount < FileTransferUtil.MIN_PIPELINE_BUFFER_COUNT)) {
+            throw new ConfigurationException(
+                    "The configured file transfer pipeline buffer count (" +
+                    pipelineBufferCount + ") must be zero (disabled) or " +
+                    "at least " + FileTransferUtil.MIN_PIPELINE_BUFFER_COUNT +
+                    ".");
+        }
+
+        try {
+            getSyncPolicyType();
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(
+                    "The configured file transfer sync policy '" +
+                    syncPolicy + "' is not valid.  Accepted values are: " +
+                    Arrays.toString(FileTransferUtil.SyncPolicy.values()) +
+                    " (case insensitive).",
+                    e);
+        }
+
+        if ((syncBatchFileCount < 1) || (syncBatchMegabytes < 1)) {
+            throw new ConfigurationException(
+                    "The configured file transfer sync batch limits (" +
+                    syncBatchFileCount + " files, " + syncBatchMegabytes +
+                    " megabytes) must be greater than zero.");
+        }
+
+        if (startRowLookAhead < 0) {
+            throw new ConfigurationException(
+                    "The configured start row look-ahead (" +
+                    startRowLookAhead + ") must not be negative.");
+        }
+
+        if ((resumableChunkSize != 0) &&
+            (resumableChunkSize < FileTransferUtil.MIN_RESUMABLE_CHUNK_SIZE)) {
+            throw new ConfigurationException(
+                    "The configured file transfer resumable chunk size (" +
+                    resumableChunkSize + " bytes) must be zero (disabled) " +
+                    "or at least " + FileTransferUtil.MIN_RESUMABLE_CHUNK_SIZE +
+                    " bytes.");
+        }
+
         // this is a bit of a hack to catch wild buffer size values
         final long maxHeap = Runtime.getRuntime().maxMemory();
         final long typicalRequiredForApp = 50 * 1024 * 1024; // 50 Mb
         final long typicalFree = maxHeap - typicalRequiredForApp;
-        final int concurrentBuffers = 3;
+        final int concurrentBuffers =
+                Math.max(3, pipelineBufferCount) * maxConcurrentFiles;
         final long maxBuffer = typicalFree / concurrentBuffers;
+        if (autoTuneBufferSize &&
+            (BufferSizeTuner.MAX_CANDIDATE_SIZE > maxBuffer)) {
+            throw new ConfigurationException(
+                    "File transfer buffer size auto-tuning requires " +
+                    "buffers of up to " + BufferSizeTuner.MAX_CANDIDATE_SIZE +
+                    " bytes which may be too large for the current maximum " +
+                    "java memory setting (" + maxHeap + " bytes).  Please " +
+                    "disable auto-tuning or increase the maximum memory size.");
+        }
         if (bufferSize > maxBuffer) {
             final long minHeap =
                     (concurrentBuffers * bufferSize) + typicalRequiredForApp;
@@ -136,4 +563,6 @@ public class FileTransferConfiguration {
             );
         }
     }
-}
\ No newline at end of file
+
+    private static final long MEGABYTE = 1024 * 1024;
+}
@@ -7,6 +7,11 @@
 
 package org.janelia.it.ims.tmog.config;
 
+import org.janelia.it.utils.filexfer.TransferScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This class encapsulates configuration information that applies to
  * all projects.
@@ -17,8 +22,14 @@ public class GlobalConfiguration {
 
     private String minimumVersion;
     private Integer frameSizePercentage;
+    private int maxConcurrentTransfersPerFileStore;
+    private double maxMegabytesPerSecondPerFileStore;
+    private List<TransferLimitConfiguration> transferLimits;
 
     public GlobalConfiguration() {
+        this.maxConcurrentTransfersPerFileStore = TransferScheduler.UNLIMITED;
+        this.maxMegabytesPerSecondPerFileStore = TransferScheduler.UNLIMITED;
+        this.transferLimits = new ArrayList<TransferLimitConfiguration>();
     }
 
     public String getMinimumVersion() {
@@ -37,6 +48,62 @@ public class GlobalConfiguration {
         this.frameSizePercentage = frameSizePercentage;
     }
 
+    /**
+     * @return the default maximum number of concurrent file transfers
+     *         (across all sessions) to each destination file store or
+     *         {@link TransferScheduler#UNLIMITED}.
+     */
+    public int getMaxConcurrentTransfersPerFileStore() {
+        return maxConcurrentTransfersPerFileStore;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setMaxConcurrentTransfersPerFileStore(int maxConcurrentTransfersPerFileStore) {
+        this.maxConcurrentTransfersPerFileStore = maxConcurrentTransfersPerFileStore;
+    }
+
+    /**
+     * @return the default maximum aggregate transfer throughput
+     *         (across all sessions) to each destination file store or
+     *         {@link TransferScheduler#UNLIMITED}.
+     */
+    public double getMaxMegabytesPerSecondPerFileStore() {
+        return maxMegabytesPerSecondPerFileStore;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setMaxMegabytesPerSecondPerFileStore(double maxMegabytesPerSecondPerFileStore) {
+        this.maxMegabytesPerSecondPerFileStore = maxMegabytesPerSecondPerFileStore;
+    }
+
+    /**
+     * @return limits for specific destination file stores.
+     */
+    public List<TransferLimitConfiguration> getTransferLimits() {
+        return transferLimits;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void addTransferLimit(TransferLimitConfiguration transferLimit) {
+        this.transferLimits.add(transferLimit);
+    }
+
+    /**
+     * Replaces the limits in the specified scheduler with
+     * this configuration's limits.
+     *
+     * @param  scheduler  scheduler to update.
+     */
+    public void applyTransferLimits(TransferScheduler scheduler) {
+
+        scheduler.clearLimits();
+        scheduler.setDefaultLimits(maxConcurrentTransfersPerFileStore,
+                                   maxMegabytesPerSecondPerFileStore);
+        for (TransferLimitConfiguration transferLimit : transferLimits) {
+            transferLimit.apply(scheduler);
+        }
+    }
+
     /**
      * Verifies the global configuration.
      *
@@ -64,6 +131,17 @@ public class GlobalConfiguration {
                     "configuration requires version " + minimumVersion +
                     " or later.");
         }
+
+        if ((maxConcurrentTransfersPerFileStore < 0) ||
+            (maxMegabytesPerSecondPerFileStore < 0)) {
+            throw new ConfigurationException(
+                    "Global file store transfer limits must be zero " +
+                    "(unlimited) or greater.");
+        }
+
+        for (TransferLimitConfiguration transferLimit : transferLimits) {
+            transferLimit.verify();
+        }
     }
 
     private int getVersionValue(String version) throws ConfigurationException {
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.config;
+
+import org.apache.log4j.Logger;
+import org.janelia.it.utils.PathUtil;
+import org.janelia.it.utils.filexfer.TransferScheduler;
+
+import java.io.File;
+
+/**
+ * This class encapsulates the transfer limits for the file store
+ * that contains a specific path.
+ *
+ * @author Eric Trautman
+ */
+public class TransferLimitConfiguration {
+
+    private String path;
+    private int maxConcurrentTransfers;
+    private double maxMegabytesPerSecond;
+
+    public TransferLimitConfiguration() {
+        this.maxConcurrentTransfers = TransferScheduler.UNLIMITED;
+        this.maxMegabytesPerSecond = TransferScheduler.UNLIMITED;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setPath(String path) {
+        this.path = PathUtil.convertPath(path.trim());
+    }
+
+    public int getMaxConcurrentTransfers() {
+        return maxConcurrentTransfers;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setMaxConcurrentTransfers(int maxConcurrentTransfers) {
+        this.maxConcurrentTransfers = maxConcurrentTransfers;
+    }
+
+    public double getMaxMegabytesPerSecond() {
+        return maxMegabytesPerSecond;
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setMaxMegabytesPerSecond(double maxMegabytesPerSecond) {
+        this.maxMegabytesPerSecond = maxMegabytesPerSecond;
+    }
+
+    /**
+     * Verifies the limit configuration.
+     *
+     * @throws ConfigurationException
+     *   if any of the settings are invalid.
+     */
+    public void verify() throws ConfigurationException {
+        if ((path == null) || (path.length() == 0)) {
+            throw new ConfigurationException(
+                    "A path must be specified for each transfer limit.");
+        }
+        if ((maxConcurrentTransfers < 0) || (maxMegabytesPerSecond < 0)) {
+            throw new ConfigurationException(
+                    "The transfer limits for " + path + " must be zero " +
+                    "(unlimited) or greater.");
+        }
+    }
+
+    /**
+     * Applies these limits to the specified scheduler.  Paths that are
+     * not accessible from this workstation are skipped (with a warning)
+     * since the limits are irrelevant when the file store is unavailable.
+     *
+     * @param  scheduler  scheduler to update.
+     */
+    public void apply(TransferScheduler scheduler) {
+        final File file = new File(path);
+        if (file.exists()) {
+            try {
+                scheduler.setLimits(file,
+                                    maxConcurrentTransfers,
+                                    maxMegabytesPerSecond);
+            } catch (IllegalArgumentException e) {
+                LOG.warn("apply: skipping transfer limit for " + path, e);
+            }
+        } else {
+            LOG.warn("apply: skipping transfer limit for " + path +
+                     " because it does not exist");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TransferLimitConfiguration{" +
+               "path='" + path + '\'' +
+               ", maxConcurrentTransfers=" + maxConcurrentTransfers +
+               ", maxMegabytesPerSecond=" + maxMegabytesPerSecond +
+               '}';
+    }
+
+    private static final Logger LOG =
+            Logger.getLogger(TransferLimitConfiguration.class);
+}
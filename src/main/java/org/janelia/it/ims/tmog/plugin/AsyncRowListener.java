@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.plugin;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This interface identifies the methods required for row listeners
+ * that can process {@link EventType#END_ROW_SUCCESS} events asynchronously
+ * (e.g. listeners that make slow network or database requests).
+ * <p>
+ * Asynchronous processing is only used for listeners that return
+ * a positive {@link #getMaxConcurrentEvents} value.
+ * Tasks that support this interface do not wait for asynchronous
+ * processing before moving on to the next row, but they do not clean up
+ * a row (e.g. remove its source file) until all of its events have
+ * completed.  Rows whose events fail are marked as failed and cleaned
+ * up as such.  All outstanding events complete before session
+ * listeners are notified that the session has ended.
+ * Any updates an asynchronous listener makes to the row are not seen
+ * by listeners notified after it.
+ * Other events (and tasks that do not support this interface) are
+ * processed synchronously via {@link #processEvent}.
+ *
+ * @author Eric Trautman
+ */
+public interface AsyncRowListener extends RowListener {
+
+    /** Name of the plug-in property for the maximum concurrent events. */
+    public static final String MAX_CONCURRENT_EVENTS_PROPERTY =
+            "maxConcurrentEvents";
+
+    /**
+     * Starts asynchronous processing of the specified event.
+     *
+     * @param  eventType  type of event.
+     * @param  row        details about the event.
+     *
+     * @return a future for the data field row (with any updates from
+     *         this plugin) that completes exceptionally with an
+     *         {@link ExternalDataException} or {@link ExternalSystemException}
+     *         if processing fails.
+     */
+    public CompletableFuture<PluginDataRow> processEventAsync(
+            EventType eventType,
+            PluginDataRow row);
+
+    /**
+     * @return the maximum number of events this listener may process
+     *         concurrently (tasks wait for earlier events to complete
+     *         before exceeding this limit) or a value less than 1
+     *         if events should be processed synchronously.
+     */
+    public int getMaxConcurrentEvents();
+}
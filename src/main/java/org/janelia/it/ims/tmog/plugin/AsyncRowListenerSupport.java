@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.plugin;
+
+import org.janelia.it.utils.LoggingUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared utilities for {@link AsyncRowListener} implementations.
+ *
+ * @author Eric Trautman
+ */
+public class AsyncRowListenerSupport {
+
+    /**
+     * Default maximum number of events a listener processes at once
+     * (asynchronous processing is disabled by default).
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_EVENTS = 0;
+
+    /**
+     * Processes the specified event with the listener's synchronous
+     * {@link RowListener#processEvent} method in a background thread.
+     * The number of threads is not bounded here since tasks limit the
+     * number of concurrent events for each listener.
+     *
+     * @param  listener   listener to notify.
+     * @param  eventType  type of event.
+     * @param  row        details about the event.
+     *
+     * @return a future for the listener's processing result.
+     */
+    public static CompletableFuture<PluginDataRow> processEventAsync(
+            final RowListener listener,
+            final RowListener.EventType eventType,
+            final PluginDataRow row) {
+        final CompletableFuture<PluginDataRow> result =
+                new CompletableFuture<PluginDataRow>();
+        EVENT_EXECUTOR.execute(() -> {
+            LoggingUtils.setLoggingContext();
+            try {
+                result.complete(listener.processEvent(eventType, row));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs the specified work (e.g. processing for a batch of rows)
+     * in the same background threads used for asynchronous events.
+     *
+     * @param  work  work to run.
+     *
+     * @return a future that completes when the work has been run.
+     */
+    public static CompletableFuture<Void> runAsync(final Runnable work) {
+        return CompletableFuture.runAsync(() -> {
+            LoggingUtils.setLoggingContext();
+            work.run();
+        }, EVENT_EXECUTOR);
+    }
+
+    /**
+     * @param  value             configured maximum concurrent events value.
+     * @param  initFailureMsg    plug-in specific initialization failure
+     *                           message prefix.
+     *
+     * @return the parsed maximum.
+     *
+     * @throws ExternalSystemException
+     *   if the value is not a positive integer.
+     */
+    public static int getMaxConcurrentEvents(String value,
+                                             String initFailureMsg)
+            throws ExternalSystemException {
+        int maxConcurrentEvents;
+        try {
+            maxConcurrentEvents = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            maxConcurrentEvents = 0;
+        }
+        if (maxConcurrentEvents < 1) {
+            throw new ExternalSystemException(
+                    initFailureMsg + "The '" +
+                    AsyncRowListener.MAX_CONCURRENT_EVENTS_PROPERTY +
+                    "' property '" + value +
+                    "' must be a positive integer value.");
+        }
+        return maxConcurrentEvents;
+    }
+
+    /**
+     * Executor for asynchronous events.  Threads are daemons,
+     * so the pool never needs to be explicitly shutdown.
+     */
+    private static final ExecutorService EVENT_EXECUTOR =
+            Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable,
+                                                 "async-row-listener");
+                thread.setDaemon(true);
+                return thread;
+            });
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.plugin;
+
+import java.util.List;
+
+/**
+ * This exception is thrown when some (but not necessarily all) of the
+ * rows in a batch could not be processed by a {@link BatchRowListener}.
+ * Rows that are not identified by this exception were processed
+ * successfully.
+ *
+ * @author Eric Trautman
+ */
+public class BatchProcessingException extends ExternalSystemException {
+
+    private List<PluginDataRow> failedRows;
+
+    public BatchProcessingException(String message,
+                                    List<PluginDataRow> failedRows,
+                                    Throwable cause) {
+        super(message, cause);
+        this.failedRows = failedRows;
+    }
+
+    /**
+     * @return the rows that could not be processed.
+     */
+    public List<PluginDataRow> getFailedRows() {
+        return failedRows;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.plugin;
+
+import java.util.List;
+
+/**
+ * This interface identifies the methods required for row listeners
+ * that process successfully completed rows in batches
+ * (e.g. to reduce the number of external round trips).
+ * <p>
+ * Tasks that support this interface collect the rows for
+ * {@link EventType#END_ROW_SUCCESS} events instead of notifying the
+ * listener about each one.  A batch is processed when it reaches the
+ * listener's maximum size, when its oldest row has waited for the
+ * listener's maximum time, and at the end of the session before session
+ * listeners are notified.  Batches that reach the maximum time are
+ * processed by a timer thread, so {@link #processBatch} may be called
+ * while the task thread sends other events to the listener
+ * (batches themselves are processed one at a time unless the listener
+ * is also an asynchronous listener).
+ * Rows are not cleaned up (e.g. source files are not removed) until
+ * their batch has been processed and rows that the batch fails to
+ * process are marked as failed and cleaned up as such.
+ * Any updates a batch listener makes to the rows are not seen by
+ * listeners notified after it.
+ * Other events (and tasks that do not support this interface) are
+ * processed one row at a time via {@link #processEvent}.
+ *
+ * @author Eric Trautman
+ */
+public interface BatchRowListener extends RowListener {
+
+    /** Name of the plug-in property for the maximum batch size. */
+    public static final String MAX_BATCH_SIZE_PROPERTY = "maxBatchSize";
+
+    /** Name of the plug-in property for the maximum batch wait time. */
+    public static final String MAX_BATCH_MILLIS_PROPERTY = "maxBatchMillis";
+
+    /** Default maximum batch size (batching is disabled by default). */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1;
+
+    /** Default maximum batch wait time. */
+    public static final long DEFAULT_MAX_BATCH_MILLIS = 5000;
+
+    /**
+     * Processes a batch of successfully completed rows.
+     * <p>
+     * If none of the rows were processed (e.g. a transaction was rolled
+     * back), implementations should throw a standard external exception
+     * and tasks will then retry each row with {@link #processEvent}.
+     * If only some of the rows failed, implementations should throw a
+     * {@link BatchProcessingException} identifying those rows.
+     *
+     * @param  rows  completed rows in row order.
+     *
+     * @throws BatchProcessingException
+     *   if some of the rows could not be processed.
+     * @throws ExternalDataException
+     *   if a recoverable data error prevents processing of the batch.
+     * @throws ExternalSystemException
+     *   if a non-recoverable system error prevents processing of the batch.
+     */
+    public void processBatch(List<PluginDataRow> rows)
+            throws ExternalDataException, ExternalSystemException;
+
+    /**
+     * @return the maximum number of rows in a batch
+     *         (a value less than 2 disables batching).
+     */
+    public int getMaxBatchSize();
+
+    /**
+     * @return the maximum number of milliseconds a completed row
+     *         should wait for its batch to be processed.
+     */
+    public long getMaxBatchMillis();
+}
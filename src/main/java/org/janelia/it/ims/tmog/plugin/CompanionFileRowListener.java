@@ -8,11 +8,17 @@
 package org.janelia.it.ims.tmog.plugin;
 
 import org.apache.log4j.Logger;
+import org.janelia.it.ims.tmog.config.FileTransferConfiguration;
 import org.janelia.it.ims.tmog.config.PluginConfiguration;
-import org.janelia.it.utils.filexfer.FileCopyFailedException;
-import org.janelia.it.utils.filexfer.SafeFileTransfer;
+import org.janelia.it.utils.filexfer.FileTransferUtil;
 
 import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This plug-in transfers and renames a "companion" file that is related to
@@ -20,6 +26,14 @@ import java.io.File;
  * both files sharing the same basic name with different extensions/suffixes.
  * The plug-in was originally developed to transfer/rename Zeiss log files
  * as companions to source lsm files being renamed.
+ * <p>
+ * Companion files are transferred with the same {@link FileTransferUtil}
+ * configuration (buffer size, digest algorithm, validation) as their
+ * primary file.  Each companion transfer starts when its row starts
+ * so that it runs concurrently with the primary file's transfer.
+ * The companion copy is kept when the row succeeds and removed when
+ * the row fails.
+ * </p>
  *
  * @author Eric Trautman
  */
@@ -53,6 +67,13 @@ public class CompanionFileRowListener
      */
     private boolean isOriginalFileDeletedAfterCopy;
 
+    /** Map of original companion files to their in progress transfers. */
+    private Map<File, PendingTransfer> pendingTransfers;
+
+    public CompanionFileRowListener() {
+        this.pendingTransfers = new ConcurrentHashMap<File, PendingTransfer>();
+    }
+
     /**
      * Initializes the plugin and verifies that it is ready for use.
      *
@@ -78,9 +99,19 @@ public class CompanionFileRowListener
     public PluginDataRow processEvent(EventType eventType,
                                       PluginDataRow row)
             throws ExternalDataException, ExternalSystemException {
-        if ((eventType == EventType.END_ROW_SUCCESS) &&
-            (row instanceof RenamePluginDataRow)) {
-            transferCompanionFile((RenamePluginDataRow) row);
+        if (row instanceof RenamePluginDataRow) {
+            final RenamePluginDataRow renameRow = (RenamePluginDataRow) row;
+            switch (eventType) {
+                case START_ROW:
+                    startCompanionTransfer(renameRow);
+                    break;
+                case END_ROW_SUCCESS:
+                    completeCompanionTransfer(renameRow);
+                    break;
+                case END_ROW_FAIL:
+                    abortCompanionTransfer(renameRow);
+                    break;
+            }
         }
         return row;
     }
@@ -98,30 +129,86 @@ public class CompanionFileRowListener
         return companionFile;
     }
 
-    private void transferCompanionFile(RenamePluginDataRow row)
-            throws ExternalSystemException {
+    /**
+     * Starts transferring the specified row's companion file (if it has
+     * one) in the background.  Companions that cannot be transferred yet
+     * (e.g. because the target already exists) are left for
+     * {@link #completeCompanionTransfer} to handle and report.
+     *
+     * @param  row  row being started.
+     */
+    private void startCompanionTransfer(final RenamePluginDataRow row) {
 
         final File fromCompanionFile = getCompanionFile(row.getFromFile());
         if ((fromCompanionFile != null) && fromCompanionFile.exists()) {
 
+            final File renamedCompanionFile =
+                    getCompanionFile(row.getRenamedFile());
+            if ((renamedCompanionFile != null) &&
+                (! renamedCompanionFile.exists())) {
+
+                final Future<Void> result = TRANSFER_EXECUTOR.submit(() -> {
+                    transferCompanionFile(row,
+                                          fromCompanionFile,
+                                          renamedCompanionFile);
+                    return null;
+                });
+
+                pendingTransfers.put(fromCompanionFile,
+                                     new PendingTransfer(renamedCompanionFile,
+                                                         result));
+            }
+        }
+    }
+
+    /**
+     * Completes the transfer of the specified row's companion file
+     * (if it has one), transferring the file now if its transfer was
+     * not started with the row.
+     *
+     * @param  row  successfully processed row.
+     *
+     * @throws ExternalSystemException
+     *   if the companion file cannot be transferred.
+     */
+    private void completeCompanionTransfer(RenamePluginDataRow row)
+            throws ExternalSystemException {
+
+        final File fromCompanionFile = getCompanionFile(row.getFromFile());
+        final PendingTransfer pendingTransfer =
+                (fromCompanionFile == null) ? null :
+                pendingTransfers.remove(fromCompanionFile);
+
+        if ((pendingTransfer != null) ||
+            ((fromCompanionFile != null) && fromCompanionFile.exists())) {
+
             final File renamedCompanionFile =
                     getCompanionFile(row.getRenamedFile());
             if (renamedCompanionFile == null) {
+                if (pendingTransfer != null) {
+                    pendingTransfer.discard();
+                }
                 throw new ExternalSystemException(
                         "Failed to derive companion file target for " +
                         fromCompanionFile.getAbsolutePath() + '.');
             }
 
-            try {
-                SafeFileTransfer.copy(fromCompanionFile,
-                                      renamedCompanionFile,
-                                      false);
-            } catch (FileCopyFailedException e) {
-                throw new ExternalSystemException(
-                        "Failed to rename companion file " +
-                        fromCompanionFile.getAbsolutePath() + " to " +
-                        renamedCompanionFile.getAbsolutePath() + '.',
-                        e);
+            if (pendingTransfer == null) {
+                transferCompanionFile(row,
+                                      fromCompanionFile,
+                                      renamedCompanionFile);
+            } else {
+                pendingTransfer.await(fromCompanionFile);
+                // the row's name may have changed after the transfer started
+                if ((! pendingTransfer.toFile.equals(renamedCompanionFile)) &&
+                    (! pendingTransfer.toFile.renameTo(renamedCompanionFile))) {
+                    pendingTransfer.discard();
+                    throw new ExternalSystemException(
+                            "Failed to rename companion file " +
+                            pendingTransfer.toFile.getAbsolutePath() +
+                            " to " + renamedCompanionFile.getAbsolutePath() +
+                            '.');
+                }
             }
 
             if (isOriginalFileDeletedAfterCopy) {
@@ -146,9 +233,137 @@ public class CompanionFileRowListener
         }
     }
 
+    /**
+     * Removes any companion copy started for the specified failed row.
+     *
+     * @param  row  row that failed processing.
+     */
+    private void abortCompanionTransfer(RenamePluginDataRow row) {
+        final File fromCompanionFile = getCompanionFile(row.getFromFile());
+        if (fromCompanionFile != null) {
+            final PendingTransfer pendingTransfer =
+                    pendingTransfers.remove(fromCompanionFile);
+            if (pendingTransfer != null) {
+                pendingTransfer.discard();
+            }
+        }
+    }
+
+    /**
+     * Copies (and validates) a companion file using the same transfer
+     * configuration as the row's primary file.
+     */
+    private void transferCompanionFile(RenamePluginDataRow row,
+                                       File fromCompanionFile,
+                                       File renamedCompanionFile)
+            throws ExternalSystemException {
+
+        FileTransferConfiguration config = row.getFileTransferConfiguration();
+        if (config == null) {
+            config = DEFAULT_TRANSFER_CONFIG;
+        }
+
+        try {
+            final FileTransferUtil util = config.createFileTransferUtil();
+            if (config.getSyncPolicyType() != FileTransferUtil.SyncPolicy.NONE) {
+                // companions are small and a private batch would never be
+                // synced, so sync each companion when syncing is required
+                util.setSyncPolicy(FileTransferUtil.SyncPolicy.FILE, null);
+            }
+            util.copyAndValidate(fromCompanionFile,
+                                 renamedCompanionFile,
+                                 config.isValidationRequired());
+        } catch (Exception e) {
+            throw new ExternalSystemException(
+                    "Failed to rename companion file " +
+                    fromCompanionFile.getAbsolutePath() + " to " +
+                    renamedCompanionFile.getAbsolutePath() + '.',
+                    e);
+        }
+    }
+
+    /**
+     * A companion file transfer that runs concurrently with the
+     * transfer of its primary file.
+     */
+    private static class PendingTransfer {
+
+        private File toFile;
+        private Future<Void> result;
+
+        private PendingTransfer(File toFile,
+                                Future<Void> result) {
+            this.toFile = toFile;
+            this.result = result;
+        }
+
+        private void await(File fromFile)
+                throws ExternalSystemException {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof ExternalSystemException) {
+                    throw (ExternalSystemException) cause;
+                }
+                throw new ExternalSystemException(
+                        "Failed to rename companion file " +
+                        fromFile.getAbsolutePath() + " to " +
+                        toFile.getAbsolutePath() + '.',
+                        cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExternalSystemException(
+                        "Interrupted while renaming companion file " +
+                        fromFile.getAbsolutePath() + " to " +
+                        toFile.getAbsolutePath() + '.',
+                        e);
+            }
+        }
+
+        private void discard() {
+            boolean isTransferComplete = false;
+            try {
+                result.get();
+                isTransferComplete = true;
+            } catch (ExecutionException e) {
+                // failed copies are removed by the transfer utility
+                LOG.debug("discard: ignoring failed transfer to " +
+                          toFile.getAbsolutePath(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.cancel(true);
+            }
+            if (isTransferComplete && toFile.exists()) {
+                LOG.warn("Removing " + toFile.getAbsolutePath() +
+                         " after rename processing failed.");
+                if (! toFile.delete()) {
+                    LOG.error("FAILED to remove " + toFile.getAbsolutePath() +
+                              " after rename processing failed.");
+                }
+            }
+        }
+    }
+
     private static final Logger LOG =
             Logger.getLogger(CompanionFileRowListener.class);
 
+    private static final FileTransferConfiguration DEFAULT_TRANSFER_CONFIG =
+            new FileTransferConfiguration();
+
+    /**
+     * Executor for companion transfers.  Idle (daemon) threads are
+     * released after a minute, so the executor never needs to be
+     * explicitly shutdown.
+     */
+    private static final ExecutorService TRANSFER_EXECUTOR =
+            Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable,
+                                                 "companion-transfer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     private static final String INIT_FAILURE_MSG =
             "Failed to initialize the Companion File Row Listener Plugin.  ";
 }
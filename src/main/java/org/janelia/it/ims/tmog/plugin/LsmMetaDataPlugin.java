@@ -29,7 +29,9 @@ import java.util.Set;
 
 /**
  * This plug-in embeds an xml representation of each row's data fields into
- * the source LSM file.
+ * the source LSM file.  Each start row event only updates its own row's
+ * file, so events for different rows may be processed concurrently
+ * (see start row look-ahead).
  *
  * @author Eric Trautman
  */
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.plugin;
+
+/**
+ * This marker interface identifies row listeners that require strict
+ * row ordering: the {@link EventType#START_ROW} event for a row must not
+ * be sent until all events for the previous row have been processed.
+ * <p>
+ * Tasks may otherwise send start events for later rows (from a separate
+ * thread) while earlier rows are still being processed, so listeners
+ * that do not implement this interface need to handle events for
+ * different rows concurrently.  Start row look-ahead is disabled for
+ * any session that includes a listener implementing this interface,
+ * so it should be implemented by any listener whose start row processing
+ * is not thread-safe or depends upon the order in which rows are started
+ * (e.g. allocating sequence numbers).
+ *
+ * @author Eric Trautman
+ */
+public interface OrderedRowListener extends RowListener {
+}
@@ -37,4 +37,35 @@ public class PluginPropertyHelper {
         return value;
     }
 
+    /**
+     * @param  propertyName  name of the property.
+     * @param  defaultValue  value to return if the property is not defined.
+     *
+     * @return the property's non-negative numeric value or the default
+     *         value if the property is not defined.
+     *
+     * @throws ExternalSystemException
+     *   if the property is defined but is not a non-negative number.
+     */
+    public long getOptionalLongProperty(String propertyName,
+                                        long defaultValue)
+            throws ExternalSystemException {
+        long value = defaultValue;
+        final String valueString = config.getProperty(propertyName);
+        if ((valueString != null) && (valueString.length() > 0)) {
+            try {
+                value = Long.parseLong(valueString.trim());
+            } catch (NumberFormatException e) {
+                value = -1;
+            }
+            if (value < 0) {
+                throw new ExternalSystemException(
+                        initFailureMessage +
+                        "The '" + propertyName + "' plug-in property '" +
+                        valueString + "' must be a non-negative integer.");
+            }
+        }
+        return value;
+    }
+
 }
\ No newline at end of file
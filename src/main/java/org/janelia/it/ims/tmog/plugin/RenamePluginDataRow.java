@@ -8,10 +8,14 @@
 package org.janelia.it.ims.tmog.plugin;
 
 import org.janelia.it.ims.tmog.DataRow;
+import org.janelia.it.ims.tmog.config.FileTransferConfiguration;
 import org.janelia.it.ims.tmog.field.DataField;
+import org.janelia.it.utils.filexfer.DigestBytes;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class encapsulates the set of rename information collected for
@@ -31,7 +35,16 @@ public class RenamePluginDataRow extends PluginDataRow {
     private File renamedFile;
 
     private boolean overwriteRequiredForRename;
-    
+
+    /** Source file digests calculated during the transfer. */
+    private Map<String, DigestBytes> transferDigests;
+
+    /**
+     * Configuration used to transfer the original file
+     * (null if the transfer was not configured).
+     */
+    private FileTransferConfiguration fileTransferConfiguration;
+
     /**
      * Constructs a copy complete information object.
      *
@@ -47,6 +60,8 @@ public class RenamePluginDataRow extends PluginDataRow {
         this.fromFile = fromFile;
         this.outputDirectory = outputDirectory;
         this.overwriteRequiredForRename = false;
+        this.transferDigests = Collections.emptyMap();
+        this.fileTransferConfiguration = null;
     }
 
     /**
@@ -81,6 +96,72 @@ public class RenamePluginDataRow extends PluginDataRow {
         return overwriteRequiredForRename;
     }
 
+    /**
+     * Allows tasks that can safely reuse an existing renamed file
+     * (e.g. to resume an interrupted transfer) to override the default
+     * check.  The override is lost if the renamed file is regenerated.
+     *
+     * @param  overwriteRequiredForRename  true if renaming this file will
+     *                                     overwrite an existing file.
+     */
+    public void setOverwriteRequiredForRename(
+            boolean overwriteRequiredForRename) {
+        this.overwriteRequiredForRename = overwriteRequiredForRename;
+    }
+
+    /**
+     * @return map of algorithm names to the digests calculated for the
+     *         original file while it was transferred (empty if no
+     *         digests were calculated).
+     */
+    public Map<String, DigestBytes> getTransferDigests() {
+        return transferDigests;
+    }
+
+    /**
+     * @param  digestAlgorithm  name of digest algorithm.
+     *
+     * @return the digest calculated with the specified algorithm while
+     *         the original file was transferred or null if no digest
+     *         was calculated with that algorithm.
+     */
+    public DigestBytes getTransferDigest(String digestAlgorithm) {
+        DigestBytes digestBytes = null;
+        for (String algorithm : transferDigests.keySet()) {
+            if (algorithm.equalsIgnoreCase(digestAlgorithm)) {
+                digestBytes = transferDigests.get(algorithm);
+                break;
+            }
+        }
+        return digestBytes;
+    }
+
+    /**
+     * @param  transferDigests  map of algorithm names to the digests
+     *                          calculated while the original file
+     *                          was transferred.
+     */
+    public void setTransferDigests(Map<String, DigestBytes> transferDigests) {
+        this.transferDigests = transferDigests;
+    }
+
+    /**
+     * @return the configuration used to transfer the original file
+     *         (so that related files can be transferred the same way)
+     *         or null if the transfer was not configured.
+     */
+    public FileTransferConfiguration getFileTransferConfiguration() {
+        return fileTransferConfiguration;
+    }
+
+    /**
+     * @param  fileTransferConfiguration  configuration used to transfer
+     *                                    the original file.
+     */
+    public void setFileTransferConfiguration(FileTransferConfiguration fileTransferConfiguration) {
+        this.fileTransferConfiguration = fileTransferConfiguration;
+    }
+
     /**
      * Sets the value for the plugin data model with the specified display name.
      *
@@ -13,15 +13,21 @@ import org.janelia.it.utils.PathUtil;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This base class provides common support for plug-ins that
  * write transmogrifier row data to a file.
+ * Rows may be written in batches (see {@link BatchRowListener})
+ * so that each file is only opened once per batch.
  *
  * @author Eric Trautman
  */
 public abstract class RowWriterPlugin
-        implements RowListener {
+        implements BatchRowListener {
 
     /**
      * The configured base directory for all files.
@@ -31,12 +37,20 @@ public abstract class RowWriterPlugin
     /** Indicates whether the data file should be made writable by all users. */
     private boolean isWritableByEverybody;
 
+    /** The maximum number of rows to write in a batch. */
+    private int maxBatchSize;
+
+    /** The maximum number of milliseconds a row should wait for its batch. */
+    private long maxBatchMillis;
+
     /**
      * Empty constructor required by
      * {@link org.janelia.it.ims.tmog.config.PluginFactory}.
      */
     public RowWriterPlugin() {
         this.isWritableByEverybody = false;
+        this.maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+        this.maxBatchMillis = DEFAULT_MAX_BATCH_MILLIS;
     }
 
     /**
@@ -89,6 +103,13 @@ public abstract class RowWriterPlugin
 
         isWritableByEverybody =
                 Boolean.parseBoolean(config.getProperty("writableByAll"));
+
+        final PluginPropertyHelper helper =
+                new PluginPropertyHelper(config, getInitFailureMessage());
+        maxBatchSize = (int) helper.getOptionalLongProperty(
+                MAX_BATCH_SIZE_PROPERTY, DEFAULT_MAX_BATCH_SIZE);
+        maxBatchMillis = helper.getOptionalLongProperty(
+                MAX_BATCH_MILLIS_PROPERTY, DEFAULT_MAX_BATCH_MILLIS);
     }
 
     /**
@@ -114,6 +135,73 @@ public abstract class RowWriterPlugin
         return row;
     }
 
+    /**
+     * Writes representations of the specified rows, opening each
+     * file only once.
+     *
+     * @param  rows  completed rows in row order.
+     *
+     * @throws BatchProcessingException
+     *   if the representations for any rows could not be written.
+     */
+    public void processBatch(List<PluginDataRow> rows)
+            throws BatchProcessingException {
+
+        final Map<File, List<PluginDataRow>> fileToRows =
+                new LinkedHashMap<File, List<PluginDataRow>>();
+        final Map<File, StringBuilder> fileToText =
+                new LinkedHashMap<File, StringBuilder>();
+        String representation;
+        File file;
+        for (PluginDataRow row : rows) {
+            representation = getRowRepresentation(row);
+            if (representation != null) {
+                file = getFile(row, directory);
+                if (! fileToRows.containsKey(file)) {
+                    fileToRows.put(file, new ArrayList<PluginDataRow>());
+                    fileToText.put(file, new StringBuilder());
+                }
+                fileToRows.get(file).add(row);
+                fileToText.get(file).append(representation);
+            }
+        }
+
+        final List<PluginDataRow> failedRows = new ArrayList<PluginDataRow>();
+        ExternalSystemException lastFailure = null;
+        for (File batchFile : fileToRows.keySet()) {
+            try {
+                writeToFile(batchFile, fileToText.get(batchFile).toString());
+            } catch (ExternalSystemException e) {
+                LOG.error(e.getMessage(), e);
+                failedRows.addAll(fileToRows.get(batchFile));
+                lastFailure = e;
+            }
+        }
+
+        if (failedRows.size() > 0) {
+            throw new BatchProcessingException(
+                    "Failed to write representations for " +
+                    failedRows.size() + " of " + rows.size() + " rows.",
+                    failedRows,
+                    lastFailure);
+        }
+    }
+
+    /**
+     * @return the maximum number of rows to write in a batch.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @return the maximum number of milliseconds a row should
+     *         wait for its batch to be written.
+     */
+    public long getMaxBatchMillis() {
+        return maxBatchMillis;
+    }
+
     protected abstract String getRowRepresentation(PluginDataRow row);
     protected abstract File getFile(PluginDataRow row,
                                     File baseDirectory);
@@ -124,29 +212,35 @@ public abstract class RowWriterPlugin
 
         final String representation = getRowRepresentation(row);
         if (representation != null) {
-            final File file = getFile(row, directory);
-            FileWriter fileWriter = null;
-            try {
-                fileWriter = new FileWriter(file, true);
-                fileWriter.write(representation);
-            } catch (Throwable t) {
-                throw new ExternalSystemException(
-                        "Failed to write row representation to " +
-                        file.getAbsolutePath(), t);
-            } finally {
-                closeWriter(fileWriter, file);
-            }
+            writeToFile(getFile(row, directory), representation);
+        }
+    }
 
-            if (isWritableByEverybody) {
-                try {
-                    if (! file.setWritable(true, false)) {
-                        LOG.warn("failed to setWritable for " +
-                                 file.getAbsolutePath());
-                    }
-                } catch (Throwable t) {
+    private void writeToFile(File file,
+                             String text)
+            throws ExternalSystemException {
+
+        FileWriter fileWriter = null;
+        try {
+            fileWriter = new FileWriter(file, true);
+            fileWriter.write(text);
+        } catch (Throwable t) {
+            throw new ExternalSystemException(
+                    "Failed to write row representation to " +
+                    file.getAbsolutePath(), t);
+        } finally {
+            closeWriter(fileWriter, file);
+        }
+
+        if (isWritableByEverybody) {
+            try {
+                if (! file.setWritable(true, false)) {
                     LOG.warn("failed to setWritable for " +
-                             file.getAbsolutePath(), t);                                            
+                             file.getAbsolutePath());
                 }
+            } catch (Throwable t) {
+                LOG.warn("failed to setWritable for " +
+                         file.getAbsolutePath(), t);
             }
         }
     }
@@ -222,18 +222,116 @@ public class ImageDao extends AbstractDao
      *   if the save fails.
      */
     public Image saveProperties(Image image) throws ExternalSystemException {
-        String relativePath = image.getRelativePath();
 
         Connection connection = null;
-        ResultSet resultSet = null;
-        PreparedStatement select = null;
-        PreparedStatement deleteImage = null;
 
         try {
             final DbManager dbManager = getDbManager();
             connection = dbManager.getConnection();
             connection.setAutoCommit(false);
 
+            image = saveProperties(image, connection);
+
+            connection.commit();
+
+        } catch (DbConfigException e) {
+            throw new ExternalSystemException(e.getMessage(), e);
+        } catch (SQLException e) {
+            throw new ExternalSystemException(
+                    "Failed to store image properties for '" +
+                    image.getRelativePath() + "'.", e);
+        } finally {
+            DbManager.closeResources(null, null, connection, LOG);
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("successfully persisted image properties to the '" +
+                     getDbConfigurationKey() + "' database: " + image);
+        }
+
+        return image;
+    }
+
+    /**
+     * Writes (saves) the properties for the specified images
+     * to the image database in a single transaction.  If any image
+     * cannot be saved, the transaction is rolled back and none of
+     * the images are saved.
+     *
+     * @param  images  images to be persisted.
+     *
+     * @return the specified images with their database ids updated.
+     *
+     * @throws ExternalSystemException
+     *   if the save fails.
+     */
+    public List<Image> saveProperties(List<Image> images)
+            throws ExternalSystemException {
+
+        final List<Image> savedImages = new ArrayList<>(images.size());
+        String relativePath = null;
+        Connection connection = null;
+
+        try {
+            final DbManager dbManager = getDbManager();
+            connection = dbManager.getConnection();
+            connection.setAutoCommit(false);
+
+            try {
+                for (Image image : images) {
+                    relativePath = image.getRelativePath();
+                    savedImages.add(saveProperties(image, connection));
+                }
+                connection.commit();
+            } catch (SQLException | ExternalSystemException e) {
+                rollback(connection);
+                throw e;
+            }
+
+        } catch (DbConfigException e) {
+            throw new ExternalSystemException(e.getMessage(), e);
+        } catch (SQLException e) {
+            throw new ExternalSystemException(
+                    "Failed to store image properties for '" +
+                    relativePath + "'.", e);
+        } finally {
+            DbManager.closeResources(null, null, connection, LOG);
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("successfully persisted image properties for " +
+                     savedImages.size() + " images to the '" +
+                     getDbConfigurationKey() + "' database");
+        }
+
+        return savedImages;
+    }
+
+    /**
+     * Writes (saves) the specified image properties using the specified
+     * connection (callers manage the transaction).
+     *
+     * @param  image       image to be persisted.
+     * @param  connection  the current database connection.
+     *
+     * @return the specified image with its database id updated.
+     *
+     * @throws SQLException
+     *   if any database errors occur.
+     * @throws ExternalSystemException
+     *   if the image data is invalid.
+     */
+    private Image saveProperties(Image image,
+                                 Connection connection)
+            throws SQLException, ExternalSystemException {
+
+        String relativePath = image.getRelativePath();
+
+        ResultSet resultSet = null;
+        PreparedStatement select = null;
+        PreparedStatement deleteImage = null;
+
+        try {
             String previousRelativePath = image.getPreviousRelativePath();
             if (image.isBeingMoved() &&
                 (previousRelativePath != null) &&
@@ -313,27 +411,22 @@ public class ImageDao extends AbstractDao
                 }
             }
 
-            connection.commit();
-
-        } catch (DbConfigException e) {
-            throw new ExternalSystemException(e.getMessage(), e);
-        } catch (SQLException e) {
-            throw new ExternalSystemException(
-                    "Failed to store image properties for '" +
-                    relativePath + "'.", e);
         } finally {
             DbManager.closeResources(null, deleteImage, null, LOG);
-            DbManager.closeResources(resultSet, select, connection, LOG);
-        }
-
-        if (LOG.isInfoEnabled()) {
-            LOG.info("successfully persisted image properties to the '" +
-                     getDbConfigurationKey() + "' database: " + image);
+            DbManager.closeResources(resultSet, select, null, LOG);
         }
 
         return image;
     }
 
+    private void rollback(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            LOG.warn("failed to rollback image properties transaction", e);
+        }
+    }
+
     /**
      * @param  relativePath  the relative path for the desired image.
      *
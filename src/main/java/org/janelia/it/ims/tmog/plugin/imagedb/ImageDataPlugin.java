@@ -8,24 +8,33 @@
 package org.janelia.it.ims.tmog.plugin.imagedb;
 
 import org.janelia.it.ims.tmog.config.PluginConfiguration;
+import org.janelia.it.ims.tmog.plugin.AsyncRowListener;
+import org.janelia.it.ims.tmog.plugin.AsyncRowListenerSupport;
+import org.janelia.it.ims.tmog.plugin.BatchRowListener;
 import org.janelia.it.ims.tmog.plugin.ExternalSystemException;
 import org.janelia.it.ims.tmog.plugin.PluginDataRow;
+import org.janelia.it.ims.tmog.plugin.PluginPropertyHelper;
 import org.janelia.it.ims.tmog.plugin.PropertyToken;
 import org.janelia.it.ims.tmog.plugin.RelativePathUtil;
 import org.janelia.it.ims.tmog.plugin.RenamePluginDataRow;
-import org.janelia.it.ims.tmog.plugin.RowListener;
 import org.janelia.it.utils.StringUtil;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This plug-in persists transmogrifier row data to an image database.
+ * When configured, data may be saved asynchronously
+ * (see {@link AsyncRowListener}) so that database writes overlap with
+ * the transfer of later rows and may be saved in batches
+ * (see {@link BatchRowListener}) so that each batch only needs
+ * one database transaction.
  *
  * @author Eric Trautman
  */
-public class ImageDataPlugin implements RowListener {
+public class ImageDataPlugin implements AsyncRowListener, BatchRowListener {
 
     /** The writer used to persist image property data. */
     private ImagePropertyWriter propertyWriter;
@@ -55,6 +64,19 @@ public class ImageDataPlugin implements RowListener {
      */
     private int previousRelativePathDepth = 1;
 
+    /**
+     * The maximum number of rows to save concurrently
+     * (rows are saved synchronously unless this is configured).
+     */
+    private int maxConcurrentEvents =
+            AsyncRowListenerSupport.DEFAULT_MAX_CONCURRENT_EVENTS;
+
+    /** The maximum number of rows to save in a batch. */
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    /** The maximum number of milliseconds a row should wait for its batch. */
+    private long maxBatchMillis = DEFAULT_MAX_BATCH_MILLIS;
+
     /**
      * Empty constructor required by
      * {@link org.janelia.it.ims.tmog.config.PluginFactory}.
@@ -73,6 +95,8 @@ public class ImageDataPlugin implements RowListener {
      */
     public void init(PluginConfiguration config) throws ExternalSystemException {
         this.propertySetters = new ArrayList<>();
+        final PluginPropertyHelper helper =
+                new PluginPropertyHelper(config, INIT_FAILURE_MSG);
         Map<String, String> props = config.getProperties();
         String dbConfigurationKey = null;
         String xmlBaseDirectoryName = null;
@@ -95,6 +119,16 @@ public class ImageDataPlugin implements RowListener {
             } else if ("previousRelativePathDepth".equals(key)) {
                 previousRelativePathDepth =
                         getIntValue("previousRelativePathDepth", value);
+            } else if (MAX_CONCURRENT_EVENTS_PROPERTY.equals(key)) {
+                maxConcurrentEvents =
+                        AsyncRowListenerSupport.getMaxConcurrentEvents(
+                                value, INIT_FAILURE_MSG);
+            } else if (MAX_BATCH_SIZE_PROPERTY.equals(key)) {
+                maxBatchSize = (int) helper.getOptionalLongProperty(
+                        key, DEFAULT_MAX_BATCH_SIZE);
+            } else if (MAX_BATCH_MILLIS_PROPERTY.equals(key)) {
+                maxBatchMillis = helper.getOptionalLongProperty(
+                        key, DEFAULT_MAX_BATCH_MILLIS);
             } else {
                 try {
                     propertySetter = getPropertySetter(key, value, props);
@@ -181,6 +215,66 @@ public class ImageDataPlugin implements RowListener {
         return row;
     }
 
+    /**
+     * Saves image properties for completed rows in a background thread.
+     *
+     * @param  eventType  type of copy event.
+     * @param  row        details about the event.
+     *
+     * @return a future for the processed row.
+     */
+    public CompletableFuture<PluginDataRow> processEventAsync(EventType eventType,
+                                                              PluginDataRow row) {
+        return AsyncRowListenerSupport.processEventAsync(this, eventType, row);
+    }
+
+    /**
+     * @return the maximum number of rows to save concurrently.
+     */
+    public int getMaxConcurrentEvents() {
+        return maxConcurrentEvents;
+    }
+
+    /**
+     * Saves image properties for a batch of completed rows
+     * in a single transaction.
+     *
+     * @param  rows  completed rows in row order.
+     *
+     * @throws ExternalSystemException
+     *   if the properties for any row cannot be saved
+     *   (in which case none of the rows are saved).
+     */
+    public void processBatch(List<PluginDataRow> rows)
+            throws ExternalSystemException {
+        final List<Image> images = new ArrayList<>(rows.size());
+        for (PluginDataRow row : rows) {
+            images.add(getImage(row));
+        }
+        try {
+            propertyWriter.saveProperties(images);
+        } catch (Exception e) {
+            throw new ExternalSystemException(
+                    "Failed to save image properties for batch of " +
+                    rows.size() + " rows.", e);
+        }
+    }
+
+    /**
+     * @return the maximum number of rows to save in a batch.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @return the maximum number of milliseconds a row should
+     *         wait for its batch to be saved.
+     */
+    public long getMaxBatchMillis() {
+        return maxBatchMillis;
+    }
+
     /**
      * Processes completed copy successfully event.
      *
@@ -191,7 +285,29 @@ public class ImageDataPlugin implements RowListener {
      */
     private void saveImageProperties(PluginDataRow row)
             throws ExternalSystemException {
+        final Image image = getImage(row);
+        try {
+            propertyWriter.saveProperties(image);
+        } catch (Exception e) {
+            throw new ExternalSystemException(
+                    "Failed to save image properties for " +
+                    image.getRelativePath() + ".  Detailed data is: " + row,
+                    e);
+        }
+    }
+
+    /**
+     * @param  row  the row information for an event.
+     *
+     * @return the image (properties) to save for the specified row.
+     *
+     * @throws ExternalSystemException
+     *   if the image cannot be derived from the row.
+     */
+    private Image getImage(PluginDataRow row)
+            throws ExternalSystemException {
 
+        Image image;
         String relativePath = null;
         try {
             relativePath = RelativePathUtil.getRelativePath(
@@ -204,17 +320,17 @@ public class ImageDataPlugin implements RowListener {
                         previousRelativePathDepth);
             }
 
-            Image image = new Image(row,
-                                    propertySetters,
-                                    relativePath,
-                                    previousPath,
-                                    (! keepExistingData));
-            propertyWriter.saveProperties(image);
+            image = new Image(row,
+                              propertySetters,
+                              relativePath,
+                              previousPath,
+                              (! keepExistingData));
         } catch (Exception e) {
             throw new ExternalSystemException(
                     "Failed to save image properties for " +
                     relativePath + ".  Detailed data is: " + row, e);
         }
+        return image;
     }
 
     private static ImagePropertySetter getPropertySetter(String propertyType,
@@ -247,6 +363,8 @@ public class ImageDataPlugin implements RowListener {
             propertySetter = new RelativePathSetter(fieldName);
         } else if (FieldGroupSetter.isFieldGroupType(propertyType)) {
             propertySetter = new FieldGroupSetter(propertyType, fieldName);
+        } else if (TransferDigestSetter.isTransferDigestType(propertyType)) {
+            propertySetter = new TransferDigestSetter(propertyType, fieldName);
         } else if (fieldName.contains(PropertyToken.TOKEN_ID)) {
             propertySetter = new CompositeSetter(propertyType,
                                                  fieldName,
@@ -17,7 +17,9 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -57,6 +59,27 @@ public class ImagePropertyFileWriter implements ImagePropertyWriter {
         }
     }
 
+    /**
+     * Writes (saves) the properties for each of the specified images
+     * to its own XML file.  Files are simply rewritten if the images
+     * are saved again after a failure.
+     *
+     * @param  images  images to be persisted.
+     *
+     * @return the specified images (unmodified).
+     *
+     * @throws ExternalSystemException
+     *   if any write fails.
+     */
+    public List<Image> saveProperties(List<Image> images)
+            throws ExternalSystemException {
+        final List<Image> savedImages = new ArrayList<Image>(images.size());
+        for (Image image : images) {
+            savedImages.add(saveProperties(image));
+        }
+        return savedImages;
+    }
+
     /**
      * Writes (saves) the specified image properties to an XML file.
      * 
@@ -9,6 +9,8 @@ package org.janelia.it.ims.tmog.plugin.imagedb;
 
 import org.janelia.it.ims.tmog.plugin.ExternalSystemException;
 
+import java.util.List;
+
 /**
  * This interface specifies the methods supported by all image property writers.
  *
@@ -35,4 +37,19 @@ public interface ImagePropertyWriter {
      *   if the save fails.
      */
     public Image saveProperties(Image image) throws ExternalSystemException;
+
+    /**
+     * Writes (saves) the properties for the specified images.
+     * If the save fails, callers should assume that none of the
+     * images were saved (so that they can be saved again individually).
+     *
+     * @param  images  images to be persisted.
+     *
+     * @return the persisted images with any updates.
+     *
+     * @throws ExternalSystemException
+     *   if the save fails.
+     */
+    public List<Image> saveProperties(List<Image> images)
+            throws ExternalSystemException;
 }
\ No newline at end of file
@@ -12,18 +12,20 @@ import org.apache.commons.logging.LogFactory;
 import org.janelia.it.ims.tmog.config.PluginConfiguration;
 import org.janelia.it.ims.tmog.plugin.ExternalDataException;
 import org.janelia.it.ims.tmog.plugin.ExternalSystemException;
+import org.janelia.it.ims.tmog.plugin.OrderedRowListener;
 import org.janelia.it.ims.tmog.plugin.PluginDataRow;
-import org.janelia.it.ims.tmog.plugin.RowListener;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * This plug-in retrieves sequence numbers from the Image database.
+ * Sequence numbers are allocated when each row starts, so the plug-in
+ * requires strict row ordering to keep them in row order.
  *
  * @author Eric Trautman
  */
-public class ImageSequencePlugin implements RowListener {
+public class ImageSequencePlugin implements OrderedRowListener {
 
     /** The data access object for retrieving and updating image data. */
     private ImageDao dao;
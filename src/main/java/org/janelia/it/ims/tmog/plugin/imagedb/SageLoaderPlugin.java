@@ -9,19 +9,22 @@ package org.janelia.it.ims.tmog.plugin.imagedb;
 
 import org.apache.commons.digester.Digester;
 import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.methods.HeadMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.janelia.it.ims.tmog.config.PluginConfiguration;
 import org.janelia.it.ims.tmog.field.DataField;
 import org.janelia.it.ims.tmog.field.StaticDataModel;
+import org.janelia.it.ims.tmog.plugin.AsyncRowListener;
+import org.janelia.it.ims.tmog.plugin.AsyncRowListenerSupport;
 import org.janelia.it.ims.tmog.plugin.ExternalDataException;
 import org.janelia.it.ims.tmog.plugin.ExternalSystemException;
 import org.janelia.it.ims.tmog.plugin.PluginDataRow;
 import org.janelia.it.ims.tmog.plugin.PropertyTokenList;
 import org.janelia.it.ims.tmog.plugin.RelativePathUtil;
-import org.janelia.it.ims.tmog.plugin.RowListener;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -33,14 +36,18 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This plug-in invokes the sageLoader via HTTP request.
+ * When configured, requests may be made asynchronously
+ * (see {@link AsyncRowListener}) so that they overlap with the transfer
+ * of later rows.
  *
  * @author Eric Trautman
  */
 public class SageLoaderPlugin
-        implements RowListener {
+        implements AsyncRowListener {
 
     public static final String RELATIVE_PATH_DEPTH_NAME = "relativePathDepth";
     public static final String SERVICE_URL_NAME = "serviceUrl";
@@ -61,6 +68,13 @@ public class SageLoaderPlugin
     /** HTTP client for sageLoader requests. */
     private HttpClient httpClient;
 
+    /**
+     * The maximum number of sageLoader requests to make concurrently
+     * (requests are made synchronously unless this is configured).
+     */
+    private int maxConcurrentEvents =
+            AsyncRowListenerSupport.DEFAULT_MAX_CONCURRENT_EVENTS;
+
     /** Parsed configuration tokens for deriving a row specific URL. */
     private PropertyTokenList urlTokens;
 
@@ -69,7 +83,9 @@ public class SageLoaderPlugin
      * {@link org.janelia.it.ims.tmog.config.PluginFactory}.
      */
     public SageLoaderPlugin() {
-        this.httpClient = new HttpClient();
+        // requests may be made concurrently from event threads
+        this.httpClient =
+                new HttpClient(new MultiThreadedHttpConnectionManager());
     }
 
     /**
@@ -103,6 +119,10 @@ public class SageLoaderPlugin
                 serviceUrl = value;
             } else if (TEST_URL_NAME.equals(key)) {
                 testUrl = value;
+            } else if (MAX_CONCURRENT_EVENTS_PROPERTY.equals(key)) {
+                maxConcurrentEvents =
+                        AsyncRowListenerSupport.getMaxConcurrentEvents(
+                                value, INIT_FAILURE_MSG);
             } else {
                 if (! value.contains(PropertyTokenList.TOKEN_ID)) {
                     value = getEncodedValue(value);
@@ -118,6 +138,17 @@ public class SageLoaderPlugin
         }
         checkRequiredProperty(TEST_URL_NAME, testUrl);
 
+        if (maxConcurrentEvents > 0) {
+            // all requests go to the same host, so allow one connection
+            // per event thread (instead of the default limit of 2)
+            final HttpConnectionManagerParams params =
+                    httpClient.getHttpConnectionManager().getParams();
+            params.setDefaultMaxConnectionsPerHost(maxConcurrentEvents);
+            params.setMaxTotalConnections(
+                    Math.max(maxConcurrentEvents,
+                             params.getMaxTotalConnections()));
+        }
+
         if (! props.containsKey(OWNER_PARAMETER_NAME)) {
             serviceQueryParameters.put(OWNER_PARAMETER_NAME, "tmog");
         }
@@ -182,6 +213,26 @@ public class SageLoaderPlugin
         return row;
     }
 
+    /**
+     * Runs the sageLoader for completed rows in a background thread.
+     *
+     * @param  eventType  type of event.
+     * @param  row        details about the event.
+     *
+     * @return a future for the processed row.
+     */
+    public CompletableFuture<PluginDataRow> processEventAsync(EventType eventType,
+                                                              PluginDataRow row) {
+        return AsyncRowListenerSupport.processEventAsync(this, eventType, row);
+    }
+
+    /**
+     * @return the maximum number of sageLoader requests to make concurrently.
+     */
+    public int getMaxConcurrentEvents() {
+        return maxConcurrentEvents;
+    }
+
     private int getPathDepth(String value) throws ExternalSystemException {
         int depth = relativePathDepth;
         boolean invalidValue;
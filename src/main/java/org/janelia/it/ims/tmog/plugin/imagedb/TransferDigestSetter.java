@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.plugin.imagedb;
+
+import org.janelia.it.ims.tmog.plugin.PluginDataRow;
+import org.janelia.it.ims.tmog.plugin.RenamePluginDataRow;
+import org.janelia.it.utils.filexfer.DigestBytes;
+
+/**
+ * This class sets an image property to the (hex) value of a digest
+ * calculated while the image file was transferred, so that audit digests
+ * can be stored without re-reading the file.
+ *
+ * Properties are configured like this:
+ * [property type]:transfer-digest = [digest algorithm]
+ *
+ * @author Eric Trautman
+ */
+public class TransferDigestSetter implements ImagePropertySetter {
+
+    public static final String TYPE_SUFFIX = ":transfer-digest";
+
+    private String propertyType;
+    private String digestAlgorithm;
+
+    public TransferDigestSetter(String propertyType,
+                                String digestAlgorithm) {
+        final int prefixLength = propertyType.length() - TYPE_SUFFIX.length();
+        this.propertyType = propertyType.substring(0, prefixLength);
+        this.digestAlgorithm = digestAlgorithm;
+    }
+
+    public void setProperty(PluginDataRow row,
+                            Image image) {
+        if (row instanceof RenamePluginDataRow) {
+            final DigestBytes digestBytes =
+                    ((RenamePluginDataRow) row).getTransferDigest(digestAlgorithm);
+            if (digestBytes != null) {
+                image.addProperty(propertyType, digestBytes.toHex());
+            }
+        }
+    }
+
+    public static boolean isTransferDigestType(String propertyType) {
+        return ((propertyType != null) && propertyType.endsWith(TYPE_SUFFIX));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.target;
+
+import org.janelia.it.ims.tmog.DataRow;
+import org.janelia.it.ims.tmog.field.DataField;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field values for targets loaded from a tab separated values file.
+ * The first (header) line of the file contains a target name column
+ * followed by one column for each field display name.  Each subsequent
+ * line contains a target name followed by that target's field values.
+ * Blank lines and lines starting with '#' are ignored.
+ * Empty values are not applied, so they leave any default value in place.
+ *
+ * @author Eric Trautman
+ */
+public class FieldValueFile {
+
+    private File file;
+    private List<String> fieldNames;
+    private Map<String, String[]> targetNameToValues;
+
+    /**
+     * Constructs a field value file.
+     *
+     * @param  file  the file to load.
+     */
+    public FieldValueFile(File file) {
+        this.file = file;
+        this.fieldNames = new ArrayList<String>();
+        this.targetNameToValues = new LinkedHashMap<String, String[]>();
+    }
+
+    /**
+     * Loads values from the file.
+     *
+     * @throws IOException
+     *   if the file cannot be read.
+     *
+     * @throws IllegalArgumentException
+     *   if the file is not properly formatted.
+     */
+    public void load()
+            throws IOException, IllegalArgumentException {
+
+        try (BufferedReader reader =
+                     Files.newBufferedReader(file.toPath(),
+                                             StandardCharsets.UTF_8)) {
+            int lineNumber = 0;
+            String[] columns;
+            String targetName;
+            for (String line = reader.readLine();
+                 line != null;
+                 line = reader.readLine()) {
+
+                lineNumber++;
+                if ((line.trim().length() == 0) || line.startsWith("#")) {
+                    continue;
+                }
+
+                columns = line.split("\t", -1);
+                if (fieldNames.size() == 0) {
+                    if (columns.length < 2) {
+                        throw new IllegalArgumentException(
+                                "The header line in " + file.getAbsolutePath() +
+                                " must contain a target name column and " +
+                                "at least one field name column.");
+                    }
+                    for (int i = 1; i < columns.length; i++) {
+                        fieldNames.add(columns[i].trim());
+                    }
+                } else {
+                    if (columns.length > (fieldNames.size() + 1)) {
+                        throw new IllegalArgumentException(
+                                "Line " + lineNumber + " of " +
+                                file.getAbsolutePath() + " has " +
+                                columns.length + " columns but the " +
+                                "header only has " +
+                                (fieldNames.size() + 1) + " columns.");
+                    }
+                    targetName = columns[0].trim();
+                    if (targetNameToValues.containsKey(targetName)) {
+                        throw new IllegalArgumentException(
+                                "Line " + lineNumber + " of " +
+                                file.getAbsolutePath() +
+                                " contains duplicate values for target '" +
+                                targetName + "'.");
+                    }
+                    targetNameToValues.put(
+                            targetName,
+                            Arrays.copyOfRange(columns, 1, columns.length));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the field display names from the file header.
+     */
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * @return the number of targets with values in the file.
+     */
+    public int size() {
+        return targetNameToValues.size();
+    }
+
+    /**
+     * Applies loaded values to the rows with matching target names.
+     *
+     * @param  rows  rows to update.
+     *
+     * @return names of targets with values in the file that do not
+     *         match any of the specified rows.
+     *
+     * @throws IllegalArgumentException
+     *   if the file references a field that does not exist in the rows.
+     */
+    public List<String> applyValues(List<DataRow> rows)
+            throws IllegalArgumentException {
+
+        final Map<String, String[]> unmatched =
+                new LinkedHashMap<String, String[]>(targetNameToValues);
+        String[] values;
+        Map<String, DataField> nameToField;
+        DataField field;
+        String value;
+        for (DataRow row : rows) {
+            values = unmatched.remove(row.getTarget().getName());
+            if (values != null) {
+                nameToField = new LinkedHashMap<String, DataField>();
+                for (DataField rowField : row.getFields()) {
+                    nameToField.put(rowField.getDisplayName(), rowField);
+                }
+                for (int i = 0; i < values.length; i++) {
+                    field = nameToField.get(fieldNames.get(i));
+                    if (field == null) {
+                        throw new IllegalArgumentException(
+                                "The field '" + fieldNames.get(i) +
+                                "' referenced in " + file.getAbsolutePath() +
+                                " is not configured for this project.");
+                    }
+                    value = values[i].trim();
+                    if (value.length() > 0) {
+                        field.applyValue(value);
+                    }
+                }
+            }
+        }
+        return new ArrayList<String>(unmatched.keySet());
+    }
+}
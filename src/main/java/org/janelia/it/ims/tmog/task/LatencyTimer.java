@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.task;
+
+import java.util.Arrays;
+
+/**
+ * Thread safe latency statistics for one kind of call
+ * (e.g. a plug-in's row event processing).
+ * Counts, totals, and maximums cover all timed calls while
+ * percentiles are calculated from the most recent
+ * {@link #MAX_SAMPLES} calls.
+ *
+ * @author Eric Trautman
+ */
+public class LatencyTimer implements LatencyTimerMBean {
+
+    /** Maximum number of recent elapsed times kept for percentiles. */
+    public static final int MAX_SAMPLES = 1024;
+
+    private String name;
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private long[] samples;
+
+    /**
+     * Constructs an empty timer.
+     *
+     * @param  name  name of the timed call.
+     */
+    public LatencyTimer(String name) {
+        this.name = name;
+        this.samples = new long[MAX_SAMPLES];
+        reset();
+    }
+
+    /**
+     * @return the name of the timed call.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records the elapsed time for one call.
+     *
+     * @param  elapsedNanos  elapsed time in nanoseconds.
+     */
+    public synchronized void record(long elapsedNanos) {
+        samples[(int) (count % MAX_SAMPLES)] = elapsedNanos;
+        count++;
+        totalNanos += elapsedNanos;
+        if (elapsedNanos > maxNanos) {
+            maxNanos = elapsedNanos;
+        }
+    }
+
+    /**
+     * Adds all times recorded by the specified timer to this timer.
+     *
+     * @param  timer  timer to add.
+     */
+    public void add(LatencyTimer timer) {
+        final long otherCount;
+        final long otherTotalNanos;
+        final long otherMaxNanos;
+        final long[] otherSamples;
+        synchronized (timer) {
+            otherCount = timer.count;
+            otherTotalNanos = timer.totalNanos;
+            otherMaxNanos = timer.maxNanos;
+            otherSamples = timer.getRecentSamples();
+        }
+        synchronized (this) {
+            for (long elapsedNanos : otherSamples) {
+                samples[(int) (count % MAX_SAMPLES)] = elapsedNanos;
+                count++;
+            }
+            count += otherCount - otherSamples.length;
+            totalNanos += otherTotalNanos;
+            if (otherMaxNanos > maxNanos) {
+                maxNanos = otherMaxNanos;
+            }
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getTotalMillis() {
+        return toMillis(totalNanos);
+    }
+
+    public long getP50Millis() {
+        return toMillis(getPercentileNanos(50));
+    }
+
+    public long getP95Millis() {
+        return toMillis(getPercentileNanos(95));
+    }
+
+    public synchronized long getMaxMillis() {
+        return toMillis(maxNanos);
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    /**
+     * @param  percentile  percentile (0 - 100) to calculate.
+     *
+     * @return the elapsed time (in nanoseconds) for the specified
+     *         percentile of recent calls or 0 if no calls have been timed.
+     */
+    public long getPercentileNanos(int percentile) {
+        final long[] sorted = getRecentSamples();
+        long value = 0;
+        if (sorted.length > 0) {
+            Arrays.sort(sorted);
+            // nearest rank
+            final int rank =
+                    (int) Math.ceil((percentile / 100.0) * sorted.length);
+            value = sorted[Math.max(0, rank - 1)];
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LatencyTimer{" +
+               "name='" + name + '\'' +
+               ", count=" + count +
+               ", totalMillis=" + toMillis(totalNanos) +
+               ", maxMillis=" + toMillis(maxNanos) +
+               '}';
+    }
+
+    /**
+     * @return a copy of the recent elapsed times (in recording order).
+     */
+    private synchronized long[] getRecentSamples() {
+        final int size = (int) Math.min(count, MAX_SAMPLES);
+        final long[] recent = new long[size];
+        final int start = (int) ((count - size) % MAX_SAMPLES);
+        for (int i = 0; i < size; i++) {
+            recent[i] = samples[(start + i) % MAX_SAMPLES];
+        }
+        return recent;
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1000000;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.task;
+
+/**
+ * JMX management interface for {@link LatencyTimer} instances.
+ *
+ * @author Eric Trautman
+ */
+public interface LatencyTimerMBean {
+
+    /**
+     * @return the number of timed calls.
+     */
+    public long getCount();
+
+    /**
+     * @return the total elapsed time for all timed calls.
+     */
+    public long getTotalMillis();
+
+    /**
+     * @return the median elapsed time for recent calls.
+     */
+    public long getP50Millis();
+
+    /**
+     * @return the 95th percentile elapsed time for recent calls.
+     */
+    public long getP95Millis();
+
+    /**
+     * @return the maximum elapsed time for all timed calls.
+     */
+    public long getMaxMillis();
+
+    /**
+     * Clears all timing data.
+     */
+    public void reset();
+}
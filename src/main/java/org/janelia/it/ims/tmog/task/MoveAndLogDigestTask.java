@@ -7,12 +7,20 @@
 
 package org.janelia.it.ims.tmog.task;
 
+import org.apache.log4j.Logger;
+import org.janelia.it.ims.tmog.DataRow;
 import org.janelia.it.ims.tmog.DataTableModel;
 import org.janelia.it.ims.tmog.config.FileTransferConfiguration;
 import org.janelia.it.ims.tmog.config.output.OutputDirectoryConfiguration;
 import org.janelia.it.utils.filexfer.SafeFileTransfer;
 
 import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This task should only be used as an optimized way to move files
@@ -20,6 +28,15 @@ import java.io.File;
  * It uses the much faster but less flexible
  * {@link java.io.File#renameTo(java.io.File)} method to move files.
  * After moving each file, this task calculates and logs the file digest/hash.
+ * <p>
+ * Digests are calculated and logged in a background thread so that
+ * moves are not slowed down by reading each moved file.  A digest is
+ * only logged once its row has been cleaned up successfully (rows that
+ * fail have their files moved back and are not logged).  The number of
+ * moved files waiting for digest calculation is bounded (row cleanup is
+ * paused when the limit is reached) and all pending digests are logged
+ * before session listeners are notified that the session has ended.
+ * Rows whose digests could not be logged are reported as failed.
  *
  * @author Eric Trautman
  */
@@ -29,6 +46,15 @@ public class MoveAndLogDigestTask
     /** The name of the task supported by this view. */
     public static final String TASK_NAME = "move-and-log-digest";
 
+    /** Maximum number of moved files waiting for digest calculation. */
+    public static final int MAX_PENDING_DIGESTS = 100;
+
+    /** Executor for (bounded) background digest calculation. */
+    private ThreadPoolExecutor digestExecutor;
+
+    /** Maps source files to the reason their digest could not be logged. */
+    private Map<File, String> digestFailures;
+
     /**
      * Constructs a new task.
      *
@@ -46,21 +72,120 @@ public class MoveAndLogDigestTask
               outputDirConfig,
               fileTransferConfig,
               sessionOutputDirectoryName);
+
+        // when the queue is full, the moving thread logs the digest itself
+        this.digestExecutor =
+                new ThreadPoolExecutor(
+                        1, 1, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<Runnable>(MAX_PENDING_DIGESTS),
+                        runnable -> {
+                            final Thread thread =
+                                    new Thread(runnable, "move-digest-logger");
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+        this.digestFailures = new ConcurrentHashMap<File, String>();
+    }
+
+    @Override
+    protected void cleanupFiles(File rowFile,
+                                File renamedFile,
+                                boolean isSuccessful,
+                                boolean isOverwriteRequiredForRename) {
+        super.cleanupFiles(rowFile,
+                           renamedFile,
+                           isSuccessful,
+                           isOverwriteRequiredForRename);
+        if (isSuccessful) {
+            digestExecutor.execute(new PendingDigest(rowFile, renamedFile));
+        }
     }
 
+    /**
+     * Waits for all pending digests to be calculated and logged
+     * and then reports any rows whose digests could not be logged.
+     */
     @Override
-    protected void handleSuccessfulMove(File rowFile,
-                                        File renamedFile) {
-        final long startTime = System.currentTimeMillis();
-        final byte[] digest = SafeFileTransfer.getDigest(renamedFile);
-        final int elapsedSeconds =
-                ((int) (System.currentTimeMillis() - startTime)) / 1000;
-        SafeFileTransfer.logTransferStats("moved",
-                                          digest,
-                                          rowFile,
-                                          renamedFile,
-                                          0,
-                                          elapsedSeconds);
+    protected void completeDeferredWork() {
+        digestExecutor.shutdown();
+        try {
+            while (! digestExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.info("completeDeferredWork: waiting for " +
+                         digestExecutor.getQueue().size() +
+                         " pending digests to be logged");
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("completeDeferredWork: interrupted while waiting for " +
+                     "pending digests to be logged", e);
+            // report the moves that were never logged
+            for (Runnable pending : digestExecutor.shutdownNow()) {
+                ((PendingDigest) pending).addFailure("interrupted");
+            }
+            Thread.currentThread().interrupt();
+        }
+
+        if (digestFailures.size() > 0) {
+            final List<DataRow> modelRows = getModel().getRows();
+            File rowFile;
+            String failure;
+            for (int i = 0; i < modelRows.size(); i++) {
+                rowFile = (File) modelRows.get(i).getTarget().getInstance();
+                failure = digestFailures.get(rowFile);
+                if (failure != null) {
+                    appendToSummary("ERROR: failed to log digest for ");
+                    appendToSummary(rowFile.getName());
+                    appendToSummary(" (");
+                    appendToSummary(failure);
+                    appendToSummary(")\n");
+                    addDeferredRowFailure(i);
+                }
+            }
+        }
     }
-        
-}
\ No newline at end of file
+
+    /**
+     * A moved file waiting for its digest to be calculated and logged.
+     */
+    private class PendingDigest
+            implements Runnable {
+
+        private File rowFile;
+        private File renamedFile;
+
+        public PendingDigest(File rowFile,
+                             File renamedFile) {
+            this.rowFile = rowFile;
+            this.renamedFile = renamedFile;
+        }
+
+        @Override
+        public void run() {
+            try {
+                final long startTime = System.currentTimeMillis();
+                final byte[] digest = SafeFileTransfer.getDigest(renamedFile);
+                final int elapsedSeconds =
+                        ((int) (System.currentTimeMillis() - startTime)) /
+                        1000;
+                SafeFileTransfer.logTransferStats("moved",
+                                                  digest,
+                                                  rowFile,
+                                                  renamedFile,
+                                                  0,
+                                                  elapsedSeconds);
+            } catch (Exception e) {
+                LOG.error("failed to log digest for " +
+                          renamedFile.getAbsolutePath() + " (moved from " +
+                          rowFile.getAbsolutePath() + ")", e);
+                addFailure(String.valueOf(e.getMessage()));
+            }
+        }
+
+        public void addFailure(String reason) {
+            digestFailures.put(rowFile, reason);
+        }
+    }
+
+    private static final Logger LOG =
+            Logger.getLogger(MoveAndLogDigestTask.class);
+}
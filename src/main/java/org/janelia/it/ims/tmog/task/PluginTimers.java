@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.task;
+
+import org.apache.log4j.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A named collection of {@link LatencyTimer} instances used to identify
+ * which plug-ins (or task steps) are responsible for slow sessions.
+ * <p>
+ * Each task has its own collection of timers for the task summary.
+ * Times recorded for a task are also added to a shared application
+ * collection whose timers are published as JMX MBeans
+ * (see {@link #JMX_DOMAIN}) so that long running workstations
+ * can be monitored.
+ *
+ * @author Eric Trautman
+ */
+public class PluginTimers {
+
+    /** JMX domain for published timers. */
+    public static final String JMX_DOMAIN = "org.janelia.it.ims.tmog";
+
+    private static final PluginTimers APPLICATION_TIMERS =
+            new PluginTimers(null);
+
+    /**
+     * @return the shared application timers.
+     */
+    public static PluginTimers getApplicationTimers() {
+        return APPLICATION_TIMERS;
+    }
+
+    private PluginTimers parent;
+    private Map<String, LatencyTimer> nameToTimer;
+
+    /**
+     * Constructs an empty collection of timers whose times are also
+     * added to the shared application timers.
+     */
+    public PluginTimers() {
+        this(APPLICATION_TIMERS);
+    }
+
+    private PluginTimers(PluginTimers parent) {
+        this.parent = parent;
+        this.nameToTimer = new LinkedHashMap<String, LatencyTimer>();
+    }
+
+    /**
+     * @param  plugin  plug-in (or other object) being timed.
+     * @param  call    name of the timed call.
+     *
+     * @return the standard timer name for the specified plug-in call.
+     */
+    public static String getName(Object plugin,
+                                 String call) {
+        return plugin.getClass().getSimpleName() + " " + call;
+    }
+
+    /**
+     * Records the elapsed time for a call.
+     *
+     * @param  name        name of the timed call (see {@link #getName}).
+     * @param  startNanos  {@link System#nanoTime} value when the call
+     *                     started.
+     */
+    public void record(String name,
+                       long startNanos) {
+        recordElapsed(name, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Adds all times recorded by the specified timers to these timers
+     * (e.g. to include validation times with task times).
+     * The shared application timers are not updated since they
+     * already include the added times.
+     *
+     * @param  timers  timers to add (may be null).
+     */
+    public void addAll(PluginTimers timers) {
+        if (timers != null) {
+            for (LatencyTimer timer : timers.getTimers()) {
+                getTimer(timer.getName()).add(timer);
+            }
+        }
+    }
+
+    /**
+     * @return the timers in this collection (in creation order).
+     */
+    public synchronized List<LatencyTimer> getTimers() {
+        return new ArrayList<LatencyTimer>(nameToTimer.values());
+    }
+
+    /**
+     * @return a compact text table of timings (or an empty string
+     *         if no calls have been timed).
+     */
+    public String getSummaryTable() {
+        final List<LatencyTimer> timers = getTimers();
+        final StringBuilder sb = new StringBuilder();
+        if (timers.size() > 0) {
+            int nameWidth = 4;
+            for (LatencyTimer timer : timers) {
+                nameWidth = Math.max(nameWidth, timer.getName().length());
+            }
+            final String format =
+                    "%-" + nameWidth + "s %7s %10s %8s %8s %8s\n";
+            sb.append(String.format(format, "Call", "Count", "Total(ms)",
+                                    "p50(ms)", "p95(ms)", "Max(ms)"));
+            for (LatencyTimer timer : timers) {
+                sb.append(String.format(format,
+                                        timer.getName(),
+                                        timer.getCount(),
+                                        timer.getTotalMillis(),
+                                        timer.getP50Millis(),
+                                        timer.getP95Millis(),
+                                        timer.getMaxMillis()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private void recordElapsed(String name,
+                               long elapsedNanos) {
+        getTimer(name).record(elapsedNanos);
+        if (parent != null) {
+            parent.recordElapsed(name, elapsedNanos);
+        }
+    }
+
+    private synchronized LatencyTimer getTimer(String name) {
+        LatencyTimer timer = nameToTimer.get(name);
+        if (timer == null) {
+            timer = new LatencyTimer(name);
+            nameToTimer.put(name, timer);
+            if (parent == null) {
+                register(timer);
+            }
+        }
+        return timer;
+    }
+
+    private static void register(LatencyTimer timer) {
+        try {
+            final MBeanServer server =
+                    ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName =
+                    new ObjectName(JMX_DOMAIN + ":type=PluginTimer,name=" +
+                                   ObjectName.quote(timer.getName()));
+            if (! server.isRegistered(objectName)) {
+                server.registerMBean(timer, objectName);
+            }
+        } catch (Exception e) {
+            LOG.warn("failed to register JMX bean for " + timer, e);
+        }
+    }
+
+    private static final Logger LOG = Logger.getLogger(PluginTimers.class);
+}
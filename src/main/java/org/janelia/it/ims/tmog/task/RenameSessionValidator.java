@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.task;
+
+import org.apache.log4j.Logger;
+import org.janelia.it.ims.tmog.DataRow;
+import org.janelia.it.ims.tmog.config.ProjectConfiguration;
+import org.janelia.it.ims.tmog.config.output.OutputDirectoryConfiguration;
+import org.janelia.it.ims.tmog.plugin.ExternalDataException;
+import org.janelia.it.ims.tmog.plugin.ExternalSystemException;
+import org.janelia.it.ims.tmog.plugin.RenamePluginDataRow;
+import org.janelia.it.ims.tmog.plugin.RowValidator;
+import org.janelia.it.ims.tmog.target.Target;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * This class performs the output directory and external (plug-in)
+ * validation needed before a rename session is started.
+ * Basic field validation (see {@link org.janelia.it.ims.tmog.DataTableModel#verify})
+ * should be completed before this validation is performed.
+ *
+ * @author Eric Trautman
+ */
+public class RenameSessionValidator {
+
+    private String sessionName;
+    private ProjectConfiguration projectConfig;
+    private PluginTimers pluginTimers;
+    private String errorMessage;
+    private int errorRowIndex;
+
+    /**
+     * Constructs a validator.
+     *
+     * @param  sessionName    name of the session being validated.
+     * @param  projectConfig  configuration for the session's project.
+     */
+    public RenameSessionValidator(String sessionName,
+                                  ProjectConfiguration projectConfig) {
+        this.sessionName = sessionName;
+        this.projectConfig = projectConfig;
+        this.pluginTimers = new PluginTimers();
+        this.errorMessage = null;
+        this.errorRowIndex = -1;
+    }
+
+    /**
+     * @return elapsed times for validator calls.
+     */
+    public PluginTimers getPluginTimers() {
+        return pluginTimers;
+    }
+
+    /**
+     * @return the reason validation failed (or null if it succeeded).
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * @return index of the row that failed validation or -1 if
+     *         validation succeeded or did not fail for a specific row.
+     */
+    public int getErrorRowIndex() {
+        return errorRowIndex;
+    }
+
+    /**
+     * Validates output directories and calls configured row validators
+     * for each row, stopping at the first failure.
+     *
+     * @param  rows                 rows to validate.
+     * @param  baseOutputDirectory  output directory for session derived
+     *                              configurations (ignored otherwise).
+     *
+     * @return true if all rows are valid; otherwise false.
+     */
+    public boolean validate(List<DataRow> rows,
+                            File baseOutputDirectory) {
+
+        boolean isValid = true;
+
+        OutputDirectoryConfiguration odCfg = projectConfig.getOutputDirectory();
+        boolean isOutputDirectoryAlreadyValidated = odCfg.isDerivedForSession();
+        File outputDirectory;
+        String outputDirectoryPath;
+        int rowIndex = 0;
+
+        final List<RowValidator> validators =
+                projectConfig.getRowValidators();
+
+        // call validators to set-up for session
+        long startNanos;
+        try {
+            for (RowValidator validator : validators) {
+                startNanos = System.nanoTime();
+                validator.startSessionValidation(sessionName, rows);
+                pluginTimers.record(
+                        PluginTimers.getName(validator,
+                                             "startSessionValidation"),
+                        startNanos);
+            }
+        } catch (ExternalSystemException e) {
+            isValid = false;
+            errorMessage = e.getMessage();
+        }
+
+        // only perform row validation
+        // if external start session call succeeded
+        if (isValid) {
+
+            for (DataRow row : rows) {
+                Target rowTarget = row.getTarget();
+                File rowFile = (File) rowTarget.getInstance();
+
+                if (isOutputDirectoryAlreadyValidated) {
+                    outputDirectory = baseOutputDirectory;
+                } else {
+                    // setup and validate the directories for each file
+                    // TODO: add support for nested fields
+                    outputDirectoryPath = odCfg.getDerivedPath(rowFile,
+                                                               row.getFields());
+                    outputDirectory = new File(outputDirectoryPath);
+                    String outputFailureMsg =
+                            OutputDirectoryConfiguration.validateDirectory(
+                                    outputDirectory);
+                    if (outputFailureMsg != null) {
+                        isValid = false;
+                        errorRowIndex = rowIndex;
+                        errorMessage = outputFailureMsg;
+                    }
+                }
+
+                // only perform external validation
+                // if output directory validation succeeds
+                if (isValid) {
+                    String externalErrorMsg = null;
+                    try {
+                        for (RowValidator validator : validators) {
+                            startNanos = System.nanoTime();
+                            validator.validate(
+                                    sessionName,
+                                    new RenamePluginDataRow(rowFile,
+                                                            row,
+                                                            outputDirectory));
+                            pluginTimers.record(
+                                    PluginTimers.getName(validator,
+                                                         "validate"),
+                                    startNanos);
+                        }
+                    } catch (ExternalDataException e) {
+                        externalErrorMsg = e.getMessage();
+                        LOG.info("external validation failed", e);
+                    } catch (ExternalSystemException e) {
+                        externalErrorMsg = e.getMessage();
+                        LOG.error(e.getMessage(), e);
+                    }
+
+                    if (externalErrorMsg != null) {
+                        isValid = false;
+                        errorRowIndex = rowIndex;
+                        errorMessage = externalErrorMsg;
+                    }
+                }
+
+                if (!isValid) {
+                    break;
+                }
+
+                rowIndex++;
+            }
+        }
+
+        // always call validators to clean-up session
+        for (RowValidator validator : validators) {
+            startNanos = System.nanoTime();
+            validator.stopSessionValidation(sessionName);
+            pluginTimers.record(
+                    PluginTimers.getName(validator, "stopSessionValidation"),
+                    startNanos);
+        }
+
+        return isValid;
+    }
+
+    private static final Logger LOG =
+            Logger.getLogger(RenameSessionValidator.class);
+}
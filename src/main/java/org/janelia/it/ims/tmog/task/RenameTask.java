@@ -11,18 +11,34 @@ import org.apache.log4j.Logger;
 import org.janelia.it.ims.tmog.DataRow;
 import org.janelia.it.ims.tmog.DataTableModel;
 import org.janelia.it.ims.tmog.config.FileTransferConfiguration;
+import org.janelia.it.ims.tmog.config.ProjectConfiguration;
 import org.janelia.it.ims.tmog.config.output.OutputDirectoryConfiguration;
 import org.janelia.it.ims.tmog.plugin.PluginDataRow;
 import org.janelia.it.ims.tmog.plugin.RenamePluginDataRow;
 import org.janelia.it.ims.tmog.target.Target;
+import org.janelia.it.utils.filexfer.DigestBytes;
 import org.janelia.it.utils.filexfer.FileCopyFailedException;
 import org.janelia.it.utils.filexfer.FileTransferUtil;
 import org.janelia.it.utils.filexfer.SafeFileTransfer;
+import org.janelia.it.utils.filexfer.SyncBatch;
+import org.janelia.it.utils.filexfer.TransferJournal;
 
 import java.io.File;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class supports the execution of the copy and rename process.
@@ -47,10 +63,14 @@ public class RenameTask extends SimpleTask {
     private FileTransferConfiguration fileTransferConfig;
 
     /**
-     * Utility for nio file transfers.
+     * Utilities for nio file transfers mapped to the worker thread that
+     * owns them (one per thread since utility instances are not thread
+     * safe).  Utilities reference this task, so the map is cleared when
+     * the session ends instead of leaving a utility attached to each
+     * long-lived pool thread that ran the session.
      */
-    private FileTransferUtil fileTransferUtil;
-    
+    private Map<Thread, FileTransferUtil> fileTransferUtils;
+
     /**
      * The target directory for all copied files when the output configuration
      * indicates that the same directory should be used for all files
@@ -58,20 +78,65 @@ public class RenameTask extends SimpleTask {
      */
     private File sessionOutputDirectory;
 
+    /** The total number of bytes that need to be copied. */
+    private long totalBytesToCopy;
+
+    /** The number of bytes in rows that have already been processed. */
+    private AtomicLong bytesProcessed;
+
+    /**
+     * Map of renamed files to the number of bytes copied so far
+     * for rows that are still being processed.
+     */
+    private Map<File, Long> bytesInProgress;
+
+    /** Map of renamed files to the index of their row (for progress). */
+    private Map<File, Integer> progressRowIndices;
+
+    /** Measures transfer rates for progress reporting. */
+    private TransferRateMeter transferRateMeter;
+
+    /**
+     * The plugin data rows currently being processed
+     * (more than one when rows are processed concurrently).
+     */
+    private Map<DataRow, RenamePluginDataRow> currentRows;
+
+    /**
+     * Executor for asynchronous copy validation
+     * (null if validation is synchronous).
+     */
+    private ExecutorService validationExecutor;
+
+    /** Map of renamed files to pending (asynchronous) validations. */
+    private Map<File, Future<DigestBytes>> pendingValidations;
+
+    /** Renamed files that were moved (instead of copied) from their source. */
+    private Set<File> movedFiles;
+
     /**
-     * The number of bytes in a programatically sized "chunk"
-     * (used to report copy progress percentages).
+     * Map of renamed files to the state of their source files when
+     * their transfers started (kept until each transfer is logged).
      */
-    private int bytesInChunk;
+    private Map<File, SourceVersion> transferredSources;
 
-    /** The total number of byte "chunks" that need to be copied. */
-    private long totalByteChunksToCopy;
+    /**
+     * Write-ahead log of row states for this session
+     * (created when the first row state is recorded).
+     */
+    private SessionLog sessionLog;
 
-    /** The number of "chunks" that have already been processed. */
-    private long chunksProcessed;
+    /**
+     * Batch for syncing this session's copies
+     * (null unless copies are synced in batches).
+     */
+    private SyncBatch syncBatch;
 
-    /** The current plugin data row being processed. */
-    private RenamePluginDataRow currentRow;
+    /**
+     * Map of renamed files to the source files whose removal is waiting
+     * for the renamed file to be synced (in row order).
+     */
+    private Map<File, File> sourcesAwaitingSync;
 
     /**
      * Constructs a new task.
@@ -91,14 +156,8 @@ public class RenameTask extends SimpleTask {
         this.outputDirConfig = outputDirConfig;
 
         this.fileTransferConfig = fileTransferConfig;
-        try {
-            this.fileTransferUtil =
-                    new FileTransferUtil(fileTransferConfig.getBufferSize(),
-                                         fileTransferConfig.getDigestAlgorithm());
-        } catch (NoSuchAlgorithmException e) {
-            LOG.error("failed to construct file transfer utility from config " +
-                      fileTransferConfig, e);
-        }
+        this.fileTransferUtils =
+                new ConcurrentHashMap<Thread, FileTransferUtil>();
 
         this.sessionOutputDirectory = new File(sessionOutputDirectoryName);
 
@@ -115,25 +174,112 @@ public class RenameTask extends SimpleTask {
         appendToSummary(fromDirectoryName);
         appendToSummary(":\n\n");
 
-        long totalBytesToCopy = 0;
+        this.totalBytesToCopy = 0;
         for (DataRow modelRow : modelRows) {
             File file = getTargetFile(modelRow);
-            totalBytesToCopy += file.length();
+            this.totalBytesToCopy += file.length();
+        }
+
+        this.bytesProcessed = new AtomicLong(0);
+        this.bytesInProgress = new ConcurrentHashMap<File, Long>();
+        this.progressRowIndices = new ConcurrentHashMap<File, Integer>();
+        this.transferRateMeter = new TransferRateMeter();
+        this.currentRows = Collections.synchronizedMap(
+                new IdentityHashMap<DataRow, RenamePluginDataRow>());
+
+        if (fileTransferConfig.isAsynchronousValidation() &&
+            fileTransferConfig.isValidationRequired()) {
+            // idle (daemon) threads are released after a minute,
+            // so the executor never needs to be explicitly shutdown
+            this.validationExecutor = Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, "copy-validation");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
+        this.pendingValidations =
+                new ConcurrentHashMap<File, Future<DigestBytes>>();
+        this.movedFiles = ConcurrentHashMap.newKeySet();
+        this.transferredSources = new ConcurrentHashMap<File, SourceVersion>();
+        this.sessionLog = null;
+        this.syncBatch = fileTransferConfig.createSyncBatch();
+        this.sourcesAwaitingSync = new LinkedHashMap<File, File>();
+    }
 
-        this.bytesInChunk = 1;
-        if (totalBytesToCopy == 0) {
-            this.totalByteChunksToCopy = 1; // prevent divide by zero
-        } else if (totalBytesToCopy < (long) Integer.MAX_VALUE) {
-            this.totalByteChunksToCopy = (int) totalBytesToCopy;
+    /**
+     * Constructs the rename task configured for the specified project.
+     *
+     * @param  model                       data model for the session.
+     * @param  projectConfig               the project configuration.
+     * @param  sessionOutputDirectoryName  the session output directory name
+     *                                     (for session derived
+     *                                     configurations).
+     *
+     * @return a new task instance of the project's configured type.
+     */
+    public static RenameTask getTaskForProject(
+            DataTableModel model,
+            ProjectConfiguration projectConfig,
+            String sessionOutputDirectoryName) {
+
+        final RenameTask task;
+        final String taskName = projectConfig.getTaskName();
+        if (RenameWithoutDeleteTask.TASK_NAME.equals(taskName)) {
+
+            task = new RenameWithoutDeleteTask(
+                    model,
+                    projectConfig.getOutputDirectory(),
+                    projectConfig.getFileTransfer(),
+                    sessionOutputDirectoryName);
+
+        } else if (SimpleMoveTask.TASK_NAME.equals(taskName)) {
+
+            task = new SimpleMoveTask(model,
+                                      projectConfig.getOutputDirectory(),
+                                      projectConfig.getFileTransfer(),
+                                      sessionOutputDirectoryName);
+
+        } else if (MoveAndLogDigestTask.TASK_NAME.equals(taskName)) {
+
+            task = new MoveAndLogDigestTask(model,
+                                            projectConfig.getOutputDirectory(),
+                                            projectConfig.getFileTransfer(),
+                                            sessionOutputDirectoryName);
         } else {
-            this.bytesInChunk = 1000000; // use megabytes instead of bytes
-            this.totalByteChunksToCopy = (int)
-                    (totalBytesToCopy / this.bytesInChunk);
+
+            task = new RenameTask(model,
+                                  projectConfig.getOutputDirectory(),
+                                  projectConfig.getFileTransfer(),
+                                  sessionOutputDirectoryName);
+
         }
 
-        this.chunksProcessed = 0;
-        this.currentRow = null;
+        return task;
+    }
+
+    /**
+     * Executes the task, syncs any batched copies (removing any sources
+     * that were waiting for their copies to be synced), and then closes
+     * this session's log (since all of the session's rows have been
+     * reconciled).
+     */
+    @Override
+    public Void doInBackground() {
+        transferRateMeter.start();
+        try {
+            return super.doInBackground();
+        } finally {
+            if (syncBatch != null) {
+                try {
+                    syncBatch.sync();
+                } catch (Exception e) {
+                    LOG.error("failed to sync copies at end of session", e);
+                }
+                removeSyncedSources(true);
+            }
+            fileTransferUtils.clear();
+            getSessionLog().close();
+        }
     }
 
     /**
@@ -153,12 +299,47 @@ public class RenameTask extends SimpleTask {
                                                    modelRow.getFields()));
         }
 
-        currentRow =  new RenamePluginDataRow(rowFile,
-                                              modelRow,
-                                              toDirectory);
+        final RenamePluginDataRow currentRow =
+                new RenamePluginDataRow(rowFile,
+                                        modelRow,
+                                        toDirectory);
+        currentRow.setFileTransferConfiguration(fileTransferConfig);
+        currentRows.put(modelRow, currentRow);
         return currentRow;
     }
 
+    /**
+     * @return the maximum number of files to transfer concurrently
+     *         (as specified by the file transfer configuration).
+     */
+    @Override
+    protected int getMaxConcurrentRows() {
+        return fileTransferConfig.getMaxConcurrentFiles();
+    }
+
+    /**
+     * @return the number of rows that may be validating while later
+     *         rows are copied (zero if validation is synchronous).
+     */
+    @Override
+    protected int getMaxRowsAwaitingCompletion() {
+        int maxRows = 0;
+        if (validationExecutor != null) {
+            maxRows = fileTransferConfig.getMaxConcurrentFiles();
+        }
+        return maxRows;
+    }
+
+    /**
+     * @return the number of rows that may be started while earlier
+     *         rows are transferred (as specified by the file transfer
+     *         configuration).
+     */
+    @Override
+    protected int getStartRowLookAhead() {
+        return fileTransferConfig.getStartRowLookAhead();
+    }
+
     /**
      * @param  lastRowProcessed    index of last proceessed row (zero based).
      * @param  totalRowsToProcess  total number of rows being processed.
@@ -171,27 +352,88 @@ public class RenameTask extends SimpleTask {
                                                int totalRowsToProcess,
                                                DataRow modelRow) {
 
+        final RenamePluginDataRow currentRow = currentRows.get(modelRow);
         File fromFile = currentRow.getFromFile();
         File toFile = currentRow.getRenamedFile();
 
+        progressRowIndices.put(toFile, lastRowProcessed);
+
+        return getProgressInfo(lastRowProcessed,
+                               totalRowsToProcess,
+                               fromFile,
+                               toFile);
+    }
+
+    /**
+     * @param  rowIndex            index of the row being copied.
+     * @param  totalRowsToProcess  total number of rows being processed.
+     * @param  fromFile            source file being copied.
+     * @param  toFile              target file for the copy.
+     *
+     * @return a task progress object (with current transfer rates)
+     *         for the specified copy.
+     */
+    private TaskProgressInfo getProgressInfo(int rowIndex,
+                                             int totalRowsToProcess,
+                                             File fromFile,
+                                             File toFile) {
+
         @SuppressWarnings("StringBufferReplaceableByString")
         StringBuilder sb = new StringBuilder(1024);
         sb.append("copying file ");
-        sb.append((lastRowProcessed + 1));
+        sb.append((rowIndex + 1));
         sb.append(" of ");
         sb.append(totalRowsToProcess);
         sb.append(": ");
         sb.append(fromFile.getName());
         sb.append(" -> ");
         sb.append(toFile.getName());
-        int pctComplete = (int)
-                (100 *
-                 ((double) chunksProcessed / (double) totalByteChunksToCopy));
 
-        return new TaskProgressInfo(lastRowProcessed,
-                                    totalRowsToProcess,
-                                    pctComplete,
-                                    sb.toString());
+        long bytesCopied = bytesProcessed.get();
+        for (Long bytes : bytesInProgress.values()) {
+            bytesCopied += bytes;
+        }
+        transferRateMeter.update(bytesCopied);
+
+        int pctComplete = 0;
+        if (totalBytesToCopy > 0) {
+            pctComplete = (int)
+                    (100 * ((double) bytesCopied / (double) totalBytesToCopy));
+        }
+
+        return new TaskProgressInfo(
+                rowIndex,
+                totalRowsToProcess,
+                Math.min(pctComplete, 100),
+                sb.toString(),
+                transferRateMeter.getCurrentMegabytesPerSecond(),
+                transferRateMeter.getAverageMegabytesPerSecond(),
+                transferRateMeter.getSecondsRemaining(totalBytesToCopy -
+                                                      bytesCopied));
+    }
+
+    /**
+     * Publishes progress for a copy that is underway.
+     * This method is called by the copying thread's
+     * {@link FileTransferUtil} instance.
+     *
+     * @param  fromFile          source file being copied.
+     * @param  toFile            target file for the copy.
+     * @param  bytesTransferred  number of bytes copied so far.
+     * @param  totalBytes        total number of bytes to copy.
+     */
+    private void transferProgress(File fromFile,
+                                  File toFile,
+                                  long bytesTransferred,
+                                  long totalBytes) {
+        final Integer rowIndex = progressRowIndices.get(toFile);
+        if (rowIndex != null) {
+            bytesInProgress.put(toFile, bytesTransferred);
+            publish(getProgressInfo(rowIndex,
+                                    getModel().getRows().size(),
+                                    fromFile,
+                                    toFile));
+        }
     }
 
     /**
@@ -205,10 +447,16 @@ public class RenameTask extends SimpleTask {
     protected boolean processRow(DataRow modelRow) {
 
         boolean renameSuccessful = false;
+        final RenamePluginDataRow currentRow = currentRows.get(modelRow);
         File rowFile = currentRow.getFromFile();
         File renamedFile = currentRow.getRenamedFile();
         String errorMsg;
 
+        if (currentRow.isOverwriteRequiredForRename() &&
+            isExistingTargetReusable(rowFile, renamedFile)) {
+            currentRow.setOverwriteRequiredForRename(false);
+        }
+
         if (currentRow.isOverwriteRequiredForRename()) {
 
             errorMsg = renamedFile.getAbsolutePath() + " already exists.";
@@ -219,7 +467,32 @@ public class RenameTask extends SimpleTask {
 
             // perform the actual transfer
             try {
-                transferFile(rowFile, renamedFile);
+                // capture source state before the source can be moved
+                transferredSources.put(renamedFile,
+                                       new SourceVersion(rowFile));
+
+                final SessionRecovery.RecoveredCopy recoveredCopy =
+                        claimIntactRecoveredCopy(rowFile, renamedFile);
+                if (recoveredCopy == null) {
+                    getSessionLog().record(SessionLog.RowState.COPY_STARTED,
+                                           rowFile,
+                                           renamedFile);
+                    transferFile(rowFile, renamedFile);
+                    currentRow.setTransferDigests(getTransferDigests());
+                    if (pendingValidations.containsKey(renamedFile)) {
+                        getSessionLog().record(SessionLog.RowState.COPIED,
+                                               rowFile,
+                                               renamedFile);
+                    } else {
+                        logCopy(currentRow, isTransferValidated());
+                    }
+                } else {
+                    LOG.info("Reusing " + renamedFile.getAbsolutePath() +
+                             " (verified copy of " + rowFile.getAbsolutePath() +
+                             " from an interrupted session).");
+                    currentRow.setTransferDigests(recoveredCopy.getDigests());
+                    logCopy(currentRow, true);
+                }
 
                 if (outputDirConfig.isFileModeReadOnly()) {
                     boolean isReadOnlySet = false;
@@ -247,6 +520,51 @@ public class RenameTask extends SimpleTask {
         return renameSuccessful;
     }
 
+    /**
+     * Waits for any asynchronous validation of the specified row's copy
+     * to complete.  The row is marked as failed if validation fails
+     * (in which case the invalid copy will already have been removed).
+     *
+     * @param  modelRow                the current row being processed.
+     * @param  isProcessingSuccessful  result of {@link #processRow}.
+     *
+     * @return true if the copy was successful and has been validated;
+     *         otherwise false.
+     */
+    @Override
+    protected boolean awaitRowProcessing(DataRow modelRow,
+                                         boolean isProcessingSuccessful) {
+
+        boolean isSuccessful = isProcessingSuccessful;
+
+        final RenamePluginDataRow currentRow = currentRows.get(modelRow);
+        final File renamedFile = currentRow.getRenamedFile();
+        final Future<DigestBytes> validation =
+                pendingValidations.remove(renamedFile);
+
+        if (validation != null) {
+            try {
+                validation.get();
+                logCopy(currentRow, true);
+            } catch (ExecutionException e) {
+                isSuccessful = false;
+                LOG.error("Failed to validate copy of " +
+                          currentRow.getFromFile().getAbsolutePath() +
+                          " to " + renamedFile.getAbsolutePath(),
+                          e.getCause());
+                appendOriginalErrorMessageToSummary(e.getCause());
+            } catch (InterruptedException e) {
+                isSuccessful = false;
+                LOG.error("Interrupted while waiting for validation of " +
+                          renamedFile.getAbsolutePath(), e);
+                appendOriginalErrorMessageToSummary(e);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return isSuccessful;
+    }
+
     /**
      * This method adds summary information for the processed row
      * and updates progress information.  It also calls {@link #cleanupFiles}
@@ -263,23 +581,43 @@ public class RenameTask extends SimpleTask {
     protected void cleanupRow(DataRow modelRow,
                               boolean isSuccessful) {
 
+        final RenamePluginDataRow currentRow = currentRows.remove(modelRow);
         final File rowFile = currentRow.getFromFile();
         final File renamedFile = currentRow.getRenamedFile();
+        transferredSources.remove(renamedFile);
 
-        long bytesProcessed = 0;
+        long rowBytes = 0;
         if (rowFile.exists()) {
-            bytesProcessed = rowFile.length();
+            rowBytes = rowFile.length();
         } else if (renamedFile.exists()) {
-            bytesProcessed = renamedFile.length();
+            rowBytes = renamedFile.length();
+        }
+        progressRowIndices.remove(renamedFile);
+        bytesInProgress.remove(renamedFile);
+        bytesProcessed.addAndGet(rowBytes);
+
+        final SessionLog log = getSessionLog();
+        if (isSuccessful) {
+            log.record(SessionLog.RowState.LISTENERS_DONE, rowFile, renamedFile);
         }
-        chunksProcessed += (int) (bytesProcessed / bytesInChunk);
 
         cleanupFiles(rowFile,
                      renamedFile,
                      isSuccessful,
                      currentRow.isOverwriteRequiredForRename());
 
-        currentRow = null;
+        if (isSuccessful) {
+            // rows waiting for a sync are completed once they are synced
+            if (! sourcesAwaitingSync.containsKey(renamedFile)) {
+                logCompletedRow(rowFile, renamedFile);
+            }
+        } else {
+            log.record(SessionLog.RowState.FAILED, rowFile, renamedFile);
+        }
+
+        if (sourcesAwaitingSync.size() > 0) {
+            removeSyncedSources(false);
+        }
     }
 
     protected void cleanupFiles(File rowFile,
@@ -287,20 +625,45 @@ public class RenameTask extends SimpleTask {
                                 boolean isSuccessful,
                                 boolean isOverwriteRequiredForRename) {
 
+        final boolean isMoved = movedFiles.remove(renamedFile);
+
         if (isSuccessful) {
 
             appendToSummary("renamed ");
 
-            // clean up the original file
-            deleteFile(rowFile, "succeeded");
+            // clean up the original file (unless it was moved)
+            if (! isMoved) {
+                deleteSourceFile(rowFile, renamedFile);
+            }
 
         } else {
 
             appendToSummary("ERROR: failed to rename ");
 
+            if (isMoved) {
+
+                // move the renamed file back
+                if (renamedFile.renameTo(rowFile)) {
+                    LOG.warn("Moved " + renamedFile.getAbsolutePath() +
+                             " back to " + rowFile.getAbsolutePath() +
+                             " after rename processing failed.");
+                } else {
+                    LOG.error("FAILED to move " +
+                              renamedFile.getAbsolutePath() + " back to " +
+                              rowFile.getAbsolutePath() +
+                              " after rename processing failed.");
+                }
+
+            // keep incomplete resumable transfers so that
+            // a retry can continue from the last completed chunk
+            } else if ((renamedFile != null) &&
+                       TransferJournal.isIncompleteTransfer(renamedFile)) {
+                LOG.warn("Keeping " + renamedFile.getAbsolutePath() +
+                         " so that its transfer can be resumed.");
+
             // clean up the copied file if it exists and
             // it isn't the same as the source file
-            if ((renamedFile != null) &&
+            } else if ((renamedFile != null) &&
                 renamedFile.exists() &&
                 (! renamedFile.equals(rowFile)) &&
                 (! isOverwriteRequiredForRename)) {
@@ -323,13 +686,28 @@ public class RenameTask extends SimpleTask {
     protected void transferFile(File rowFile,
                                 File renamedFile)
             throws IOException, FileCopyFailedException {
+        final FileTransferUtil util = getFileTransferUtil();
         if (fileTransferConfig.isNioRequired() &&
-            (fileTransferUtil != null)) {
-
-            fileTransferUtil.copyAndValidate(
-                    rowFile,
-                    renamedFile,
-                    fileTransferConfig.isValidationRequired());
+            (util != null)) {
+
+            if (isMoveWithinFileStoreSupported() &&
+                util.moveAndValidate(
+                        rowFile,
+                        renamedFile,
+                        fileTransferConfig.isValidationRequired())) {
+                movedFiles.add(renamedFile);
+            } else if (validationExecutor == null) {
+                util.copyAndValidate(
+                        rowFile,
+                        renamedFile,
+                        fileTransferConfig.isValidationRequired());
+            } else {
+                pendingValidations.put(
+                        renamedFile,
+                        util.copyAndStartValidation(rowFile,
+                                                    renamedFile,
+                                                    validationExecutor));
+            }
 
         } else {
 
@@ -338,6 +716,72 @@ public class RenameTask extends SimpleTask {
         }
     }
 
+    /**
+     * @return true if source files are removed after their rows are
+     *         successfully processed (used to recover interrupted
+     *         sessions).  Tasks that preserve source files should
+     *         override this to return false.
+     */
+    protected boolean isSourceRemovedOnSuccess() {
+        return true;
+    }
+
+    /**
+     * @return true if rows should be atomically moved (instead of copied)
+     *         when the source and target are on the same file store
+     *         (as specified by the file transfer configuration).
+     *         Tasks that must preserve source files should override this
+     *         to return false.
+     */
+    protected boolean isMoveWithinFileStoreSupported() {
+        return fileTransferConfig.isMoveWithinFileStore();
+    }
+
+    /**
+     * @return true if the current thread's last {@link #transferFile} call
+     *         synchronously compared the digests of the source and
+     *         target files.  Tasks that transfer files without the
+     *         configured validation should override this to return false.
+     */
+    protected boolean isTransferValidated() {
+        final String algorithm = fileTransferConfig.getDigestAlgorithm();
+        return fileTransferConfig.isValidationRequired() &&
+               (algorithm != null) &&
+               getTransferDigests().containsKey(algorithm);
+    }
+
+    /**
+     * @return map of algorithm names to the source file digests calculated
+     *         by the current thread's last {@link #transferFile} call
+     *         (empty if no digests were calculated).
+     */
+    protected Map<String, DigestBytes> getTransferDigests() {
+        Map<String, DigestBytes> digests = Collections.emptyMap();
+        final FileTransferUtil util = getFileTransferUtil();
+        if (fileTransferConfig.isNioRequired() && (util != null)) {
+            digests = util.getCopyDigests();
+        }
+        return digests;
+    }
+
+    /**
+     * Removes the specified source file once its copy is durable.
+     * If the copy is still waiting to be synced in a batch, removal is
+     * deferred until the batch has been synced so that a power failure
+     * can never lose both the source and the copy.
+     *
+     * @param  rowFile      source file to remove.
+     * @param  renamedFile  copy of the source file.
+     */
+    protected void deleteSourceFile(File rowFile,
+                                    File renamedFile) {
+        if ((syncBatch != null) && (! syncBatch.isSynced(renamedFile))) {
+            sourcesAwaitingSync.put(renamedFile, rowFile);
+        } else {
+            deleteFile(rowFile, "succeeded");
+        }
+    }
+
     protected void deleteFile(File file,
                               String status) {
         boolean isDeleteSuccessful = false;
@@ -358,8 +802,195 @@ public class RenameTask extends SimpleTask {
         return "Moved and renamed the following files from ";
     }
 
+    /**
+     * @return the transfer utility owned by the current worker thread
+     *         (created on first use) or null if it could not be created.
+     */
+    private FileTransferUtil getFileTransferUtil() {
+        final Thread worker = Thread.currentThread();
+        FileTransferUtil util = fileTransferUtils.get(worker);
+        if (util == null) {
+            util = createFileTransferUtil();
+            if (util != null) {
+                fileTransferUtils.put(worker, util);
+            }
+        }
+        return util;
+    }
+
+    private FileTransferUtil createFileTransferUtil() {
+        FileTransferUtil util = null;
+        try {
+            util = fileTransferConfig.createFileTransferUtil();
+            util.setSyncPolicy(fileTransferConfig.getSyncPolicyType(), syncBatch);
+            util.setProgressListener(this::transferProgress,
+                                     FileTransferUtil.DEFAULT_PROGRESS_INTERVAL);
+            // share destination file stores fairly with other sessions
+            util.setTransferSession(this);
+        } catch (NoSuchAlgorithmException e) {
+            LOG.error("failed to construct file transfer utility from config " +
+                      fileTransferConfig, e);
+        }
+        return util;
+    }
+
+    /**
+     * Removes the sources for copies that have been synced and then
+     * logs the completion of their rows.
+     *
+     * @param  isSessionEnd  if true, the session's final sync has been
+     *                       attempted, so sources for any copies that
+     *                       could not be synced are kept (and their rows
+     *                       are completed without removing them).
+     */
+    private void removeSyncedSources(boolean isSessionEnd) {
+        final Iterator<Map.Entry<File, File>> i =
+                sourcesAwaitingSync.entrySet().iterator();
+        Map.Entry<File, File> entry;
+        File renamedFile;
+        File rowFile;
+        while (i.hasNext()) {
+            entry = i.next();
+            renamedFile = entry.getKey();
+            rowFile = entry.getValue();
+            if (syncBatch.isSynced(renamedFile)) {
+                deleteFile(rowFile, "succeeded");
+                logCompletedRow(rowFile, renamedFile);
+                i.remove();
+            } else if (isSessionEnd) {
+                LOG.error("Keeping " + rowFile.getAbsolutePath() +
+                          " because its copy " +
+                          renamedFile.getAbsolutePath() +
+                          " could not be synced.");
+                logCompletedRow(rowFile, renamedFile);
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Records that the specified row has completed
+     * (including removal of its source file when appropriate).
+     *
+     * @param  rowFile      the row's source file.
+     * @param  renamedFile  the row's target file.
+     */
+    private void logCompletedRow(File rowFile,
+                                 File renamedFile) {
+        final SessionLog log = getSessionLog();
+        if (isSourceRemovedOnSuccess() && (! rowFile.exists())) {
+            log.record(SessionLog.RowState.SOURCE_DELETED,
+                       rowFile,
+                       renamedFile);
+        }
+        log.record(SessionLog.RowState.COMPLETED, rowFile, renamedFile);
+    }
+
+    /**
+     * @return the write-ahead log for this session.
+     */
+    private synchronized SessionLog getSessionLog() {
+        if (sessionLog == null) {
+            sessionLog = new SessionLog(getClass().getSimpleName(),
+                                        isSourceRemovedOnSuccess());
+        }
+        return sessionLog;
+    }
+
+    /**
+     * Existing targets are normally never overwritten.  Incomplete
+     * resumable transfers of the current source are continued and
+     * verified copies kept by interrupted sessions are reused instead.
+     *
+     * @param  rowFile      the row's source file.
+     * @param  renamedFile  the row's (existing) target file.
+     *
+     * @return true if the existing target can be reused for the source;
+     *         otherwise false.
+     */
+    private boolean isExistingTargetReusable(File rowFile,
+                                             File renamedFile) {
+        return TransferJournal.isResumableTransfer(rowFile, renamedFile) ||
+               (SessionRecovery.findRecoveredCopy(rowFile,
+                                                  renamedFile) != null);
+    }
+
+    /**
+     * Claims any verified copy of the specified source file that was
+     * kept by an interrupted session, re-reading the copy to make sure
+     * it still matches the source digests.  Copies that do not match
+     * are removed so that the file is transferred again.
+     *
+     * @param  rowFile      the row's source file.
+     * @param  renamedFile  the row's target file.
+     *
+     * @return the intact recovered copy or null if none exists.
+     */
+    private SessionRecovery.RecoveredCopy claimIntactRecoveredCopy(
+            File rowFile,
+            File renamedFile) {
+
+        SessionRecovery.RecoveredCopy recoveredCopy =
+                SessionRecovery.claimRecoveredCopy(rowFile, renamedFile);
+        if ((recoveredCopy != null) && (! recoveredCopy.isCopyIntact())) {
+            LOG.warn("Removing " + renamedFile.getAbsolutePath() +
+                     " (copy of " + rowFile.getAbsolutePath() +
+                     " from an interrupted session) because it does " +
+                     "not match the source digests.");
+            if (! renamedFile.delete()) {
+                LOG.warn("Failed to remove " + renamedFile.getAbsolutePath());
+            }
+            recoveredCopy = null;
+        }
+        return recoveredCopy;
+    }
+
+    /**
+     * Records that the specified row's file has been copied (or moved).
+     * Copies are only recorded as verified when their digests were
+     * compared with the source digests.  Moved files are also recorded
+     * as removed from their source so that recovery knows to move them
+     * back if the session is interrupted before the row completes.
+     *
+     * @param  currentRow   the row with the copy.
+     * @param  isValidated  true if the copy's digest was compared with
+     *                      the source digest.
+     */
+    private void logCopy(RenamePluginDataRow currentRow,
+                         boolean isValidated) {
+        final File rowFile = currentRow.getFromFile();
+        final File renamedFile = currentRow.getRenamedFile();
+        final SourceVersion source = transferredSources.remove(renamedFile);
+        final SessionLog log = getSessionLog();
+        if (isValidated && (source != null)) {
+            log.recordVerifiedCopy(rowFile,
+                                   renamedFile,
+                                   source.length,
+                                   source.lastModified,
+                                   currentRow.getTransferDigests());
+        } else {
+            log.record(SessionLog.RowState.COPIED, rowFile, renamedFile);
+        }
+        if (! rowFile.exists()) {
+            log.record(SessionLog.RowState.SOURCE_DELETED, rowFile, renamedFile);
+        }
+    }
+
     private File getTargetFile(DataRow row) {
         Target target = row.getTarget();
         return (File) target.getInstance();
     }
+
+    /**
+     * The length and last modified time of a source file.
+     */
+    private static class SourceVersion {
+        private final long length;
+        private final long lastModified;
+
+        public SourceVersion(File file) {
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+    }
 }
\ No newline at end of file
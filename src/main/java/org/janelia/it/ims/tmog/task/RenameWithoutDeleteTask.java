@@ -11,6 +11,7 @@ import org.apache.log4j.Logger;
 import org.janelia.it.ims.tmog.DataTableModel;
 import org.janelia.it.ims.tmog.config.FileTransferConfiguration;
 import org.janelia.it.ims.tmog.config.output.OutputDirectoryConfiguration;
+import org.janelia.it.utils.filexfer.TransferJournal;
 
 import java.io.File;
 
@@ -47,6 +48,22 @@ public class RenameWithoutDeleteTask extends RenameTask {
               sessionOutputDirectoryName);
     }
 
+    /**
+     * @return false since source files must never be removed by this task.
+     */
+    @Override
+    protected boolean isSourceRemovedOnSuccess() {
+        return false;
+    }
+
+    /**
+     * @return false since source files must never be moved by this task.
+     */
+    @Override
+    protected boolean isMoveWithinFileStoreSupported() {
+        return false;
+    }
+
     @Override
     protected void cleanupFiles(File rowFile,
                                 File renamedFile,
@@ -61,9 +78,16 @@ public class RenameWithoutDeleteTask extends RenameTask {
 
             appendToSummary("ERROR: failed to copy ");
 
+            // keep incomplete resumable transfers so that
+            // a retry can continue from the last completed chunk
+            if ((renamedFile != null) &&
+                TransferJournal.isIncompleteTransfer(renamedFile)) {
+                LOG.warn("Keeping " + renamedFile.getAbsolutePath() +
+                         " so that its transfer can be resumed.");
+
             // clean up the copied file if it exists and
             // it isn't the same as the source file
-            if ((renamedFile != null) &&
+            } else if ((renamedFile != null) &&
                 renamedFile.exists() &&
                 (! renamedFile.equals(rowFile)) &&
                 (! isOverwriteRequiredForRename)) {
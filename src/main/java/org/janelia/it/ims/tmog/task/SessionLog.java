@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.task;
+
+import org.apache.log4j.Logger;
+import org.janelia.it.utils.filexfer.DigestBytes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class maintains a write-ahead log of row state transitions for
+ * one rename session so that an interrupted session (e.g. one killed
+ * part way through) can be reconciled by {@link SessionRecovery}.
+ * Each state transition is appended and forced to storage before the
+ * session moves on, and the log is removed when the session finishes.
+ * The log file stays locked while its session runs so that sessions
+ * in progress are never mistaken for interrupted sessions.
+ * <p>
+ * Session logging is disabled until a log directory has been set
+ * (see {@link #setDirectory}), so tasks can always record states
+ * without checking whether logging has been configured.
+ *
+ * @author Eric Trautman
+ */
+public class SessionLog {
+
+    /** Name of the default log directory (stored in the user's home). */
+    public static final String DIRECTORY_NAME = ".tmog-sessions";
+
+    /** Row states in the order they are normally recorded. */
+    public enum RowState {
+        /** Transfer of the row's file has started. */
+        COPY_STARTED,
+        /**
+         * File has been copied (or moved) but has not (or not yet)
+         * been validated.
+         */
+        COPIED,
+        /**
+         * File has been copied (or moved) and its digest has been
+         * compared with the source digest.
+         */
+        COPY_VERIFIED,
+        /** Source file has been removed. */
+        SOURCE_DELETED,
+        /** All row listeners have successfully completed. */
+        LISTENERS_DONE,
+        /** Row processing (including clean-up) completed successfully. */
+        COMPLETED,
+        /** Row processing failed and clean-up completed. */
+        FAILED
+    }
+
+    private static File directory = null;
+
+    /**
+     * Enables session logging for all subsequently started sessions.
+     *
+     * @param  logDirectory  directory for session logs
+     *                       (or null to disable logging).
+     */
+    public static synchronized void setDirectory(File logDirectory) {
+        directory = logDirectory;
+    }
+
+    /**
+     * @return the directory for session logs or null if logging
+     *         is disabled.
+     */
+    public static synchronized File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param  file  file to check.
+     *
+     * @return true if the specified file is a session log.
+     */
+    public static boolean isLogFile(File file) {
+        final String name = file.getName();
+        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+    }
+
+    private String taskName;
+    private boolean isSourceRemovedOnSuccess;
+    private File logFile;
+    private FileChannel channel;
+    private FileLock lock;
+    private boolean isDisabled;
+
+    /**
+     * Constructs a log for a new session.  The log file is created when
+     * the first row state is recorded.
+     *
+     * @param  taskName                  name of the session's task.
+     * @param  isSourceRemovedOnSuccess  true if the task removes source
+     *                                   files after rows are successfully
+     *                                   processed.
+     */
+    public SessionLog(String taskName,
+                      boolean isSourceRemovedOnSuccess) {
+        this.taskName = taskName;
+        this.isSourceRemovedOnSuccess = isSourceRemovedOnSuccess;
+        this.logFile = null;
+        this.channel = null;
+        this.lock = null;
+        this.isDisabled = (getDirectory() == null);
+    }
+
+    /**
+     * @return the log file or null if no states have been recorded.
+     */
+    public synchronized File getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * Records a row state transition.
+     *
+     * @param  state        new state for the row.
+     * @param  rowFile      the row's source file.
+     * @param  renamedFile  the row's target file.
+     */
+    public void record(RowState state,
+                       File rowFile,
+                       File renamedFile) {
+        append(state, rowFile, renamedFile, "");
+    }
+
+    /**
+     * Records that a row's file has been copied (or moved) and validated.
+     * Verified copies include enough source file information
+     * for a later session to safely reuse the copy.
+     *
+     * @param  rowFile             the row's source file.
+     * @param  renamedFile         the row's target file.
+     * @param  sourceLength        length of the source file when
+     *                             the transfer started.
+     * @param  sourceLastModified  last modified time of the source file
+     *                             when the transfer started.
+     * @param  digests             map of algorithm names to source file
+     *                             digests calculated during the transfer.
+     */
+    public void recordVerifiedCopy(File rowFile,
+                                   File renamedFile,
+                                   long sourceLength,
+                                   long sourceLastModified,
+                                   Map<String, DigestBytes> digests) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(FIELD_SEPARATOR).append(sourceLength);
+        sb.append(FIELD_SEPARATOR).append(sourceLastModified);
+        sb.append(FIELD_SEPARATOR).append(formatDigests(digests));
+        append(RowState.COPY_VERIFIED, rowFile, renamedFile, sb.toString());
+    }
+
+    /**
+     * Closes and removes this log (once the session has finished).
+     */
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close(); // also releases lock
+            } catch (IOException e) {
+                LOG.warn("close: failed to close " +
+                         logFile.getAbsolutePath(), e);
+            }
+            channel = null;
+            lock = null;
+            if (! logFile.delete()) {
+                LOG.warn("close: failed to remove " +
+                         logFile.getAbsolutePath());
+            }
+        }
+        isDisabled = true;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionLog{" +
+               "taskName='" + taskName + '\'' +
+               ", logFile=" + logFile +
+               '}';
+    }
+
+    private synchronized void append(RowState state,
+                                     File rowFile,
+                                     File renamedFile,
+                                     String details) {
+        if (! isDisabled) {
+            final String line =
+                    state + FIELD_SEPARATOR +
+                    rowFile.getAbsolutePath() + FIELD_SEPARATOR +
+                    renamedFile.getAbsolutePath() + details + '\n';
+            try {
+                if (channel == null) {
+                    open();
+                }
+                write(line);
+            } catch (IOException e) {
+                // don't fail the session because it can't be logged
+                LOG.error("append: failed to write to session log, " +
+                          "disabling logging for " + this, e);
+                isDisabled = true;
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        final File logDirectory = getDirectory();
+        if ((! logDirectory.exists()) && (! logDirectory.mkdirs())) {
+            throw new IOException("failed to create " +
+                                  logDirectory.getAbsolutePath());
+        }
+
+        final SimpleDateFormat sdf = new SimpleDateFormat(TIMESTAMP_PATTERN);
+        final String baseName =
+                FILE_PREFIX + sdf.format(new Date()) + "-" +
+                Integer.toHexString(System.identityHashCode(this));
+        logFile = new File(logDirectory, baseName + FILE_SUFFIX);
+
+        channel = FileChannel.open(logFile.toPath(),
+                                   StandardOpenOption.CREATE_NEW,
+                                   StandardOpenOption.WRITE);
+        lock = channel.tryLock();
+        if (lock == null) {
+            throw new IOException("failed to lock " +
+                                  logFile.getAbsolutePath());
+        }
+
+        write(HEADER + FIELD_SEPARATOR + taskName + FIELD_SEPARATOR +
+              isSourceRemovedOnSuccess + '\n');
+
+        LOG.info("open: logging session to " + logFile.getAbsolutePath());
+    }
+
+    private void write(String line) throws IOException {
+        final ByteBuffer buffer =
+                ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * @param  digests  map of algorithm names to digests.
+     *
+     * @return the logged representation of the specified digests.
+     */
+    static String formatDigests(Map<String, DigestBytes> digests) {
+        final StringBuilder sb = new StringBuilder();
+        for (String algorithm : digests.keySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(algorithm).append('=');
+            sb.append(digests.get(algorithm).toHex());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param  value  logged representation of digests.
+     *
+     * @return map of algorithm names to digests.
+     *
+     * @throws IllegalArgumentException
+     *   if the value cannot be parsed.
+     */
+    static Map<String, DigestBytes> parseDigests(String value)
+            throws IllegalArgumentException {
+        final Map<String, DigestBytes> digests =
+                new LinkedHashMap<String, DigestBytes>();
+        if (value.length() > 0) {
+            int separatorIndex;
+            for (String entry : value.split(",")) {
+                separatorIndex = entry.indexOf('=');
+                if (separatorIndex < 1) {
+                    throw new IllegalArgumentException(
+                            "invalid digest '" + entry + "'");
+                }
+                digests.put(entry.substring(0, separatorIndex),
+                            DigestBytes.fromHex(
+                                    entry.substring(separatorIndex + 1)));
+            }
+        }
+        return digests;
+    }
+
+    static final String HEADER = "SESSION";
+    static final String FIELD_SEPARATOR = "\t";
+
+    private static final String FILE_PREFIX = "tmog-session-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final String TIMESTAMP_PATTERN = "yyyyMMddHHmmssSSS";
+
+    private static final Logger LOG = Logger.getLogger(SessionLog.class);
+}
@@ -0,0 +1,571 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.task;
+
+import org.apache.log4j.Logger;
+import org.janelia.it.utils.filexfer.DigestAlgorithms;
+import org.janelia.it.utils.filexfer.DigestBytes;
+import org.janelia.it.utils.filexfer.TransferJournal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class reconciles the files for a rename session that was
+ * interrupted before it finished (see {@link SessionLog}).
+ * Work that an interrupted session completed is kept and
+ * work that it left half done is rolled back so that the same rows
+ * can simply be processed again:
+ * <ul>
+ *   <li>
+ *     rows whose listeners all completed have their source files
+ *     removed (if the task removes sources and the copy still matches
+ *     its verified digests - sources of unverified copies are kept),
+ *   </li>
+ *   <li>
+ *     rows whose files were moved before their listeners completed
+ *     have their files moved back,
+ *   </li>
+ *   <li>
+ *     rows whose files were copied and verified keep their copies -
+ *     later sessions reuse these copies (once their digests have been
+ *     checked again) instead of copying the files again
+ *     (see {@link #claimRecoveredCopy}),
+ *   </li>
+ *   <li>
+ *     rows whose copies were not verified have their partial copies
+ *     removed (unless the copy can be resumed from a transfer journal).
+ *   </li>
+ * </ul>
+ *
+ * @author Eric Trautman
+ */
+public class SessionRecovery {
+
+    /** Verified copies (keyed by target path) available for reuse. */
+    private static final Map<String, RecoveredCopy> TARGET_PATH_TO_COPY =
+            new HashMap<String, RecoveredCopy>();
+
+    /**
+     * @return recoveries for all interrupted sessions in the current
+     *         session log directory (sessions still running in this or
+     *         another process are excluded).
+     */
+    public static List<SessionRecovery> findInterruptedSessions() {
+        final List<SessionRecovery> list = new ArrayList<SessionRecovery>();
+        final File directory = SessionLog.getDirectory();
+        File[] files = null;
+        if (directory != null) {
+            files = directory.listFiles();
+        }
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (SessionLog.isLogFile(file) && (! isInUse(file))) {
+                    try {
+                        list.add(new SessionRecovery(file));
+                    } catch (IOException e) {
+                        LOG.warn("findInterruptedSessions: ignoring " +
+                                 "unreadable log " + file.getAbsolutePath(),
+                                 e);
+                    }
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @param  fromFile  source file for a row.
+     * @param  toFile    target file for the row.
+     *
+     * @return the recovered verified copy of the specified source file
+     *         at the specified target or null if no valid copy exists.
+     */
+    public static synchronized RecoveredCopy findRecoveredCopy(File fromFile,
+                                                               File toFile) {
+        RecoveredCopy copy = TARGET_PATH_TO_COPY.get(toFile.getAbsolutePath());
+        if ((copy != null) && (! copy.isValidFor(fromFile, toFile))) {
+            copy = null;
+        }
+        return copy;
+    }
+
+    /**
+     * Removes the recovered verified copy of the specified source file
+     * so that it can be reused by the caller.
+     *
+     * @param  fromFile  source file for a row.
+     * @param  toFile    target file for the row.
+     *
+     * @return the recovered copy or null if no valid copy exists.
+     */
+    public static synchronized RecoveredCopy claimRecoveredCopy(File fromFile,
+                                                                File toFile) {
+        final RecoveredCopy copy = findRecoveredCopy(fromFile, toFile);
+        if (copy != null) {
+            TARGET_PATH_TO_COPY.remove(toFile.getAbsolutePath());
+        }
+        return copy;
+    }
+
+    private static synchronized void addRecoveredCopy(RecoveredCopy copy) {
+        TARGET_PATH_TO_COPY.put(copy.toFile.getAbsolutePath(), copy);
+    }
+
+    private static boolean isInUse(File logFile) {
+        boolean isInUse = true;
+        try (FileChannel channel = FileChannel.open(logFile.toPath(),
+                                                    StandardOpenOption.WRITE)) {
+            final FileLock lock = channel.tryLock();
+            if (lock != null) {
+                lock.release();
+                isInUse = false;
+            }
+        } catch (OverlappingFileLockException e) {
+            LOG.debug("isInUse: " + logFile + " is locked by this process");
+        } catch (IOException e) {
+            LOG.warn("isInUse: failed to check lock for " + logFile, e);
+        }
+        return isInUse;
+    }
+
+    private File logFile;
+    private String taskName;
+    private boolean isSourceRemovedOnSuccess;
+    private Map<String, Row> pathToRow;
+
+    /**
+     * Loads the specified session log.
+     *
+     * @param  logFile  log for the interrupted session.
+     *
+     * @throws IOException
+     *   if the log cannot be read.
+     */
+    public SessionRecovery(File logFile)
+            throws IOException {
+
+        this.logFile = logFile;
+        this.taskName = null;
+        this.isSourceRemovedOnSuccess = false;
+        this.pathToRow = new LinkedHashMap<String, Row>();
+
+        try (BufferedReader reader =
+                     Files.newBufferedReader(logFile.toPath(),
+                                             StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    parseLine(line);
+                } catch (IllegalArgumentException e) {
+                    // torn write of the last line before interruption
+                    LOG.warn("SessionRecovery: ignoring invalid line '" +
+                             line + "' in " + logFile.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the interrupted session's log file.
+     */
+    public File getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * @return name of the interrupted session's task.
+     */
+    public String getTaskName() {
+        return taskName;
+    }
+
+    /**
+     * @return number of rows the interrupted session started.
+     */
+    public int getRowCount() {
+        return pathToRow.size();
+    }
+
+    /**
+     * @return number of rows the interrupted session started but did
+     *         not finish.
+     */
+    public int getIncompleteRowCount() {
+        int count = 0;
+        for (Row row : pathToRow.values()) {
+            if (! row.isFinished()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reconciles the interrupted session's rows.  If any verified copies
+     * are kept for reuse, the log is rewritten to contain only those
+     * copies (so they can be recovered again after a restart).
+     * Otherwise, the log is removed.
+     *
+     * @return a text summary of the recovery.
+     */
+    public String recover() {
+
+        final StringBuilder summary = new StringBuilder();
+        final List<Row> keptCopies = new ArrayList<Row>();
+
+        for (Row row : pathToRow.values()) {
+            if (! row.isFinished()) {
+                recoverRow(row, keptCopies, summary);
+            }
+        }
+
+        if (keptCopies.size() > 0) {
+            try {
+                rewriteLog(keptCopies);
+            } catch (IOException e) {
+                LOG.error("recover: failed to rewrite " +
+                          logFile.getAbsolutePath(), e);
+            }
+        } else {
+            discard();
+        }
+
+        LOG.info("recover: recovered " + logFile.getAbsolutePath() +
+                 ":\n" + summary);
+
+        return summary.toString();
+    }
+
+    /**
+     * Removes the interrupted session's log without recovering it.
+     */
+    public void discard() {
+        if (logFile.exists() && (! logFile.delete())) {
+            LOG.warn("discard: failed to remove " + logFile.getAbsolutePath());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SessionRecovery{" +
+               "logFile=" + logFile +
+               ", taskName='" + taskName + '\'' +
+               ", rowCount=" + pathToRow.size() +
+               '}';
+    }
+
+    private void parseLine(String line)
+            throws IllegalArgumentException {
+
+        final String[] fields = line.split(SessionLog.FIELD_SEPARATOR, -1);
+        if (SessionLog.HEADER.equals(fields[0])) {
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("invalid header");
+            }
+            taskName = fields[1];
+            isSourceRemovedOnSuccess = Boolean.parseBoolean(fields[2]);
+        } else {
+            if (fields.length < 3) {
+                throw new IllegalArgumentException("invalid row");
+            }
+            final SessionLog.RowState state =
+                    SessionLog.RowState.valueOf(fields[0]);
+            final File fromFile = new File(fields[1]);
+            final File toFile = new File(fields[2]);
+            Row row = pathToRow.get(fields[1]);
+            if (row == null) {
+                row = new Row(fromFile, toFile);
+                pathToRow.put(fields[1], row);
+            }
+            if (state == SessionLog.RowState.COPY_VERIFIED) {
+                if (fields.length != 6) {
+                    throw new IllegalArgumentException("invalid copy");
+                }
+                row.verifiedCopy =
+                        new RecoveredCopy(fromFile,
+                                          toFile,
+                                          Long.parseLong(fields[3]),
+                                          Long.parseLong(fields[4]),
+                                          SessionLog.parseDigests(fields[5]));
+            }
+            row.states.add(state);
+        }
+    }
+
+    private void recoverRow(Row row,
+                            List<Row> keptCopies,
+                            StringBuilder summary) {
+
+        final File fromFile = row.fromFile;
+        final File toFile = row.toFile;
+
+        if (row.states.contains(SessionLog.RowState.LISTENERS_DONE)) {
+
+            if (isSourceRemovedOnSuccess && fromFile.exists() &&
+                toFile.exists() && (toFile.length() == fromFile.length())) {
+                // the copy may not have been synced before the
+                // interruption, so only remove sources for intact copies
+                if (row.verifiedCopy == null) {
+                    summary.append("kept source (copy not verified) for ");
+                } else if (! row.verifiedCopy.isCopyIntact()) {
+                    summary.append("ERROR: kept source because copy is " +
+                                   "corrupt (please check) ");
+                } else if (fromFile.delete()) {
+                    summary.append("completed ");
+                } else {
+                    summary.append("ERROR: failed to remove source for ");
+                }
+            } else {
+                summary.append("completed ");
+            }
+
+        } else if (row.states.contains(SessionLog.RowState.SOURCE_DELETED)) {
+
+            // moved but listeners did not complete, so undo the move
+            if ((! fromFile.exists()) && toFile.exists() &&
+                toFile.renameTo(fromFile)) {
+                summary.append("moved file back for ");
+            } else {
+                summary.append("ERROR: failed to move back (please check) ");
+            }
+
+        } else if ((row.verifiedCopy != null) &&
+                   row.verifiedCopy.isValidFor(fromFile, toFile)) {
+
+            addRecoveredCopy(row.verifiedCopy);
+            keptCopies.add(row);
+            summary.append("kept verified copy (will be reused) of ");
+
+        } else if ((row.verifiedCopy != null) &&
+                   fromFile.exists() && toFile.exists()) {
+
+            summary.append("ERROR: source changed after verified copy " +
+                           "(please check) ");
+
+        } else if (TransferJournal.isIncompleteTransfer(toFile)) {
+
+            summary.append("kept partial copy (will be resumed) of ");
+
+        } else if (fromFile.exists() && toFile.exists()) {
+
+            if (toFile.delete()) {
+                summary.append("removed incomplete copy of ");
+            } else {
+                summary.append("ERROR: failed to remove incomplete copy of ");
+            }
+
+        } else {
+
+            summary.append("nothing to recover for ");
+
+        }
+
+        summary.append(fromFile.getAbsolutePath());
+        summary.append(" to ");
+        summary.append(toFile.getAbsolutePath());
+        summary.append('\n');
+    }
+
+    private void rewriteLog(List<Row> keptCopies)
+            throws IOException {
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append(SessionLog.HEADER).append(SessionLog.FIELD_SEPARATOR);
+        sb.append(taskName).append(SessionLog.FIELD_SEPARATOR);
+        sb.append(isSourceRemovedOnSuccess).append('\n');
+        RecoveredCopy copy;
+        for (Row row : keptCopies) {
+            copy = row.verifiedCopy;
+            sb.append(SessionLog.RowState.COPY_VERIFIED);
+            sb.append(SessionLog.FIELD_SEPARATOR);
+            sb.append(copy.fromFile.getAbsolutePath());
+            sb.append(SessionLog.FIELD_SEPARATOR);
+            sb.append(copy.toFile.getAbsolutePath());
+            sb.append(SessionLog.FIELD_SEPARATOR).append(copy.length);
+            sb.append(SessionLog.FIELD_SEPARATOR).append(copy.lastModified);
+            sb.append(SessionLog.FIELD_SEPARATOR);
+            sb.append(SessionLog.formatDigests(copy.digests));
+            sb.append('\n');
+        }
+
+        final File tmpFile = new File(logFile.getParentFile(),
+                                      logFile.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (! tmpFile.renameTo(logFile)) {
+            throw new IOException("failed to rename " +
+                                  tmpFile.getAbsolutePath() + " to " +
+                                  logFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * A copy that was verified by an interrupted session.
+     */
+    public static class RecoveredCopy {
+
+        private File fromFile;
+        private File toFile;
+        private long length;
+        private long lastModified;
+        private Map<String, DigestBytes> digests;
+
+        private RecoveredCopy(File fromFile,
+                              File toFile,
+                              long length,
+                              long lastModified,
+                              Map<String, DigestBytes> digests) {
+            this.fromFile = fromFile;
+            this.toFile = toFile;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.digests = Collections.unmodifiableMap(digests);
+        }
+
+        /**
+         * @return map of algorithm names to the source file digests
+         *         calculated when the copy was made.
+         */
+        public Map<String, DigestBytes> getDigests() {
+            return digests;
+        }
+
+        /**
+         * Re-reads the copy and compares its digests with the source
+         * digests that were logged when the copy was verified.
+         * Copies must be checked before they are reused because
+         * an interruption (e.g. a power loss) can leave a copy with
+         * the right length but the wrong content.
+         *
+         * @return true if the copy matches every logged digest;
+         *         otherwise false (including when no digests were logged
+         *         or the copy cannot be read).
+         */
+        public boolean isCopyIntact() {
+
+            boolean isIntact = false;
+
+            if (digests.size() > 0) {
+                try {
+                    final Map<String, MessageDigest> algorithmToDigest =
+                            new LinkedHashMap<String, MessageDigest>();
+                    for (String algorithm : digests.keySet()) {
+                        algorithmToDigest.put(
+                                algorithm,
+                                DigestAlgorithms.getMessageDigest(algorithm));
+                    }
+
+                    try (FileChannel channel =
+                                 FileChannel.open(toFile.toPath(),
+                                                  StandardOpenOption.READ)) {
+                        final ByteBuffer buffer =
+                                ByteBuffer.allocate(DIGEST_BUFFER_SIZE);
+                        while (channel.read(buffer) != -1) {
+                            buffer.flip();
+                            for (MessageDigest digest :
+                                    algorithmToDigest.values()) {
+                                digest.update(buffer.duplicate());
+                            }
+                            buffer.clear();
+                        }
+                    }
+
+                    isIntact = true;
+                    DigestBytes copyDigest;
+                    for (String algorithm : digests.keySet()) {
+                        copyDigest = new DigestBytes(
+                                algorithmToDigest.get(algorithm).digest());
+                        if (! copyDigest.equals(digests.get(algorithm))) {
+                            LOG.warn("isCopyIntact: " + algorithm +
+                                     " digest for " +
+                                     toFile.getAbsolutePath() +
+                                     " does not match source digest");
+                            isIntact = false;
+                            break;
+                        }
+                    }
+
+                } catch (IOException | NoSuchAlgorithmException e) {
+                    LOG.warn("isCopyIntact: failed to check " +
+                             toFile.getAbsolutePath(), e);
+                }
+            }
+
+            return isIntact;
+        }
+
+        /**
+         * @return true if both files still exist and the source has not
+         *         changed since it was copied; otherwise false.
+         *         The copy's content is not checked here
+         *         (see {@link #isCopyIntact}).
+         */
+        private boolean isValidFor(File rowFile,
+                                   File renamedFile) {
+            return fromFile.equals(rowFile.getAbsoluteFile()) &&
+                   toFile.equals(renamedFile.getAbsoluteFile()) &&
+                   rowFile.exists() &&
+                   (rowFile.length() == length) &&
+                   (rowFile.lastModified() == lastModified) &&
+                   renamedFile.exists() &&
+                   (renamedFile.length() == length);
+        }
+    }
+
+    /**
+     * The logged states for one row.
+     */
+    private static class Row {
+
+        private File fromFile;
+        private File toFile;
+        private Set<SessionLog.RowState> states;
+        private RecoveredCopy verifiedCopy;
+
+        private Row(File fromFile,
+                    File toFile) {
+            this.fromFile = fromFile;
+            this.toFile = toFile;
+            this.states = EnumSet.noneOf(SessionLog.RowState.class);
+            this.verifiedCopy = null;
+        }
+
+        private boolean isFinished() {
+            return states.contains(SessionLog.RowState.COMPLETED) ||
+                   states.contains(SessionLog.RowState.FAILED);
+        }
+    }
+
+    private static final int DIGEST_BUFFER_SIZE = 1024 * 1024;
+
+    private static final Logger LOG = Logger.getLogger(SessionRecovery.class);
+}
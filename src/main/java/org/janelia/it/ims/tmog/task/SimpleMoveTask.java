@@ -75,6 +75,14 @@ public class SimpleMoveTask
         }
     }
 
+    /**
+     * @return false since moves are never validated.
+     */
+    @Override
+    protected boolean isTransferValidated() {
+        return false;
+    }
+
     @Override
     protected void cleanupFiles(File rowFile,
                                 File renamedFile,
@@ -10,8 +10,13 @@ package org.janelia.it.ims.tmog.task;
 import org.apache.log4j.Logger;
 import org.janelia.it.ims.tmog.DataRow;
 import org.janelia.it.ims.tmog.DataTableModel;
+import org.janelia.it.ims.tmog.plugin.AsyncRowListener;
+import org.janelia.it.ims.tmog.plugin.AsyncRowListenerSupport;
+import org.janelia.it.ims.tmog.plugin.BatchProcessingException;
+import org.janelia.it.ims.tmog.plugin.BatchRowListener;
 import org.janelia.it.ims.tmog.plugin.ExternalDataException;
 import org.janelia.it.ims.tmog.plugin.ExternalSystemException;
+import org.janelia.it.ims.tmog.plugin.OrderedRowListener;
 import org.janelia.it.ims.tmog.plugin.PluginDataRow;
 import org.janelia.it.ims.tmog.plugin.RowListener;
 import org.janelia.it.ims.tmog.plugin.SessionListener;
@@ -20,7 +25,22 @@ import org.janelia.it.utils.LoggingUtils;
 import org.jdesktop.swingworker.SwingWorker;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class provides the core methods to support background execution of a
@@ -50,6 +70,45 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
 
     private boolean isSessionCancelled;
 
+    /**
+     * Set when every row has been processed (successfully or not) and
+     * the session has ended without an unexpected error.
+     */
+    private volatile boolean isSessionCompleted;
+
+    /**
+     * Processed rows (in row order) whose clean-up is waiting for
+     * outstanding asynchronous or batch listener events to complete.
+     */
+    private LinkedList<CompletedRow> rowsAwaitingEvents;
+
+    /** Limits the number of concurrent events for asynchronous listeners. */
+    private Map<AsyncRowListener, Semaphore> asyncListenerPermits;
+
+    /**
+     * Completed rows waiting to be processed by batch row listeners
+     * (batches are only added by the task thread, but synchronize on
+     * this map before accessing any batch's rows).
+     */
+    private Map<BatchRowListener, RowBatch> rowBatches;
+
+    /**
+     * Processes batches whose oldest row has waited for the listener's
+     * maximum time (created when the first batch is started).
+     */
+    private ScheduledExecutorService batchTimer;
+
+    /** Elapsed times for plug-in calls and row processing. */
+    private PluginTimers pluginTimers;
+
+    /**
+     * Summary text captured for a row that is being processed concurrently
+     * (in a worker thread).  Captured text is appended to the task summary
+     * when the row completes so that the summary has the same order
+     * as it would for serial processing.
+     */
+    private final ThreadLocal<StringBuilder> rowSummary;
+
     /**
      * Constructs a new task.
      *
@@ -61,6 +120,11 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
         this.rowListenerList = new ArrayList<RowListener>();
         this.sessionListenerList = new ArrayList<SessionListener>();
         this.taskSummary = new StringBuilder();
+        this.rowSummary = new ThreadLocal<StringBuilder>();
+        this.rowsAwaitingEvents = new LinkedList<CompletedRow>();
+        this.asyncListenerPermits = new HashMap<AsyncRowListener, Semaphore>();
+        this.rowBatches = new LinkedHashMap<BatchRowListener, RowBatch>();
+        this.pluginTimers = new PluginTimers();
     }
 
     /**
@@ -71,10 +135,24 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
     }
 
     /**
-     * @return a text summary of what this task accomplished.
+     * @return a text summary of what this task accomplished
+     *         (followed by a table of plug-in timings).
      */
     public String getTaskSummary() {
-        return taskSummary.toString();
+        final String timings = pluginTimers.getSummaryTable();
+        String summary = taskSummary.toString();
+        if (timings.length() > 0) {
+            summary = summary + "\nTimings:\n" + timings;
+        }
+        return summary;
+    }
+
+    /**
+     * @return elapsed times for plug-in calls and row processing
+     *         during this task.
+     */
+    public PluginTimers getPluginTimers() {
+        return pluginTimers;
     }
 
     /**
@@ -84,7 +162,12 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
      * @param  o  object to append.
      */
     protected void appendToSummary(Object o) {
-        taskSummary.append(o);
+        final StringBuilder rowSummaryText = rowSummary.get();
+        if (rowSummaryText == null) {
+            taskSummary.append(o);
+        } else {
+            rowSummaryText.append(o);
+        }
     }
 
     /**
@@ -100,9 +183,9 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
             original = cause;
             cause = original.getCause();
         }
-        taskSummary.append("ERROR: ");
-        taskSummary.append(original.getMessage());
-        taskSummary.append('\n');
+        appendToSummary("ERROR: ");
+        appendToSummary(original.getMessage());
+        appendToSummary('\n');
     }
 
     /**
@@ -147,6 +230,17 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
         return isSessionCancelled;
     }
 
+    /**
+     * @return true if the task finished processing every row and ended
+     *         its session; false if the task has not finished or was
+     *         aborted by an unexpected error (in which case
+     *         {@link #getFailedRowIndices} may not identify every row
+     *         that was not successfully processed).
+     */
+    public boolean isSessionCompleted() {
+        return isSessionCompleted;
+    }
+
     /**
      * Executes the task process (and plug-in processes) in a background
      * thread so that long processes do not block the event dispatching thread.
@@ -171,8 +265,13 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
                 }
             }
 
+            processRowBatches(true);
+            stopBatchTimer();
+            awaitAsyncRowEvents();
+            completeDeferredWork();
             endSession();
 
+            isSessionCompleted = true;
             LOG.debug("finished task");
         } catch (Throwable t) {
             // ensure errors that occur in this thread are not lost
@@ -225,6 +324,66 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
                                     sb.toString());
     }
 
+    /**
+     * This method returns the maximum number of rows whose core processing
+     * (see {@link #processRow}) may run concurrently.  The default
+     * implementation returns 1 (serial processing) but it can be overriden
+     * by tasks that support thread safe row processing.
+     *
+     * @return the maximum number of rows to process concurrently.
+     */
+    protected int getMaxConcurrentRows() {
+        return 1;
+    }
+
+    /**
+     * This method returns the maximum number of rows whose completion
+     * (see {@link #awaitRowProcessing}) may be deferred while later rows
+     * are processed.  The default implementation returns 0 (each row is
+     * completed before the next row is started) but it can be overriden
+     * by tasks that finish part of their row processing asynchronously.
+     *
+     * @return the maximum number of rows awaiting completion.
+     */
+    protected int getMaxRowsAwaitingCompletion() {
+        return 0;
+    }
+
+    /**
+     * This method returns the maximum number of rows whose start row
+     * listener notifications may be sent (from a separate thread) while
+     * earlier rows are still being processed.  The default implementation
+     * returns 0 (each row is started on the task thread when it is needed)
+     * but it can be overriden by tasks that want to overlap start row
+     * processing with the core processing of earlier rows.
+     * Look-ahead is disabled for sessions that include any
+     * {@link OrderedRowListener}.
+     *
+     * @return the maximum number of rows to start ahead.
+     */
+    protected int getStartRowLookAhead() {
+        return 0;
+    }
+
+    /**
+     * This method is called on the task thread after core processing
+     * (see {@link #processRow}) has finished and before any end row
+     * listeners are notified.  It allows tasks to wait for (and check)
+     * any asynchronous work started by {@link #processRow}.
+     * It's default implementation simply returns the specified status,
+     * but can be overriden as needed.
+     *
+     * @param  modelRow                the current row being processed.
+     * @param  isProcessingSuccessful  result of {@link #processRow}.
+     *
+     * @return true if all processing for the row completed successfully;
+     *         otherwise false.
+     */
+    protected boolean awaitRowProcessing(DataRow modelRow,
+                                         boolean isProcessingSuccessful) {
+        return isProcessingSuccessful;
+    }
+
     /**
      * This method performs the core task process for the specified row.
      * It's default implementation here does nothing, but can be overriden
@@ -264,6 +423,30 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
         appendToSummary("\n");
     }
 
+    /**
+     * This method completes any work that was deferred (e.g. handed off
+     * to background threads) during row processing.  It is called after
+     * all rows have been processed and before session listeners are
+     * notified that the session has ended.  It can be overriden as needed
+     * and should handle its own errors (see {@link #addDeferredRowFailure}).
+     */
+    protected void completeDeferredWork() {
+    }
+
+    /**
+     * Marks the specified row as failed after it has been cleaned up.
+     * This is intended for {@link #completeDeferredWork} implementations
+     * that discover failures for rows that were otherwise successful.
+     *
+     * @param  rowIndex  index of the failed row.
+     */
+    protected void addDeferredRowFailure(int rowIndex) {
+        if (! failedRowIndices.contains(rowIndex)) {
+            failedRowIndices.add(rowIndex);
+            Collections.sort(failedRowIndices);
+        }
+    }
+
     /**
      * Notifies registered {@link java.beans.PropertyChangeListener} objects
      * about task progress information.
@@ -301,79 +484,345 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
      * overriden by sub-classes to support customized task behavior
      * within this method's basic processing flow.
      * </p>
+     * <p>
+     * Start row notifications may be sent ahead of time
+     * (see {@link #getStartRowLookAhead}), but they are always sent
+     * in row order.
+     * </p>
      */
     private void processRows() {
 
+        final int maxConcurrentRows = getMaxConcurrentRows();
+        final int maxRowsAwaitingCompletion = getMaxRowsAwaitingCompletion();
+        if ((maxConcurrentRows > 1) || (maxRowsAwaitingCompletion > 0)) {
+            processRowsConcurrently(maxConcurrentRows,
+                                    maxRowsAwaitingCompletion);
+            return;
+        }
+
         DataTableModel model = getModel();
         List<DataRow> modelRows = model.getRows();
 
         int rowIndex = 0;
         final int numberOfRows = modelRows.size();
 
+        final RowStarter rowStarter = new RowStarter(modelRows);
+
         boolean isStartRowNotificationSuccessful;
         boolean isRowProcessingSuccessful;
+        StartedRow startedRow;
         PluginDataRow pluginDataRow;
         TaskProgressInfo progressInfo;
+        List<PendingRowEvent> rowEvents;
 
-        for (DataRow modelRow : modelRows) {
+        try {
+            for (DataRow modelRow : modelRows) {
 
-            isStartRowNotificationSuccessful = false;
-            isRowProcessingSuccessful = false;
+                isRowProcessingSuccessful = false;
+                rowEvents = new ArrayList<PendingRowEvent>();
 
-            pluginDataRow = getPluginDataRow(modelRow);
-            try {
-                pluginDataRow =
-                        notifyRowListeners(RowListener.EventType.START_ROW,
-                                           pluginDataRow);
-                isStartRowNotificationSuccessful = true;
-            } catch (Exception e) {
-                LOG.error("Failed external start processing for " +
-                          pluginDataRow, e);
+                startedRow = rowStarter.startNextRow();
+                pluginDataRow = startedRow.pluginDataRow;
+                isStartRowNotificationSuccessful = startedRow.isSuccessful;
+
+                if (isStartRowNotificationSuccessful) {
+                    progressInfo = getProgressInfo(rowIndex,
+                                                   numberOfRows,
+                                                   modelRow);
+                    publish(progressInfo);
+                    isRowProcessingSuccessful =
+                            awaitRowProcessing(modelRow,
+                                               timedProcessRow(modelRow));
+
+                    // notify any listeners
+                    try {
+                        if (isRowProcessingSuccessful) {
+                            notifyRowSuccessListeners(rowIndex,
+                                                      modelRow,
+                                                      pluginDataRow,
+                                                      rowEvents);
+                        } else {
+                            notifyRowListeners(
+                                    RowListener.EventType.END_ROW_FAIL,
+                                    pluginDataRow);
+                        }
+                    } catch (Exception e) {
+                        LOG.error("Failed external completion processing for " +
+                                  pluginDataRow, e);
+                        isRowProcessingSuccessful = false;
+                    }
+
+                }
+
+                completeRow(new CompletedRow(rowIndex,
+                                             modelRow,
+                                             pluginDataRow,
+                                             isRowProcessingSuccessful,
+                                             rowEvents));
+
+                rowIndex++;
+
+                if (isSessionCancelled()) {
+                    handleCancelOfSession(rowIndex,
+                                          numberOfRows,
+                                          modelRow.getTarget());
+                    break;
+                }
             }
+        } finally {
+            rowStarter.close();
+        }
+    }
 
-            if (isStartRowNotificationSuccessful) {
-                progressInfo = getProgressInfo(rowIndex,
+    /**
+     * Processes data rows like {@link #processRows} but runs the core
+     * processing ({@link #processRow}) for up to the specified number of
+     * rows concurrently in worker threads.  All listener notifications,
+     * failure tracking, and clean-up remain on the task thread and occur
+     * in row order, so listeners see start and end events in the same
+     * order as they would for serial processing and the task summary
+     * is identical.
+     * <p>
+     * Completion of a row may also be deferred (for up to the specified
+     * number of rows awaiting completion) so that processing of later rows
+     * can overlap with any asynchronous work started for earlier rows.
+     * </p>
+     *
+     * @param  maxConcurrentRows          maximum number of rows to process
+     *                                    at once.
+     * @param  maxRowsAwaitingCompletion  maximum number of processed rows
+     *                                    that may await completion.
+     */
+    private void processRowsConcurrently(int maxConcurrentRows,
+                                         int maxRowsAwaitingCompletion) {
+
+        final List<DataRow> modelRows = getModel().getRows();
+        final int numberOfRows = modelRows.size();
+        final int maxRowsInProgress =
+                maxConcurrentRows + maxRowsAwaitingCompletion;
+
+        LOG.info("processing " + numberOfRows + " rows with up to " +
+                 maxConcurrentRows + " concurrent rows and " +
+                 maxRowsAwaitingCompletion + " rows awaiting completion");
+
+        final ExecutorService rowExecutor =
+                Executors.newFixedThreadPool(maxConcurrentRows);
+        final LinkedList<ConcurrentRow> rowsInProgress =
+                new LinkedList<ConcurrentRow>();
+        final RowStarter rowStarter = new RowStarter(modelRows);
+
+        int nextRowIndex = 0;
+        ConcurrentRow completedRow = null;
+        try {
+
+            while ((nextRowIndex < numberOfRows) ||
+                   (rowsInProgress.size() > 0)) {
+
+                while ((! isSessionCancelled()) &&
+                       (nextRowIndex < numberOfRows) &&
+                       (rowsInProgress.size() < maxRowsInProgress)) {
+                    rowsInProgress.add(
+                            startConcurrentRow(nextRowIndex,
                                                numberOfRows,
-                                               modelRow);
-                publish(progressInfo);
-                isRowProcessingSuccessful = processRow(modelRow);
+                                               modelRows.get(nextRowIndex),
+                                               rowStarter,
+                                               rowExecutor));
+                    nextRowIndex++;
+                }
 
-                // notify any listeners
+                if (rowsInProgress.size() == 0) {
+                    break; // session cancelled
+                }
+
+                completedRow = rowsInProgress.removeFirst();
+                completeConcurrentRow(completedRow);
+            }
+
+        } finally {
+            rowStarter.close();
+            rowExecutor.shutdown();
+        }
+
+        if (isSessionCancelled() && (completedRow != null)) {
+            handleCancelOfSession(nextRowIndex,
+                                  numberOfRows,
+                                  completedRow.modelRow.getTarget());
+        }
+    }
+
+    /**
+     * Notifies listeners that processing for the specified row has started
+     * and then submits the row's core processing to the specified executor.
+     *
+     * @param  rowIndex      index of the row.
+     * @param  numberOfRows  total number of rows being processed.
+     * @param  modelRow      the row to process.
+     * @param  rowStarter    starter for the session's rows.
+     * @param  rowExecutor   executor for core row processing.
+     *
+     * @return the in progress row.
+     */
+    private ConcurrentRow startConcurrentRow(int rowIndex,
+                                             int numberOfRows,
+                                             final DataRow modelRow,
+                                             RowStarter rowStarter,
+                                             ExecutorService rowExecutor) {
+
+        final StartedRow startedRow = rowStarter.startNextRow();
+        final ConcurrentRow row = new ConcurrentRow(rowIndex,
+                                                    modelRow,
+                                                    startedRow);
+
+        if (row.isStartRowNotificationSuccessful) {
+            publish(getProgressInfo(rowIndex, numberOfRows, modelRow));
+            row.processingResult = rowExecutor.submit(() -> {
+                LoggingUtils.setLoggingContext();
+                final StringBuilder rowSummaryText = new StringBuilder();
+                rowSummary.set(rowSummaryText);
                 try {
-                    if (isRowProcessingSuccessful) {
-                        notifyRowListeners(
-                                RowListener.EventType.END_ROW_SUCCESS,
-                                pluginDataRow);
-                    } else {
-                        notifyRowListeners(
-                                RowListener.EventType.END_ROW_FAIL,
-                                pluginDataRow);
-                    }
-                } catch (Exception e) {
-                    LOG.error("Failed external completion processing for " +
-                              pluginDataRow, e);
-                    isRowProcessingSuccessful = false;
+                    return timedProcessRow(modelRow);
+                } finally {
+                    rowSummary.remove();
+                    row.summary = rowSummaryText.toString();
                 }
+            });
+        }
+
+        return row;
+    }
+
+    /**
+     * Waits for the core processing of the specified row to complete
+     * and then notifies listeners, tracks failures, and cleans up the row.
+     *
+     * @param  row  the in progress row.
+     */
+    private void completeConcurrentRow(ConcurrentRow row) {
 
+        boolean isRowProcessingSuccessful = false;
+        final List<PendingRowEvent> rowEvents =
+                new ArrayList<PendingRowEvent>();
+
+        if (row.isStartRowNotificationSuccessful) {
+
+            try {
+                isRowProcessingSuccessful = row.processingResult.get();
+            } catch (ExecutionException e) {
+                LOG.error("Failed processing for " + row.pluginDataRow,
+                          e.getCause());
+            } catch (InterruptedException e) {
+                LOG.error("Interrupted while waiting for processing of " +
+                          row.pluginDataRow, e);
+                Thread.currentThread().interrupt();
             }
 
-            if (! isRowProcessingSuccessful) {
-                addFailedRowIndex(rowIndex);
+            if (row.summary != null) {
+                appendToSummary(row.summary);
             }
 
-            cleanupRow(modelRow, isRowProcessingSuccessful);
+            isRowProcessingSuccessful =
+                    awaitRowProcessing(row.modelRow,
+                                       isRowProcessingSuccessful);
+
+            // notify any listeners
+            try {
+                if (isRowProcessingSuccessful) {
+                    notifyRowSuccessListeners(row.rowIndex,
+                                              row.modelRow,
+                                              row.pluginDataRow,
+                                              rowEvents);
+                } else {
+                    notifyRowListeners(
+                            RowListener.EventType.END_ROW_FAIL,
+                            row.pluginDataRow);
+                }
+            } catch (Exception e) {
+                LOG.error("Failed external completion processing for " +
+                          row.pluginDataRow, e);
+                isRowProcessingSuccessful = false;
+            }
+        }
 
-            rowIndex++;
+        completeRow(new CompletedRow(row.rowIndex,
+                                     row.modelRow,
+                                     row.pluginDataRow,
+                                     isRowProcessingSuccessful,
+                                     rowEvents));
+    }
 
-            if (isSessionCancelled()) {
-                handleCancelOfSession(rowIndex,
-                                      numberOfRows,
-                                      modelRow.getTarget());
+    /**
+     * Tracks failures for and cleans up the specified processed row.
+     * If the row has outstanding asynchronous listener events
+     * (or if earlier rows are still waiting for their events),
+     * clean-up is deferred until those events complete so that
+     * rows are only cleaned up (e.g. source files removed) after all
+     * listeners have succeeded and so that rows are always cleaned up
+     * in row order.  Any earlier rows whose events have completed
+     * are also cleaned up.
+     *
+     * @param  row  the processed row.
+     */
+    private void completeRow(CompletedRow row) {
+        if ((row.events.size() > 0) || (rowsAwaitingEvents.size() > 0)) {
+            rowsAwaitingEvents.add(row);
+        } else {
+            cleanupCompletedRow(row);
+        }
+        cleanupRowsAwaitingEvents(false);
+    }
+
+    /**
+     * Cleans up rows whose outstanding events have completed
+     * (in row order).
+     *
+     * @param  isWaitRequired  if true, wait for all outstanding events
+     *                         to complete so that every row is cleaned up;
+     *                         otherwise stop at the first row with
+     *                         an incomplete event.
+     */
+    private void cleanupRowsAwaitingEvents(boolean isWaitRequired) {
+        CompletedRow row;
+        while (rowsAwaitingEvents.size() > 0) {
+            row = rowsAwaitingEvents.getFirst();
+            if (isWaitRequired || row.isEventProcessingDone()) {
+                rowsAwaitingEvents.removeFirst();
+                cleanupCompletedRow(row);
+            } else {
                 break;
             }
         }
     }
 
+    /**
+     * Waits for the specified row's outstanding events to complete
+     * and then tracks failures for and cleans up the row.
+     * The row is marked as failed (and cleaned up as such)
+     * if any of its events failed.
+     *
+     * @param  row  the processed row.
+     */
+    private void cleanupCompletedRow(CompletedRow row) {
+        boolean isSuccessful = row.isProcessingSuccessful;
+        for (PendingRowEvent event : row.events) {
+            try {
+                event.result.get();
+            } catch (ExecutionException e) {
+                handleAsyncRowEventFailure(event, e.getCause());
+                isSuccessful = false;
+            } catch (InterruptedException e) {
+                handleAsyncRowEventFailure(event, e);
+                isSuccessful = false;
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (! isSuccessful) {
+            addFailedRowIndex(row.rowIndex);
+        }
+
+        cleanupRow(row.modelRow, isSuccessful);
+    }
+
     /**
      * Utility method to notify registered listeners about a row event.
      *
@@ -391,11 +840,474 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
                                              PluginDataRow row)
             throws ExternalDataException, ExternalSystemException {
         for (RowListener listener : rowListenerList) {
-            row = listener.processEvent(eventType, row);
+            row = processRowEvent(listener, eventType, row);
         }
         return row;
     }
 
+    /**
+     * Notifies the specified listener about a row event,
+     * recording the elapsed time for the listener.
+     *
+     * @param  listener   listener to notify.
+     * @param  eventType  type of event.
+     * @param  row        the row's plug-in data.
+     *
+     * @return the row with any updates from the listener.
+     *
+     * @throws ExternalDataException
+     *   if the listener detects a data error.
+     * @throws ExternalSystemException
+     *   if a system error occurs within the listener.
+     */
+    private PluginDataRow processRowEvent(RowListener listener,
+                                          RowListener.EventType eventType,
+                                          PluginDataRow row)
+            throws ExternalDataException, ExternalSystemException {
+        final long startNanos = System.nanoTime();
+        try {
+            return listener.processEvent(eventType, row);
+        } finally {
+            pluginTimers.record(
+                    PluginTimers.getName(listener, eventType.name()),
+                    startNanos);
+        }
+    }
+
+    /**
+     * Processes the specified row, recording the elapsed time.
+     *
+     * @param  modelRow  the row to process.
+     *
+     * @return the result of {@link #processRow}.
+     */
+    private boolean timedProcessRow(DataRow modelRow) {
+        final long startNanos = System.nanoTime();
+        try {
+            return processRow(modelRow);
+        } finally {
+            pluginTimers.record(PluginTimers.getName(this, "processRow"),
+                                startNanos);
+        }
+    }
+
+    /**
+     * Notifies registered listeners that the specified row was processed
+     * successfully.  Asynchronous listeners (see {@link AsyncRowListener})
+     * are only started here, waiting first if a listener already has its
+     * maximum number of events in progress.  Rows for batch listeners
+     * (see {@link BatchRowListener}) are added to the listener's batch
+     * and any full or expired batches are then processed.
+     *
+     * @param  rowIndex       index of the row.
+     * @param  modelRow       the row.
+     * @param  pluginDataRow  the row's plug-in data.
+     * @param  rowEvents      list to which any outstanding (asynchronous
+     *                        or batched) events for the row are added.
+     *
+     * @throws ExternalDataException
+     *   if a synchronous listener detects a data error.
+     * @throws ExternalSystemException
+     *   if a system error occurs within a synchronous listener or
+     *   if the task is interrupted while waiting to start an
+     *   asynchronous listener.
+     */
+    private void notifyRowSuccessListeners(int rowIndex,
+                                           DataRow modelRow,
+                                           PluginDataRow pluginDataRow,
+                                           List<PendingRowEvent> rowEvents)
+            throws ExternalDataException, ExternalSystemException {
+
+        final RowListener.EventType eventType =
+                RowListener.EventType.END_ROW_SUCCESS;
+        PluginDataRow row = pluginDataRow;
+        for (RowListener listener : rowListenerList) {
+            if (isBatchEnabled(listener)) {
+                rowEvents.add(addToRowBatch((BatchRowListener) listener,
+                                            rowIndex,
+                                            modelRow,
+                                            row));
+            } else if (isAsyncEnabled(listener)) {
+                rowEvents.add(
+                        startAsyncRowEvent((AsyncRowListener) listener,
+                                           eventType,
+                                           rowIndex,
+                                           modelRow,
+                                           row));
+            } else {
+                row = processRowEvent(listener, eventType, row);
+            }
+        }
+
+        if (rowBatches.size() > 0) {
+            processRowBatches(false);
+        }
+    }
+
+    private PendingRowEvent startAsyncRowEvent(AsyncRowListener listener,
+                                               RowListener.EventType eventType,
+                                               int rowIndex,
+                                               DataRow modelRow,
+                                               PluginDataRow row)
+            throws ExternalSystemException {
+
+        final Semaphore permits = acquireAsyncListenerPermit(listener);
+
+        final String timerName = PluginTimers.getName(listener,
+                                                      eventType.name());
+        final long startNanos = System.nanoTime();
+        final CompletableFuture<PluginDataRow> result;
+        try {
+            result = listener.processEventAsync(eventType, row);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        result.whenComplete((processedRow, failure) -> {
+            pluginTimers.record(timerName, startNanos);
+            permits.release();
+        });
+        return new PendingRowEvent(rowIndex, modelRow, row, result);
+    }
+
+    /**
+     * Waits (if necessary) for the specified asynchronous listener to
+     * have fewer than its maximum number of events in progress.
+     *
+     * @param  listener  the asynchronous listener.
+     *
+     * @return the listener's permits (from which one has been acquired).
+     *
+     * @throws ExternalSystemException
+     *   if the task is interrupted while waiting.
+     */
+    private Semaphore acquireAsyncListenerPermit(AsyncRowListener listener)
+            throws ExternalSystemException {
+
+        Semaphore permits = asyncListenerPermits.get(listener);
+        if (permits == null) {
+            permits = new Semaphore(
+                    Math.max(1, listener.getMaxConcurrentEvents()));
+            asyncListenerPermits.put(listener, permits);
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExternalSystemException(
+                    "Interrupted while waiting to notify " +
+                    listener.getClass().getName(), e);
+        }
+        return permits;
+    }
+
+    /**
+     * @param  listener  the listener to check.
+     *
+     * @return true if the listener processes completed rows
+     *         asynchronously; otherwise false.
+     */
+    private boolean isAsyncEnabled(RowListener listener) {
+        return (listener instanceof AsyncRowListener) &&
+               (((AsyncRowListener) listener).getMaxConcurrentEvents() > 0);
+    }
+
+    /**
+     * @param  listener  the listener to check.
+     *
+     * @return true if the listener processes completed rows in batches;
+     *         otherwise false.
+     */
+    private boolean isBatchEnabled(RowListener listener) {
+        return (listener instanceof BatchRowListener) &&
+               (((BatchRowListener) listener).getMaxBatchSize() > 1);
+    }
+
+    private PendingRowEvent addToRowBatch(BatchRowListener listener,
+                                          int rowIndex,
+                                          DataRow modelRow,
+                                          PluginDataRow row) {
+        final PendingRowEvent event =
+                new PendingRowEvent(rowIndex,
+                                    modelRow,
+                                    row,
+                                    new CompletableFuture<PluginDataRow>());
+        synchronized (rowBatches) {
+            RowBatch batch = rowBatches.get(listener);
+            if (batch == null) {
+                batch = new RowBatch();
+                rowBatches.put(listener, batch);
+            }
+            if (batch.events.size() == 0) {
+                batch.startTime = System.currentTimeMillis();
+                scheduleRowBatchTimeout(listener, batch.events);
+            }
+            batch.events.add(event);
+        }
+        return event;
+    }
+
+    /**
+     * Schedules processing of the specified batch events once they
+     * have waited for the listener's maximum time.  The events are
+     * only processed if they have not already been handed off
+     * (e.g. because the batch filled up first).
+     *
+     * @param  listener  the batch listener.
+     * @param  events    the (newly started) batch events.
+     */
+    private void scheduleRowBatchTimeout(final BatchRowListener listener,
+                                         final List<PendingRowEvent> events) {
+        if (batchTimer == null) {
+            final ScheduledThreadPoolExecutor timer =
+                    new ScheduledThreadPoolExecutor(1, runnable -> {
+                        final Thread thread = new Thread(runnable,
+                                                         "row-batch-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            batchTimer = timer;
+        }
+        batchTimer.schedule(() -> {
+            LoggingUtils.setLoggingContext();
+            boolean isExpired = false;
+            synchronized (rowBatches) {
+                final RowBatch batch = rowBatches.get(listener);
+                if (batch.events == events) {
+                    batch.events = new ArrayList<PendingRowEvent>();
+                    isExpired = true;
+                }
+            }
+            if (isExpired) {
+                startRowBatch(listener, events);
+            }
+        }, listener.getMaxBatchMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the batch timer (if it was started).  Any batch already
+     * handed to the timer completes through its pending row events.
+     */
+    private void stopBatchTimer() {
+        if (batchTimer != null) {
+            batchTimer.shutdown();
+        }
+    }
+
+    /**
+     * Processes row batches that are full, that have waited too long,
+     * or (when forced) that have any rows.  Batches for listeners that
+     * are also asynchronous are processed in a background thread.
+     * Rows in a batch are cleaned up once the batch has been processed
+     * (see {@link #completeRow}).
+     *
+     * @param  isForced  if true, process all non-empty batches.
+     */
+    private void processRowBatches(boolean isForced) {
+
+        final Map<BatchRowListener, List<PendingRowEvent>> readyBatches =
+                new LinkedHashMap<BatchRowListener, List<PendingRowEvent>>();
+        final long now = System.currentTimeMillis();
+        synchronized (rowBatches) {
+            BatchRowListener listener;
+            RowBatch batch;
+            for (Map.Entry<BatchRowListener, RowBatch> entry :
+                    rowBatches.entrySet()) {
+                listener = entry.getKey();
+                batch = entry.getValue();
+                if ((batch.events.size() > 0) &&
+                    (isForced ||
+                     (batch.events.size() >= listener.getMaxBatchSize()) ||
+                     ((now - batch.startTime) >=
+                      listener.getMaxBatchMillis()))) {
+                    readyBatches.put(listener, batch.events);
+                    batch.events = new ArrayList<PendingRowEvent>();
+                }
+            }
+        }
+
+        for (Map.Entry<BatchRowListener, List<PendingRowEvent>> entry :
+                readyBatches.entrySet()) {
+            startRowBatch(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void startRowBatch(final BatchRowListener listener,
+                               final List<PendingRowEvent> events) {
+
+        if (isAsyncEnabled(listener)) {
+            Semaphore permits = null;
+            try {
+                permits = acquireAsyncListenerPermit(
+                        (AsyncRowListener) listener);
+            } catch (ExternalSystemException e) {
+                for (PendingRowEvent event : events) {
+                    event.result.completeExceptionally(e);
+                }
+            }
+            if (permits != null) {
+                final Semaphore batchPermits = permits;
+                AsyncRowListenerSupport.runAsync(
+                        () -> processRowBatch(listener, events)
+                ).whenComplete((result, failure) -> batchPermits.release());
+            }
+        } else {
+            processRowBatch(listener, events);
+        }
+    }
+
+    /**
+     * Processes a batch of rows, completing each row's pending event.
+     * If the listener fails to process the batch as a whole, each row
+     * is retried individually.  Batches for listeners that are not
+     * asynchronous are processed one at a time (a batch may be started
+     * by the task thread or by the batch timer).
+     *
+     * @param  listener  the batch listener.
+     * @param  events    pending events for the rows in the batch.
+     */
+    private void processRowBatch(BatchRowListener listener,
+                                 List<PendingRowEvent> events) {
+        if (isAsyncEnabled(listener)) {
+            processRowBatchEvents(listener, events);
+        } else {
+            synchronized (listener) {
+                processRowBatchEvents(listener, events);
+            }
+        }
+    }
+
+    private void processRowBatchEvents(BatchRowListener listener,
+                                       List<PendingRowEvent> events) {
+
+        final List<PluginDataRow> rows =
+                new ArrayList<PluginDataRow>(events.size());
+        for (PendingRowEvent event : events) {
+            rows.add(event.pluginDataRow);
+        }
+
+        try {
+            timedProcessBatch(listener, rows);
+            for (PendingRowEvent event : events) {
+                event.result.complete(event.pluginDataRow);
+            }
+        } catch (BatchProcessingException e) {
+            final Map<PluginDataRow, Boolean> failedRows =
+                    new IdentityHashMap<PluginDataRow, Boolean>();
+            for (PluginDataRow row : e.getFailedRows()) {
+                failedRows.put(row, Boolean.TRUE);
+            }
+            for (PendingRowEvent event : events) {
+                if (failedRows.containsKey(event.pluginDataRow)) {
+                    event.result.completeExceptionally(e);
+                } else {
+                    event.result.complete(event.pluginDataRow);
+                }
+            }
+        } catch (Throwable t) {
+            LOG.warn("batch processing failed for " + rows.size() +
+                     " rows, retrying each row individually", t);
+            for (PendingRowEvent event : events) {
+                try {
+                    event.result.complete(processRowEvent(
+                            listener,
+                            RowListener.EventType.END_ROW_SUCCESS,
+                            event.pluginDataRow));
+                } catch (Throwable rowFailure) {
+                    event.result.completeExceptionally(rowFailure);
+                }
+            }
+        }
+    }
+
+    private void timedProcessBatch(BatchRowListener listener,
+                                   List<PluginDataRow> rows)
+            throws ExternalDataException, ExternalSystemException {
+        final long startNanos = System.nanoTime();
+        try {
+            listener.processBatch(rows);
+        } finally {
+            pluginTimers.record(PluginTimers.getName(listener, "processBatch"),
+                                startNanos);
+        }
+    }
+
+    /**
+     * Waits for all outstanding asynchronous row events to complete
+     * and then cleans up the rows that were waiting for them,
+     * marking the rows for any failed events as failed.
+     */
+    private void awaitAsyncRowEvents() {
+
+        if (rowsAwaitingEvents.size() > 0) {
+            LOG.info("waiting for events to complete for " +
+                     rowsAwaitingEvents.size() + " rows");
+            cleanupRowsAwaitingEvents(true);
+            // keep failed rows in row order
+            // (cancelled rows may have been marked as failed first)
+            Collections.sort(failedRowIndices);
+        }
+    }
+
+    private void handleAsyncRowEventFailure(PendingRowEvent event,
+                                            Throwable failure) {
+        LOG.error("Failed external completion processing for " +
+                  event.pluginDataRow, failure);
+        appendToSummary("ERROR: Failed external completion processing for ");
+        final Target target = event.modelRow.getTarget();
+        if (target != null) {
+            appendToSummary(target.getName());
+        }
+        appendToSummary("\n");
+        appendOriginalErrorMessageToSummary(failure);
+    }
+
+    /**
+     * Notifies registered listeners that processing for the specified
+     * row has started.
+     *
+     * @param  pluginDataRow  the row's plug-in data.
+     *
+     * @return the started row.
+     */
+    private StartedRow startRow(PluginDataRow pluginDataRow) {
+        final StartedRow startedRow = new StartedRow(pluginDataRow);
+        try {
+            startedRow.pluginDataRow =
+                    notifyRowListeners(RowListener.EventType.START_ROW,
+                                       pluginDataRow);
+            startedRow.isSuccessful = true;
+        } catch (Exception e) {
+            LOG.error("Failed external start processing for " +
+                      pluginDataRow, e);
+        }
+        return startedRow;
+    }
+
+    /**
+     * @return the number of rows that may be started ahead for this
+     *         session (zero if any registered listener requires
+     *         strict row ordering).
+     */
+    private int getSupportedStartRowLookAhead() {
+        int lookAhead = getStartRowLookAhead();
+        if (lookAhead > 0) {
+            for (RowListener listener : rowListenerList) {
+                if (listener instanceof OrderedRowListener) {
+                    LOG.info("start row look-ahead disabled because " +
+                             listener.getClass().getName() +
+                             " requires strict row ordering");
+                    lookAhead = 0;
+                    break;
+                }
+            }
+        }
+        return lookAhead;
+    }
+
     /**
      * Notifies registered listeners that the session has started.
      *
@@ -408,8 +1320,13 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
         List<DataRow> modelRows = model.getRows();
 
         try {
+            long startNanos;
             for (SessionListener listener : sessionListenerList) {
+                startNanos = System.nanoTime();
                 listener.startSession(modelRows);
+                pluginTimers.record(
+                        PluginTimers.getName(listener, "startSession"),
+                        startNanos);
             }
             allNotificationsProcessedSuccessfully = true;
         } catch (Exception e) {
@@ -425,8 +1342,13 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
     private void endSession() {
         final String message = taskSummary.toString();
         try {
+            long startNanos;
             for (SessionListener listener : sessionListenerList) {
+                startNanos = System.nanoTime();
                 listener.endSession(message);
+                pluginTimers.record(
+                        PluginTimers.getName(listener, "endSession"),
+                        startNanos);
             }
         } catch (Exception e) {
             LOG.error("session listener endSession processing failed, " +
@@ -473,4 +1395,212 @@ public class SimpleTask extends SwingWorker<Void, TaskProgressInfo> implements T
             failedRowIndices.add(i);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tracks the state of a row being processed concurrently.
+     */
+    private class ConcurrentRow {
+        private final int rowIndex;
+        private final DataRow modelRow;
+        private PluginDataRow pluginDataRow;
+        private boolean isStartRowNotificationSuccessful;
+        private Future<Boolean> processingResult;
+        private volatile String summary;
+
+        public ConcurrentRow(int rowIndex,
+                             DataRow modelRow,
+                             StartedRow startedRow) {
+            this.rowIndex = rowIndex;
+            this.modelRow = modelRow;
+            this.pluginDataRow = startedRow.pluginDataRow;
+            this.isStartRowNotificationSuccessful = startedRow.isSuccessful;
+            this.processingResult = null;
+            this.summary = null;
+        }
+    }
+
+    /**
+     * A processed row and any of its outstanding listener events.
+     */
+    private static class CompletedRow {
+        private final int rowIndex;
+        private final DataRow modelRow;
+        private final PluginDataRow pluginDataRow;
+        private final boolean isProcessingSuccessful;
+        private final List<PendingRowEvent> events;
+
+        public CompletedRow(int rowIndex,
+                            DataRow modelRow,
+                            PluginDataRow pluginDataRow,
+                            boolean isProcessingSuccessful,
+                            List<PendingRowEvent> events) {
+            this.rowIndex = rowIndex;
+            this.modelRow = modelRow;
+            this.pluginDataRow = pluginDataRow;
+            this.isProcessingSuccessful = isProcessingSuccessful;
+            this.events = events;
+        }
+
+        public boolean isEventProcessingDone() {
+            for (PendingRowEvent event : events) {
+                if (! event.result.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Tracks an event being processed by an asynchronous row listener.
+     */
+    private static class PendingRowEvent {
+        private final int rowIndex;
+        private final DataRow modelRow;
+        private final PluginDataRow pluginDataRow;
+        private final CompletableFuture<PluginDataRow> result;
+
+        public PendingRowEvent(int rowIndex,
+                               DataRow modelRow,
+                               PluginDataRow pluginDataRow,
+                               CompletableFuture<PluginDataRow> result) {
+            this.rowIndex = rowIndex;
+            this.modelRow = modelRow;
+            this.pluginDataRow = pluginDataRow;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Completed rows waiting to be processed by a batch row listener.
+     */
+    private static class RowBatch {
+        private List<PendingRowEvent> events;
+        private long startTime;
+
+        public RowBatch() {
+            this.events = new ArrayList<PendingRowEvent>();
+            this.startTime = 0;
+        }
+    }
+
+    /**
+     * Result of start row notifications for a row.
+     */
+    private static class StartedRow {
+        private PluginDataRow pluginDataRow;
+        private boolean isSuccessful;
+
+        public StartedRow(PluginDataRow pluginDataRow) {
+            this.pluginDataRow = pluginDataRow;
+            this.isSuccessful = false;
+        }
+    }
+
+    /**
+     * Sends start row notifications for a session's rows in row order.
+     * When look-ahead is enabled, notifications for up to the look-ahead
+     * number of rows are sent in a separate thread while earlier rows
+     * are being processed.  Otherwise, each row is started on the
+     * task thread when it is needed.
+     */
+    private class RowStarter {
+        private final List<DataRow> modelRows;
+        private final int lookAhead;
+        private final ExecutorService startExecutor;
+        private final LinkedList<Future<StartedRow>> rowsStartedAhead;
+        private int nextRowIndex;
+
+        public RowStarter(List<DataRow> modelRows) {
+            this.modelRows = modelRows;
+            this.lookAhead = getSupportedStartRowLookAhead();
+            if (lookAhead > 0) {
+                LOG.info("starting up to " + lookAhead +
+                         " rows ahead of row processing");
+                this.startExecutor = Executors.newSingleThreadExecutor(
+                        runnable -> {
+                            final Thread thread =
+                                    new Thread(runnable, "start-row-look-ahead");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+            } else {
+                this.startExecutor = null;
+            }
+            this.rowsStartedAhead = new LinkedList<Future<StartedRow>>();
+            this.nextRowIndex = 0;
+        }
+
+        /**
+         * @return the started row for the next row in the session
+         *         (waiting for its notifications to complete if necessary).
+         */
+        public StartedRow startNextRow() {
+            StartedRow startedRow;
+            if (startExecutor == null) {
+                final DataRow modelRow = modelRows.get(nextRowIndex);
+                nextRowIndex++;
+                startedRow = startRow(getPluginDataRow(modelRow));
+            } else {
+                // the row needed now plus the rows that may be started ahead
+                while ((rowsStartedAhead.size() <= lookAhead) &&
+                       (nextRowIndex < modelRows.size())) {
+                    final PluginDataRow pluginDataRow =
+                            getPluginDataRow(modelRows.get(nextRowIndex));
+                    nextRowIndex++;
+                    rowsStartedAhead.add(startExecutor.submit(() -> {
+                        LoggingUtils.setLoggingContext();
+                        return startRow(pluginDataRow);
+                    }));
+                }
+                startedRow = getStartedRow(rowsStartedAhead.removeFirst());
+            }
+            return startedRow;
+        }
+
+        /**
+         * Releases resources used by this starter.  Rows that were
+         * started ahead but never processed (e.g. because the session was
+         * cancelled) are failed so that listeners can clean up any work
+         * they began for those rows.
+         */
+        public void close() {
+            if (startExecutor != null) {
+                StartedRow startedRow;
+                for (Future<StartedRow> startResult : rowsStartedAhead) {
+                    startedRow = getStartedRow(startResult);
+                    if (startedRow.isSuccessful) {
+                        try {
+                            notifyRowListeners(
+                                    RowListener.EventType.END_ROW_FAIL,
+                                    startedRow.pluginDataRow);
+                        } catch (Exception e) {
+                            LOG.error("Failed external completion " +
+                                      "processing for unprocessed row " +
+                                      startedRow.pluginDataRow, e);
+                        }
+                    }
+                }
+                rowsStartedAhead.clear();
+                startExecutor.shutdown();
+            }
+        }
+
+        private StartedRow getStartedRow(Future<StartedRow> startResult) {
+            StartedRow startedRow = null;
+            try {
+                startedRow = startResult.get();
+            } catch (ExecutionException e) {
+                LOG.error("Failed external start processing", e.getCause());
+            } catch (InterruptedException e) {
+                LOG.error("Interrupted while waiting for external start " +
+                          "processing", e);
+                Thread.currentThread().interrupt();
+            }
+            if (startedRow == null) {
+                startedRow = new StartedRow(null);
+            }
+            return startedRow;
+        }
+    }
+}
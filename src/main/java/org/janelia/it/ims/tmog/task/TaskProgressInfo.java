@@ -9,6 +9,8 @@ package org.janelia.it.ims.tmog.task;
 
 /**
  * This class encapsulates task progress information.
+ * Tasks that transfer data may also include throughput information
+ * (unknown values are negative).
  *
  * @author Eric Trautman
  */
@@ -18,15 +20,37 @@ public class TaskProgressInfo {
     private int totalRowsToProcess;
     private int percentOfTaskCompleted;
     private String message;
+    private double currentMegabytesPerSecond;
+    private double averageMegabytesPerSecond;
+    private long secondsRemaining;
 
     public TaskProgressInfo(int lastRowProcessed,
                             int totalRowsToProcess,
                             int percentOfTaskCompleted,
                             String message) {
+        this(lastRowProcessed,
+             totalRowsToProcess,
+             percentOfTaskCompleted,
+             message,
+             -1,
+             -1,
+             -1);
+    }
+
+    public TaskProgressInfo(int lastRowProcessed,
+                            int totalRowsToProcess,
+                            int percentOfTaskCompleted,
+                            String message,
+                            double currentMegabytesPerSecond,
+                            double averageMegabytesPerSecond,
+                            long secondsRemaining) {
         this.lastRowProcessed = lastRowProcessed;
         this.totalRowsToProcess = totalRowsToProcess;
         this.percentOfTaskCompleted = percentOfTaskCompleted;
         this.message = message;
+        this.currentMegabytesPerSecond = currentMegabytesPerSecond;
+        this.averageMegabytesPerSecond = averageMegabytesPerSecond;
+        this.secondsRemaining = secondsRemaining;
     }
 
     public int getLastRowProcessed() {
@@ -45,6 +69,38 @@ public class TaskProgressInfo {
         return message;
     }
 
+    /**
+     * @return the recent transfer rate in megabytes per second
+     *         (or a negative value if unknown).
+     */
+    public double getCurrentMegabytesPerSecond() {
+        return currentMegabytesPerSecond;
+    }
+
+    /**
+     * @return the average transfer rate for the session in megabytes
+     *         per second (or a negative value if unknown).
+     */
+    public double getAverageMegabytesPerSecond() {
+        return averageMegabytesPerSecond;
+    }
+
+    /**
+     * @return the estimated number of seconds until the task completes
+     *         (or a negative value if unknown).
+     */
+    public long getSecondsRemaining() {
+        return secondsRemaining;
+    }
+
+    /**
+     * @return true if this information includes transfer rates;
+     *         otherwise false.
+     */
+    public boolean hasThroughput() {
+        return (averageMegabytesPerSecond >= 0);
+    }
+
     @Override
     public String toString() {
         return message;
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.task;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * This class tracks the number of bytes a task has transferred over time
+ * so that the task can report its current and average transfer rates
+ * along with an estimate of the time it needs to finish.
+ * The current rate is measured over a sliding window of recent samples
+ * while the average rate covers everything since the meter was started.
+ * Samples may be added from any thread.
+ *
+ * @author Eric Trautman
+ */
+public class TransferRateMeter {
+
+    /** Default number of milliseconds covered by the current rate. */
+    public static final long DEFAULT_WINDOW_MILLIS = 5000;
+
+    private long windowMillis;
+    private long startTime;
+    private ArrayDeque<Sample> samples;
+
+    /**
+     * Constructs a meter with the default window.
+     */
+    public TransferRateMeter() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Constructs a meter.
+     *
+     * @param  windowMillis  number of milliseconds covered by
+     *                       the current rate.
+     */
+    public TransferRateMeter(long windowMillis) {
+        this.windowMillis = windowMillis;
+        this.startTime = -1;
+        this.samples = new ArrayDeque<Sample>();
+    }
+
+    /**
+     * Starts (or restarts) measurement.
+     */
+    public synchronized void start() {
+        startTime = System.currentTimeMillis();
+        samples.clear();
+        samples.add(new Sample(startTime, 0));
+    }
+
+    /**
+     * Records the total number of bytes transferred since the meter was
+     * started.  The meter is implicitly started by the first sample if
+     * it has not been explicitly started.
+     *
+     * @param  totalBytesTransferred  total bytes transferred so far.
+     */
+    public synchronized void update(long totalBytesTransferred) {
+        if (startTime < 0) {
+            start();
+        }
+        final long now = System.currentTimeMillis();
+        samples.add(new Sample(now, totalBytesTransferred));
+        // keep one sample older than the window so that the window is covered
+        while ((samples.size() > 2) &&
+               ((now - getSecondSample().time) >= windowMillis)) {
+            samples.removeFirst();
+        }
+    }
+
+    /**
+     * @return the rate (in megabytes per second) over the recent window
+     *         or a negative value if it cannot be measured yet.
+     */
+    public synchronized double getCurrentMegabytesPerSecond() {
+        double rate = -1;
+        if (samples.size() > 1) {
+            rate = getMegabytesPerSecond(samples.getFirst(),
+                                         samples.getLast());
+        }
+        return rate;
+    }
+
+    /**
+     * @return the rate (in megabytes per second) since the meter
+     *         was started or a negative value if it cannot be
+     *         measured yet.
+     */
+    public synchronized double getAverageMegabytesPerSecond() {
+        double rate = -1;
+        if (samples.size() > 1) {
+            rate = getMegabytesPerSecond(new Sample(startTime, 0),
+                                         samples.getLast());
+        }
+        return rate;
+    }
+
+    /**
+     * @param  bytesRemaining  number of bytes that still need
+     *                         to be transferred.
+     *
+     * @return the estimated number of seconds needed to transfer the
+     *         remaining bytes at the average rate or a negative value
+     *         if no estimate can be made.
+     */
+    public synchronized long getSecondsRemaining(long bytesRemaining) {
+        long seconds = -1;
+        final double rate = getAverageMegabytesPerSecond();
+        if (rate > 0) {
+            seconds = Math.round(
+                    Math.max(bytesRemaining, 0) / (rate * BYTES_PER_MEGABYTE));
+        }
+        return seconds;
+    }
+
+    private Sample getSecondSample() {
+        final Iterator<Sample> i = samples.iterator();
+        i.next();
+        return i.next();
+    }
+
+    private static double getMegabytesPerSecond(Sample first,
+                                                Sample last) {
+        double rate = -1;
+        final long elapsed = last.time - first.time;
+        if (elapsed > 0) {
+            // transfers that restart can briefly make progress negative
+            rate = Math.max(last.bytes - first.bytes, 0) /
+                   (double) BYTES_PER_MEGABYTE / (elapsed / 1000.0);
+        }
+        return rate;
+    }
+
+    private static class Sample {
+        private long time;
+        private long bytes;
+
+        private Sample(long time,
+                       long bytes) {
+            this.time = time;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+}
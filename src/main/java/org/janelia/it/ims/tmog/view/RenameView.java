@@ -24,15 +24,11 @@ import org.janelia.it.ims.tmog.filefilter.DirectoryOnlyFilter;
 import org.janelia.it.ims.tmog.plugin.ExternalDataException;
 import org.janelia.it.ims.tmog.plugin.ExternalSystemException;
 import org.janelia.it.ims.tmog.plugin.PluginDataRow;
-import org.janelia.it.ims.tmog.plugin.RenamePluginDataRow;
 import org.janelia.it.ims.tmog.plugin.RowUpdater;
-import org.janelia.it.ims.tmog.plugin.RowValidator;
 import org.janelia.it.ims.tmog.target.FileTarget;
-import org.janelia.it.ims.tmog.target.Target;
-import org.janelia.it.ims.tmog.task.MoveAndLogDigestTask;
+import org.janelia.it.ims.tmog.task.PluginTimers;
+import org.janelia.it.ims.tmog.task.RenameSessionValidator;
 import org.janelia.it.ims.tmog.task.RenameTask;
-import org.janelia.it.ims.tmog.task.RenameWithoutDeleteTask;
-import org.janelia.it.ims.tmog.task.SimpleMoveTask;
 import org.janelia.it.ims.tmog.task.Task;
 import org.janelia.it.ims.tmog.view.component.DataTable;
 import org.janelia.it.ims.tmog.view.component.NarrowOptionPane;
@@ -88,6 +84,7 @@ public class RenameView
     private String sessionName;
     private ProjectConfiguration projectConfig;
     private RenameTask task;
+    private PluginTimers validationTimers;
     private TaskComponents taskComponents;
     private String projectNameText;
 
@@ -365,36 +362,12 @@ public class RenameView
     }
 
     private Task getNewTaskForView() {
-        final String taskName = projectConfig.getTaskName();
-        if (RenameWithoutDeleteTask.TASK_NAME.equals(taskName)) {
-
-            task = new RenameWithoutDeleteTask(
-                    tableModel,
-                    projectConfig.getOutputDirectory(),
-                    projectConfig.getFileTransfer(),
-                    outputDirectoryField.getText());
-
-        } else if (SimpleMoveTask.TASK_NAME.equals(taskName)) {
-
-            task = new SimpleMoveTask(tableModel,
-                                      projectConfig.getOutputDirectory(),
-                                      projectConfig.getFileTransfer(),
-                                      outputDirectoryField.getText());
-
-        } else if (MoveAndLogDigestTask.TASK_NAME.equals(taskName)) {
-
-            task = new MoveAndLogDigestTask(tableModel,
-                                            projectConfig.getOutputDirectory(),
-                                            projectConfig.getFileTransfer(),
+        task = RenameTask.getTaskForProject(tableModel,
+                                            projectConfig,
                                             outputDirectoryField.getText());
-        } else {
 
-            task = new RenameTask(tableModel,
-                                  projectConfig.getOutputDirectory(),
-                                  projectConfig.getFileTransfer(),
-                                  outputDirectoryField.getText());
-
-        }
+        // include validation times in the task summary
+        task.getPluginTimers().addAll(validationTimers);
 
         return task;
     }
@@ -479,95 +452,25 @@ public class RenameView
     }
 
     private boolean validateAllFields(File baseOutputDirectory) {
+        validationTimers = null;
         boolean isValid = tableModel.verify();
 
         // only perform other validation checks if basic field validation succeeds
         if (isValid) {
-            OutputDirectoryConfiguration odCfg = projectConfig.getOutputDirectory();
-            boolean isOutputDirectoryAlreadyValidated = odCfg.isDerivedForSession();
-            File outputDirectory;
-            String outputDirectoryPath;
-            final List<DataRow> rows =
-                    Collections.unmodifiableList(tableModel.getRows());
-            int rowIndex = 0;
-
-            final List<RowValidator> validators =
-                    projectConfig.getRowValidators();
-
-            // call validators to set-up for session
-            try {
-                for (RowValidator validator : validators) {
-                    validator.startSessionValidation(sessionName, rows);
-                }
-            } catch (ExternalSystemException e) {
-                isValid = false;
-                dataTable.displayErrorDialog(e.getMessage());
-            }
 
-            // only perform row validation
-            // if external start session call succeeded
-            if (isValid) {
-
-                for (DataRow row : rows) {
-                    Target rowTarget = row.getTarget();
-                    File rowFile = (File) rowTarget.getInstance();
-
-                    if (isOutputDirectoryAlreadyValidated) {
-                        outputDirectory = baseOutputDirectory;
-                    } else {
-                        // setup and validate the directories for each file
-                        // TODO: add support for nested fields
-                        outputDirectoryPath = odCfg.getDerivedPath(rowFile,
-                                                                   row.getFields());
-                        outputDirectory = new File(outputDirectoryPath);
-                        String outputFailureMsg =
-                                OutputDirectoryConfiguration.validateDirectory(
-                                        outputDirectory);
-                        if (outputFailureMsg != null) {
-                            isValid = false;
-                            dataTable.selectRow(rowIndex);
-                            dataTable.displayErrorDialog(outputFailureMsg);
-                        }
-                    }
-
-                    // only perform external validation
-                    // if output directory validation succeeds
-                    if (isValid) {
-                        String externalErrorMsg = null;
-                        try {
-                            for (RowValidator validator : validators) {
-                                validator.validate(
-                                        sessionName,
-                                        new RenamePluginDataRow(rowFile,
-                                                                row,
-                                                                outputDirectory));
-                            }
-                        } catch (ExternalDataException e) {
-                            externalErrorMsg = e.getMessage();
-                            LOG.info("external validation failed", e);
-                        } catch (ExternalSystemException e) {
-                            externalErrorMsg = e.getMessage();
-                            LOG.error(e.getMessage(), e);
-                        }
-
-                        if (externalErrorMsg != null) {
-                            isValid = false;
-                            dataTable.selectRow(rowIndex);
-                            dataTable.displayErrorDialog(externalErrorMsg);
-                        }
-                    }
-
-                    if (!isValid) {
-                        break;
-                    }
-
-                    rowIndex++;
+            final RenameSessionValidator validator =
+                    new RenameSessionValidator(sessionName, projectConfig);
+            isValid = validator.validate(
+                    Collections.unmodifiableList(tableModel.getRows()),
+                    baseOutputDirectory);
+            validationTimers = validator.getPluginTimers();
+
+            if (! isValid) {
+                final int errorRowIndex = validator.getErrorRowIndex();
+                if (errorRowIndex > -1) {
+                    dataTable.selectRow(errorRowIndex);
                 }
-            }
-
-            // always call validators to clean-up session
-            for (RowValidator validator : validators) {
-                validator.stopSessionValidation(sessionName);
+                dataTable.displayErrorDialog(validator.getErrorMessage());
             }
 
         } else {
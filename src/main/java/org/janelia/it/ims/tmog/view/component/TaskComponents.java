@@ -207,10 +207,45 @@ public abstract class TaskComponents implements PropertyChangeListener {
             progressBar.setValue(info.getPercentOfTaskCompleted());
         }
         if (progressLabel != null) {
-            progressLabel.setText(info.getMessage());
+            progressLabel.setText(getProgressText(info));
         }
     }
 
+    /**
+     * @param  info  the latest task progress information.
+     *
+     * @return progress text (including any transfer rates)
+     *         for the specified information.
+     */
+    public static String getProgressText(TaskProgressInfo info) {
+        final StringBuilder sb = new StringBuilder(info.getMessage());
+        if (info.hasThroughput()) {
+            sb.append("  (");
+            if (info.getCurrentMegabytesPerSecond() >= 0) {
+                sb.append(String.format("%.1f MB/s, ",
+                                        info.getCurrentMegabytesPerSecond()));
+            }
+            sb.append(String.format("%.1f MB/s average",
+                                    info.getAverageMegabytesPerSecond()));
+            final long secondsRemaining = info.getSecondsRemaining();
+            if (secondsRemaining >= 0) {
+                final long hours = secondsRemaining / 3600;
+                final long minutes = (secondsRemaining % 3600) / 60;
+                final long seconds = secondsRemaining % 60;
+                sb.append(", ");
+                if (hours > 0) {
+                    sb.append(String.format("%d:%02d:%02d",
+                                            hours, minutes, seconds));
+                } else {
+                    sb.append(String.format("%d:%02d", minutes, seconds));
+                }
+                sb.append(" remaining");
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
     /**
      * Utility to display task summary information in a dialog window.
      *
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class maintains a bounded pool of reusable direct byte buffers
+ * so that transfers and file handles do not allocate (and discard)
+ * large buffers for every file.  Buffers are leased for a specific
+ * size and are grouped by capacity (sizes are rounded up to the next
+ * power of two) so that each use case effectively gets its own pool.
+ * Leased buffers are slices of the pooled buffers, so their capacity
+ * is exactly the requested size.
+ * <p>
+ * The pool never blocks: when no idle buffer is available a new one
+ * is allocated (a miss).  Released buffers are kept for reuse as long
+ * as the total capacity of idle buffers stays within the pool's limit;
+ * any others are left for the garbage collector.  A leased buffer must
+ * not be used after it has been released.  Buffers that were not leased
+ * from the pool (or were already released) are ignored on release.
+ * <p>
+ * Leases are tracked weakly, so a leased buffer that is never released
+ * (e.g. by a file handle that is never closed) does not pin its memory.
+ * Once such a buffer has been garbage collected, it is no longer counted
+ * as leased and is counted as discarded.
+ *
+ * @author Eric Trautman
+ */
+public class BufferPool {
+
+    /** Default maximum number of bytes held in idle buffers. */
+    public static final long DEFAULT_MAX_POOLED_BYTES = 64 * 1024 * 1024;
+
+    /** Smallest capacity allocated for a leased buffer. */
+    public static final int MIN_CAPACITY = 4 * 1024;
+
+    private static final BufferPool INSTANCE =
+            new BufferPool(DEFAULT_MAX_POOLED_BYTES);
+
+    /**
+     * @return the pool shared by all transfers and file handles
+     *         in this JVM.
+     */
+    public static BufferPool getInstance() {
+        return INSTANCE;
+    }
+
+    private long maxPooledBytes;
+    private Map<Integer, ArrayDeque<ByteBuffer>> capacityToIdleBuffers;
+    private Map<Integer, List<Lease>> identityToLeases;
+    private ReferenceQueue<ByteBuffer> collectedLeases;
+    private long pooledBytes;
+    private long leasedBytes;
+    private long highWaterMark;
+    private long hitCount;
+    private long missCount;
+    private long discardCount;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param  maxPooledBytes  maximum number of bytes to hold
+     *                         in idle buffers.
+     */
+    public BufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        this.capacityToIdleBuffers = new HashMap<Integer, ArrayDeque<ByteBuffer>>();
+        this.identityToLeases = new HashMap<Integer, List<Lease>>();
+        this.collectedLeases = new ReferenceQueue<ByteBuffer>();
+        this.pooledBytes = 0;
+        this.leasedBytes = 0;
+        this.highWaterMark = 0;
+        this.hitCount = 0;
+        this.missCount = 0;
+        this.discardCount = 0;
+    }
+
+    /**
+     * @return maximum number of bytes held in idle buffers.
+     */
+    public synchronized long getMaxPooledBytes() {
+        return maxPooledBytes;
+    }
+
+    /**
+     * Changes the pool's limit, discarding idle buffers if necessary.
+     *
+     * @param  maxPooledBytes  maximum number of bytes to hold
+     *                         in idle buffers.
+     */
+    public synchronized void setMaxPooledBytes(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        if (pooledBytes > maxPooledBytes) {
+            capacityToIdleBuffers.clear();
+            pooledBytes = 0;
+        }
+    }
+
+    /**
+     * Leases a direct buffer from this pool.  The buffer's position is
+     * zero, its capacity and limit are the requested size, and its
+     * byte order is big endian (the default).
+     *
+     * @param  size  number of bytes needed.
+     *
+     * @return a buffer with the requested capacity.
+     *
+     * @throws IllegalArgumentException
+     *   if the size is negative.
+     */
+    public ByteBuffer lease(int size)
+            throws IllegalArgumentException {
+
+        if (size < 0) {
+            throw new IllegalArgumentException(
+                    "buffer size (" + size + ") must not be negative");
+        }
+
+        final int capacity = getCapacity(size);
+        ByteBuffer pooledBuffer = null;
+
+        synchronized (this) {
+            expungeCollectedLeases();
+            final ArrayDeque<ByteBuffer> idleBuffers =
+                    capacityToIdleBuffers.get(capacity);
+            if ((idleBuffers != null) && (idleBuffers.size() > 0)) {
+                pooledBuffer = idleBuffers.removeLast();
+                pooledBytes -= capacity;
+                hitCount++;
+            } else {
+                missCount++;
+            }
+            leasedBytes += capacity;
+            highWaterMark = Math.max(highWaterMark, leasedBytes);
+        }
+
+        if (pooledBuffer == null) {
+            pooledBuffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        pooledBuffer.clear();
+        pooledBuffer.limit(size);
+        final ByteBuffer buffer = pooledBuffer.slice();
+
+        synchronized (this) {
+            addLease(new Lease(buffer, pooledBuffer, collectedLeases));
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Returns a leased buffer to this pool.
+     *
+     * @param  buffer  buffer to return (null is ignored).
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null) {
+            synchronized (this) {
+                expungeCollectedLeases();
+                final Lease lease = removeLease(buffer);
+                if (lease != null) {
+                    final int capacity = lease.capacity;
+                    // the leased slice keeps its pool buffer reachable
+                    final ByteBuffer pooledBuffer = lease.pooledBuffer.get();
+                    leasedBytes -= capacity;
+                    if ((pooledBuffer != null) &&
+                        ((pooledBytes + capacity) <= maxPooledBytes)) {
+                        ArrayDeque<ByteBuffer> idleBuffers =
+                                capacityToIdleBuffers.get(capacity);
+                        if (idleBuffers == null) {
+                            idleBuffers = new ArrayDeque<ByteBuffer>();
+                            capacityToIdleBuffers.put(capacity, idleBuffers);
+                        }
+                        idleBuffers.addLast(pooledBuffer);
+                        pooledBytes += capacity;
+                    } else {
+                        discardCount++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops tracking a leased buffer without returning it to this pool.
+     * This should be used instead of {@link #release} when the buffer
+     * may still be in use (e.g. by a thread that was cancelled but may
+     * not have stopped yet).
+     *
+     * @param  buffer  buffer to discard (null is ignored).
+     */
+    public void discard(ByteBuffer buffer) {
+        if (buffer != null) {
+            synchronized (this) {
+                expungeCollectedLeases();
+                final Lease lease = removeLease(buffer);
+                if (lease != null) {
+                    leasedBytes -= lease.capacity;
+                    discardCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of leases satisfied by an idle buffer.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of leases that required a new buffer.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of leased buffers that were not kept because
+     *         the pool was full or because they were discarded.
+     */
+    public synchronized long getDiscardCount() {
+        expungeCollectedLeases();
+        return discardCount;
+    }
+
+    /**
+     * @return number of bytes in buffers that are currently leased.
+     */
+    public synchronized long getLeasedBytes() {
+        expungeCollectedLeases();
+        return leasedBytes;
+    }
+
+    /**
+     * @return largest number of bytes leased at one time.
+     */
+    public synchronized long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * @return number of bytes held in idle buffers.
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BufferPool{" +
+               "maxPooledBytes=" + maxPooledBytes +
+               ", pooledBytes=" + pooledBytes +
+               ", leasedBytes=" + leasedBytes +
+               ", highWaterMark=" + highWaterMark +
+               ", hitCount=" + hitCount +
+               ", missCount=" + missCount +
+               ", discardCount=" + discardCount +
+               '}';
+    }
+
+    /**
+     * Stops tracking leased buffers that were garbage collected without
+     * being released.
+     */
+    private void expungeCollectedLeases() {
+        Lease lease;
+        while ((lease = (Lease) collectedLeases.poll()) != null) {
+            if (removeLease(lease.identity, lease) != null) {
+                leasedBytes -= lease.capacity;
+                discardCount++;
+            }
+        }
+    }
+
+    private void addLease(Lease lease) {
+        List<Lease> leases = identityToLeases.get(lease.identity);
+        if (leases == null) {
+            leases = new ArrayList<Lease>(1);
+            identityToLeases.put(lease.identity, leases);
+        }
+        leases.add(lease);
+    }
+
+    private Lease removeLease(ByteBuffer buffer) {
+        return removeLease(System.identityHashCode(buffer), buffer);
+    }
+
+    /**
+     * @param  identity  identity hash code of the leased buffer.
+     * @param  target    the leased buffer or its lease.
+     *
+     * @return the removed lease or null if the target is not tracked.
+     */
+    private Lease removeLease(int identity,
+                              Object target) {
+        Lease removedLease = null;
+        final List<Lease> leases = identityToLeases.get(identity);
+        if (leases != null) {
+            final Iterator<Lease> i = leases.iterator();
+            Lease lease;
+            while (i.hasNext()) {
+                lease = i.next();
+                if ((lease == target) || (lease.get() == target)) {
+                    i.remove();
+                    // released leases never need to be expunged
+                    lease.clear();
+                    removedLease = lease;
+                    break;
+                }
+            }
+            if (leases.size() == 0) {
+                identityToLeases.remove(identity);
+            }
+        }
+        return removedLease;
+    }
+
+    /**
+     * @param  size  requested buffer size.
+     *
+     * @return capacity of the buffer allocated for the specified size.
+     */
+    static int getCapacity(int size) {
+        int capacity = MIN_CAPACITY;
+        if (size > MIN_CAPACITY) {
+            capacity = Integer.highestOneBit(size - 1) << 1;
+            if (capacity <= 0) {
+                // sizes above 2^30 can't be rounded up
+                capacity = size;
+            }
+        }
+        return capacity;
+    }
+
+    /**
+     * Weak reference to a leased buffer.  The lease does not keep the
+     * leased buffer or its pool buffer reachable.
+     */
+    private static class Lease extends WeakReference<ByteBuffer> {
+
+        private final int identity;
+        private final int capacity;
+        private final WeakReference<ByteBuffer> pooledBuffer;
+
+        public Lease(ByteBuffer buffer,
+                     ByteBuffer pooledBuffer,
+                     ReferenceQueue<ByteBuffer> queue) {
+            super(buffer, queue);
+            this.identity = System.identityHashCode(buffer);
+            this.capacity = pooledBuffer.capacity();
+            this.pooledBuffer = new WeakReference<ByteBuffer>(pooledBuffer);
+        }
+    }
+}
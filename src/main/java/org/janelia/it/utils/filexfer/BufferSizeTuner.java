@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.apache.log4j.Logger;
+
+import java.nio.file.FileStore;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class tunes transfer buffer sizes for each destination
+ * {@link FileStore}.  The first sufficiently large copies to a
+ * file store are each run with a different candidate buffer size.
+ * Once every candidate has been measured, the size with the best
+ * throughput is used for all subsequent copies to that file store
+ * and is handed to the configured {@link Persistence} so that
+ * later sessions can skip tuning.
+ * <p>
+ * Only one trial runs at a time for each file store (concurrent copies
+ * to the same store use the default buffer size while a trial is in
+ * progress) so that trials do not compete with each other for bandwidth.
+ *
+ * @author Eric Trautman
+ */
+public class BufferSizeTuner {
+
+    /** Candidate buffer sizes (in bytes) tried for each file store. */
+    public static final int[] CANDIDATE_SIZES = {
+            64 * 1024,
+            256 * 1024,
+            1024 * 1024,
+            4 * 1024 * 1024,
+            16 * 1024 * 1024
+    };
+
+    /** Largest candidate buffer size. */
+    public static final int MAX_CANDIDATE_SIZE =
+            CANDIDATE_SIZES[CANDIDATE_SIZES.length - 1];
+
+    /**
+     * Minimum number of bytes a copy must transfer to be used as a trial
+     * (smaller copies are dominated by open and close overhead).
+     */
+    public static final long MIN_TRIAL_BYTES = 8 * 1024 * 1024;
+
+    /** Prefix for the names of persisted buffer sizes. */
+    public static final String PERSISTENCE_NAME_PREFIX =
+            "transfer-buffer-size:";
+
+    /**
+     * Interface for saving tuned buffer sizes across sessions.
+     */
+    public interface Persistence {
+
+        /**
+         * @param  name  name of persisted value.
+         *
+         * @return the persisted value or null if none exists.
+         */
+        String load(String name);
+
+        /**
+         * @param  name   name of value to persist.
+         * @param  value  value to persist.
+         */
+        void save(String name,
+                  String value);
+    }
+
+    private static final BufferSizeTuner INSTANCE = new BufferSizeTuner();
+
+    /**
+     * @return the tuner shared by all transfers in this JVM.
+     */
+    public static BufferSizeTuner getInstance() {
+        return INSTANCE;
+    }
+
+    private Map<String, StoreTuning> storeKeyToTuning;
+    private Persistence persistence;
+
+    public BufferSizeTuner() {
+        this.storeKeyToTuning = new HashMap<String, StoreTuning>();
+        this.persistence = null;
+    }
+
+    /**
+     * @param  persistence  mechanism for loading and saving tuned sizes
+     *                      (or null to only retain sizes in memory).
+     */
+    public synchronized void setPersistence(Persistence persistence) {
+        this.persistence = persistence;
+    }
+
+    /**
+     * Returns the buffer size to use for the next copy to the specified
+     * file store.  If a trial is started, the calling thread must
+     * perform the copy and report its outcome with {@link #recordTransfer}.
+     *
+     * @param  storeKey     key identifying the target file store
+     *                      (see {@link FileTransferUtil#getFileStoreKey}).
+     * @param  defaultSize  size to use if no tuned size is available
+     *                      and a trial is already in progress.
+     *
+     * @return the buffer size to use.
+     */
+    public synchronized int getBufferSize(String storeKey,
+                                          int defaultSize) {
+        int bufferSize = defaultSize;
+        if (storeKey != null) {
+            final StoreTuning tuning = getTuning(storeKey);
+            if (tuning.tunedSize > 0) {
+                bufferSize = tuning.tunedSize;
+            } else if (tuning.trialThread == null) {
+                bufferSize = tuning.startTrial();
+            }
+        }
+        return bufferSize;
+    }
+
+    /**
+     * Records the outcome of a copy made by the calling thread.
+     * Copies that were not trials,
+     * failed, or were too small to measure reliably are ignored
+     * (failed and small trials are simply retried on a later copy).
+     *
+     * @param  storeKey    key identifying the target file store.
+     * @param  bufferSize  buffer size used for the copy.
+     * @param  stats       statistics for the copy or null if it failed.
+     */
+    public synchronized void recordTransfer(String storeKey,
+                                            int bufferSize,
+                                            FileTransferStats stats) {
+        if (storeKey != null) {
+            final StoreTuning tuning = storeKeyToTuning.get(storeKey);
+            if ((tuning != null) &&
+                (tuning.trialThread == Thread.currentThread()) &&
+                (tuning.trialSize == bufferSize)) {
+                if ((stats != null) &&
+                    (stats.getBytesProcessed() >= MIN_TRIAL_BYTES)) {
+                    tuning.completeTrial(stats.getBytesPerSecond());
+                    if (tuning.tunedSize > 0) {
+                        saveTunedSize(storeKey, tuning);
+                    }
+                } else {
+                    tuning.trialThread = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param  storeKey  key identifying a file store.
+     *
+     * @return the tuned buffer size for the specified file store or
+     *         zero if tuning has not completed.
+     */
+    public synchronized int getTunedSize(String storeKey) {
+        int tunedSize = 0;
+        if (storeKey != null) {
+            tunedSize = getTuning(storeKey).tunedSize;
+        }
+        return tunedSize;
+    }
+
+    private StoreTuning getTuning(String storeKey) {
+        StoreTuning tuning = storeKeyToTuning.get(storeKey);
+        if (tuning == null) {
+            tuning = new StoreTuning();
+            tuning.tunedSize = loadTunedSize(storeKey);
+            storeKeyToTuning.put(storeKey, tuning);
+        }
+        return tuning;
+    }
+
+    private int loadTunedSize(String storeKey) {
+        int tunedSize = 0;
+        if (persistence != null) {
+            final String value =
+                    persistence.load(PERSISTENCE_NAME_PREFIX + storeKey);
+            if (value != null) {
+                try {
+                    tunedSize = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    LOG.warn("loadTunedSize: ignoring invalid size '" +
+                             value + "' saved for " + storeKey);
+                }
+                if (tunedSize < FileTransferUtil.MIN_BUFFER_SIZE) {
+                    tunedSize = 0;
+                }
+            }
+        }
+        return tunedSize;
+    }
+
+    private void saveTunedSize(String storeKey,
+                               StoreTuning tuning) {
+
+        if (LOG.isInfoEnabled()) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("tuned transfer buffer size for ");
+            sb.append(storeKey);
+            sb.append(" is ");
+            sb.append(tuning.tunedSize);
+            sb.append(" bytes (candidate MB/s:");
+            for (int i = 0; i < CANDIDATE_SIZES.length; i++) {
+                sb.append(' ');
+                sb.append(CANDIDATE_SIZES[i] / 1024);
+                sb.append("k=");
+                sb.append(String.format("%.1f",
+                                        (tuning.throughput[i] / MEGABYTE)));
+            }
+            sb.append(')');
+            LOG.info(sb.toString());
+        }
+
+        if (persistence != null) {
+            try {
+                persistence.save(PERSISTENCE_NAME_PREFIX + storeKey,
+                                 String.valueOf(tuning.tunedSize));
+            } catch (Exception e) {
+                LOG.warn("saveTunedSize: failed to save size for " +
+                         storeKey + ", ignoring error", e);
+            }
+        }
+    }
+
+    /**
+     * Tuning state for one file store.
+     */
+    private static class StoreTuning {
+        private int tunedSize = 0;
+        private Thread trialThread = null;
+        private int trialSize = 0;
+        private int trialIndex = 0;
+        private double[] throughput = new double[CANDIDATE_SIZES.length];
+
+        private int startTrial() {
+            trialThread = Thread.currentThread();
+            trialSize = CANDIDATE_SIZES[trialIndex];
+            return trialSize;
+        }
+
+        private void completeTrial(double bytesPerSecond) {
+            throughput[trialIndex] = bytesPerSecond;
+            trialThread = null;
+            trialIndex++;
+            if (trialIndex == CANDIDATE_SIZES.length) {
+                int bestIndex = 0;
+                for (int i = 1; i < throughput.length; i++) {
+                    if (throughput[i] > throughput[bestIndex]) {
+                        bestIndex = i;
+                    }
+                }
+                tunedSize = CANDIDATE_SIZES[bestIndex];
+            }
+        }
+    }
+
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    private static final Logger LOG = Logger.getLogger(BufferSizeTuner.class);
+}
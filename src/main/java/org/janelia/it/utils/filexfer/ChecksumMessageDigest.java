@@ -7,6 +7,7 @@
 
 package org.janelia.it.utils.filexfer;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.util.zip.Checksum;
 
@@ -20,11 +21,38 @@ public class ChecksumMessageDigest
         extends MessageDigest {
 
     private Checksum checksum;
+    private boolean bigEndian;
 
+    /**
+     * Constructs a digest with little endian digest bytes
+     * (the original ordering used for adler32 and crc32 digests).
+     *
+     * @param  algorithmName  name of the algorithm.
+     * @param  checksum       checksum implementation.
+     */
     public ChecksumMessageDigest(String algorithmName,
                           Checksum checksum) {
+        this(algorithmName, checksum, false);
+    }
+
+    /**
+     * @param  algorithmName  name of the algorithm.
+     * @param  checksum       checksum implementation.
+     * @param  bigEndian      true if digest bytes should be big endian
+     *                        (so that {@link DigestBytes#toSum()} matches
+     *                        the output of standard tools).
+     */
+    public ChecksumMessageDigest(String algorithmName,
+                                 Checksum checksum,
+                                 boolean bigEndian) {
         super(algorithmName);
         this.checksum = checksum;
+        this.bigEndian = bigEndian;
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return 4;
     }
 
     @Override
@@ -39,14 +67,28 @@ public class ChecksumMessageDigest
         checksum.update(input, offset, len);
     }
 
+    @Override
+    protected void engineUpdate(ByteBuffer input) {
+        // let the checksum read heap or direct buffers without copying
+        checksum.update(input);
+    }
+
     @Override
     protected byte[] engineDigest() {
         long l = checksum.getValue();
         byte[] bytes = new byte[4];
-        bytes[3] = (byte) ((l & 0xFF000000) >> 24);
-        bytes[2] = (byte) ((l & 0x00FF0000) >> 16);
-        bytes[1] = (byte) ((l & 0x0000FF00) >> 8);
-        bytes[0] = (byte) ((l & 0x000000FF));
+        if (bigEndian) {
+            bytes[0] = (byte) ((l & 0xFF000000) >> 24);
+            bytes[1] = (byte) ((l & 0x00FF0000) >> 16);
+            bytes[2] = (byte) ((l & 0x0000FF00) >> 8);
+            bytes[3] = (byte) ((l & 0x000000FF));
+        } else {
+            bytes[3] = (byte) ((l & 0xFF000000) >> 24);
+            bytes[2] = (byte) ((l & 0x00FF0000) >> 16);
+            bytes[1] = (byte) ((l & 0x0000FF00) >> 8);
+            bytes[0] = (byte) ((l & 0x000000FF));
+        }
+        checksum.reset();
         return bytes;
     }
 
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import java.util.zip.CRC32C;
+
+/**
+ * This class supports the calculation of message digests using the
+ * CRC-32C (Castagnoli) 32 bit algorithm.  The JDK implementation
+ * uses hardware instructions where available, making this the fastest
+ * supported digest on most platforms.
+ * <p>
+ * Unlike the older checksum digests, digest bytes are big endian so
+ * that {@link DigestBytes#toSum()} matches the output of standard tools.
+ *
+ * @author Eric Trautman
+ */
+public class Crc32cMessageDigest
+        extends ChecksumMessageDigest {
+
+    public static final String NAME = "crc32c";
+
+    public Crc32cMessageDigest() {
+        super(NAME, new CRC32C(), true);
+    }
+}
@@ -50,6 +50,12 @@ public class DigestAlgorithms {
                 digest = new AdlerMessageDigest();
             } else if (CrcMessageDigest.NAME.equalsIgnoreCase(digestAlgorithm)) {
                 digest = new CrcMessageDigest();
+            } else if (Crc32cMessageDigest.NAME.equalsIgnoreCase(digestAlgorithm)) {
+                digest = new Crc32cMessageDigest();
+            } else if (XxHash64MessageDigest.NAME.equalsIgnoreCase(digestAlgorithm)) {
+                digest = new XxHash64MessageDigest();
+            } else if (TreeMessageDigest.isTreeAlgorithm(digestAlgorithm)) {
+                digest = new TreeMessageDigest(digestAlgorithm);
             } else {
                 digest = MessageDigest.getInstance(digestAlgorithm);
             }
@@ -60,7 +66,9 @@ public class DigestAlgorithms {
 
     /**
      * @return list of well known algorithm names.  Note that other
-     *         valid algorithm names may exist for specific environments.
+     *         valid algorithm names may exist for specific environments
+     *         (including tree algorithms with other leaf algorithms or
+     *         chunk sizes - see {@link TreeMessageDigest}).
      */
     public static List<String> getValidNames() {
         return VALID_NAMES;
@@ -71,7 +79,10 @@ public class DigestAlgorithms {
                     Arrays.asList(NONE,
                                   AdlerMessageDigest.NAME,
                                   CrcMessageDigest.NAME,
+                                  Crc32cMessageDigest.NAME,
+                                  XxHash64MessageDigest.NAME,
                                   MD5,
-                                  SHA1));
+                                  SHA1,
+                                  TreeMessageDigest.DEFAULT_NAME));
 
 }
\ No newline at end of file
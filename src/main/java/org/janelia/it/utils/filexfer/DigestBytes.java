@@ -7,7 +7,6 @@
 
 package org.janelia.it.utils.filexfer;
 
-import java.math.BigInteger;
 import java.util.Arrays;
 
 /**
@@ -24,6 +23,13 @@ public class DigestBytes {
         this.value = value;
     }
 
+    /**
+     * @return the raw digest value.
+     */
+    public byte[] getBytes() {
+        return value;
+    }
+
     @Override
     public boolean equals(Object o) {
         boolean isEqual = false;
@@ -54,12 +60,56 @@ public class DigestBytes {
         return str;
     }
 
+    /**
+     * @return hex string representation of every byte in this digest
+     *         (including leading zero bytes).
+     */
+    public String toHex() {
+        final StringBuilder sb = new StringBuilder(value.length * 2);
+        for (byte b : value) {
+            sb.append(HEX_DIGITS[(b >> 4) & 0x0F]);
+            sb.append(HEX_DIGITS[b & 0x0F]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param  hex  hex string created by {@link #toHex}.
+     *
+     * @return digest bytes parsed from the specified string.
+     *
+     * @throws IllegalArgumentException
+     *   if the string is not a valid hex representation.
+     */
+    public static DigestBytes fromHex(String hex)
+            throws IllegalArgumentException {
+        if ((hex.length() % 2) != 0) {
+            throw new IllegalArgumentException(
+                    "odd number of characters in hex string '" + hex + "'");
+        }
+        final byte[] bytes = new byte[hex.length() / 2];
+        int high;
+        int low;
+        for (int i = 0; i < bytes.length; i++) {
+            high = Character.digit(hex.charAt(2 * i), 16);
+            low = Character.digit(hex.charAt((2 * i) + 1), 16);
+            if ((high < 0) || (low < 0)) {
+                throw new IllegalArgumentException(
+                        "invalid hex string '" + hex + "'");
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return new DigestBytes(bytes);
+    }
+
     /**
      * @return string representation of this digest that matches
      *         output generated by tools like md5sum.
      */
     public String toSum() {
-        BigInteger bigInt = new BigInteger(1, value);
-		return bigInt.toString(16);
+        // use fixed width hex (tools like md5sum keep leading zeros)
+        return toHex();
     }
-}
\ No newline at end of file
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded (least recently used) cache of file digests that is
+ * persisted to disk between sessions.  Cached digests are keyed by
+ * algorithm and canonical path and are only returned if the file's
+ * size, modification time, and file key (e.g. inode) are unchanged
+ * since the digest was calculated.
+ * <p>
+ * The shared cache instance is disabled until it is loaded
+ * (see {@link #load}), so utilities can always consult it without
+ * checking whether caching has been configured.
+ * <p>
+ * File attributes are read and the cache file is written without
+ * holding the cache's lock so that slow file systems do not block
+ * other transfers from using the cache.
+ *
+ * @author Eric Trautman
+ */
+public class FileDigestCache {
+
+    /** Name of the cache file (stored next to the preferences file). */
+    public static final String FILE_NAME = ".tmog-digest-cache.txt";
+
+    /** Default maximum number of cached digests. */
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+
+    /**
+     * Files modified within this many milliseconds of the start of a
+     * digest calculation are not cached because coarse file system
+     * timestamps may hide later modifications.
+     */
+    public static final long MODIFICATION_TIME_MARGIN = 2000;
+
+    /** Number of changes that trigger an automatic save. */
+    private static final int CHANGES_PER_SAVE = 100;
+
+    private static final FileDigestCache INSTANCE =
+            new FileDigestCache(DEFAULT_MAX_ENTRIES);
+
+    /**
+     * @return the shared cache instance.
+     */
+    public static FileDigestCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, CachedDigest> keyToEntryMap;
+    private final Object saveLock;
+    private File cacheFile;
+    private int unsavedChangeCount;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Constructs an empty (disabled) cache.
+     *
+     * @param  maxEntries  maximum number of digests to cache.
+     */
+    public FileDigestCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.keyToEntryMap =
+                new LinkedHashMap<String, CachedDigest>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, CachedDigest> eldest) {
+                return size() > FileDigestCache.this.maxEntries;
+            }
+        };
+        this.saveLock = new Object();
+        this.cacheFile = null;
+        this.unsavedChangeCount = 0;
+        this.hitCount = 0;
+        this.missCount = 0;
+    }
+
+    /**
+     * @return true if this cache has been loaded and can be used.
+     */
+    public synchronized boolean isEnabled() {
+        return (cacheFile != null);
+    }
+
+    /**
+     * @return number of cached digests.
+     */
+    public synchronized int size() {
+        return keyToEntryMap.size();
+    }
+
+    /**
+     * @return number of successful lookups since this cache was loaded.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of failed lookups since this cache was loaded.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Enables this cache, loading any previously saved digests from
+     * the {@link #FILE_NAME} file in the specified directory.
+     * Unsaved changes are written back to the same file whenever
+     * enough changes accumulate and when the JVM shuts down.
+     *
+     * @param  directory  directory containing the cache file.
+     */
+    public synchronized void load(File directory) {
+
+        final boolean isFirstLoad = (cacheFile == null);
+
+        cacheFile = new File(directory, FILE_NAME);
+        keyToEntryMap.clear();
+        unsavedChangeCount = 0;
+        hitCount = 0;
+        missCount = 0;
+
+        if (cacheFile.exists()) {
+            BufferedReader reader = null;
+            try {
+                reader = new BufferedReader(new FileReader(cacheFile));
+                String line;
+                CachedDigest entry;
+                while ((line = reader.readLine()) != null) {
+                    entry = CachedDigest.fromLine(line);
+                    if (entry != null) {
+                        keyToEntryMap.put(entry.getKey(), entry);
+                    }
+                }
+                LOG.info("load: loaded " + keyToEntryMap.size() +
+                         " digests from " + cacheFile.getAbsolutePath());
+            } catch (IOException e) {
+                LOG.warn("load: failed to load digests from " +
+                         cacheFile.getAbsolutePath() + ", ignoring error", e);
+                keyToEntryMap.clear();
+            } finally {
+                close(reader);
+            }
+        }
+
+        if (isFirstLoad) {
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(this::save, "digest-cache-save"));
+        }
+    }
+
+    /**
+     * @param  file             file to check.
+     * @param  digestAlgorithm  name of digest algorithm.
+     *
+     * @return the cached digest for the specified file or null if no
+     *         digest was cached or the file has changed since the
+     *         digest was calculated.
+     */
+    public DigestBytes get(File file,
+                           String digestAlgorithm) {
+        DigestBytes digestBytes = null;
+        if (isEnabled() && (digestAlgorithm != null)) {
+
+            CachedDigest current = null;
+            try {
+                current = new CachedDigest(digestAlgorithm, file, null);
+            } catch (IOException e) {
+                LOG.warn("get: failed to check cache for " +
+                         file.getAbsolutePath() + ", ignoring error", e);
+            }
+
+            synchronized (this) {
+                if (current != null) {
+                    final CachedDigest cached =
+                            keyToEntryMap.get(current.getKey());
+                    if (current.matches(cached)) {
+                        digestBytes = cached.digestBytes;
+                    } else if (cached != null) {
+                        keyToEntryMap.remove(current.getKey());
+                        unsavedChangeCount++;
+                    }
+                }
+
+                if (digestBytes == null) {
+                    missCount++;
+                } else {
+                    hitCount++;
+                }
+            }
+        }
+        return digestBytes;
+    }
+
+    /**
+     * Adds the specified digest to this cache if the file has not been
+     * modified since the digest calculation started.
+     *
+     * @param  file                 file that was read.
+     * @param  digestAlgorithm      name of digest algorithm.
+     * @param  digestBytes          calculated digest.
+     * @param  calculationStartTime time (in milliseconds) when the digest
+     *                              calculation started.
+     */
+    public void put(File file,
+                    String digestAlgorithm,
+                    DigestBytes digestBytes,
+                    long calculationStartTime) {
+
+        boolean isSaveNeeded = false;
+
+        if (isEnabled() &&
+            (digestAlgorithm != null) &&
+            (digestBytes != null)) {
+
+            CachedDigest entry = null;
+            try {
+                entry = new CachedDigest(digestAlgorithm, file, digestBytes);
+            } catch (IOException e) {
+                LOG.warn("put: failed to cache digest for " +
+                         file.getAbsolutePath() + ", ignoring error", e);
+            }
+
+            if ((entry != null) &&
+                ((entry.lastModified + MODIFICATION_TIME_MARGIN) <
+                 calculationStartTime)) {
+                synchronized (this) {
+                    keyToEntryMap.put(entry.getKey(), entry);
+                    unsavedChangeCount++;
+                    isSaveNeeded = (unsavedChangeCount >= CHANGES_PER_SAVE);
+                }
+            }
+        }
+
+        if (isSaveNeeded) {
+            save();
+        }
+    }
+
+    /**
+     * Writes any unsaved changes to the cache file
+     * (if the cache directory still exists).  The cache is written
+     * from a snapshot, so it remains usable while the file is written.
+     */
+    public void save() {
+
+        // only one thread writes the (temporary) cache file at a time
+        synchronized (saveLock) {
+
+            File savedCacheFile = null;
+            List<CachedDigest> entries = null;
+            int savedChangeCount = 0;
+
+            synchronized (this) {
+                if (isEnabled() && (unsavedChangeCount > 0)) {
+                    savedCacheFile = cacheFile;
+                    entries = new ArrayList<CachedDigest>(
+                            keyToEntryMap.values());
+                    savedChangeCount = unsavedChangeCount;
+                }
+            }
+
+            if ((savedCacheFile != null) &&
+                savedCacheFile.getParentFile().isDirectory()) {
+                if (write(savedCacheFile, entries)) {
+                    synchronized (this) {
+                        // keep changes made while the file was written
+                        if (savedCacheFile.equals(cacheFile)) {
+                            unsavedChangeCount =
+                                    Math.max(0, unsavedChangeCount -
+                                                savedChangeCount);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FileDigestCache{" +
+               "cacheFile=" + cacheFile +
+               ", size=" + keyToEntryMap.size() +
+               ", maxEntries=" + maxEntries +
+               ", hitCount=" + hitCount +
+               ", missCount=" + missCount +
+               '}';
+    }
+
+    /**
+     * Replaces the specified cache file with the specified entries.
+     *
+     * @param  file     cache file to write.
+     * @param  entries  entries to write.
+     *
+     * @return true if the file was written; otherwise false.
+     */
+    private static boolean write(File file,
+                                 List<CachedDigest> entries) {
+
+        boolean isWritten = false;
+
+        final File tempFile = new File(file.getParentFile(),
+                                       file.getName() + ".tmp");
+        BufferedWriter writer = null;
+        try {
+            writer = new BufferedWriter(new FileWriter(tempFile));
+            for (CachedDigest entry : entries) {
+                writer.write(entry.toLine());
+                writer.newLine();
+            }
+            writer.close();
+            writer = null;
+
+            if (file.exists() && (! file.delete())) {
+                throw new IOException("failed to remove " +
+                                      file.getAbsolutePath());
+            }
+            if (! tempFile.renameTo(file)) {
+                throw new IOException("failed to rename " +
+                                      tempFile.getAbsolutePath());
+            }
+
+            isWritten = true;
+            LOG.info("save: saved " + entries.size() +
+                     " digests to " + file.getAbsolutePath());
+
+        } catch (IOException e) {
+            LOG.warn("save: failed to save digests to " +
+                     file.getAbsolutePath() + ", ignoring error", e);
+        } finally {
+            close(writer);
+        }
+
+        return isWritten;
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                LOG.warn("close failed, ignoring error", e);
+            }
+        }
+    }
+
+    /**
+     * A cached digest along with the file attributes that
+     * identify the version of the file it was calculated from.
+     */
+    private static class CachedDigest {
+
+        private static final String SEPARATOR = "\t";
+
+        private String digestAlgorithm;
+        private String canonicalPath;
+        private long size;
+        private long lastModified;
+        private String fileKey;
+        private DigestBytes digestBytes;
+
+        private CachedDigest() {
+        }
+
+        public CachedDigest(String digestAlgorithm,
+                            File file,
+                            DigestBytes digestBytes)
+                throws IOException {
+            final BasicFileAttributes attributes =
+                    Files.readAttributes(file.toPath(),
+                                         BasicFileAttributes.class);
+            final Object key = attributes.fileKey();
+
+            this.digestAlgorithm = digestAlgorithm.toLowerCase();
+            this.canonicalPath = file.getCanonicalPath();
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.fileKey = (key == null) ? "" : key.toString();
+            this.digestBytes = digestBytes;
+        }
+
+        public String getKey() {
+            return digestAlgorithm + SEPARATOR + canonicalPath;
+        }
+
+        public boolean matches(CachedDigest cached) {
+            return (cached != null) &&
+                   (size == cached.size) &&
+                   (lastModified == cached.lastModified) &&
+                   fileKey.equals(cached.fileKey);
+        }
+
+        public String toLine() {
+            return digestAlgorithm + SEPARATOR +
+                   size + SEPARATOR +
+                   lastModified + SEPARATOR +
+                   fileKey + SEPARATOR +
+                   digestBytes.toHex() + SEPARATOR +
+                   canonicalPath;
+        }
+
+        public static CachedDigest fromLine(String line) {
+            CachedDigest entry = null;
+            final String[] values = line.split(SEPARATOR, 6);
+            if (values.length == 6) {
+                try {
+                    entry = new CachedDigest();
+                    entry.digestAlgorithm = values[0];
+                    entry.size = Long.parseLong(values[1]);
+                    entry.lastModified = Long.parseLong(values[2]);
+                    entry.fileKey = values[3];
+                    entry.digestBytes = DigestBytes.fromHex(values[4]);
+                    entry.canonicalPath = values[5];
+                } catch (IllegalArgumentException e) {
+                    LOG.warn("fromLine: ignoring invalid entry '" + line + "'");
+                    entry = null;
+                }
+            }
+            return entry;
+        }
+    }
+
+    private static final Logger LOG = Logger.getLogger(FileDigestCache.class);
+}
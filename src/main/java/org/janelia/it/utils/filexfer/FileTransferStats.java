@@ -16,26 +16,53 @@ public class FileTransferStats {
 
     private long bytesProcessed;
     private long duration;
+    private long syncDuration;
 
     public FileTransferStats(long bytesProcessed,
                              long duration) {
+        this(bytesProcessed, duration, 0);
+    }
+
+    /**
+     * @param  bytesProcessed  number of bytes transferred.
+     * @param  duration        total transfer time in milliseconds.
+     * @param  syncDuration    milliseconds (included in the total duration)
+     *                         spent forcing data to storage.
+     */
+    public FileTransferStats(long bytesProcessed,
+                             long duration,
+                             long syncDuration) {
         this.bytesProcessed = bytesProcessed;
         this.duration = duration;
+        this.syncDuration = syncDuration;
     }
 
     public double getDurationSeconds() {
         return duration / 1000.0;
     }
+
+    public double getSyncDurationSeconds() {
+        return syncDuration / 1000.0;
+    }
     
     public long getBytesProcessed() {
         return bytesProcessed;
     }
 
+    /**
+     * @return average throughput of the transfer in bytes per second.
+     */
+    public double getBytesPerSecond() {
+        // guard against divide by zero for transfers faster than the clock
+        return (bytesProcessed * 1000.0) / Math.max(1, duration);
+    }
+
     @Override
     public String toString() {
         return "FileTransferStats{" +
                "bytesProcessed=" + bytesProcessed +
                ", duration=" + duration +
+               ", syncDuration=" + syncDuration +
                '}';
     }
 }
\ No newline at end of file
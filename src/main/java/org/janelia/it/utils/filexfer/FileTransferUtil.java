@@ -10,14 +10,35 @@ package org.janelia.it.utils.filexfer;
 import org.apache.log4j.Logger;
 
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This utility supports file transfer and file digest calculation/validation
@@ -51,15 +72,77 @@ public class FileTransferUtil {
     public static final int MAX_TRANSFER_COUNT =
             (64 * 1024 * 1024) - (32 * 1024);
 
+    /**
+     * Maximum number of bytes to transfer with each channel transfer
+     * when throughput is limited by the {@link TransferScheduler}.
+     */
+    public static final int THROTTLED_TRANSFER_COUNT = 4 * 1024 * 1024;
+
     /**
      * Number of milliseconds to wait between digest calculation retry attempts.
      */
     public static final long DIGEST_CALCULATION_RETRY_WAIT = 1000;
 
+    /**
+     * Minimum number of buffers needed for pipelined (overlapped read
+     * and write/digest) transfers.
+     */
+    public static final int MIN_PIPELINE_BUFFER_COUNT = 2;
+
+    /**
+     * Default minimum file size (in bytes) for memory mapped
+     * digest calculation.
+     */
+    public static final long DEFAULT_MAPPED_DIGEST_THRESHOLD = 64 * 1024 * 1024;
+
+    /** Minimum chunk size for resumable transfers. */
+    public static final long MIN_RESUMABLE_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Number of times a resumable transfer is attempted (resuming from
+     * the last completed chunk) before a copy fails.
+     */
+    public static final int RESUMABLE_TRANSFER_ATTEMPTS = 3;
+
+    /**
+     * Default minimum number of milliseconds between progress
+     * notifications for a copy.
+     */
+    public static final long DEFAULT_PROGRESS_INTERVAL = 250;
+
+    /**
+     * Policies for syncing (forcing to storage) copied files.
+     */
+    public enum SyncPolicy {
+        /** Leave syncing to the operating system. */
+        NONE,
+        /** Sync each file (and its directory) before the copy completes. */
+        FILE,
+        /** Sync files in batches (see {@link SyncBatch}). */
+        BATCH
+    }
+
     private int bufferSize;
     private String digestAlgorithm;
+    private int pipelineBufferCount;
+    private long mappedDigestThreshold;
+    private boolean zeroCopyTransfer;
+    private long resumableChunkSize;
+    private boolean preallocateTarget;
+    private SyncPolicy syncPolicy;
+    private SyncBatch syncBatch;
+    private TransferProgressListener progressListener;
+    private long progressInterval;
+    private TransferProgress transferProgress;
+    private BufferSizeTuner bufferSizeTuner;
+    private TransferScheduler transferScheduler;
+    private Object transferSession;
+    private BufferPool bufferPool;
     private MessageDigest digest;
     private DigestBytes digestBytes;
+    private List<String> auditDigestAlgorithms;
+    private List<MessageDigest> auditDigests;
+    private Map<String, DigestBytes> copyDigests;
     private FileTransferStats stats;
 
     /**
@@ -81,160 +164,1485 @@ public class FileTransferUtil {
                             String digestAlgorithm)
             throws IllegalArgumentException, NoSuchAlgorithmException {
 
-        if (bufferSize < MIN_BUFFER_SIZE) {
-            throw new IllegalArgumentException(
-                    "Invalid buffer size (" + bufferSize +
-                    " bytes) specified.  Values must be greater than " +
-                    MIN_BUFFER_SIZE + " bytes.");
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException(
+                    "Invalid buffer size (" + bufferSize +
+                    " bytes) specified.  Values must be greater than " +
+                    MIN_BUFFER_SIZE + " bytes.");
+        }
+
+        this.bufferSize = bufferSize;
+        this.digestAlgorithm = digestAlgorithm;
+        this.digest = DigestAlgorithms.getMessageDigest(digestAlgorithm);
+        this.pipelineBufferCount = 0;
+        this.mappedDigestThreshold = DEFAULT_MAPPED_DIGEST_THRESHOLD;
+        this.zeroCopyTransfer = false;
+        this.resumableChunkSize = 0;
+        this.preallocateTarget = false;
+        this.syncPolicy = SyncPolicy.NONE;
+        this.syncBatch = null;
+        this.progressListener = null;
+        this.progressInterval = DEFAULT_PROGRESS_INTERVAL;
+        this.transferProgress = null;
+        this.bufferSizeTuner = null;
+        this.transferScheduler = TransferScheduler.getInstance();
+        this.transferSession = this;
+        this.bufferPool = BufferPool.getInstance();
+        this.auditDigestAlgorithms = new ArrayList<String>();
+        this.auditDigests = new ArrayList<MessageDigest>();
+        this.copyDigests = Collections.emptyMap();
+        this.stats = null;
+    }
+
+    /**
+     * @return the number of buffers used for pipelined transfers or
+     *         zero if pipelining is disabled.
+     */
+    public int getPipelineBufferCount() {
+        return pipelineBufferCount;
+    }
+
+    /**
+     * Enables pipelined transfers for digest calculating copies.
+     * When enabled, the next chunk of the source file is read while the
+     * previous chunk is written and added to the digest by another thread.
+     * Two buffers (double buffering) are enough to overlap reads with
+     * writes, a third buffer helps smooth out variations in read and
+     * write latency.
+     *
+     * @param  pipelineBufferCount  number of buffers to use or zero to
+     *                              disable pipelining.
+     *
+     * @throws IllegalArgumentException
+     *   if a non-zero count smaller than {@link #MIN_PIPELINE_BUFFER_COUNT}
+     *   is specified.
+     */
+    public void setPipelineBufferCount(int pipelineBufferCount)
+            throws IllegalArgumentException {
+
+        if ((pipelineBufferCount != 0) &&
+            (pipelineBufferCount < MIN_PIPELINE_BUFFER_COUNT)) {
+            throw new IllegalArgumentException(
+                    "Invalid pipeline buffer count (" + pipelineBufferCount +
+                    ") specified.  Values must be zero (disabled) or at least " +
+                    MIN_PIPELINE_BUFFER_COUNT + ".");
+        }
+
+        this.pipelineBufferCount = pipelineBufferCount;
+    }
+
+    /**
+     * @return minimum file size (in bytes) for memory mapped digest
+     *         calculation or a negative value if mapping is disabled.
+     */
+    public long getMappedDigestThreshold() {
+        return mappedDigestThreshold;
+    }
+
+    /**
+     * Digests for files with at least the specified number of bytes are
+     * calculated by mapping the file into memory (see
+     * {@link MappedDigestEngine}) instead of reading it through a
+     * heap buffer.
+     *
+     * @param  mappedDigestThreshold  minimum file size for mapping or
+     *                                a negative value to disable mapping.
+     */
+    public void setMappedDigestThreshold(long mappedDigestThreshold) {
+        this.mappedDigestThreshold = mappedDigestThreshold;
+    }
+
+    /**
+     * @return true if digest calculating copies use the zero copy
+     *         transfer path; otherwise false.
+     */
+    public boolean isZeroCopyTransfer() {
+        return zeroCopyTransfer;
+    }
+
+    /**
+     * Enables zero copy transfers for digest calculating copies.
+     * When enabled, data is moved with {@link FileChannel#transferTo}
+     * (allowing the kernel to copy without user space buffers) while
+     * the source digests are calculated concurrently from a memory
+     * mapped read of the source file (see {@link MappedDigestEngine}).
+     * Zero copy transfers take precedence over pipelined transfers.
+     *
+     * @param  zeroCopyTransfer  true to enable zero copy transfers.
+     */
+    public void setZeroCopyTransfer(boolean zeroCopyTransfer) {
+        this.zeroCopyTransfer = zeroCopyTransfer;
+    }
+
+    /**
+     * @return chunk size for resumable transfers or zero if
+     *         resumable transfers are disabled.
+     */
+    public long getResumableChunkSize() {
+        return resumableChunkSize;
+    }
+
+    /**
+     * Enables resumable transfers for files larger than the specified
+     * chunk size.  Resumable transfers force each chunk to storage and
+     * record it in a {@link TransferJournal} kept next to the target file.
+     * When a resumable transfer fails, the partial target file and its
+     * journal are kept and the transfer is retried (up to
+     * {@link #RESUMABLE_TRANSFER_ATTEMPTS} times) from the last completed
+     * chunk.  Later copies of the same (unchanged) source to the same
+     * target (e.g. after an application restart) also continue from
+     * the last completed chunk.  The journal is removed once the
+     * transfer completes.  Resumable transfers take precedence over
+     * zero copy and pipelined transfers.
+     *
+     * @param  resumableChunkSize  size of each chunk or zero to disable
+     *                             resumable transfers.
+     *
+     * @throws IllegalArgumentException
+     *   if a non-zero size smaller than {@link #MIN_RESUMABLE_CHUNK_SIZE}
+     *   is specified.
+     */
+    public void setResumableChunkSize(long resumableChunkSize)
+            throws IllegalArgumentException {
+
+        if ((resumableChunkSize != 0) &&
+            (resumableChunkSize < MIN_RESUMABLE_CHUNK_SIZE)) {
+            throw new IllegalArgumentException(
+                    "Invalid resumable chunk size (" + resumableChunkSize +
+                    " bytes) specified.  Values must be zero (disabled) or " +
+                    "at least " + MIN_RESUMABLE_CHUNK_SIZE + " bytes.");
+        }
+
+        this.resumableChunkSize = resumableChunkSize;
+    }
+
+    /**
+     * @return true if copy targets are extended to the source file's
+     *         size before any data is written; otherwise false.
+     */
+    public boolean isPreallocateTarget() {
+        return preallocateTarget;
+    }
+
+    /**
+     * Java does not provide a portable way to reserve file blocks,
+     * so preallocation sets the target file's final length before any
+     * data is written.  This lets file systems that allocate space
+     * when a file is extended (including many network file systems)
+     * lay the target out in one piece instead of growing it with
+     * each write.  File systems that create sparse files simply
+     * avoid repeated size updates.  Preallocation does not apply to
+     * resumable transfers (whose target length tracks the journal).
+     *
+     * @param  preallocateTarget  true to preallocate copy targets.
+     */
+    public void setPreallocateTarget(boolean preallocateTarget) {
+        this.preallocateTarget = preallocateTarget;
+    }
+
+    /**
+     * @return the policy for syncing copied files.
+     */
+    public SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    /**
+     * @return the batch used by the {@link SyncPolicy#BATCH} policy
+     *         (or null if files are not synced in batches).
+     */
+    public SyncBatch getSyncBatch() {
+        return syncBatch;
+    }
+
+    /**
+     * Sets the policy for syncing copied files.  Batched syncing
+     * trades durability for latency since files are not synced until
+     * their batch is full, so callers that remove source files should
+     * sync the batch before doing so (or accept the risk).
+     * Resumable transfers always sync each chunk.
+     *
+     * @param  syncPolicy  policy for syncing copied files.
+     * @param  syncBatch   batch for the {@link SyncPolicy#BATCH} policy
+     *                     (may be shared by several instances) or null
+     *                     to use a private batch with default limits.
+     */
+    public void setSyncPolicy(SyncPolicy syncPolicy,
+                              SyncBatch syncBatch) {
+        this.syncPolicy = syncPolicy;
+        if (syncPolicy == SyncPolicy.BATCH) {
+            if (syncBatch == null) {
+                this.syncBatch = new SyncBatch(SyncBatch.DEFAULT_MAX_FILE_COUNT,
+                                               SyncBatch.DEFAULT_MAX_BYTES);
+            } else {
+                this.syncBatch = syncBatch;
+            }
+        } else {
+            this.syncBatch = null;
+        }
+    }
+
+    /**
+     * @return the listener notified about copy progress
+     *         (or null if progress is not reported).
+     */
+    public TransferProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * Registers a listener to be notified about the progress of copies.
+     * Notifications are made as data is written, but no more frequently
+     * than the specified interval (except for the final notification
+     * of each copy).  Moves within a file store are not reported.
+     *
+     * @param  progressListener  listener to notify or null to
+     *                           disable progress reporting.
+     * @param  progressInterval  minimum number of milliseconds between
+     *                           notifications for a copy.
+     */
+    public void setProgressListener(TransferProgressListener progressListener,
+                                    long progressInterval) {
+        this.progressListener = progressListener;
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * @return the tuner used to select buffer sizes for buffered
+     *         copies or null if the configured buffer size is always used.
+     */
+    public BufferSizeTuner getBufferSizeTuner() {
+        return bufferSizeTuner;
+    }
+
+    /**
+     * Enables buffer size auto-tuning for digest calculating copies that
+     * use transfer buffers (zero copy transfers do not).  The tuner
+     * selects the buffer size for each copy based upon the target file
+     * store and is informed of the throughput of each copy.  The
+     * buffer size specified at construction is used for validation
+     * and whenever the tuner does not have a size to offer.
+     *
+     * @param  bufferSizeTuner  tuner to use or null to disable tuning.
+     */
+    public void setBufferSizeTuner(BufferSizeTuner bufferSizeTuner) {
+        this.bufferSizeTuner = bufferSizeTuner;
+    }
+
+    /**
+     * Sets the scheduler that coordinates this instance's copies with
+     * other transfers (by default, the scheduler shared by the JVM).
+     *
+     * @param  transferScheduler  scheduler for copies.
+     */
+    public void setTransferScheduler(TransferScheduler transferScheduler) {
+        this.transferScheduler = transferScheduler;
+    }
+
+    /**
+     * Identifies the session that owns this instance's copies so that
+     * the {@link TransferScheduler} can share file stores fairly between
+     * sessions.  By default, each instance is its own session.
+     *
+     * @param  transferSession  session object (compared by identity).
+     */
+    public void setTransferSession(Object transferSession) {
+        this.transferSession = transferSession;
+    }
+
+    /**
+     * Sets the pool that supplies this instance's transfer and digest
+     * buffers (by default, the pool shared by the JVM).
+     *
+     * @param  bufferPool  pool for buffers.
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * @return names of the additional digest algorithms calculated
+     *         during copies.
+     */
+    public List<String> getAuditDigestAlgorithms() {
+        return Collections.unmodifiableList(auditDigestAlgorithms);
+    }
+
+    /**
+     * Identifies additional digests to calculate from the same buffers
+     * (in the same pass) as this instance's digest when files are copied.
+     * This allows audit digests (e.g. an md5 for a database) to be
+     * captured without re-reading files that are validated with a
+     * cheaper algorithm.  Algorithms that match this instance's digest
+     * algorithm or {@link DigestAlgorithms#NONE} are ignored.
+     *
+     * @param  algorithms  names of additional digest algorithms.
+     *
+     * @throws NoSuchAlgorithmException
+     *   if any of the algorithms are invalid.
+     */
+    public void setAuditDigestAlgorithms(List<String> algorithms)
+            throws NoSuchAlgorithmException {
+
+        final List<String> names = new ArrayList<String>();
+        final List<MessageDigest> digests = new ArrayList<MessageDigest>();
+        MessageDigest auditDigest;
+        for (String algorithm : algorithms) {
+            if ((! algorithm.equalsIgnoreCase(digestAlgorithm)) &&
+                (! names.contains(algorithm))) {
+                auditDigest = DigestAlgorithms.getMessageDigest(algorithm);
+                if (auditDigest != null) {
+                    names.add(algorithm);
+                    digests.add(auditDigest);
+                }
+            }
+        }
+
+        this.auditDigestAlgorithms = names;
+        this.auditDigests = digests;
+    }
+
+    /**
+     * @return map of algorithm names to source file digests calculated
+     *         during the last copy (including this instance's digest and
+     *         any audit digests) or an empty map if no digests were
+     *         calculated.
+     */
+    public Map<String, DigestBytes> getCopyDigests() {
+        return copyDigests;
+    }
+
+    /**
+     * Copies fromFile to toFile, logging completion statistics.
+     * If validation is requested, the digests of both files are compared after
+     * the copy completes.  If the digests do not match, the toFile is
+     * removed and an exception is thrown.
+     *
+     * @param  fromFile      source file to copy.
+     *
+     * @param  toFile        target file for copy.
+     *
+     * @param  validateCopy  indicates whether toFile digest should be
+     *                       checked after copy.
+     *
+     * @throws IOException
+     *   if validation was requested and the fromFile and toFile digests
+     *   do not match after completing the copy.  This exception will also
+     *   be thrown if any other errors occur during the copy.
+     */
+    public void copyAndValidate(File fromFile,
+                                File toFile,
+                                boolean validateCopy)
+            throws IOException {
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info(getCopyStartMessage(fromFile, toFile));
+        }
+
+        final DigestBytes fromDigest = copy(fromFile, toFile);
+        final FileTransferStats copyStats = stats;
+
+        if (validateCopy && (fromDigest != null)) {
+            // always re-read the target (never use a cached digest)
+            final DigestBytes toDigest = calculateDigest(toFile, 1);
+            if (! fromDigest.equals(toDigest)) {
+                deleteInvalidCopyAndThrowException(fromFile,
+                                                   toFile,
+                                                   fromDigest);
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info(getSuccessfulCopyMessage(fromFile,
+                                              toFile,
+                                              copyStats,
+                                              validateCopy));
+        }
+    }
+
+
+    /**
+     * Atomically moves (renames) fromFile to toFile if both files are
+     * located on the same file store.  If validation is requested,
+     * the fromFile digest is taken before the move (from the shared
+     * {@link FileDigestCache} when possible) and compared with the
+     * digest of the moved file.  If the digests do not match, the file
+     * is moved back and an exception is thrown.
+     *
+     * @param  fromFile      source file to move.
+     *
+     * @param  toFile        target file for move.
+     *
+     * @param  validateMove  indicates whether toFile digest should be
+     *                       checked after the move.
+     *
+     * @return true if the file was moved; false if the files are on
+     *         different file stores (or the file store does not support
+     *         atomic moves) and the file must be copied instead.
+     *
+     * @throws IOException
+     *   if validation was requested and the fromFile and toFile digests
+     *   do not match after completing the move.  This exception will also
+     *   be thrown if any other errors occur during the move.
+     */
+    public boolean moveAndValidate(File fromFile,
+                                   File toFile,
+                                   boolean validateMove)
+            throws IOException {
+
+        boolean isMoved = false;
+
+        if (isSameFileStore(fromFile, toFile)) {
+
+            // moves are cheaper than resuming an earlier partial copy
+            if (TransferJournal.isIncompleteTransfer(toFile)) {
+                LOG.info("moveAndValidate: discarding incomplete transfer " +
+                         toFile.getAbsolutePath());
+                if (toFile.delete()) {
+                    //noinspection ResultOfMethodCallIgnored
+                    TransferJournal.getJournalFile(toFile).delete();
+                }
+            }
+
+            if (toFile.exists()) {
+                throw new IOException(toFile.getAbsolutePath() +
+                                      " already exists");
+            }
+
+            final long startTime = System.currentTimeMillis();
+
+            digestBytes = null;
+            copyDigests = Collections.emptyMap();
+
+            final FileDigestCache cache = FileDigestCache.getInstance();
+            final Map<String, DigestBytes> digests =
+                    new LinkedHashMap<String, DigestBytes>();
+
+            DigestBytes fromDigest = null;
+            if (validateMove && (digest != null)) {
+                fromDigest = calculateDigest(fromFile);
+                digests.put(digestAlgorithm, fromDigest);
+            }
+
+            // moves don't read the file, so only cached audit digests are kept
+            DigestBytes auditDigestBytes;
+            for (String algorithm : auditDigestAlgorithms) {
+                auditDigestBytes = cache.get(fromFile, algorithm);
+                if (auditDigestBytes != null) {
+                    digests.put(algorithm, auditDigestBytes);
+                }
+            }
+
+            File parent = toFile.getParentFile();
+            if (parent != null) {
+                //noinspection ResultOfMethodCallIgnored
+                parent.mkdirs();
+            }
+
+            try {
+                Files.move(fromFile.toPath(),
+                           toFile.toPath(),
+                           StandardCopyOption.ATOMIC_MOVE);
+                isMoved = true;
+            } catch (AtomicMoveNotSupportedException e) {
+                LOG.info("moveAndValidate: atomic move of " +
+                         fromFile.getAbsolutePath() + " to " +
+                         toFile.getAbsolutePath() +
+                         " is not supported, file will be copied instead");
+            }
+
+            if (isMoved) {
+
+                final FileTransferStats moveStats =
+                        new FileTransferStats(toFile.length(),
+                                              System.currentTimeMillis() -
+                                              startTime);
+
+                if (fromDigest != null) {
+                    // always re-read the target (never use a cached digest)
+                    final DigestBytes toDigest = calculateDigest(toFile, 1);
+                    if (! fromDigest.equals(toDigest)) {
+                        moveBackAndThrowException(fromFile,
+                                                  toFile,
+                                                  fromDigest);
+                    }
+                }
+
+                for (String algorithm : digests.keySet()) {
+                    cache.put(toFile, algorithm, digests.get(algorithm), startTime);
+                }
+
+                digestBytes = fromDigest;
+                copyDigests = Collections.unmodifiableMap(digests);
+
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(getSuccessfulMoveMessage(fromFile,
+                                                      toFile,
+                                                      moveStats));
+                }
+
+                stats = moveStats;
+            }
+        }
+
+        return isMoved;
+    }
+
+    /**
+     * @param  fromFile  source file.
+     * @param  toFile    target file (that may not exist yet).
+     *
+     * @return true if the fromFile and the nearest existing parent
+     *         directory of the toFile are on the same file store;
+     *         otherwise false.
+     */
+    public static boolean isSameFileStore(File fromFile,
+                                          File toFile) {
+        boolean isSame = false;
+
+        final File toDirectory = getNearestExistingParent(toFile);
+        if ((toDirectory != null) && fromFile.exists()) {
+            try {
+                isSame = Files.getFileStore(fromFile.toPath()).equals(
+                        Files.getFileStore(toDirectory.toPath()));
+            } catch (IOException e) {
+                LOG.warn("isSameFileStore: failed to compare file stores for " +
+                         fromFile.getAbsolutePath() + " and " +
+                         toDirectory.getAbsolutePath() + ", ignoring error", e);
+            }
+        }
+
+        return isSame;
+    }
+
+    /**
+     * @param  file  file or directory (that may not exist yet).
+     *
+     * @return key identifying the file store of the specified file
+     *         (or its nearest existing parent directory if the file does
+     *         not exist) or null if the file store cannot be determined.
+     */
+    public static String getFileStoreKey(File file) {
+        String key = null;
+
+        File existingFile = file.getAbsoluteFile();
+        if (! existingFile.exists()) {
+            existingFile = getNearestExistingParent(existingFile);
+        }
+
+        if (existingFile != null) {
+            try {
+                // toString includes the mount point (or volume label),
+                // name() alone is not unique on all platforms
+                key = Files.getFileStore(existingFile.toPath()).toString();
+            } catch (IOException e) {
+                LOG.warn("getFileStoreKey: failed to find file store for " +
+                         existingFile.getAbsolutePath() +
+                         ", ignoring error", e);
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * @param  file  file (that may not exist yet).
+     *
+     * @return the nearest existing parent directory of the specified
+     *         file or null if none exists.
+     */
+    static File getNearestExistingParent(File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        while ((directory != null) && (! directory.exists())) {
+            directory = directory.getParentFile();
+        }
+        return directory;
+    }
+    /**
+     * Copies fromFile to toFile and then submits validation of the copy
+     * to the specified executor so that the caller can move on (e.g. to the
+     * next copy) while toFile is re-read.  The returned future completes
+     * once the digests of both files have been compared.  If the digests
+     * do not match, the toFile is removed and the future fails with an
+     * {@link IOException}.
+     *
+     * @param  fromFile            source file to copy.
+     *
+     * @param  toFile              target file for copy.
+     *
+     * @param  validationExecutor  executor for validation work.
+     *
+     * @return future for the validated source digest (or a completed future
+     *         with a null result if this instance does not have a digest
+     *         algorithm).
+     *
+     * @throws IOException
+     *   if any errors occur during the copy.
+     */
+    public Future<DigestBytes> copyAndStartValidation(final File fromFile,
+                                                      final File toFile,
+                                                      ExecutorService validationExecutor)
+            throws IOException {
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info(getCopyStartMessage(fromFile, toFile));
+        }
+
+        final DigestBytes fromDigest = copy(fromFile, toFile);
+        final FileTransferStats copyStats = stats;
+
+        final Future<DigestBytes> validation;
+        if (fromDigest == null) {
+
+            if (LOG.isInfoEnabled()) {
+                LOG.info(getSuccessfulCopyMessage(fromFile,
+                                                  toFile,
+                                                  copyStats,
+                                                  false));
+            }
+            validation = CompletableFuture.completedFuture(null);
+
+        } else {
+
+            // validate with a separate instance since instances
+            // are not thread safe
+            final FileTransferUtil validator;
+            try {
+                validator = new FileTransferUtil(bufferSize, digestAlgorithm);
+                validator.setMappedDigestThreshold(mappedDigestThreshold);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("failed to create validator", e);
+            }
+
+            validation = validationExecutor.submit(() -> {
+                final DigestBytes toDigest = validator.calculateDigest(toFile, 1);
+                if (! fromDigest.equals(toDigest)) {
+                    validator.deleteInvalidCopyAndThrowException(fromFile,
+                                                                 toFile,
+                                                                 fromDigest);
+                }
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(validator.getSuccessfulCopyMessage(fromFile,
+                                                                toFile,
+                                                                copyStats,
+                                                                true));
+                }
+                return fromDigest;
+            });
+
+        }
+
+        return validation;
+    }
+
+    /**
+     * Copies fromFile to toFile.
+     *
+     * @param  fromFile      source file to copy.
+     *
+     * @param  toFile        target file for copy.
+     *
+     * @return the calculated digest for the fromFile or null if
+     *         this instance does not have a digest algorithm.
+
+     * @throws IOException
+     *   if any errors occur during the copy.
+     */
+    public DigestBytes copy(File fromFile,
+                            File toFile)
+            throws IOException {
+
+        if ((resumableChunkSize > 0) &&
+            (fromFile.length() > resumableChunkSize)) {
+            return resumableCopy(fromFile, toFile);
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        long bytesProcessed = 0;
+
+        if (! fromFile.exists()) {
+            throw new IOException(fromFile.getAbsolutePath() +
+                                  " does not exist");
+        }
+
+        if (toFile.exists()) {
+            throw new IOException(toFile.getAbsolutePath() +
+                                  " already exists");
+        }
+
+        File parent = toFile.getParentFile();
+        if (parent != null) {
+            //noinspection ResultOfMethodCallIgnored
+            parent.mkdirs();
+        }
+
+        digestBytes = null;
+        copyDigests = Collections.emptyMap();
+        stats = null;
+
+        final TransferScheduler.Permit permit =
+                transferScheduler.acquire(transferSession, toFile);
+
+        // don't count time spent waiting for the scheduler
+        startTime = System.currentTimeMillis();
+
+        final boolean isBufferedCopy =
+                ((digest != null) || (auditDigests.size() > 0)) &&
+                (! zeroCopyTransfer);
+        String storeKey = null;
+        int copyBufferSize = bufferSize;
+        if (isBufferedCopy && (bufferSizeTuner != null)) {
+            storeKey = getFileStoreKey(toFile);
+            copyBufferSize = bufferSizeTuner.getBufferSize(storeKey,
+                                                           bufferSize);
+        }
+
+        FileInputStream fromStream = null;
+        FileOutputStream toStream = null;
+        try {
+            fromStream = new FileInputStream(fromFile);
+            FileChannel fromChannel = fromStream.getChannel();
+            toStream = new FileOutputStream(toFile);
+            FileChannel toChannel = toStream.getChannel();
+
+            final long size = fromChannel.size();
+            startProgress(fromFile, toFile, size);
+
+            if (preallocateTarget && (size > 0)) {
+                // extend target without moving the channel's position
+                toChannel.write(ByteBuffer.allocate(1), size - 1);
+            }
+
+            if ((digest != null) || (auditDigests.size() > 0)) {
+
+                resetDigests();
+
+                if (zeroCopyTransfer) {
+
+                    bytesProcessed = zeroCopy(fromChannel, toChannel, permit);
+
+                } else if (pipelineBufferCount > 0) {
+
+                    bytesProcessed = pipelinedCopy(fromChannel,
+                                                   toChannel,
+                                                   copyBufferSize,
+                                                   permit);
+
+                } else {
+
+                    final ByteBuffer buffer = bufferPool.lease(copyBufferSize);
+                    try {
+                        while (fromChannel.read(buffer) != -1) {
+                            buffer.flip();  // prepare buffer for reading by toChannel
+                            while (buffer.hasRemaining()) { // handle partial writes
+                                bytesProcessed += toChannel.write(buffer);
+                            }
+                            permit.throttle(buffer.limit());
+                            reportProgress(buffer.limit());
+                            buffer.rewind(); // reread for digest calculation
+                            updateDigests(buffer);
+                            buffer.clear(); // prepare for next read
+                        }
+                    } finally {
+                        bufferPool.release(buffer);
+                    }
+
+                }
+
+                completeDigests(fromFile, startTime);
+
+            } else {
+
+                bytesProcessed = transfer(fromChannel,
+                                          toChannel,
+                                          size,
+                                          permit);
+            }
+
+            if (preallocateTarget && (bytesProcessed < size)) {
+                // source shrank during the copy
+                toChannel.truncate(bytesProcessed);
+            }
+
+            final long syncDuration = syncTarget(toFile,
+                                                 toChannel,
+                                                 bytesProcessed);
+
+            stats = new FileTransferStats(bytesProcessed,
+                                          System.currentTimeMillis() -
+                                          startTime,
+                                          syncDuration);
+
+            completeProgress();
+
+        } finally {
+            transferProgress = null;
+            close(fromStream);
+            close(toStream);
+            permit.release();
+            if (storeKey != null) {
+                // null stats (failed copy) releases any trial for retry
+                bufferSizeTuner.recordTransfer(storeKey, copyBufferSize, stats);
+            }
+        }
+
+        return digestBytes;
+    }
+
+    /**
+     * Syncs the specified copy target as required by this instance's
+     * sync policy.
+     *
+     * @param  toFile          copy target.
+     * @param  toChannel       open channel for the target.
+     * @param  bytesProcessed  number of bytes copied.
+     *
+     * @return number of milliseconds spent syncing.
+     *
+     * @throws IOException
+     *   if the target cannot be synced.
+     */
+    private long syncTarget(File toFile,
+                            FileChannel toChannel,
+                            long bytesProcessed)
+            throws IOException {
+        long syncDuration = 0;
+        if (syncPolicy == SyncPolicy.FILE) {
+            final long syncStart = System.currentTimeMillis();
+            toChannel.force(true);
+            SyncBatch.syncDirectory(toFile.getAbsoluteFile().getParentFile());
+            syncDuration = System.currentTimeMillis() - syncStart;
+        } else if (syncPolicy == SyncPolicy.BATCH) {
+            syncDuration = syncBatch.add(toFile, bytesProcessed);
+        }
+        return syncDuration;
+    }
+
+    /**
+     * Copies fromFile to toFile in journaled chunks, continuing any
+     * incomplete transfer and retrying (from the last completed chunk)
+     * when errors occur.
+     *
+     * @param  fromFile  source file to copy.
+     * @param  toFile    target file for copy.
+     *
+     * @return the calculated digest for the fromFile or null if
+     *         this instance does not have a digest algorithm.
+     *
+     * @throws IOException
+     *   if the copy fails after all attempts.
+     */
+    private DigestBytes resumableCopy(File fromFile,
+                                      File toFile)
+            throws IOException {
+
+        if (! fromFile.exists()) {
+            throw new IOException(fromFile.getAbsolutePath() +
+                                  " does not exist");
+        }
+
+        if (toFile.exists() && (! TransferJournal.isIncompleteTransfer(toFile))) {
+            throw new IOException(toFile.getAbsolutePath() +
+                                  " already exists");
+        }
+
+        File parent = toFile.getParentFile();
+        if (parent != null) {
+            //noinspection ResultOfMethodCallIgnored
+            parent.mkdirs();
+        }
+
+        digestBytes = null;
+        copyDigests = Collections.emptyMap();
+        stats = null;
+
+        final TransferScheduler.Permit permit =
+                transferScheduler.acquire(transferSession, toFile);
+
+        final long startTime = System.currentTimeMillis();
+        long bytesProcessed = -1;
+        try {
+            startProgress(fromFile, toFile, fromFile.length());
+            for (int attempt = 1; bytesProcessed < 0; attempt++) {
+                try {
+                    bytesProcessed = resumeTransfer(fromFile, toFile, permit);
+                } catch (InterruptedIOException e) {
+                    throw e;
+                } catch (IOException e) {
+                    if (attempt >= RESUMABLE_TRANSFER_ATTEMPTS) {
+                        throw e;
+                    }
+                    LOG.warn("resumableCopy: attempt " + attempt + " to copy " +
+                             fromFile.getAbsolutePath() + " to " +
+                             toFile.getAbsolutePath() + " failed, resuming in " +
+                             DIGEST_CALCULATION_RETRY_WAIT + " milliseconds", e);
+                    try {
+                        Thread.sleep(DIGEST_CALCULATION_RETRY_WAIT);
+                    } catch (InterruptedException ie) {
+                        throw new InterruptedIOException(
+                                "interrupted before resuming copy of " +
+                                fromFile.getAbsolutePath());
+                    }
+                }
+            }
+            completeProgress();
+        } finally {
+            transferProgress = null;
+            permit.release();
+        }
+
+        if ((digest != null) || (auditDigests.size() > 0)) {
+            completeDigests(fromFile, startTime);
         }
 
-        this.bufferSize = bufferSize;
-        this.digestAlgorithm = digestAlgorithm;
-        this.digest = DigestAlgorithms.getMessageDigest(digestAlgorithm);
-        this.stats = null;
+        stats = new FileTransferStats(bytesProcessed,
+                                      System.currentTimeMillis() - startTime);
+
+        return digestBytes;
     }
 
     /**
-     * Copies fromFile to toFile, logging completion statistics.
-     * If validation is requested, the digests of both files are compared after
-     * the copy completes.  If the digests do not match, the toFile is
-     * removed and an exception is thrown.
-     *
-     * @param  fromFile      source file to copy.
+     * Makes one attempt to complete a resumable transfer.  Chunks that
+     * were completed by earlier attempts are re-read from the source
+     * (but not rewritten) so that this instance's digests cover the
+     * whole file.  If a completed chunk no longer matches the source,
+     * the transfer restarts from the beginning.
      *
-     * @param  toFile        target file for copy.
+     * @param  fromFile  source file to copy.
+     * @param  toFile    target file for copy.
+     * @param  permit    scheduler permit for the copy.
      *
-     * @param  validateCopy  indicates whether toFile digest should be
-     *                       checked after copy.
+     * @return number of bytes in the source file.
      *
      * @throws IOException
-     *   if validation was requested and the fromFile and toFile digests
-     *   do not match after completing the copy.  This exception will also
-     *   be thrown if any other errors occur during the copy.
+     *   if any errors occur during the attempt.
      */
-    public void copyAndValidate(File fromFile,
+    private long resumeTransfer(File fromFile,
                                 File toFile,
-                                boolean validateCopy)
+                                TransferScheduler.Permit permit)
             throws IOException {
 
-        if (LOG.isInfoEnabled()) {
-            LOG.info(getCopyStartMessage(fromFile, toFile));
+        final MessageDigest chunkDigest;
+        try {
+            chunkDigest = DigestAlgorithms.getMessageDigest(
+                    TransferJournal.CHUNK_DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(
+                    "chunk digest algorithm is not available", e);
         }
 
-        final DigestBytes fromDigest = copy(fromFile, toFile);
-        final FileTransferStats copyStats = stats;
+        final TransferJournal journal =
+                TransferJournal.open(fromFile, toFile, resumableChunkSize);
+
+        resetDigests();
+        restartProgress();
+
+        final ByteBuffer buffer = bufferPool.lease(bufferSize);
+        final long size;
+
+        try (FileChannel fromChannel = FileChannel.open(fromFile.toPath(),
+                                                        StandardOpenOption.READ);
+             FileChannel toChannel = FileChannel.open(toFile.toPath(),
+                                                      StandardOpenOption.CREATE,
+                                                      StandardOpenOption.WRITE)) {
+
+            size = fromChannel.size();
+            long position = 0;
+
+            for (TransferJournal.Chunk chunk : journal.getChunks()) {
+                chunkDigest.reset();
+                copyRange(fromChannel, null, position, chunk.getLength(),
+                          buffer, chunkDigest, permit);
+                if (! chunk.getDigest().equals(
+                        new DigestBytes(chunkDigest.digest()))) {
+                    LOG.warn("resumeTransfer: " + fromFile.getAbsolutePath() +
+                             " changed since chunk at offset " +
+                             chunk.getOffset() + " was copied, " +
+                             "restarting transfer");
+                    journal.restart();
+                    resetDigests();
+                    restartProgress();
+                    position = 0;
+                    break;
+                }
+                position += chunk.getLength();
+            }
 
-        if (validateCopy && (fromDigest != null)) {
-            final DigestBytes toDigest = calculateDigest(toFile);
-            if (! fromDigest.equals(toDigest)) {
-                deleteInvalidCopyAndThrowException(fromFile,
-                                                   toFile,
-                                                   fromDigest);
+            if (position > 0) {
+                LOG.info("resumeTransfer: resuming copy of " +
+                         fromFile.getAbsolutePath() + " to " +
+                         toFile.getAbsolutePath() + " at byte " + position +
+                         " of " + size);
+            }
+
+            // discard any partially written chunk
+            toChannel.truncate(position);
+
+            long chunkLength;
+            while (position < size) {
+                chunkLength = Math.min(resumableChunkSize, size - position);
+                chunkDigest.reset();
+                copyRange(fromChannel, toChannel, position, chunkLength,
+                          buffer, chunkDigest, permit);
+                toChannel.force(false);
+                journal.addChunk(position,
+                                 chunkLength,
+                                 new DigestBytes(chunkDigest.digest()));
+                position += chunkLength;
             }
+        } finally {
+            bufferPool.release(buffer);
         }
 
-        if (LOG.isInfoEnabled()) {
-            LOG.info(getSuccessfulCopyMessage(fromFile,
-                                              toFile,
-                                              copyStats,
-                                              validateCopy));
+        journal.delete();
+
+        return size;
+    }
+
+    /**
+     * Reads the specified range of the source, adding it to this instance's
+     * digests and the specified chunk digest.  If a target channel is
+     * specified, the range is also written to the same position in the
+     * target.
+     */
+    private void copyRange(FileChannel fromChannel,
+                           FileChannel toChannel,
+                           long position,
+                           long length,
+                           ByteBuffer buffer,
+                           MessageDigest chunkDigest,
+                           TransferScheduler.Permit permit)
+            throws IOException {
+
+        final long end = position + length;
+        long readPosition = position;
+        long writePosition;
+        int bytesRead;
+        while (readPosition < end) {
+            buffer.clear();
+            if ((end - readPosition) < buffer.capacity()) {
+                buffer.limit((int) (end - readPosition));
+            }
+            bytesRead = fromChannel.read(buffer, readPosition);
+            if (bytesRead < 0) {
+                throw new EOFException("source ended at byte " + readPosition +
+                                       " before expected end " + end);
+            }
+            buffer.flip();
+
+            if (toChannel != null) {
+                writePosition = readPosition;
+                while (buffer.hasRemaining()) { // handle partial writes
+                    writePosition += toChannel.write(buffer, writePosition);
+                }
+                permit.throttle(bytesRead);
+                buffer.rewind(); // reread for digest calculation
+            }
+
+            updateDigests(buffer);
+            buffer.rewind();
+            chunkDigest.update(buffer);
+
+            readPosition += bytesRead;
+            reportProgress(bytesRead);
         }
     }
 
     /**
-     * Copies fromFile to toFile.
+     * Transfers data between the specified channels without
+     * user space buffers.
      *
-     * @param  fromFile      source file to copy.
+     * @param  fromChannel  source channel.
+     * @param  toChannel    target channel.
+     * @param  size         number of bytes to transfer.
+     * @param  permit       scheduler permit for the transfer.
      *
-     * @param  toFile        target file for copy.
+     * @return number of bytes transferred.
      *
-     * @return the calculated digest for the fromFile or null if
-     *         this instance does not have a digest algorithm.
+     * @throws IOException
+     *   if any errors occur during the transfer.
+     */
+    private long transfer(FileChannel fromChannel,
+                          FileChannel toChannel,
+                          long size,
+                          TransferScheduler.Permit permit)
+            throws IOException {
+
+        // throttled transfers need to report progress more frequently
+        final long maxCount = permit.isThrottled() ?
+                              THROTTLED_TRANSFER_COUNT : MAX_TRANSFER_COUNT;
+
+        // This loop works around a 'bug' with channel transfers
+        // of large files on Windows.
+        // See http://forum.java.sun.com/thread.jspa?threadID=439695&messageID=2917510
+        // for details.
+        long position = 0;
+        long count;
+        while (position < size) {
+            count = fromChannel.transferTo(position, maxCount, toChannel);
+            permit.throttle(count);
+            reportProgress(count);
+            position += count;
+        }
+
+        return size;
+    }
 
+    /**
+     * Transfers all data from the specified source channel to the
+     * specified target channel on the current thread while a pipeline
+     * thread calculates this instance's digests from a memory mapped
+     * read of the source.
+     *
+     * @param  fromChannel  source channel.
+     * @param  toChannel    target channel.
+     * @param  permit       scheduler permit for the transfer.
+     *
+     * @return number of bytes transferred.
+     *
      * @throws IOException
-     *   if any errors occur during the copy.
+     *   if any errors occur during the transfer or digest calculation.
      */
-    public DigestBytes copy(File fromFile,
-                            File toFile)
+    private long zeroCopy(final FileChannel fromChannel,
+                          FileChannel toChannel,
+                          TransferScheduler.Permit permit)
             throws IOException {
 
-        long startTime = System.currentTimeMillis();
+        final long size = fromChannel.size();
+        final AtomicBoolean isAborted = new AtomicBoolean(false);
+
+        final Future<Void> digester = PIPELINE_EXECUTOR.submit(() -> {
+            MappedDigestEngine.forEachWindow(
+                    fromChannel,
+                    0,
+                    size,
+                    MappedDigestEngine.DEFAULT_WINDOW_SIZE,
+                    window -> {
+                        if (isAborted.get()) {
+                            throw new CancellationException("transfer failed");
+                        }
+                        updateDigests(window);
+                    });
+            return null;
+        });
+
+        boolean isDigesterFinished = false;
+        try {
 
-        long bytesProcessed = 0;
+            final long bytesTransferred = transfer(fromChannel,
+                                                   toChannel,
+                                                   size,
+                                                   permit);
+            digester.get();
+            isDigesterFinished = true;
+            return bytesTransferred;
+
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("zero copy transfer interrupted");
+        } catch (ExecutionException e) {
+            isDigesterFinished = true;
+            throw getPipelineFailure(e);
+        } finally {
+            if (! isDigesterFinished) {
+                // stop the digester after its current window and wait for it
+                // so that the digests are not reused while they are updated
+                isAborted.set(true);
+                try {
+                    digester.get();
+                } catch (Exception e) {
+                    LOG.debug("zeroCopy: ignoring digester failure after " +
+                              "transfer failure", e);
+                }
+            }
+        }
+    }
 
-        if (! fromFile.exists()) {
-            throw new IOException(fromFile.getAbsolutePath() +
-                                  " does not exist");
+    /**
+     * Starts tracking progress for a copy (if a listener is registered).
+     *
+     * @param  fromFile    source file to copy.
+     * @param  toFile      target file for copy.
+     * @param  totalBytes  number of bytes to copy.
+     */
+    private void startProgress(File fromFile,
+                               File toFile,
+                               long totalBytes) {
+        if (progressListener != null) {
+            transferProgress = new TransferProgress(fromFile,
+                                                    toFile,
+                                                    totalBytes);
+            transferProgress.notifyListener();
         }
+    }
 
-        if (toFile.exists()) {
-            throw new IOException(toFile.getAbsolutePath() +
-                                  " already exists");
+    /**
+     * Resets progress for the current copy (when a resumable transfer
+     * starts another attempt).
+     */
+    private void restartProgress() {
+        if (transferProgress != null) {
+            transferProgress.bytesTransferred = 0;
         }
+    }
 
-        File parent = toFile.getParentFile();
-        if (parent != null) {
-            //noinspection ResultOfMethodCallIgnored
-            parent.mkdirs();
+    /**
+     * Adds to the progress of the current copy, notifying the listener
+     * if enough time has passed since the last notification.
+     *
+     * @param  byteCount  number of additional bytes transferred.
+     */
+    private void reportProgress(long byteCount) {
+        if (transferProgress != null) {
+            transferProgress.bytesTransferred += byteCount;
+            if ((System.currentTimeMillis() -
+                 transferProgress.lastNotificationTime) >= progressInterval) {
+                transferProgress.notifyListener();
+            }
         }
+    }
 
-        FileInputStream fromStream = null;
-        FileOutputStream toStream = null;
-        try {
-            fromStream = new FileInputStream(fromFile);
-            FileChannel fromChannel = fromStream.getChannel();
-            toStream = new FileOutputStream(toFile);
-            FileChannel toChannel = toStream.getChannel();
+    /**
+     * Notifies the listener that the current copy has completed.
+     */
+    private void completeProgress() {
+        if (transferProgress != null) {
+            transferProgress.bytesTransferred = transferProgress.totalBytes;
+            transferProgress.notifyListener();
+        }
+    }
 
-            if (digest != null) {
+    private void resetDigests() {
+        if (digest != null) {
+            digest.reset();
+        }
+        for (MessageDigest auditDigest : auditDigests) {
+            auditDigest.reset();
+        }
+    }
 
-                digest.reset();
-                digestBytes = null;
+    /**
+     * Adds the specified buffer's data (from the buffer's position to
+     * its limit) to this instance's digest and all audit digests.
+     *
+     * @param  buffer  buffer containing data to add.
+     */
+    private void updateDigests(ByteBuffer buffer) {
+        final int start = buffer.position();
+        if (digest != null) {
+            digest.update(buffer);
+        }
+        for (MessageDigest auditDigest : auditDigests) {
+            buffer.position(start);
+            auditDigest.update(buffer);
+        }
+    }
 
-                ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
-                while (fromChannel.read(buffer) != -1)  {
-                    buffer.flip();  // prepare buffer for reading by toChannel
-                    while (buffer.hasRemaining()) { // handle partial writes
-                        bytesProcessed += toChannel.write(buffer);
-                    }
-                    buffer.rewind(); // reread for digest calculation
-                    digest.update(buffer);
-                    buffer.clear(); // prepare for next read
-                }
+    /**
+     * Completes this instance's digest and all audit digests for a copy,
+     * saving them as the latest copy digests and adding them to the shared
+     * {@link FileDigestCache}.
+     *
+     * @param  fromFile   source file for the copy.
+     * @param  startTime  time the copy started.
+     */
+    private void completeDigests(File fromFile,
+                                 long startTime) {
 
-                digestBytes = new DigestBytes(digest.digest());
+        final FileDigestCache cache = FileDigestCache.getInstance();
+        final Map<String, DigestBytes> digests =
+                new LinkedHashMap<String, DigestBytes>();
 
-            } else {
+        if (digest != null) {
+            digestBytes = new DigestBytes(digest.digest());
+            digests.put(digestAlgorithm, digestBytes);
+            cache.put(fromFile, digestAlgorithm, digestBytes, startTime);
+        }
 
-                // This loop works around a 'bug' with channel transfers
-                // of large files on Windows.
-                // See http://forum.java.sun.com/thread.jspa?threadID=439695&messageID=2917510
-                // for details.
-                final long size = fromChannel.size();
-                long position = 0;
-                while (position < size) {
-                    position += fromChannel.transferTo(position,
-                                                       MAX_TRANSFER_COUNT,
-                                                       toChannel);
+        String algorithm;
+        DigestBytes auditDigestBytes;
+        for (int i = 0; i < auditDigests.size(); i++) {
+            algorithm = auditDigestAlgorithms.get(i);
+            auditDigestBytes = new DigestBytes(auditDigests.get(i).digest());
+            digests.put(algorithm, auditDigestBytes);
+            cache.put(fromFile, algorithm, auditDigestBytes, startTime);
+        }
+
+        copyDigests = Collections.unmodifiableMap(digests);
+    }
+
+    /**
+     * Copies all data from the specified source channel to the specified
+     * target channel, updating this instance's digests along the way.
+     * The source is read on the current thread while a separate
+     * pipeline thread writes each filled buffer and adds it to the digest.
+     *
+     * @param  fromChannel     source channel.
+     * @param  toChannel       target channel.
+     * @param  copyBufferSize  size of each pipeline buffer.
+     * @param  permit          scheduler permit for the copy.
+     *
+     * @return number of bytes written.
+     *
+     * @throws IOException
+     *   if any errors occur during the copy.
+     */
+    private long pipelinedCopy(FileChannel fromChannel,
+                               final FileChannel toChannel,
+                               int copyBufferSize,
+                               final TransferScheduler.Permit permit)
+            throws IOException {
+
+        final BlockingQueue<ByteBuffer> emptyBuffers =
+                new ArrayBlockingQueue<ByteBuffer>(pipelineBufferCount);
+        final BlockingQueue<ByteBuffer> filledBuffers =
+                new ArrayBlockingQueue<ByteBuffer>(pipelineBufferCount + 1);
+        final List<ByteBuffer> pipelineBuffers =
+                new ArrayList<ByteBuffer>(pipelineBufferCount);
+        ByteBuffer pipelineBuffer;
+        for (int i = 0; i < pipelineBufferCount; i++) {
+            pipelineBuffer = bufferPool.lease(copyBufferSize);
+            pipelineBuffers.add(pipelineBuffer);
+            emptyBuffers.add(pipelineBuffer);
+        }
+
+        final AtomicBoolean isAborted = new AtomicBoolean(false);
+        final Future<Long> writer = PIPELINE_EXECUTOR.submit(() -> {
+            long bytesWritten = 0;
+            ByteBuffer buffer = filledBuffers.take();
+            while ((buffer != END_OF_PIPELINE) && (! isAborted.get())) {
+                while (buffer.hasRemaining()) { // handle partial writes
+                    bytesWritten += toChannel.write(buffer);
                 }
+                permit.throttle(buffer.limit());
+                reportProgress(buffer.limit());
+                buffer.rewind(); // reread for digest calculation
+                updateDigests(buffer);
+                buffer.clear(); // prepare for next read
+                emptyBuffers.put(buffer);
+                buffer = filledBuffers.take();
+            }
+            return bytesWritten;
+        });
 
-                bytesProcessed = size;
+        boolean isWriterFinished = false;
+        try {
+
+            ByteBuffer buffer = takeEmptyBuffer(emptyBuffers, writer);
+            while (fromChannel.read(buffer) != -1) {
+                buffer.flip(); // prepare buffer for reading by writer
+                filledBuffers.put(buffer);
+                buffer = takeEmptyBuffer(emptyBuffers, writer);
             }
+            filledBuffers.put(END_OF_PIPELINE);
 
+            final long bytesWritten = writer.get();
+            isWriterFinished = true;
+            return bytesWritten;
+
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("pipelined copy interrupted");
+        } catch (ExecutionException e) {
+            isWriterFinished = true;
+            throw getPipelineFailure(e);
         } finally {
-            close(fromStream);
-            close(toStream);
+            if (! isWriterFinished) {
+                // stop the writer after its current buffer and wait for it
+                // so that the digests are not reused while they are updated
+                isAborted.set(true);
+                filledBuffers.offer(END_OF_PIPELINE);
+                isWriterFinished = awaitAbortedWriter(writer);
+            }
+            if (isWriterFinished) {
+                for (ByteBuffer buffer : pipelineBuffers) {
+                    bufferPool.release(buffer);
+                }
+            } else {
+                // the cancelled writer may still be using a buffer
+                for (ByteBuffer buffer : pipelineBuffers) {
+                    bufferPool.discard(buffer);
+                }
+            }
         }
+    }
 
-        stats = new FileTransferStats(bytesProcessed,
-                                      System.currentTimeMillis() - startTime);
+    /**
+     * Waits for an aborted pipeline writer to stop.  If the current
+     * thread is interrupted while waiting, the writer is cancelled
+     * instead.
+     *
+     * @param  writer  aborted pipeline writer.
+     *
+     * @return true if the writer stopped; false if it was cancelled
+     *         (and may still be running).
+     */
+    private boolean awaitAbortedWriter(Future<Long> writer) {
+        boolean isStopped = false;
+        try {
+            writer.get();
+            isStopped = true;
+        } catch (ExecutionException e) {
+            LOG.debug("pipelinedCopy: ignoring writer failure after " +
+                      "read failure", e);
+            isStopped = true;
+        } catch (InterruptedException e) {
+            writer.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return isStopped;
+    }
 
-        return digestBytes;
+    /**
+     * Waits for an empty pipeline buffer, periodically checking whether
+     * the writer has failed (in which case no more buffers will be returned).
+     *
+     * @param  emptyBuffers  queue of empty buffers.
+     * @param  writer        pipeline writer.
+     *
+     * @return the next empty buffer.
+     *
+     * @throws IOException
+     *   if the writer has failed.
+     *
+     * @throws InterruptedException
+     *   if the current thread is interrupted while waiting.
+     */
+    private ByteBuffer takeEmptyBuffer(BlockingQueue<ByteBuffer> emptyBuffers,
+                                       Future<Long> writer)
+            throws IOException, InterruptedException {
+
+        ByteBuffer buffer = emptyBuffers.poll(100, TimeUnit.MILLISECONDS);
+        while (buffer == null) {
+            if (writer.isDone()) {
+                try {
+                    writer.get();
+                } catch (ExecutionException e) {
+                    throw getPipelineFailure(e);
+                }
+                throw new IOException("pipeline writer stopped unexpectedly");
+            }
+            buffer = emptyBuffers.poll(100, TimeUnit.MILLISECONDS);
+        }
+        return buffer;
+    }
+
+    private IOException getPipelineFailure(ExecutionException e) {
+        final Throwable cause = e.getCause();
+        final IOException failure;
+        if (cause instanceof IOException) {
+            failure = (IOException) cause;
+        } else {
+            failure = new IOException("pipeline writer failed", cause);
+        }
+        return failure;
     }
 
     /**
-     * Reads and calculates the digest for the specified file using this
-     * instance's digest algorithm.
+     * Returns the digest for the specified file using this instance's
+     * digest algorithm.  If the shared {@link FileDigestCache} contains
+     * a digest for the current version of the file, that digest is returned
+     * without reading the file.  Otherwise, the file is read and the
+     * calculated digest is added to the cache.
      *
      * @param  file  file to read.
      *
@@ -246,7 +1654,26 @@ public class FileTransferUtil {
      */
     public DigestBytes calculateDigest(File file)
             throws IOException {
-        return calculateDigest(file, 1);
+
+        final FileDigestCache cache = FileDigestCache.getInstance();
+
+        DigestBytes cachedDigestBytes = null;
+        if (digest != null) {
+            cachedDigestBytes = cache.get(file, digestAlgorithm);
+        }
+
+        if (cachedDigestBytes == null) {
+            final long startTime = System.currentTimeMillis();
+            calculateDigest(file, 1);
+            cache.put(file, digestAlgorithm, digestBytes, startTime);
+        } else {
+            LOG.debug("calculateDigest: using cached digest for " +
+                      file.getAbsolutePath());
+            digestBytes = cachedDigestBytes;
+            stats = new FileTransferStats(0, 0);
+        }
+
+        return digestBytes;
     }
 
     /**
@@ -279,14 +1706,37 @@ public class FileTransferUtil {
                 digest.reset();
                 digestBytes = null;
 
-                ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
-                while (channel.read(buffer) != -1)  {
-                    buffer.flip();  // prepare buffer for reading by digest
-                    digest.update(buffer);
-                    buffer.clear(); // prepare for next read
-                }
+                final long size = channel.size();
+
+                if (digest instanceof TreeMessageDigest) {
+                    // chunk digests are independent, so calculate them in parallel
+                    final TreeMessageDigest treeDigest = (TreeMessageDigest) digest;
+                    digestBytes = new DigestBytes(
+                            treeDigest.digestFile(channel, bufferSize));
+                } else if ((mappedDigestThreshold >= 0) &&
+                           (size >= mappedDigestThreshold) &&
+                           (size > 0)) {
+                    MappedDigestEngine.update(
+                            digest,
+                            channel,
+                            0,
+                            size,
+                            MappedDigestEngine.DEFAULT_WINDOW_SIZE);
+                    digestBytes = new DigestBytes(digest.digest());
+                } else {
+                    final ByteBuffer buffer = bufferPool.lease(bufferSize);
+                    try {
+                        while (channel.read(buffer) != -1)  {
+                            buffer.flip();  // prepare buffer for reading by digest
+                            digest.update(buffer);
+                            buffer.clear(); // prepare for next read
+                        }
+                    } finally {
+                        bufferPool.release(buffer);
+                    }
 
-                digestBytes = new DigestBytes(digest.digest());
+                    digestBytes = new DigestBytes(digest.digest());
+                }
             }
 
             final long elapsedTime = System.currentTimeMillis() - startTime;
@@ -360,6 +1810,13 @@ public class FileTransferUtil {
         return "FileTransfer{" +
                "bufferSize=" + bufferSize +
                ", digestAlgorithm='" + digestAlgorithm + '\'' +
+               ", pipelineBufferCount=" + pipelineBufferCount +
+               ", mappedDigestThreshold=" + mappedDigestThreshold +
+               ", zeroCopyTransfer=" + zeroCopyTransfer +
+               ", resumableChunkSize=" + resumableChunkSize +
+               ", preallocateTarget=" + preallocateTarget +
+               ", syncPolicy=" + syncPolicy +
+               ", auditDigestAlgorithms=" + auditDigestAlgorithms +
                ", digestBytes=" + digestBytes +
                '}';
     }
@@ -409,6 +1866,43 @@ public class FileTransferUtil {
         throw new IOException(sb.toString());
     }
 
+    private void moveBackAndThrowException(File fromFile,
+                                           File toFile,
+                                           DigestBytes fromDigest)
+            throws IOException {
+
+        boolean targetMovedBack = false;
+        try {
+            Files.move(toFile.toPath(),
+                       fromFile.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE);
+            targetMovedBack = true;
+        } catch (Exception e) {
+            LOG.error("failed to move " + toFile.getAbsolutePath() +
+                      " back to " + fromFile.getAbsolutePath() +
+                      " after digest mismatch found", e);
+        }
+
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("Move aborted because ");
+        sb.append(digestAlgorithm);
+        sb.append(" digests do not match.  Target (");
+        sb.append(toFile.getAbsolutePath());
+        sb.append(") digest is ");
+        sb.append(digestBytes);
+        sb.append(" while source (");
+        sb.append(fromFile.getAbsolutePath());
+        sb.append(") digest is ");
+        sb.append(fromDigest);
+        sb.append(".  The target file has ");
+        if (! targetMovedBack) {
+            sb.append("NOT ");
+        }
+        sb.append("been moved back to the source location.");
+
+        throw new IOException(sb.toString());
+    }
+
     private String getCopyStartMessage(File fromFile,
                                        File toFile) {
         StringBuilder sb = new StringBuilder(1024);
@@ -435,7 +1929,13 @@ public class FileTransferUtil {
             sb.append(copyStats.getBytesProcessed());
             sb.append(" bytes were copied in ");
             sb.append(copyStats.getDurationSeconds());
-            sb.append(" seconds.  ");
+            sb.append(" seconds");
+            if (copyStats.getSyncDurationSeconds() > 0) {
+                sb.append(" (including ");
+                sb.append(copyStats.getSyncDurationSeconds());
+                sb.append(" seconds to sync)");
+            }
+            sb.append(".  ");
         }
 
         if (digestBytes != null) {
@@ -459,8 +1959,84 @@ public class FileTransferUtil {
         return sb.toString();
     }
 
+    private String getSuccessfulMoveMessage(File fromFile,
+                                            File toFile,
+                                            FileTransferStats moveStats) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("Successfully moved ");
+        sb.append(fromFile.getAbsolutePath());
+        sb.append(" to ");
+        sb.append(toFile.getAbsolutePath());
+        sb.append(".  A total of ");
+        sb.append(moveStats.getBytesProcessed());
+        sb.append(" bytes were moved in ");
+        sb.append(moveStats.getDurationSeconds());
+        sb.append(" seconds.");
+
+        if (digestBytes != null) {
+            sb.append("  Verified ");
+            sb.append(digestAlgorithm);
+            sb.append(" digest ");
+            sb.append(digestBytes);
+            sb.append(" was calculated in ");
+            sb.append(stats.getDurationSeconds());
+            sb.append(" seconds.");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Progress of the current copy.  Progress is only updated by one
+     * thread at a time (the copying thread or a pipeline thread).
+     */
+    private class TransferProgress {
+
+        private File fromFile;
+        private File toFile;
+        private long totalBytes;
+        private long bytesTransferred;
+        private long lastNotificationTime;
+
+        private TransferProgress(File fromFile,
+                                 File toFile,
+                                 long totalBytes) {
+            this.fromFile = fromFile;
+            this.toFile = toFile;
+            this.totalBytes = totalBytes;
+            this.bytesTransferred = 0;
+            this.lastNotificationTime = 0;
+        }
+
+        private void notifyListener() {
+            lastNotificationTime = System.currentTimeMillis();
+            try {
+                progressListener.transferProgress(fromFile,
+                                                  toFile,
+                                                  bytesTransferred,
+                                                  totalBytes);
+            } catch (Exception e) {
+                // don't fail the copy because progress can't be reported
+                LOG.warn("failed to report progress for copy of " +
+                         fromFile.getAbsolutePath(), e);
+            }
+        }
+    }
+
     private static final Logger LOG = Logger.getLogger(FileTransferUtil.class);
 
+    /** Marks the end of data for a pipelined copy. */
+    private static final ByteBuffer END_OF_PIPELINE = ByteBuffer.allocate(0);
+
+    /** Shared (daemon) threads for writing pipelined copies. */
+    private static final ExecutorService PIPELINE_EXECUTOR =
+            Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable,
+                                                 "file-transfer-pipeline");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     public static void main(String[] args) {
         if (args.length > 1) {
             try {
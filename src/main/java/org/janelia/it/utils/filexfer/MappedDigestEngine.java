@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.function.Consumer;
+
+/**
+ * This utility calculates digests by mapping files into memory in large
+ * windows and feeding each mapped window directly to a
+ * {@link MessageDigest}.  This avoids the read system call and the
+ * kernel to heap buffer copy needed for each chunk of a buffered read.
+ * <p>
+ * Each window is explicitly unmapped as soon as it has been digested
+ * (rather than waiting for garbage collection) so that long sessions
+ * with many large files do not exhaust virtual address space.
+ * If the JVM does not support explicit unmapping, windows are released
+ * when they are garbage collected.
+ *
+ * @author Eric Trautman
+ */
+public class MappedDigestEngine {
+
+    /** Default size of each mapped window. */
+    public static final long DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+    /**
+     * Adds the specified range of the channel to the specified digest.
+     *
+     * @param  digest      digest to update.
+     * @param  channel     channel to map (must be readable).
+     * @param  position    position of first byte to digest.
+     * @param  length      number of bytes to digest.
+     * @param  windowSize  maximum number of bytes to map at one time.
+     *
+     * @throws IOException
+     *   if any errors occur mapping the channel.
+     */
+    public static void update(MessageDigest digest,
+                              FileChannel channel,
+                              long position,
+                              long length,
+                              long windowSize)
+            throws IOException {
+        forEachWindow(channel, position, length, windowSize, digest::update);
+    }
+
+    /**
+     * Maps the specified range of the channel one window at a time,
+     * passing each window to the specified consumer before unmapping it.
+     * Consumers must not retain references to the windows.
+     *
+     * @param  channel     channel to map (must be readable).
+     * @param  position    position of first byte to map.
+     * @param  length      number of bytes to map.
+     * @param  windowSize  maximum number of bytes to map at one time.
+     * @param  consumer    consumer for each mapped window.
+     *
+     * @throws IOException
+     *   if any errors occur mapping the channel.
+     */
+    public static void forEachWindow(FileChannel channel,
+                                     long position,
+                                     long length,
+                                     long windowSize,
+                                     Consumer<ByteBuffer> consumer)
+            throws IOException {
+
+        final long end = position + length;
+        long windowStart = position;
+        long windowLength;
+        MappedByteBuffer window;
+        while (windowStart < end) {
+            windowLength = Math.min(windowSize, end - windowStart);
+            window = channel.map(FileChannel.MapMode.READ_ONLY,
+                                 windowStart,
+                                 windowLength);
+            try {
+                consumer.accept(window);
+            } finally {
+                unmap(window);
+            }
+            windowStart += windowLength;
+        }
+    }
+
+    /**
+     * Releases the specified mapped buffer immediately (if supported by
+     * the JVM).  The buffer must not be used after this method is called.
+     *
+     * @param  buffer  buffer to release.
+     */
+    public static void unmap(ByteBuffer buffer) {
+        if ((INVOKE_CLEANER != null) && (buffer != null) && buffer.isDirect()) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (Exception e) {
+                LOG.warn("unmap: failed to release buffer, " +
+                         "it will be released by garbage collection", e);
+            }
+        }
+    }
+
+    /**
+     * @return true if mapped buffers can be released deterministically
+     *         in this JVM; otherwise false.
+     */
+    public static boolean isUnmapSupported() {
+        return (INVOKE_CLEANER != null);
+    }
+
+    private static final Logger LOG = Logger.getLogger(MappedDigestEngine.class);
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            // sun.misc.Unsafe.invokeCleaner is the only (java 9+) way to
+            // release a mapped buffer before it is garbage collected
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+                                                  ByteBuffer.class);
+        } catch (Exception e) {
+            LOG.warn("explicit release of mapped buffers is not supported, " +
+                     "buffers will be released by garbage collection", e);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This utility copies (and digests) directory trees for
+ * {@link SafeFileTransfer} using a shared {@link ForkJoinPool}
+ * so that directories with many small files are not limited by the
+ * latency of opening, reading, and writing one file at a time.
+ * <p>
+ * Directory digests are calculated over the contents of all files in
+ * traversal order, so the digest is always updated on the calling
+ * thread in that order.  Files no larger than
+ * {@link #MAX_BUFFERED_FILE_SIZE} are read once and their contents are
+ * handed to the digest after they have been written.  Larger files are
+ * copied in parallel and re-read on the calling thread for the digest.
+ * The number of files in flight is bounded to limit memory use.
+ *
+ * @author Eric Trautman
+ */
+class ParallelDirectoryCopy {
+
+    /** Maximum size of files whose contents are buffered for digests. */
+    static final int MAX_BUFFERED_FILE_SIZE = SafeFileTransfer.BUFFER_SIZE;
+
+    /** Number of files copied concurrently (copies are I/O bound). */
+    static final int PARALLELISM = 8;
+
+    /** Maximum number of files submitted but not yet digested. */
+    static final int MAX_PENDING_FILES = PARALLELISM * 4;
+
+    private static final ForkJoinPool COPY_POOL = new ForkJoinPool(PARALLELISM);
+
+    /**
+     * Copies all files in the source directory tree to the destination
+     * directory.  Consistent with serial copies, the destination
+     * directory of each file is created before the file is copied
+     * (and empty source directories are not copied).
+     *
+     * @param  srcDirectory   source directory.
+     * @param  destDirectory  destination directory.
+     * @param  digest         digest to update with the contents of all
+     *                        copied files (in traversal order).
+     *
+     * @throws IOException
+     *   if any errors occur during the copy.
+     */
+    static void copy(File srcDirectory,
+                     File destDirectory,
+                     MessageDigest digest)
+            throws IOException {
+        final List<File> srcFiles = new ArrayList<File>();
+        final List<File> destFiles = new ArrayList<File>();
+        addFiles(srcDirectory, destDirectory, srcFiles, destFiles);
+        digestInOrder(srcFiles, destFiles, digest);
+    }
+
+    /**
+     * Adds the contents of all files in the specified directory tree
+     * to the specified digest (in traversal order).
+     *
+     * @param  directory  directory to digest.
+     * @param  digest     digest to update.
+     *
+     * @throws IOException
+     *   if any errors occur reading the files.
+     */
+    static void digest(File directory,
+                       MessageDigest digest)
+            throws IOException {
+        final List<File> files = new ArrayList<File>();
+        addFiles(directory, null, files, null);
+        digestInOrder(files, null, digest);
+    }
+
+    /**
+     * Walks the source tree in the same order as serial copies,
+     * creating destination directories (if a destination is specified)
+     * before any of their files are submitted.
+     */
+    private static void addFiles(File srcLocation,
+                                 File destLocation,
+                                 List<File> srcFiles,
+                                 List<File> destFiles)
+            throws IOException {
+        if (srcLocation.isDirectory()) {
+            final File[] files = srcLocation.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    addFiles(file,
+                             (destLocation == null) ?
+                             null : new File(destLocation, file.getName()),
+                             srcFiles,
+                             destFiles);
+                }
+            }
+        } else {
+            srcFiles.add(srcLocation);
+            if (destLocation != null) {
+                SafeFileTransfer.createParentDirectoriesIfNecessary(destLocation);
+                destFiles.add(destLocation);
+            }
+        }
+    }
+
+    private static void digestInOrder(List<File> readFiles,
+                                      List<File> writeFiles,
+                                      MessageDigest digest)
+            throws IOException {
+
+        final int count = readFiles.size();
+        final LinkedList<ForkJoinTask<byte[]>> pending =
+                new LinkedList<ForkJoinTask<byte[]>>();
+        int submitted = 0;
+        try {
+            File readFile;
+            byte[] content;
+            for (int i = 0; i < count; i++) {
+
+                while ((submitted < count) &&
+                       ((submitted - i) < MAX_PENDING_FILES)) {
+                    pending.add(COPY_POOL.submit(
+                            new FileTask(readFiles.get(submitted),
+                                         (writeFiles == null) ?
+                                         null : writeFiles.get(submitted))));
+                    submitted++;
+                }
+
+                readFile = readFiles.get(i);
+                try {
+                    content = getResult(pending.removeFirst());
+                } catch (IOException e) {
+                    if (writeFiles != null) {
+                        throw e;
+                    }
+                    // let the serial read decide whether to retry
+                    content = null;
+                }
+
+                if (content == null) {
+                    SafeFileTransfer.recursiveHashValidationHelper(readFile,
+                                                                   digest,
+                                                                   1);
+                } else {
+                    digest.update(content);
+                }
+            }
+        } finally {
+            // after a failure, don't start any more work
+            for (ForkJoinTask<byte[]> task : pending) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private static byte[] getResult(ForkJoinTask<byte[]> task)
+            throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("directory copy interrupted");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("directory copy failed", cause);
+        }
+    }
+
+    /**
+     * Copies (or just reads) one file, returning the file's contents
+     * if they are small enough to be buffered for the digest.
+     */
+    private static class FileTask extends RecursiveTask<byte[]> {
+
+        private File fromFile;
+        private File toFile;
+
+        private FileTask(File fromFile,
+                         File toFile) {
+            this.fromFile = fromFile;
+            this.toFile = toFile;
+        }
+
+        @Override
+        protected byte[] compute() {
+            byte[] content = null;
+            try {
+                if (fromFile.length() <= MAX_BUFFERED_FILE_SIZE) {
+                    content = Files.readAllBytes(fromFile.toPath());
+                    if (toFile != null) {
+                        Files.write(toFile.toPath(), content);
+                    }
+                } else if (toFile != null) {
+                    Files.copy(fromFile.toPath(),
+                               toFile.toPath(),
+                               StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return content;
+        }
+    }
+}
@@ -9,15 +9,11 @@ package org.janelia.it.utils.filexfer;
 
 import org.apache.log4j.Logger;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.security.DigestInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
@@ -120,7 +116,11 @@ public class SafeFileTransfer {
                                         File destLocation)
         throws IOException, NoSuchAlgorithmException {
         MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
-        recursiveCopyHelper(srcLocation,destLocation,digest);
+        if (srcLocation.isDirectory()) {
+            ParallelDirectoryCopy.copy(srcLocation, destLocation, digest);
+        } else {
+            recursiveCopyHelper(srcLocation,destLocation,digest);
+        }
         return digest.digest();
     }
 
@@ -139,18 +139,24 @@ public class SafeFileTransfer {
             }
         } else {
             createParentDirectoriesIfNecessary(destLocation);
-            InputStream inStream=new BufferedInputStream(new FileInputStream(srcLocation));
-            OutputStream outStream=new BufferedOutputStream(new FileOutputStream(destLocation));
-            addInputStreamToOuputStream(inStream,outStream,digest);
-            inStream.close();
-            outStream.close();
+            try (FileChannel outChannel =
+                         FileChannel.open(destLocation.toPath(),
+                                          StandardOpenOption.CREATE,
+                                          StandardOpenOption.TRUNCATE_EXISTING,
+                                          StandardOpenOption.WRITE)) {
+                readFile(srcLocation, digest, outChannel);
+            }
         }
     }
 
     static private boolean recursiveHashValidation(File srcLocation, byte[] hashValue)
         throws NoSuchAlgorithmException,IOException {
         MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
-        recursiveHashValidationHelper(srcLocation, digest, 1);
+        if (srcLocation.isDirectory()) {
+            ParallelDirectoryCopy.digest(srcLocation, digest);
+        } else {
+            recursiveHashValidationHelper(srcLocation, digest, 1);
+        }
         byte[] digestBytes=digest.digest();
         if (hashValue.length != digestBytes.length) return false;
         for (int i = 0; i < hashValue.length; i++) {
@@ -172,23 +178,9 @@ public class SafeFileTransfer {
                 }
             }
         } else {
-            InputStream inStream = null;
             try {
-                inStream =
-                        new DigestInputStream(
-                                new BufferedInputStream(
-                                        new FileInputStream(srcLocation)),
-                                digest);
-                byte[] buffer = new byte[BUFFER_SIZE];
-                int rtnBytes = BUFFER_SIZE;
-                while (rtnBytes > 0) {
-                    rtnBytes = inStream.read(buffer);
-                }
+                readFile(srcLocation, digest, null);
             } catch (IOException calculationException) {
-
-                closeInputStream(inStream);
-                inStream = null;
-
                 if (FileTransferUtil.isDigestCalculationRetryNeeded(calculationException,
                                                                     srcLocation,
                                                                     attemptNumber)) {
@@ -198,46 +190,123 @@ public class SafeFileTransfer {
                 } else {
                     throw calculationException;
                 }
-
-            } finally {
-                closeInputStream(inStream);
             }
         }
     }
 
-    static private void addInputStreamToOuputStream(InputStream inStream, OutputStream outStream,MessageDigest digest)
+    /**
+     * Reads the specified file with a buffer leased from the shared
+     * {@link BufferPool}, updating the digest and (optionally) writing
+     * the file's contents to the specified channel.
+     *
+     * @param  file        file to read.
+     * @param  digest      digest to update (or null).
+     * @param  outChannel  channel for the file's contents (or null).
+     *
+     * @throws IOException
+     *   if the file cannot be read or the contents cannot be written.
+     */
+    private static void readFile(File file,
+                                 MessageDigest digest,
+                                 FileChannel outChannel)
             throws IOException {
-        if (digest != null)
-            inStream = new DigestInputStream(inStream, digest);
-
-        byte[] buffer = new byte[BUFFER_SIZE];
-        int rtnBytes = BUFFER_SIZE;
-        while (rtnBytes > 0) {
-            rtnBytes = inStream.read(buffer);
-            if (rtnBytes > 0 && outStream != null) outStream.write(buffer, 0, rtnBytes);
+        final BufferPool bufferPool = BufferPool.getInstance();
+        final ByteBuffer buffer = bufferPool.lease(BUFFER_SIZE);
+        try (FileChannel inChannel = FileChannel.open(file.toPath(),
+                                                      StandardOpenOption.READ)) {
+            while (inChannel.read(buffer) != -1) {
+                buffer.flip();
+                if (digest != null) {
+                    buffer.mark();
+                    digest.update(buffer);
+                    buffer.reset();
+                }
+                if (outChannel != null) {
+                    while (buffer.hasRemaining()) {
+                        outChannel.write(buffer);
+                    }
+                }
+                buffer.clear();
+            }
+        } finally {
+            bufferPool.release(buffer);
         }
     }
 
     /**
      * Utility to calculate and return the digest value for the specified file.
+     * A previously calculated digest is returned from the shared
+     * {@link FileDigestCache} if the file has not changed.
      *
      * @param  forFile  file to read.
      *
      * @return the file's calculated digest value.
      */
     public static byte[] getDigest(File forFile) {
+
+        final FileDigestCache cache = FileDigestCache.getInstance();
+        final DigestBytes cachedDigestBytes =
+                cache.get(forFile, DIGEST_ALGORITHM);
+
+        byte[] digestValue;
+        if (cachedDigestBytes == null) {
+            final long startTime = System.currentTimeMillis();
+            digestValue = calculateDigest(forFile);
+            cache.put(forFile,
+                      DIGEST_ALGORITHM,
+                      new DigestBytes(digestValue),
+                      startTime);
+        } else {
+            LOG.debug("getDigest: using cached digest for " +
+                      forFile.getAbsolutePath());
+            digestValue = cachedDigestBytes.getBytes();
+        }
+        return digestValue;
+    }
+
+    /**
+     * Utility to calculate and return the digest value for the specified
+     * file using the specified algorithm.  Tree algorithms
+     * (see {@link TreeMessageDigest}) calculate chunk digests in parallel.
+     *
+     * @param  forFile          file to read.
+     * @param  digestAlgorithm  name of digest algorithm.
+     *
+     * @return the file's calculated digest value.
+     */
+    public static byte[] getDigest(File forFile,
+                                   String digestAlgorithm) {
+        byte[] digestValue;
+        if (DIGEST_ALGORITHM.equalsIgnoreCase(digestAlgorithm)) {
+            digestValue = getDigest(forFile);
+        } else {
+            try {
+                final FileTransferUtil util =
+                        new FileTransferUtil(BUFFER_SIZE, digestAlgorithm);
+                final DigestBytes digestBytes = util.calculateDigest(forFile);
+                if (digestBytes == null) {
+                    throw new IllegalArgumentException(
+                            "no digest calculated for algorithm '" +
+                            digestAlgorithm + "'");
+                }
+                digestValue = digestBytes.getBytes();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(
+                        "unable to find MessageDigest for " + digestAlgorithm +
+                        " algorithm", e);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(
+                        "unable to access file " + forFile.getAbsolutePath(), e);
+            }
+        }
+        return digestValue;
+    }
+
+    private static byte[] calculateDigest(File forFile) {
         byte[] digestValue;
-        DigestInputStream dis = null;
         try {
             MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
-            FileInputStream fis = new FileInputStream(forFile);
-            BufferedInputStream bis = new BufferedInputStream(fis);
-            dis = new DigestInputStream(bis, digest);
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int rtnBytes = BUFFER_SIZE;
-            while (rtnBytes > 0) {
-                rtnBytes = dis.read(buffer);
-            }
+            readFile(forFile, digest, null);
             digestValue = digest.digest();
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException(
@@ -246,22 +315,10 @@ public class SafeFileTransfer {
         } catch (IOException e) {
             throw new IllegalArgumentException(
                     "unable to access file " + forFile.getAbsolutePath(), e);
-        } finally {
-            closeInputStream(dis);
         }
         return digestValue;
     }
 
-    private static void closeInputStream(InputStream is) {
-        if (is != null) {
-            try {
-                is.close();
-            } catch (IOException e) {
-                LOG.error("failed to close input stream", e);
-            }
-        }
-    }
-
     public static void main(String[] args) {
         boolean isValid = false;
         boolean isCopy = false;
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class collects copied files so that they can be synced
+ * (forced to storage) in batches.  A batch is synced whenever it
+ * reaches its maximum number of files or bytes and whenever it is
+ * explicitly synced (e.g. at the end of a session).  Batches may be
+ * shared by {@link FileTransferUtil} instances on different threads.
+ * <p>
+ * Files are synced by reopening them, which flushes all data written
+ * through any descriptor on the platforms we support.  The parent
+ * directories of synced files are also synced (where the platform
+ * allows it) so that the new directory entries are durable as well.
+ * Callers that must not discard anything (e.g. a source file) until
+ * a copy is durable can check {@link #isSynced}.
+ *
+ * @author Eric Trautman
+ */
+public class SyncBatch {
+
+    /** Default maximum number of files in a batch. */
+    public static final int DEFAULT_MAX_FILE_COUNT = 100;
+
+    /** Default maximum number of bytes in a batch. */
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+
+    private int maxFileCount;
+    private long maxBytes;
+    private List<File> pendingFiles;
+    private Set<File> failedFiles;
+    private long pendingBytes;
+    private int syncCount;
+    private long syncMillis;
+
+    /**
+     * Constructs an empty batch.
+     *
+     * @param  maxFileCount  number of files that triggers a sync.
+     * @param  maxBytes      number of bytes that triggers a sync.
+     *
+     * @throws IllegalArgumentException
+     *   if either limit is less than one.
+     */
+    public SyncBatch(int maxFileCount,
+                     long maxBytes)
+            throws IllegalArgumentException {
+
+        if ((maxFileCount < 1) || (maxBytes < 1)) {
+            throw new IllegalArgumentException(
+                    "Sync batch limits must be greater than zero.");
+        }
+
+        this.maxFileCount = maxFileCount;
+        this.maxBytes = maxBytes;
+        this.pendingFiles = new ArrayList<File>();
+        this.failedFiles = new HashSet<File>();
+        this.pendingBytes = 0;
+        this.syncCount = 0;
+        this.syncMillis = 0;
+    }
+
+    /**
+     * @return number of files waiting to be synced.
+     */
+    public synchronized int getPendingFileCount() {
+        return pendingFiles.size();
+    }
+
+    /**
+     * @param  file  copied file.
+     *
+     * @return true if the specified file is not waiting to be synced
+     *         and was not part of a batch that failed to sync;
+     *         otherwise false.
+     */
+    public synchronized boolean isSynced(File file) {
+        return (! pendingFiles.contains(file)) &&
+               (! failedFiles.contains(file));
+    }
+
+    /**
+     * @return number of batches synced so far.
+     */
+    public synchronized int getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * @return total number of milliseconds spent syncing batches.
+     */
+    public synchronized long getSyncMillis() {
+        return syncMillis;
+    }
+
+    /**
+     * Adds the specified file to this batch, syncing the batch if
+     * either of its limits has been reached.
+     *
+     * @param  file       copied file.
+     * @param  byteCount  number of bytes copied.
+     *
+     * @return number of milliseconds spent syncing (zero if the batch
+     *         was not synced).
+     *
+     * @throws IOException
+     *   if the batch is synced and any file cannot be synced.
+     */
+    public synchronized long add(File file,
+                                 long byteCount)
+            throws IOException {
+        pendingFiles.add(file);
+        pendingBytes += byteCount;
+        long elapsed = 0;
+        if ((pendingFiles.size() >= maxFileCount) ||
+            (pendingBytes >= maxBytes)) {
+            elapsed = sync();
+        }
+        return elapsed;
+    }
+
+    /**
+     * Syncs all pending files (and their parent directories).
+     *
+     * @return number of milliseconds spent syncing.
+     *
+     * @throws IOException
+     *   if any file cannot be synced.
+     */
+    public synchronized long sync()
+            throws IOException {
+
+        final long startTime = System.currentTimeMillis();
+        final int fileCount = pendingFiles.size();
+        final long byteCount = pendingBytes;
+
+        final Set<File> directories = new LinkedHashSet<File>();
+        boolean isSynced = false;
+        try {
+            for (File file : pendingFiles) {
+                // files may be legitimately removed (e.g. failed copies)
+                if (file.exists()) {
+                    try (FileChannel channel =
+                                 FileChannel.open(file.toPath(),
+                                                  StandardOpenOption.WRITE)) {
+                        channel.force(true);
+                    }
+                    directories.add(file.getAbsoluteFile().getParentFile());
+                }
+            }
+            for (File directory : directories) {
+                syncDirectory(directory);
+            }
+            isSynced = true;
+        } finally {
+            if (! isSynced) {
+                failedFiles.addAll(pendingFiles);
+            }
+            pendingFiles.clear();
+            pendingBytes = 0;
+        }
+
+        final long elapsed = System.currentTimeMillis() - startTime;
+        if (fileCount > 0) {
+            syncCount++;
+            syncMillis += elapsed;
+            LOG.info("sync: synced " + fileCount + " files (" + byteCount +
+                     " bytes) in " + elapsed + " milliseconds");
+        }
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncBatch{" +
+               "maxFileCount=" + maxFileCount +
+               ", maxBytes=" + maxBytes +
+               '}';
+    }
+
+    /**
+     * Syncs the specified directory so that recently created entries
+     * are durable.  Platforms that do not support syncing directories
+     * (e.g. Windows) are silently skipped.
+     *
+     * @param  directory  directory to sync.
+     */
+    public static void syncDirectory(File directory) {
+        if (directory != null) {
+            try (FileChannel channel =
+                         FileChannel.open(directory.toPath(),
+                                          StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                LOG.debug("syncDirectory: unable to sync " + directory, e);
+            }
+        }
+    }
+
+    private static final Logger LOG = Logger.getLogger(SyncBatch.class);
+}
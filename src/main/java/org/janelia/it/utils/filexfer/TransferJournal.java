@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class records the chunks of a resumable transfer that have been
+ * written (and forced to storage) so that an interrupted transfer can
+ * be continued from the last good chunk.  Each journal is a small text
+ * file kept (hidden) next to the partially transferred target file.
+ * The journal identifies the source file (path, length, and modification
+ * time) and lists the offset, length, and digest of each completed chunk.
+ * Chunk entries are appended and synced one at a time, so a journal
+ * interrupted in the middle of a write loses at most its last entry.
+ *
+ * @author Eric Trautman
+ */
+public class TransferJournal {
+
+    /** Algorithm used for chunk digests. */
+    public static final String CHUNK_DIGEST_ALGORITHM = XxHash64MessageDigest.NAME;
+
+    /**
+     * @param  toFile  target file for a transfer.
+     *
+     * @return the journal file for the specified target file.
+     */
+    public static File getJournalFile(File toFile) {
+        return new File(toFile.getAbsoluteFile().getParentFile(),
+                        "." + toFile.getName() + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * @param  toFile  target file for a transfer.
+     *
+     * @return true if the specified target file is an incomplete
+     *         resumable transfer; otherwise false.
+     */
+    public static boolean isIncompleteTransfer(File toFile) {
+        return toFile.exists() && getJournalFile(toFile).exists();
+    }
+
+    /**
+     * @param  fromFile  source file for a transfer.
+     * @param  toFile    target file for the transfer.
+     *
+     * @return true if the specified target file is an incomplete
+     *         resumable transfer of the current version (path, length,
+     *         and modification time) of the specified source file;
+     *         otherwise false.
+     */
+    public static boolean isResumableTransfer(File fromFile,
+                                              File toFile) {
+        boolean isResumable = false;
+        if (isIncompleteTransfer(toFile)) {
+            final TransferJournal journal =
+                    new TransferJournal(getJournalFile(toFile), fromFile, 0);
+            isResumable = journal.isSameSource();
+        }
+        return isResumable;
+    }
+
+    /**
+     * Opens the journal for transferring the specified source to the
+     * specified target.  If a journal exists that matches the current
+     * source file and chunk size, its completed chunks are retained
+     * (as long as the target file contains them).  Otherwise, a new
+     * journal is started.
+     *
+     * @param  fromFile   source file for the transfer.
+     * @param  toFile     target file for the transfer.
+     * @param  chunkSize  size of each chunk.
+     *
+     * @return the opened journal.
+     *
+     * @throws IOException
+     *   if the journal cannot be written.
+     */
+    public static TransferJournal open(File fromFile,
+                                       File toFile,
+                                       long chunkSize)
+            throws IOException {
+
+        final TransferJournal journal =
+                new TransferJournal(getJournalFile(toFile),
+                                    fromFile,
+                                    chunkSize);
+
+        final long targetLength = toFile.exists() ? toFile.length() : 0;
+        final boolean isRewriteNeeded;
+        if (journal.journalFile.exists()) {
+            isRewriteNeeded = ! journal.load(targetLength);
+        } else {
+            isRewriteNeeded = true;
+        }
+
+        if (isRewriteNeeded) {
+            journal.write();
+        }
+
+        return journal;
+    }
+
+    private File journalFile;
+    private String sourcePath;
+    private long sourceLength;
+    private long sourceLastModified;
+    private long chunkSize;
+    private List<Chunk> chunks;
+
+    private TransferJournal(File journalFile,
+                            File fromFile,
+                            long chunkSize) {
+        this.journalFile = journalFile;
+        this.sourcePath = fromFile.getAbsolutePath();
+        this.sourceLength = fromFile.length();
+        this.sourceLastModified = fromFile.lastModified();
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayList<Chunk>();
+    }
+
+    /**
+     * @return the journal file.
+     */
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * @return the size of each chunk.
+     */
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return the completed chunks (in offset order).
+     */
+    public List<Chunk> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    /**
+     * @return number of bytes (from the start of the file) that have
+     *         been completely transferred.
+     */
+    public long getCompletedLength() {
+        long length = 0;
+        if (chunks.size() > 0) {
+            final Chunk lastChunk = chunks.get(chunks.size() - 1);
+            length = lastChunk.offset + lastChunk.length;
+        }
+        return length;
+    }
+
+    /**
+     * Records a completed chunk.  The chunk's data must already have
+     * been forced to storage.
+     *
+     * @param  offset  offset of the chunk.
+     * @param  length  length of the chunk.
+     * @param  digest  digest of the chunk's data.
+     *
+     * @throws IOException
+     *   if the chunk cannot be recorded.
+     */
+    public void addChunk(long offset,
+                         long length,
+                         DigestBytes digest)
+            throws IOException {
+        final Chunk chunk = new Chunk(offset, length, digest);
+        append(CHUNK + chunk.toJournalValue() + "\n");
+        chunks.add(chunk);
+    }
+
+    /**
+     * Discards all completed chunks (e.g. because the source has changed).
+     *
+     * @throws IOException
+     *   if the journal cannot be written.
+     */
+    public void restart() throws IOException {
+        chunks.clear();
+        write();
+    }
+
+    /**
+     * Removes the journal (once the transfer has completed).
+     */
+    public void delete() {
+        if (journalFile.exists() && (! journalFile.delete())) {
+            LOG.warn("delete: failed to remove " +
+                     journalFile.getAbsolutePath());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TransferJournal{" +
+               "journalFile=" + journalFile +
+               ", sourcePath='" + sourcePath + '\'' +
+               ", chunkSize=" + chunkSize +
+               ", completedLength=" + getCompletedLength() +
+               '}';
+    }
+
+    /**
+     * Loads the existing journal.
+     *
+     * @param  targetLength  current length of the target file.
+     *
+     * @return true if the journal file is consistent with the loaded
+     *         state; false if it needs to be rewritten.
+     */
+    private boolean load(long targetLength) {
+
+        boolean isConsistent = true;
+        boolean isSameSource = true;
+
+        try (BufferedReader reader =
+                     Files.newBufferedReader(journalFile.toPath(),
+                                             StandardCharsets.UTF_8)) {
+            String line;
+            Chunk chunk;
+            long expectedOffset = 0;
+            while ((line = reader.readLine()) != null) {
+                if (isSourceLine(line)) {
+                    isSameSource = isSameSource && isSourceMatch(line);
+                } else if (line.startsWith(CHUNK_SIZE)) {
+                    isSameSource = isSameSource &&
+                            String.valueOf(chunkSize).equals(
+                                    line.substring(CHUNK_SIZE.length()));
+                } else if (line.startsWith(CHUNK) && isSameSource) {
+                    chunk = Chunk.fromJournalValue(line.substring(CHUNK.length()));
+                    if ((chunk == null) ||
+                        (chunk.offset != expectedOffset) ||
+                        (chunk.offset + chunk.length > targetLength)) {
+                        // torn write or truncated target,
+                        // keep everything before this chunk
+                        isConsistent = false;
+                        break;
+                    }
+                    chunks.add(chunk);
+                    expectedOffset += chunk.length;
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("load: failed to read " + journalFile.getAbsolutePath() +
+                     ", restarting transfer", e);
+            isSameSource = false;
+        }
+
+        if (! isSameSource) {
+            LOG.info("load: source for " + journalFile.getAbsolutePath() +
+                     " has changed, restarting transfer");
+            chunks.clear();
+            isConsistent = false;
+        }
+
+        return isConsistent;
+    }
+
+    /**
+     * @return true if the existing journal identifies the current version
+     *         of this journal's source file; otherwise false.
+     */
+    private boolean isSameSource() {
+
+        boolean isSameSource = true;
+        boolean isSourceFound = false;
+
+        try (BufferedReader reader =
+                     Files.newBufferedReader(journalFile.toPath(),
+                                             StandardCharsets.UTF_8)) {
+            String line;
+            while (isSameSource && ((line = reader.readLine()) != null)) {
+                if (isSourceLine(line)) {
+                    isSameSource = isSourceMatch(line);
+                    isSourceFound = true;
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("isSameSource: failed to read " +
+                     journalFile.getAbsolutePath(), e);
+            isSameSource = false;
+        }
+
+        return isSameSource && isSourceFound;
+    }
+
+    private static boolean isSourceLine(String line) {
+        return line.startsWith(SOURCE) ||
+               line.startsWith(SOURCE_LENGTH) ||
+               line.startsWith(SOURCE_LAST_MODIFIED);
+    }
+
+    /**
+     * @param  line  journal line that identifies the source file.
+     *
+     * @return true if the line matches this journal's source file;
+     *         otherwise false.
+     */
+    private boolean isSourceMatch(String line) {
+        final boolean isMatch;
+        if (line.startsWith(SOURCE)) {
+            isMatch = sourcePath.equals(line.substring(SOURCE.length()));
+        } else if (line.startsWith(SOURCE_LENGTH)) {
+            isMatch = String.valueOf(sourceLength).equals(
+                    line.substring(SOURCE_LENGTH.length()));
+        } else {
+            isMatch = String.valueOf(sourceLastModified).equals(
+                    line.substring(SOURCE_LAST_MODIFIED.length()));
+        }
+        return isMatch;
+    }
+
+    private void write() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(SOURCE).append(sourcePath).append('\n');
+        sb.append(SOURCE_LENGTH).append(sourceLength).append('\n');
+        sb.append(SOURCE_LAST_MODIFIED).append(sourceLastModified).append('\n');
+        sb.append(CHUNK_SIZE).append(chunkSize).append('\n');
+        for (Chunk chunk : chunks) {
+            sb.append(CHUNK).append(chunk.toJournalValue()).append('\n');
+        }
+
+        final File parent = journalFile.getParentFile();
+        if ((parent != null) && (! parent.exists())) {
+            //noinspection ResultOfMethodCallIgnored
+            parent.mkdirs();
+        }
+
+        try (FileOutputStream out = new FileOutputStream(journalFile)) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+    }
+
+    private void append(String line) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+    }
+
+    /**
+     * A completed chunk.
+     */
+    public static class Chunk {
+
+        private long offset;
+        private long length;
+        private DigestBytes digest;
+
+        private Chunk(long offset,
+                      long length,
+                      DigestBytes digest) {
+            this.offset = offset;
+            this.length = length;
+            this.digest = digest;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public DigestBytes getDigest() {
+            return digest;
+        }
+
+        private String toJournalValue() {
+            return offset + "," + length + "," + digest.toHex();
+        }
+
+        private static Chunk fromJournalValue(String value) {
+            Chunk chunk = null;
+            final String[] fields = value.split(",");
+            if (fields.length == 3) {
+                try {
+                    chunk = new Chunk(Long.parseLong(fields[0]),
+                                      Long.parseLong(fields[1]),
+                                      DigestBytes.fromHex(fields[2]));
+                } catch (IllegalArgumentException e) {
+                    LOG.warn("fromJournalValue: ignoring invalid chunk '" +
+                             value + "'");
+                }
+            }
+            return chunk;
+        }
+    }
+
+    private static final String JOURNAL_SUFFIX = ".tmog-journal";
+    private static final String SOURCE = "source=";
+    private static final String SOURCE_LENGTH = "sourceLength=";
+    private static final String SOURCE_LAST_MODIFIED = "sourceLastModified=";
+    private static final String CHUNK_SIZE = "chunkSize=";
+    private static final String CHUNK = "chunk=";
+
+    private static final Logger LOG = Logger.getLogger(TransferJournal.class);
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import java.io.File;
+
+/**
+ * This interface identifies the methods required for listeners
+ * that track the progress of {@link FileTransferUtil} copies.
+ *
+ * @author Eric Trautman
+ */
+public interface TransferProgressListener {
+
+    /**
+     * Notifies this listener about the progress of a copy.
+     * Notifications are throttled by the copying utility and the last
+     * notification for a successful copy always reports all bytes.
+     * Notifications may be made from pipeline threads, so
+     * implementations should be thread safe.
+     *
+     * @param  fromFile          source file being copied.
+     * @param  toFile            target file for the copy.
+     * @param  bytesTransferred  number of bytes transferred so far
+     *                           (may decrease if a resumable transfer
+     *                           needs to restart).
+     * @param  totalBytes        total number of bytes to transfer.
+     */
+    public void transferProgress(File fromFile,
+                                 File toFile,
+                                 long bytesTransferred,
+                                 long totalBytes);
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * This class coordinates file transfers across all sessions in the JVM.
+ * Transfers are scheduled by destination {@link java.nio.file.FileStore}
+ * so that (for example) several sessions writing to the same network
+ * mount do not thrash it.  Each file store may have:
+ * <ul>
+ *   <li>
+ *     a limit on the number of concurrent transfers -
+ *     when the limit is reached, waiting transfers are admitted
+ *     in first come first served order except that transfers from
+ *     sessions with fewer active transfers on the store go first
+ *     (so that no session starves another),
+ *   </li>
+ *   <li>
+ *     a limit on aggregate throughput (megabytes per second) -
+ *     transfers report bytes as they are written and are delayed
+ *     whenever the store's budget has been used up.
+ *   </li>
+ * </ul>
+ * Stores without explicit limits use the default limits.
+ * If no limits are configured, permits are issued without
+ * any coordination.
+ *
+ * @author Eric Trautman
+ */
+public class TransferScheduler {
+
+    /** Value used to indicate that a limit is not enforced. */
+    public static final int UNLIMITED = 0;
+
+    private static final TransferScheduler INSTANCE = new TransferScheduler();
+
+    /**
+     * @return the scheduler shared by all transfers in this JVM.
+     */
+    public static TransferScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    private Limits defaultLimits;
+    private Map<String, Limits> storeKeyToLimits;
+    private Map<String, StoreSchedule> storeKeyToSchedule;
+
+    public TransferScheduler() {
+        this.defaultLimits = new Limits(UNLIMITED, UNLIMITED);
+        this.storeKeyToLimits = new HashMap<String, Limits>();
+        this.storeKeyToSchedule = new HashMap<String, StoreSchedule>();
+    }
+
+    /**
+     * Sets the limits for file stores without explicit limits.
+     *
+     * @param  maxConcurrentTransfers  maximum number of concurrent transfers
+     *                                 for each store or {@link #UNLIMITED}.
+     * @param  maxMegabytesPerSecond   maximum aggregate throughput for each
+     *                                 store or {@link #UNLIMITED}.
+     */
+    public synchronized void setDefaultLimits(int maxConcurrentTransfers,
+                                              double maxMegabytesPerSecond) {
+        defaultLimits = new Limits(maxConcurrentTransfers,
+                                   maxMegabytesPerSecond);
+        for (String storeKey : storeKeyToSchedule.keySet()) {
+            if (! storeKeyToLimits.containsKey(storeKey)) {
+                storeKeyToSchedule.get(storeKey).setLimits(defaultLimits);
+            }
+        }
+        LOG.info("setDefaultLimits: " + defaultLimits);
+    }
+
+    /**
+     * Sets the limits for the file store containing the specified path.
+     *
+     * @param  path                    any existing path on the file store.
+     * @param  maxConcurrentTransfers  maximum number of concurrent transfers
+     *                                 or {@link #UNLIMITED}.
+     * @param  maxMegabytesPerSecond   maximum aggregate throughput
+     *                                 or {@link #UNLIMITED}.
+     *
+     * @throws IllegalArgumentException
+     *   if the file store for the path cannot be determined.
+     */
+    public synchronized void setLimits(File path,
+                                       int maxConcurrentTransfers,
+                                       double maxMegabytesPerSecond)
+            throws IllegalArgumentException {
+
+        final String storeKey = FileTransferUtil.getFileStoreKey(path);
+        if (storeKey == null) {
+            throw new IllegalArgumentException(
+                    "Unable to determine the file store for " +
+                    path.getAbsolutePath() + ".");
+        }
+
+        final Limits limits = new Limits(maxConcurrentTransfers,
+                                         maxMegabytesPerSecond);
+        storeKeyToLimits.put(storeKey, limits);
+        final StoreSchedule schedule = storeKeyToSchedule.get(storeKey);
+        if (schedule != null) {
+            schedule.setLimits(limits);
+        }
+        LOG.info("setLimits: " + limits + " for " + storeKey);
+    }
+
+    /**
+     * Removes all configured limits.
+     */
+    public synchronized void clearLimits() {
+        storeKeyToLimits.clear();
+        setDefaultLimits(UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * Waits (if necessary) until a transfer to the specified file
+     * may start.  Callers must release the returned permit when
+     * the transfer completes (or fails).
+     *
+     * @param  session  the session requesting the transfer
+     *                  (compared by identity for fair sharing).
+     * @param  toFile   target file for the transfer.
+     *
+     * @return a permit for the transfer.
+     *
+     * @throws InterruptedIOException
+     *   if the current thread is interrupted while waiting.
+     */
+    public Permit acquire(Object session,
+                          File toFile)
+            throws InterruptedIOException {
+
+        final StoreSchedule schedule = getSchedule(toFile);
+        final Permit permit;
+        if (schedule == null) {
+            permit = UNSCHEDULED_PERMIT;
+        } else {
+            schedule.admit(session);
+            permit = new Permit(schedule, session);
+        }
+        return permit;
+    }
+
+    private synchronized StoreSchedule getSchedule(File toFile) {
+        StoreSchedule schedule = null;
+        if (defaultLimits.isLimited() || (storeKeyToLimits.size() > 0)) {
+            final String storeKey = FileTransferUtil.getFileStoreKey(toFile);
+            if (storeKey != null) {
+                schedule = storeKeyToSchedule.get(storeKey);
+                if (schedule == null) {
+                    Limits limits = storeKeyToLimits.get(storeKey);
+                    if (limits == null) {
+                        limits = defaultLimits;
+                    }
+                    schedule = new StoreSchedule(storeKey, limits);
+                    storeKeyToSchedule.put(storeKey, schedule);
+                }
+            }
+        }
+        return schedule;
+    }
+
+    /**
+     * Permission to run one transfer.
+     */
+    public static class Permit {
+
+        private StoreSchedule schedule;
+        private Object session;
+        private boolean isReleased;
+
+        private Permit(StoreSchedule schedule,
+                       Object session) {
+            this.schedule = schedule;
+            this.session = session;
+            this.isReleased = false;
+        }
+
+        /**
+         * @return true if the throughput of this permit's transfer
+         *         is limited; otherwise false.
+         */
+        public boolean isThrottled() {
+            return (schedule != null) && schedule.isThrottled();
+        }
+
+        /**
+         * Records that the specified number of bytes were transferred,
+         * waiting if the transfer is ahead of the store's throughput limit.
+         *
+         * @param  byteCount  number of bytes just transferred.
+         *
+         * @throws InterruptedIOException
+         *   if the current thread is interrupted while waiting.
+         */
+        public void throttle(long byteCount)
+                throws InterruptedIOException {
+            if (schedule != null) {
+                schedule.throttle(byteCount);
+            }
+        }
+
+        /**
+         * Releases this permit so that other transfers may start.
+         * Releasing a permit more than once has no effect.
+         */
+        public synchronized void release() {
+            if ((schedule != null) && (! isReleased)) {
+                schedule.release(session);
+                isReleased = true;
+            }
+        }
+    }
+
+    private static final Permit UNSCHEDULED_PERMIT = new Permit(null, null);
+
+    /**
+     * Immutable limits for a file store.
+     */
+    private static class Limits {
+        private int maxConcurrentTransfers;
+        private double maxBytesPerSecond;
+
+        private Limits(int maxConcurrentTransfers,
+                       double maxMegabytesPerSecond) {
+            this.maxConcurrentTransfers = Math.max(UNLIMITED,
+                                                   maxConcurrentTransfers);
+            this.maxBytesPerSecond = Math.max(UNLIMITED,
+                                              maxMegabytesPerSecond * MEGABYTE);
+        }
+
+        private boolean isLimited() {
+            return (maxConcurrentTransfers > UNLIMITED) ||
+                   (maxBytesPerSecond > UNLIMITED);
+        }
+
+        @Override
+        public String toString() {
+            return "{maxConcurrentTransfers=" + maxConcurrentTransfers +
+                   ", maxMegabytesPerSecond=" + (maxBytesPerSecond / MEGABYTE) +
+                   '}';
+        }
+    }
+
+    /**
+     * Admission and throughput state for one file store.
+     * All methods synchronize on the schedule instance.
+     */
+    private static class StoreSchedule {
+
+        private String storeKey;
+        private Limits limits;
+        private int activeCount;
+        private Map<Object, Integer> sessionToActiveCount;
+        private LinkedList<Waiter> waiters;
+        private long nextFreeTime;
+
+        private StoreSchedule(String storeKey,
+                              Limits limits) {
+            this.storeKey = storeKey;
+            this.limits = limits;
+            this.activeCount = 0;
+            this.sessionToActiveCount = new IdentityHashMap<Object, Integer>();
+            this.waiters = new LinkedList<Waiter>();
+            this.nextFreeTime = System.nanoTime();
+        }
+
+        private synchronized void setLimits(Limits limits) {
+            this.limits = limits;
+            notifyAll();
+        }
+
+        private synchronized boolean isThrottled() {
+            return limits.maxBytesPerSecond > UNLIMITED;
+        }
+
+        private synchronized void admit(Object session)
+                throws InterruptedIOException {
+
+            final Waiter waiter = new Waiter(session);
+            waiters.add(waiter);
+            try {
+                while (! isNextToStart(waiter)) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                waiters.remove(waiter);
+                notifyAll();
+                throw new InterruptedIOException(
+                        "interrupted while waiting to transfer to " + storeKey);
+            }
+
+            waiters.remove(waiter);
+            activeCount++;
+            sessionToActiveCount.put(session, getActiveCount(session) + 1);
+
+            // another transfer may also be able to start
+            notifyAll();
+        }
+
+        private boolean isNextToStart(Waiter waiter) {
+            boolean isNext = false;
+            if ((limits.maxConcurrentTransfers == UNLIMITED) ||
+                (activeCount < limits.maxConcurrentTransfers)) {
+                // first waiter from the session with the fewest
+                // active transfers goes next
+                Waiter next = null;
+                int nextActiveCount = Integer.MAX_VALUE;
+                int sessionActiveCount;
+                for (Waiter candidate : waiters) {
+                    sessionActiveCount = getActiveCount(candidate.session);
+                    if (sessionActiveCount < nextActiveCount) {
+                        next = candidate;
+                        nextActiveCount = sessionActiveCount;
+                    }
+                }
+                isNext = (next == waiter);
+            }
+            return isNext;
+        }
+
+        private int getActiveCount(Object session) {
+            final Integer count = sessionToActiveCount.get(session);
+            return (count == null) ? 0 : count;
+        }
+
+        private synchronized void release(Object session) {
+            activeCount--;
+            final int count = getActiveCount(session) - 1;
+            if (count > 0) {
+                sessionToActiveCount.put(session, count);
+            } else {
+                sessionToActiveCount.remove(session);
+            }
+            notifyAll();
+        }
+
+        private void throttle(long byteCount)
+                throws InterruptedIOException {
+
+            long delay = 0;
+            synchronized (this) {
+                if (limits.maxBytesPerSecond > UNLIMITED) {
+                    // reserve time for these bytes after all previously
+                    // reserved bytes (from any transfer to this store)
+                    final long now = System.nanoTime();
+                    final long start = Math.max(now, nextFreeTime);
+                    nextFreeTime = start +
+                            (long) ((byteCount * NANOS_PER_SECOND) /
+                                    limits.maxBytesPerSecond);
+                    delay = nextFreeTime - now;
+                }
+            }
+
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay / NANOS_PER_MILLISECOND,
+                                 (int) (delay % NANOS_PER_MILLISECOND));
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException(
+                            "interrupted while throttling transfer to " +
+                            storeKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * A transfer waiting to start (each waiting transfer has its own
+     * instance, even when sessions match).
+     */
+    private static class Waiter {
+        private Object session;
+
+        private Waiter(Object session) {
+            this.session = session;
+        }
+    }
+
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+    private static final long NANOS_PER_MILLISECOND = 1000000;
+
+    private static final Logger LOG = Logger.getLogger(TransferScheduler.class);
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class supports the calculation of chunked (two level Merkle tree)
+ * message digests.  Data is split into fixed size chunks, a leaf digest
+ * is calculated for each chunk, and the root digest is calculated (with
+ * the same leaf algorithm) from the concatenated chunk digests.
+ * <p>
+ * Because chunk digests are independent, file digests can be calculated
+ * in parallel (see {@link #digestFile}) while streamed updates (e.g.
+ * during a copy) produce the same result sequentially.
+ * <p>
+ * Algorithm names have the form tree-&lt;leaf algorithm&gt;-&lt;chunk
+ * megabytes&gt;m (e.g. tree-md5-64m) so that the chunk size is recorded
+ * wherever the algorithm name is logged and archived files can later be
+ * re-verified with the same parameters.
+ *
+ * @author Eric Trautman
+ */
+public class TreeMessageDigest
+        extends MessageDigest {
+
+    /** Prefix for all tree algorithm names. */
+    public static final String NAME_PREFIX = "tree-";
+
+    /** Default tree algorithm name (md5 leaves with 64 megabyte chunks). */
+    public static final String DEFAULT_NAME = NAME_PREFIX + "md5-64m";
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    /** Maximum size of each parallel task's read buffer. */
+    private static final int MAX_TASK_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private static final Pattern NAME_PATTERN =
+            Pattern.compile(NAME_PREFIX + "([a-z0-9]+)-([0-9]+)m",
+                            Pattern.CASE_INSENSITIVE);
+
+    /** Shared pool for parallel chunk digest calculation. */
+    private static final ForkJoinPool CHUNK_POOL =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * @param  digestAlgorithm  algorithm name to check.
+     *
+     * @return true if the specified name identifies a tree algorithm;
+     *         otherwise false.
+     */
+    public static boolean isTreeAlgorithm(String digestAlgorithm) {
+        return (digestAlgorithm != null) &&
+               digestAlgorithm.toLowerCase().startsWith(NAME_PREFIX);
+    }
+
+    private final String leafAlgorithm;
+    private final long chunkSize;
+    private final MessageDigest leafDigest;
+    private final ByteArrayOutputStream chunkDigests;
+    private long currentChunkLength;
+
+    /**
+     * Constructs a digest for the specified tree algorithm name.
+     *
+     * @param  digestAlgorithm  tree algorithm name (e.g. tree-md5-64m).
+     *
+     * @throws NoSuchAlgorithmException
+     *   if the name is not a valid tree algorithm name or
+     *   the leaf algorithm cannot be found.
+     */
+    public TreeMessageDigest(String digestAlgorithm)
+            throws NoSuchAlgorithmException {
+
+        super(digestAlgorithm);
+
+        final Matcher m = NAME_PATTERN.matcher(digestAlgorithm);
+        if (! m.matches()) {
+            throw new NoSuchAlgorithmException(
+                    "tree digest algorithm '" + digestAlgorithm +
+                    "' does not match the pattern " + NAME_PATTERN.pattern());
+        }
+
+        this.leafAlgorithm = m.group(1).toLowerCase();
+        if ("tree".equals(leafAlgorithm) ||
+            DigestAlgorithms.NONE.equals(leafAlgorithm)) {
+            throw new NoSuchAlgorithmException(
+                    "invalid leaf algorithm for '" + digestAlgorithm + "'");
+        }
+
+        final long chunkMegabytes = Long.parseLong(m.group(2));
+        if (chunkMegabytes < 1) {
+            throw new NoSuchAlgorithmException(
+                    "chunk size for '" + digestAlgorithm +
+                    "' must be at least 1 megabyte");
+        }
+
+        this.chunkSize = chunkMegabytes * MEGABYTE;
+        this.leafDigest = createLeafDigest();
+        this.chunkDigests = new ByteArrayOutputStream();
+        this.currentChunkLength = 0;
+    }
+
+    /**
+     * @return the name of the algorithm used for chunk (and root) digests.
+     */
+    public String getLeafAlgorithm() {
+        return leafAlgorithm;
+    }
+
+    /**
+     * @return the number of bytes in each chunk.
+     */
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        leafDigest.update(input);
+        currentChunkLength++;
+        if (currentChunkLength == chunkSize) {
+            finishChunk();
+        }
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input,
+                                int offset,
+                                int len) {
+        int position = offset;
+        int remaining = len;
+        int length;
+        while (remaining > 0) {
+            length = (int) Math.min(remaining, chunkSize - currentChunkLength);
+            leafDigest.update(input, position, length);
+            currentChunkLength += length;
+            position += length;
+            remaining -= length;
+            if (currentChunkLength == chunkSize) {
+                finishChunk();
+            }
+        }
+    }
+
+    @Override
+    protected void engineUpdate(ByteBuffer input) {
+        final int limit = input.limit();
+        int length;
+        while (input.hasRemaining()) {
+            length = (int) Math.min(input.remaining(),
+                                    chunkSize - currentChunkLength);
+            input.limit(input.position() + length);
+            leafDigest.update(input);
+            input.limit(limit);
+            currentChunkLength += length;
+            if (currentChunkLength == chunkSize) {
+                finishChunk();
+            }
+        }
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        if (currentChunkLength > 0) {
+            finishChunk();
+        }
+        final byte[] root = leafDigest.digest(chunkDigests.toByteArray());
+        engineReset();
+        return root;
+    }
+
+    @Override
+    protected void engineReset() {
+        leafDigest.reset();
+        chunkDigests.reset();
+        currentChunkLength = 0;
+    }
+
+    /**
+     * Calculates the digest for all data in the specified channel,
+     * calculating chunk digests in parallel.  The result is identical
+     * to the result of streaming the same data through this digest.
+     * This digest's (streaming) state is not used or changed.
+     *
+     * @param  channel     channel to read (with positional reads).
+     * @param  bufferSize  preferred read buffer size for each chunk task.
+     *
+     * @return the root digest.
+     *
+     * @throws IOException
+     *   if any errors occur reading the channel.
+     */
+    public byte[] digestFile(final FileChannel channel,
+                             int bufferSize)
+            throws IOException {
+
+        final long size = channel.size();
+        final int taskBufferSize =
+                (int) Math.min(Math.min(bufferSize, MAX_TASK_BUFFER_SIZE),
+                               chunkSize);
+
+        final List<Callable<byte[]>> chunkTasks = new ArrayList<Callable<byte[]>>();
+        for (long start = 0; start < size; start += chunkSize) {
+            final long chunkStart = start;
+            final long chunkEnd = Math.min(size, start + chunkSize);
+            chunkTasks.add(() -> digestChunk(channel,
+                                             chunkStart,
+                                             chunkEnd,
+                                             taskBufferSize));
+        }
+
+        final MessageDigest rootDigest = createLeafDigest();
+        try {
+            for (Future<byte[]> chunkResult : CHUNK_POOL.invokeAll(chunkTasks)) {
+                rootDigest.update(chunkResult.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while calculating chunk digests", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("failed to calculate chunk digest", cause);
+        }
+
+        return rootDigest.digest();
+    }
+
+    private byte[] digestChunk(FileChannel channel,
+                               long chunkStart,
+                               long chunkEnd,
+                               int taskBufferSize)
+            throws IOException {
+
+        final MessageDigest chunkDigest = createLeafDigest();
+        final ByteBuffer buffer = ByteBuffer.allocate(taskBufferSize);
+
+        long position = chunkStart;
+        int bytesRead;
+        while (position < chunkEnd) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), chunkEnd - position));
+            bytesRead = channel.read(buffer, position);
+            if (bytesRead < 0) {
+                throw new IOException("unexpected end of file at position " +
+                                      position);
+            }
+            position += bytesRead;
+            buffer.flip();
+            chunkDigest.update(buffer);
+        }
+
+        return chunkDigest.digest();
+    }
+
+    private void finishChunk() {
+        final byte[] chunkDigest = leafDigest.digest();
+        chunkDigests.write(chunkDigest, 0, chunkDigest.length);
+        currentChunkLength = 0;
+    }
+
+    private MessageDigest createLeafDigest() {
+        try {
+            return DigestAlgorithms.getMessageDigest(leafAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(
+                    "failed to create " + leafAlgorithm + " digest", e);
+        }
+    }
+}
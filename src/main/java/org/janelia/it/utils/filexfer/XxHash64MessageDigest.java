@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+
+/**
+ * This class supports the calculation of message digests using the
+ * (non-cryptographic) 64 bit xxHash algorithm with a zero seed.
+ * It is a pure java port of the streaming reference implementation
+ * (see <a href="https://github.com/Cyan4973/xxHash">xxHash</a>).
+ * <p>
+ * Digest bytes are big endian so that {@link DigestBytes#toSum()}
+ * matches the output of standard tools like xxhsum.
+ *
+ * @author Eric Trautman
+ */
+public class XxHash64MessageDigest
+        extends MessageDigest {
+
+    public static final String NAME = "xxhash64";
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE_LENGTH = 32;
+
+    private static final VarHandle LONG_HANDLE =
+            MethodHandles.byteArrayViewVarHandle(long[].class,
+                                                 ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_HANDLE =
+            MethodHandles.byteArrayViewVarHandle(int[].class,
+                                                 ByteOrder.LITTLE_ENDIAN);
+
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long totalLength;
+    private final byte[] stripe;
+    private int stripeLength;
+
+    public XxHash64MessageDigest() {
+        super(NAME);
+        this.stripe = new byte[STRIPE_LENGTH];
+        engineReset();
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return 8;
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        stripe[stripeLength] = input;
+        stripeLength++;
+        totalLength++;
+        if (stripeLength == STRIPE_LENGTH) {
+            processStripe(stripe, 0);
+            stripeLength = 0;
+        }
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input,
+                                int offset,
+                                int len) {
+
+        totalLength += len;
+
+        int position = offset;
+        final int end = offset + len;
+
+        // fill and process any partial stripe left from the last update
+        if (stripeLength > 0) {
+            final int fillLength = Math.min(len, STRIPE_LENGTH - stripeLength);
+            System.arraycopy(input, position, stripe, stripeLength, fillLength);
+            stripeLength += fillLength;
+            position += fillLength;
+            if (stripeLength < STRIPE_LENGTH) {
+                return;
+            }
+            processStripe(stripe, 0);
+            stripeLength = 0;
+        }
+
+        // process full stripes directly from the input
+        final int lastStripeStart = end - STRIPE_LENGTH;
+        while (position <= lastStripeStart) {
+            processStripe(input, position);
+            position += STRIPE_LENGTH;
+        }
+
+        // save the remainder for the next update
+        stripeLength = end - position;
+        System.arraycopy(input, position, stripe, 0, stripeLength);
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+
+        long hash;
+        if (totalLength >= STRIPE_LENGTH) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) +
+                   Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME64_5;
+        }
+
+        hash += totalLength;
+
+        int position = 0;
+        while ((position + 8) <= stripeLength) {
+            hash ^= round(0, (long) LONG_HANDLE.get(stripe, position));
+            hash = (Long.rotateLeft(hash, 27) * PRIME64_1) + PRIME64_4;
+            position += 8;
+        }
+
+        if ((position + 4) <= stripeLength) {
+            hash ^= ((int) INT_HANDLE.get(stripe, position) & 0xFFFFFFFFL) *
+                    PRIME64_1;
+            hash = (Long.rotateLeft(hash, 23) * PRIME64_2) + PRIME64_3;
+            position += 4;
+        }
+
+        while (position < stripeLength) {
+            hash ^= (stripe[position] & 0xFFL) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+            position++;
+        }
+
+        // avalanche
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+
+        final byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) hash;
+            hash >>>= 8;
+        }
+
+        engineReset();
+
+        return bytes;
+    }
+
+    @Override
+    protected void engineReset() {
+        v1 = PRIME64_1 + PRIME64_2;
+        v2 = PRIME64_2;
+        v3 = 0;
+        v4 = -PRIME64_1;
+        totalLength = 0;
+        stripeLength = 0;
+    }
+
+    private void processStripe(byte[] input,
+                               int offset) {
+        v1 = round(v1, (long) LONG_HANDLE.get(input, offset));
+        v2 = round(v2, (long) LONG_HANDLE.get(input, offset + 8));
+        v3 = round(v3, (long) LONG_HANDLE.get(input, offset + 16));
+        v4 = round(v4, (long) LONG_HANDLE.get(input, offset + 24));
+    }
+
+    private static long round(long accumulator,
+                              long input) {
+        accumulator += input * PRIME64_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME64_1;
+    }
+
+    private static long mergeRound(long accumulator,
+                                   long value) {
+        accumulator ^= round(0, value);
+        return (accumulator * PRIME64_1) + PRIME64_4;
+    }
+}
@@ -155,6 +155,30 @@ public class CompanionFileRowListenerTest
         processRowsAndValidateFileChanges(false);
     }
 
+    public void testTransferStartedWithRow() throws Exception {
+        for (RenamePluginDataRow row : allRows) {
+            rowListener.processEvent(RowListener.EventType.START_ROW, row);
+        }
+
+        rowListener.processEvent(RowListener.EventType.END_ROW_FAIL,
+                                 allRows.get(0));
+        assertFalse(renamedCompanionFiles[0].getAbsolutePath() +
+                    " was not removed after row failed",
+                    renamedCompanionFiles[0].exists());
+        assertTrue(testCompanionFiles[0].getAbsolutePath() +
+                   " was removed after row failed",
+                   testCompanionFiles[0].exists());
+
+        rowListener.processEvent(RowListener.EventType.END_ROW_SUCCESS,
+                                 allRows.get(2));
+        assertTrue(renamedCompanionFiles[2].getAbsolutePath() +
+                   " was not created",
+                   renamedCompanionFiles[2].exists());
+        assertFalse(testCompanionFiles[2].getAbsolutePath() +
+                    " was not removed",
+                    testCompanionFiles[2].exists());
+    }
+
     public void testExistingRenamedCompanionFile() throws Exception {
         createTestFile(renamedCompanionFiles[0].getName());
         verifyProcessException(0, "Failed to rename companion file");
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.target;
+
+import org.janelia.it.ims.tmog.DataRow;
+import org.janelia.it.ims.tmog.field.VerifiedTextModel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests the {@link FieldValueFile} class.
+ *
+ * @author Eric Trautman
+ */
+public class FieldValueFileTest {
+
+    private File valuesFile;
+
+    @Before
+    public void setUp() throws Exception {
+        valuesFile = File.createTempFile("field-values-test-", ".tsv");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (! valuesFile.delete()) {
+            valuesFile.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void testApplyValues() throws Exception {
+
+        writeValues("# comment line\n" +
+                    "File\tSample\tTag\n" +
+                    "\n" +
+                    "a.lsm\talpha\t\n" +
+                    "b.lsm\tbeta\tx2\n" +
+                    "missing.lsm\tgamma\tx3\n");
+
+        final FieldValueFile file = new FieldValueFile(valuesFile);
+        file.load();
+
+        Assert.assertEquals("invalid field names",
+                            2, file.getFieldNames().size());
+        Assert.assertEquals("invalid number of targets", 3, file.size());
+
+        final List<DataRow> rows = new ArrayList<DataRow>();
+        rows.add(buildRow("a.lsm"));
+        rows.add(buildRow("b.lsm"));
+        rows.add(buildRow("c.lsm"));
+
+        final List<String> unmatched = file.applyValues(rows);
+
+        Assert.assertEquals("invalid unmatched targets",
+                            Collections.singletonList("missing.lsm"),
+                            unmatched);
+        Assert.assertEquals("invalid Sample for a",
+                            "alpha", rows.get(0).getField(0).getCoreValue());
+        Assert.assertEquals("empty Tag should not replace default for a",
+                            "default", rows.get(0).getField(1).getCoreValue());
+        Assert.assertEquals("invalid Tag for b",
+                            "x2", rows.get(1).getField(1).getCoreValue());
+        Assert.assertEquals("row without values should keep default",
+                            "default", rows.get(2).getField(1).getCoreValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownField() throws Exception {
+        writeValues("File\tUnknown\n" +
+                    "a.lsm\tvalue\n");
+        final FieldValueFile file = new FieldValueFile(valuesFile);
+        file.load();
+        file.applyValues(Collections.singletonList(buildRow("a.lsm")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateTarget() throws Exception {
+        writeValues("File\tSample\n" +
+                    "a.lsm\talpha\n" +
+                    "a.lsm\tbeta\n");
+        new FieldValueFile(valuesFile).load();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyColumns() throws Exception {
+        writeValues("File\tSample\n" +
+                    "a.lsm\talpha\textra\n");
+        new FieldValueFile(valuesFile).load();
+    }
+
+    private void writeValues(String text) throws Exception {
+        Files.write(valuesFile.toPath(),
+                    text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private DataRow buildRow(String targetName) {
+        final DataRow row = new DataRow(new FileTarget(new File(targetName)));
+        row.addField(buildField("Sample", null));
+        row.addField(buildField("Tag", "default"));
+        return row;
+    }
+
+    private VerifiedTextModel buildField(String displayName,
+                                         String value) {
+        final VerifiedTextModel field = new VerifiedTextModel();
+        field.setDisplayName(displayName);
+        if (value != null) {
+            field.applyValue(value);
+        }
+        return field;
+    }
+}
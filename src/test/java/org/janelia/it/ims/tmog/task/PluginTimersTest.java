@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.task;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Tests the {@link LatencyTimer} and {@link PluginTimers} classes.
+ *
+ * @author Eric Trautman
+ */
+public class PluginTimersTest {
+
+    @Test
+    public void testPercentiles() throws Exception {
+        final LatencyTimer timer = new LatencyTimer("test");
+
+        Assert.assertEquals("invalid p50 for empty timer",
+                            0, timer.getP50Millis());
+
+        for (int i = 100; i > 0; i--) {
+            timer.record(i * MILLIS);
+        }
+
+        Assert.assertEquals("invalid count", 100, timer.getCount());
+        Assert.assertEquals("invalid total", 5050, timer.getTotalMillis());
+        Assert.assertEquals("invalid p50", 50, timer.getP50Millis());
+        Assert.assertEquals("invalid p95", 95, timer.getP95Millis());
+        Assert.assertEquals("invalid max", 100, timer.getMaxMillis());
+
+        timer.reset();
+
+        Assert.assertEquals("invalid count after reset",
+                            0, timer.getCount());
+        Assert.assertEquals("invalid max after reset",
+                            0, timer.getMaxMillis());
+    }
+
+    @Test
+    public void testPercentilesUseRecentSamples() throws Exception {
+        final LatencyTimer timer = new LatencyTimer("test");
+        for (int i = 0; i < LatencyTimer.MAX_SAMPLES; i++) {
+            timer.record(1000 * MILLIS);
+        }
+        for (int i = 0; i < LatencyTimer.MAX_SAMPLES; i++) {
+            timer.record(MILLIS);
+        }
+
+        Assert.assertEquals("invalid count",
+                            2 * LatencyTimer.MAX_SAMPLES, timer.getCount());
+        Assert.assertEquals("invalid p95", 1, timer.getP95Millis());
+        Assert.assertEquals("invalid max", 1000, timer.getMaxMillis());
+    }
+
+    @Test
+    public void testAddAll() throws Exception {
+        final PluginTimers validationTimers = new PluginTimers();
+        validationTimers.record("Validator validate",
+                                System.nanoTime() - (7 * MILLIS));
+
+        final PluginTimers taskTimers = new PluginTimers();
+        taskTimers.record("Task processRow", System.nanoTime());
+        taskTimers.addAll(validationTimers);
+        taskTimers.addAll(null);
+
+        final List<LatencyTimer> timers = taskTimers.getTimers();
+        Assert.assertEquals("invalid number of timers", 2, timers.size());
+
+        final LatencyTimer validateTimer = timers.get(1);
+        Assert.assertEquals("invalid name",
+                            "Validator validate", validateTimer.getName());
+        Assert.assertEquals("invalid count", 1, validateTimer.getCount());
+        Assert.assertTrue("max should include added time",
+                          validateTimer.getMaxMillis() >= 7);
+
+        final String table = taskTimers.getSummaryTable();
+        Assert.assertTrue("table missing header: " + table,
+                          table.startsWith("Call "));
+        Assert.assertTrue("table missing validate row: " + table,
+                          table.contains("Validator validate"));
+    }
+
+    @Test
+    public void testEmptySummaryTable() throws Exception {
+        Assert.assertEquals("table should be empty when nothing is timed",
+                            "", new PluginTimers().getSummaryTable());
+    }
+
+    private static final long MILLIS = 1000000;
+}
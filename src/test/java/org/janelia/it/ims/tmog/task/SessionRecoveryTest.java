@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.task;
+
+import org.janelia.it.utils.filexfer.DigestAlgorithms;
+import org.janelia.it.utils.filexfer.DigestBytes;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the {@link SessionLog} and {@link SessionRecovery} classes.
+ *
+ * @author Eric Trautman
+ */
+public class SessionRecoveryTest {
+
+    private File testDirectory;
+    private File logDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        testDirectory = new File(SDF.format(new Date()));
+        logDirectory = new File(testDirectory, "logs");
+        if (! logDirectory.mkdirs()) {
+            throw new IOException("failed to create " +
+                                  logDirectory.getAbsolutePath());
+        }
+        SessionLog.setDirectory(logDirectory);
+    }
+
+    @After
+    public void tearDown() {
+        SessionLog.setDirectory(null);
+        deleteTree(testDirectory);
+    }
+
+    @Test
+    public void testRecover() throws Exception {
+
+        final File startedFrom = writeData("started.txt", "started");
+        final File startedTo = writeData("started-copy.txt", "sta");
+        final File verifiedFrom = writeData("verified.txt", "verified");
+        final File verifiedTo = writeData("verified-copy.txt", "verified");
+        final File listenedFrom = writeData("listened.txt", "listened");
+        final File listenedTo = writeData("listened-copy.txt", "listened");
+        final File movedFrom = new File(testDirectory, "moved.txt");
+        final File movedTo = writeData("moved-copy.txt", "moved");
+        final File completedFrom = writeData("completed.txt", "completed");
+        final File completedTo = writeData("completed-copy.txt", "completed");
+
+        final Map<String, DigestBytes> digests =
+                Collections.singletonMap("md5",
+                                         new DigestBytes(new byte[] {1, 2}));
+
+        final SessionLog log = new SessionLog("test", true);
+        log.record(SessionLog.RowState.COPY_STARTED, startedFrom, startedTo);
+        log.record(SessionLog.RowState.COPY_STARTED, verifiedFrom, verifiedTo);
+        recordVerifiedCopy(log, verifiedFrom, verifiedTo, digests);
+        recordVerifiedCopy(log, listenedFrom, listenedTo,
+                           getDigests(listenedFrom));
+        log.record(SessionLog.RowState.LISTENERS_DONE, listenedFrom, listenedTo);
+        recordVerifiedCopy(log, movedFrom, movedTo, digests);
+        log.record(SessionLog.RowState.SOURCE_DELETED, movedFrom, movedTo);
+        recordVerifiedCopy(log, completedFrom, completedTo, digests);
+        log.record(SessionLog.RowState.LISTENERS_DONE, completedFrom, completedTo);
+        log.record(SessionLog.RowState.COMPLETED, completedFrom, completedTo);
+
+        final File logFile = log.getLogFile();
+        Assert.assertNotNull("log file should be created", logFile);
+        Assert.assertEquals("running session should not be recovered",
+                            0, SessionRecovery.findInterruptedSessions().size());
+
+        // simulate an interrupted session by leaving a copy of its log
+        final File interruptedLogFile =
+                new File(logDirectory,
+                         logFile.getName().replace(".log", "-interrupted.log"));
+        Files.copy(logFile.toPath(), interruptedLogFile.toPath());
+        log.close();
+        Assert.assertFalse("log should be removed when session closes",
+                           logFile.exists());
+
+        final List<SessionRecovery> recoveries =
+                SessionRecovery.findInterruptedSessions();
+        Assert.assertEquals("invalid number of interrupted sessions",
+                            1, recoveries.size());
+        final SessionRecovery recovery = recoveries.get(0);
+        Assert.assertEquals("invalid task name",
+                            "test", recovery.getTaskName());
+        Assert.assertEquals("invalid row count",
+                            5, recovery.getRowCount());
+        Assert.assertEquals("invalid incomplete row count",
+                            4, recovery.getIncompleteRowCount());
+
+        recovery.recover();
+
+        Assert.assertTrue("started source should be kept",
+                          startedFrom.exists());
+        Assert.assertFalse("partial copy should be removed",
+                           startedTo.exists());
+        Assert.assertTrue("verified source should be kept",
+                          verifiedFrom.exists());
+        Assert.assertTrue("verified copy should be kept",
+                          verifiedTo.exists());
+        Assert.assertFalse("source should be removed after listeners completed",
+                           listenedFrom.exists());
+        Assert.assertTrue("moved file should be moved back",
+                          movedFrom.exists() && (! movedTo.exists()));
+        Assert.assertTrue("completed row should not be changed",
+                          completedFrom.exists() && completedTo.exists());
+
+        Assert.assertTrue("log should be kept for verified copy",
+                          interruptedLogFile.exists());
+        Assert.assertNull("copy should not be found for wrong source",
+                          SessionRecovery.findRecoveredCopy(startedFrom,
+                                                            verifiedTo));
+        final SessionRecovery.RecoveredCopy copy =
+                SessionRecovery.claimRecoveredCopy(verifiedFrom, verifiedTo);
+        Assert.assertNotNull("verified copy should be claimed", copy);
+        Assert.assertEquals("invalid verified copy digests",
+                            digests, copy.getDigests());
+        Assert.assertNull("verified copy should only be claimed once",
+                          SessionRecovery.claimRecoveredCopy(verifiedFrom,
+                                                             verifiedTo));
+
+        // once the copy has been used, the rewritten log has nothing to do
+        Assert.assertTrue("verified source should be removed",
+                          verifiedFrom.delete());
+        final SessionRecovery nextRecovery =
+                new SessionRecovery(interruptedLogFile);
+        Assert.assertEquals("rewritten log should only have verified copy",
+                            1, nextRecovery.getRowCount());
+        nextRecovery.recover();
+        Assert.assertFalse("log should be removed after final recovery",
+                           interruptedLogFile.exists());
+    }
+
+    @Test
+    public void testRecoveredCopyIsCheckedBeforeReuse() throws Exception {
+
+        final File intactFrom = writeData("intact.txt", "intact");
+        final File intactTo = writeData("intact-copy.txt", "intact");
+        final File corruptFrom = writeData("corrupt.txt", "corrupt");
+        final File corruptTo = writeData("corrupt-copy.txt", "garbage");
+        final File unverifiedFrom = writeData("unverified.txt", "unverified");
+        final File unverifiedTo = writeData("unverified-copy.txt",
+                                            "unverified");
+        final File movedFrom = new File(testDirectory, "moved.txt");
+        final File movedTo = writeData("moved-copy.txt", "moved");
+
+        final SessionLog log = new SessionLog("test", true);
+        recordVerifiedCopy(log, intactFrom, intactTo,
+                           getDigests(intactFrom));
+        recordVerifiedCopy(log, corruptFrom, corruptTo,
+                           getDigests(corruptFrom));
+        recordVerifiedCopy(log, unverifiedFrom, unverifiedTo,
+                           Collections.<String, DigestBytes>emptyMap());
+        // unvalidated move
+        log.record(SessionLog.RowState.COPIED, movedFrom, movedTo);
+        log.record(SessionLog.RowState.SOURCE_DELETED, movedFrom, movedTo);
+
+        final File interruptedLogFile = new File(logDirectory,
+                                                 "tmog-session-interrupted.log");
+        Files.copy(log.getLogFile().toPath(), interruptedLogFile.toPath());
+        log.close();
+
+        new SessionRecovery(interruptedLogFile).recover();
+
+        Assert.assertTrue("unvalidated move should be moved back",
+                          movedFrom.exists() && (! movedTo.exists()));
+
+        final SessionRecovery.RecoveredCopy intactCopy =
+                SessionRecovery.claimRecoveredCopy(intactFrom, intactTo);
+        Assert.assertNotNull("intact copy should be kept", intactCopy);
+        Assert.assertTrue("intact copy should match source digests",
+                          intactCopy.isCopyIntact());
+
+        final SessionRecovery.RecoveredCopy corruptCopy =
+                SessionRecovery.claimRecoveredCopy(corruptFrom, corruptTo);
+        Assert.assertNotNull("same length copy should be kept", corruptCopy);
+        Assert.assertFalse("corrupt copy should not match source digests",
+                           corruptCopy.isCopyIntact());
+
+        final SessionRecovery.RecoveredCopy unverifiedCopy =
+                SessionRecovery.claimRecoveredCopy(unverifiedFrom,
+                                                   unverifiedTo);
+        Assert.assertNotNull("copy without digests should be kept",
+                             unverifiedCopy);
+        Assert.assertFalse("copy without digests should never be reused",
+                           unverifiedCopy.isCopyIntact());
+    }
+
+    @Test
+    public void testUnverifiedListenedRowKeepsSource() throws Exception {
+
+        // same length as the source, but content was never verified
+        final File from = writeData("unverified.txt", "unverified");
+        final File to = writeData("unverified-copy.txt", "unflushed!");
+
+        final SessionLog log = new SessionLog("test", true);
+        log.record(SessionLog.RowState.COPY_STARTED, from, to);
+        log.record(SessionLog.RowState.COPIED, from, to);
+        log.record(SessionLog.RowState.LISTENERS_DONE, from, to);
+
+        final File interruptedLogFile = new File(logDirectory,
+                                                 "tmog-session-interrupted.log");
+        Files.copy(log.getLogFile().toPath(), interruptedLogFile.toPath());
+        log.close();
+
+        final String summary =
+                new SessionRecovery(interruptedLogFile).recover();
+
+        Assert.assertTrue("source of unverified copy should be kept",
+                          from.exists());
+        Assert.assertTrue("unverified copy should be kept", to.exists());
+        Assert.assertTrue("summary should report kept source: " + summary,
+                          summary.contains("kept source (copy not verified)"));
+    }
+
+    @Test
+    public void testDisabledLog() throws Exception {
+        SessionLog.setDirectory(null);
+        final File from = writeData("from.txt", "data");
+        final SessionLog log = new SessionLog("test", true);
+        log.record(SessionLog.RowState.COPY_STARTED, from, from);
+        Assert.assertNull("disabled log should not create a file",
+                          log.getLogFile());
+        log.close();
+    }
+
+    private void recordVerifiedCopy(SessionLog log,
+                                    File from,
+                                    File to,
+                                    Map<String, DigestBytes> digests) {
+        log.recordVerifiedCopy(from,
+                               to,
+                               from.length(),
+                               from.lastModified(),
+                               digests);
+    }
+
+    private Map<String, DigestBytes> getDigests(File file)
+            throws Exception {
+        final MessageDigest digest =
+                DigestAlgorithms.getMessageDigest(DigestAlgorithms.MD5);
+        digest.update(Files.readAllBytes(file.toPath()));
+        return Collections.singletonMap(DigestAlgorithms.MD5,
+                                        new DigestBytes(digest.digest()));
+    }
+
+    private File writeData(String name,
+                           String data) throws IOException {
+        final File file = new File(testDirectory, name);
+        final FileWriter writer = new FileWriter(file);
+        writer.write(data);
+        writer.close();
+        return file;
+    }
+
+    private void deleteTree(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private static final SimpleDateFormat SDF =
+            new SimpleDateFormat("'session-log-test-'yyyyMMddHHmmssSSS");
+}
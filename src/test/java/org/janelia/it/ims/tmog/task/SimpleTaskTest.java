@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.ims.tmog.task;
+
+import org.janelia.it.ims.tmog.DataRow;
+import org.janelia.it.ims.tmog.DataTableModel;
+import org.janelia.it.ims.tmog.config.PluginConfiguration;
+import org.janelia.it.ims.tmog.config.ProjectConfiguration;
+import org.janelia.it.ims.tmog.plugin.AsyncRowListener;
+import org.janelia.it.ims.tmog.plugin.AsyncRowListenerSupport;
+import org.janelia.it.ims.tmog.plugin.BatchProcessingException;
+import org.janelia.it.ims.tmog.plugin.BatchRowListener;
+import org.janelia.it.ims.tmog.plugin.ExternalSystemException;
+import org.janelia.it.ims.tmog.plugin.PluginDataRow;
+import org.janelia.it.ims.tmog.plugin.RowListener;
+import org.janelia.it.ims.tmog.target.FileTarget;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the {@link SimpleTask} class.
+ *
+ * @author Eric Trautman
+ */
+public class SimpleTaskTest {
+
+    @Test
+    public void testConcurrentRows() throws Exception {
+
+        final TestTask task = new TestTask(6);
+        task.maxConcurrentRows = 3;
+        task.failedTargetName = "f4";
+        final EventRecorder listener = new EventRecorder();
+        task.addRowListener(listener);
+
+        task.doInBackground();
+
+        Assert.assertEquals("invalid cleanup order",
+                            Arrays.asList("f0:true", "f1:true", "f2:true",
+                                          "f3:true", "f4:false", "f5:true"),
+                            task.cleanedUpRows);
+        Assert.assertEquals("invalid failed rows",
+                            Collections.singletonList(4),
+                            task.getFailedRowIndices());
+
+        // start and end events are each sent in row order
+        final List<String> startEvents = new ArrayList<String>();
+        final List<String> endEvents = new ArrayList<String>();
+        for (String event : listener.getEvents()) {
+            if (event.startsWith("START_ROW")) {
+                startEvents.add(event);
+            } else {
+                endEvents.add(event);
+            }
+        }
+        Assert.assertEquals("invalid start events",
+                            Arrays.asList("START_ROW f0", "START_ROW f1",
+                                          "START_ROW f2", "START_ROW f3",
+                                          "START_ROW f4", "START_ROW f5"),
+                            startEvents);
+        Assert.assertEquals("invalid end events",
+                            Arrays.asList("END_ROW_SUCCESS f0",
+                                          "END_ROW_SUCCESS f1",
+                                          "END_ROW_SUCCESS f2",
+                                          "END_ROW_SUCCESS f3",
+                                          "END_ROW_FAIL f4",
+                                          "END_ROW_SUCCESS f5"),
+                            endEvents);
+        Assert.assertTrue("rows were not processed concurrently, max was " +
+                          task.maxRowsInProcess.get(),
+                          task.maxRowsInProcess.get() > 1);
+        Assert.assertTrue("session should be completed",
+                          task.isSessionCompleted());
+    }
+
+    @Test
+    public void testAbortedSession() throws Exception {
+
+        final TestTask task = new TestTask(4);
+        task.abortTargetName = "f1";
+
+        task.doInBackground();
+
+        Assert.assertFalse("aborted session should not be completed",
+                           task.isSessionCompleted());
+        Assert.assertEquals("unprocessed rows should not be cleaned up",
+                            Collections.singletonList("f0:true"),
+                            task.cleanedUpRows);
+    }
+
+    @Test
+    public void testLookAheadWithCancel() throws Exception {
+
+        final TestTask task = new TestTask(6);
+        task.startRowLookAhead = 2;
+        task.cancelTargetName = "f1";
+        final EventRecorder listener = new EventRecorder();
+        task.addRowListener(listener);
+
+        task.doInBackground();
+
+        Assert.assertEquals("invalid cleanup order",
+                            Arrays.asList("f0:true", "f1:true"),
+                            task.cleanedUpRows);
+        Assert.assertEquals("invalid failed rows",
+                            Arrays.asList(2, 3, 4, 5),
+                            task.getFailedRowIndices());
+
+        // rows started ahead of the cancel should be failed
+        final List<String> events = listener.getEvents();
+        Assert.assertEquals("invalid events for first row",
+                            Arrays.asList("START_ROW f0", "END_ROW_SUCCESS f0"),
+                            listener.getEventsFor("f0"));
+        for (String targetName : new String[] {"f2", "f3"}) {
+            if (events.contains("START_ROW " + targetName)) {
+                Assert.assertEquals(
+                        "invalid events for " + targetName,
+                        Arrays.asList("START_ROW " + targetName,
+                                      "END_ROW_FAIL " + targetName),
+                        listener.getEventsFor(targetName));
+            }
+        }
+        Assert.assertFalse("row beyond look-ahead was started",
+                           events.contains("START_ROW f5"));
+    }
+
+    @Test
+    public void testAsyncFailure() throws Exception {
+
+        final TestTask task = new TestTask(4);
+        final AsyncRecorder listener = new AsyncRecorder(task, 2);
+        listener.failedTargetName = "f1";
+        task.addRowListener(listener);
+
+        task.doInBackground();
+
+        Assert.assertEquals("invalid cleanup order",
+                            Arrays.asList("f0:true", "f1:false",
+                                          "f2:true", "f3:true"),
+                            task.cleanedUpRows);
+        Assert.assertEquals("invalid failed rows",
+                            Collections.singletonList(1),
+                            task.getFailedRowIndices());
+        Assert.assertEquals("rows were cleaned up before their events " +
+                            "completed",
+                            0, listener.rowsCleanedUpBeforeEvent.get());
+        Assert.assertEquals("invalid number of async events",
+                            4, listener.asyncEventCount.get());
+        Assert.assertTrue("task summary missing async error",
+                          task.getTaskSummary().contains(
+                                  "Failed external completion processing " +
+                                  "for f1"));
+    }
+
+    @Test
+    public void testAsyncDisabledByDefault() throws Exception {
+
+        final TestTask task = new TestTask(2);
+        final AsyncRecorder listener =
+                new AsyncRecorder(
+                        task,
+                        AsyncRowListenerSupport.DEFAULT_MAX_CONCURRENT_EVENTS);
+        listener.failedTargetName = "f1";
+        task.addRowListener(listener);
+
+        task.doInBackground();
+
+        Assert.assertEquals("async processing should be disabled",
+                            0, listener.asyncEventCount.get());
+        Assert.assertEquals("invalid cleanup order",
+                            Arrays.asList("f0:true", "f1:false"),
+                            task.cleanedUpRows);
+        Assert.assertEquals("invalid failed rows",
+                            Collections.singletonList(1),
+                            task.getFailedRowIndices());
+    }
+
+    @Test
+    public void testBatchFailure() throws Exception {
+
+        final TestTask task = new TestTask(5);
+        final BatchRecorder listener = new BatchRecorder(task, 2);
+        listener.failedTargetName = "f1";
+        task.addRowListener(listener);
+
+        task.doInBackground();
+
+        Assert.assertEquals("invalid batches",
+                            Arrays.asList("[f0, f1]", "[f2, f3]", "[f4]"),
+                            listener.batches);
+        Assert.assertEquals("invalid cleanup order",
+                            Arrays.asList("f0:true", "f1:false", "f2:true",
+                                          "f3:true", "f4:true"),
+                            task.cleanedUpRows);
+        Assert.assertEquals("invalid failed rows",
+                            Collections.singletonList(1),
+                            task.getFailedRowIndices());
+        Assert.assertEquals("rows were cleaned up before their batch " +
+                            "was processed",
+                            0, listener.rowsCleanedUpBeforeBatch.get());
+    }
+
+    @Test
+    public void testBatchRollback() throws Exception {
+
+        final TestTask task = new TestTask(3);
+        final BatchRecorder listener = new BatchRecorder(task, 3);
+        listener.isRollbackRequired = true;
+        listener.failedTargetName = "f2";
+        task.addRowListener(listener);
+
+        task.doInBackground();
+
+        Assert.assertEquals("invalid batches",
+                            Collections.singletonList("[f0, f1, f2]"),
+                            listener.batches);
+        Assert.assertEquals("rows should be retried individually",
+                            Arrays.asList("f0", "f1", "f2"),
+                            listener.retriedRows);
+        Assert.assertEquals("invalid cleanup order",
+                            Arrays.asList("f0:true", "f1:true", "f2:false"),
+                            task.cleanedUpRows);
+        Assert.assertEquals("invalid failed rows",
+                            Collections.singletonList(2),
+                            task.getFailedRowIndices());
+    }
+
+    @Test
+    public void testBatchFlushedAfterMaxMillis() throws Exception {
+
+        final TestTask task = new TestTask(3);
+        task.slowTargetName = "f1";
+        final BatchRecorder listener = new BatchRecorder(task, 10);
+        listener.maxBatchMillis = 50;
+        task.addRowListener(listener);
+
+        task.doInBackground();
+
+        Assert.assertEquals("first row should be processed while the slow " +
+                            "row is still being processed",
+                            "[f0]", listener.batches.get(0));
+        Assert.assertEquals("invalid cleanup order",
+                            Arrays.asList("f0:true", "f1:true", "f2:true"),
+                            task.cleanedUpRows);
+        Assert.assertEquals("rows were cleaned up before their batch " +
+                            "was processed",
+                            0, listener.rowsCleanedUpBeforeBatch.get());
+    }
+
+    private static String getName(PluginDataRow row) {
+        return row.getDataRow().getTarget().getName();
+    }
+
+    /**
+     * Task that records row processing and clean-up.
+     */
+    private static class TestTask extends SimpleTask {
+
+        private int maxConcurrentRows = 1;
+        private int startRowLookAhead = 0;
+        private String failedTargetName;
+        private String cancelTargetName;
+        private String abortTargetName;
+        private String slowTargetName;
+        private final List<String> cleanedUpRows =
+                Collections.synchronizedList(new ArrayList<String>());
+        private final AtomicInteger rowsInProcess = new AtomicInteger();
+        private final AtomicInteger maxRowsInProcess = new AtomicInteger();
+
+        public TestTask(int numberOfRows) {
+            super(buildModel(numberOfRows));
+        }
+
+        @Override
+        protected int getMaxConcurrentRows() {
+            return maxConcurrentRows;
+        }
+
+        @Override
+        protected int getStartRowLookAhead() {
+            return startRowLookAhead;
+        }
+
+        @Override
+        protected boolean processRow(DataRow modelRow) {
+            final String name = modelRow.getTarget().getName();
+            maxRowsInProcess.accumulateAndGet(rowsInProcess.incrementAndGet(),
+                                              Math::max);
+            try {
+                // process later rows faster to shuffle completion order
+                Thread.sleep(60 - (5 * getModel().getRows().indexOf(modelRow)));
+                if (name.equals(slowTargetName)) {
+                    Thread.sleep(500);
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                rowsInProcess.decrementAndGet();
+            }
+            if (name.equals(cancelTargetName)) {
+                cancelSession();
+            } else if (name.equals(abortTargetName)) {
+                throw new AssertionError("abort at " + name);
+            }
+            return ! name.equals(failedTargetName);
+        }
+
+        @Override
+        protected void cleanupRow(DataRow modelRow,
+                                  boolean isSuccessful) {
+            super.cleanupRow(modelRow, isSuccessful);
+            cleanedUpRows.add(modelRow.getTarget().getName() + ":" +
+                              isSuccessful);
+        }
+
+        public boolean isCleanedUp(PluginDataRow row) {
+            final String name = getName(row);
+            return cleanedUpRows.contains(name + ":true") ||
+                   cleanedUpRows.contains(name + ":false");
+        }
+
+        private static DataTableModel buildModel(int numberOfRows) {
+            final List<FileTarget> targets = new ArrayList<FileTarget>();
+            for (int i = 0; i < numberOfRows; i++) {
+                targets.add(new FileTarget(new File("f" + i)));
+            }
+            return new DataTableModel("File Name",
+                                      targets,
+                                      new ProjectConfiguration());
+        }
+    }
+
+    /**
+     * Listener that records all events.
+     */
+    public static class EventRecorder implements RowListener {
+
+        private final List<String> events = new ArrayList<String>();
+
+        public void init(PluginConfiguration config) {
+        }
+
+        public synchronized PluginDataRow processEvent(EventType eventType,
+                                                       PluginDataRow row) {
+            events.add(eventType + " " + getName(row));
+            return row;
+        }
+
+        public synchronized List<String> getEvents() {
+            return new ArrayList<String>(events);
+        }
+
+        public synchronized List<String> getEventsFor(String targetName) {
+            final List<String> targetEvents = new ArrayList<String>();
+            for (String event : events) {
+                if (event.endsWith(" " + targetName)) {
+                    targetEvents.add(event);
+                }
+            }
+            return targetEvents;
+        }
+    }
+
+    /**
+     * Asynchronous listener that fails a specific row.
+     */
+    public static class AsyncRecorder implements AsyncRowListener {
+
+        private final TestTask task;
+        private final int maxConcurrentEvents;
+        private String failedTargetName;
+        private final AtomicInteger asyncEventCount = new AtomicInteger();
+        private final AtomicInteger rowsCleanedUpBeforeEvent =
+                new AtomicInteger();
+
+        public AsyncRecorder(TestTask task,
+                             int maxConcurrentEvents) {
+            this.task = task;
+            this.maxConcurrentEvents = maxConcurrentEvents;
+        }
+
+        public void init(PluginConfiguration config) {
+        }
+
+        public PluginDataRow processEvent(EventType eventType,
+                                          PluginDataRow row)
+                throws ExternalSystemException {
+            if (eventType == EventType.END_ROW_SUCCESS) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    throw new ExternalSystemException("interrupted", e);
+                }
+                if (task.isCleanedUp(row)) {
+                    rowsCleanedUpBeforeEvent.incrementAndGet();
+                }
+                if (getName(row).equals(failedTargetName)) {
+                    throw new ExternalSystemException(
+                            "failed to save " + getName(row));
+                }
+            }
+            return row;
+        }
+
+        public CompletableFuture<PluginDataRow> processEventAsync(
+                EventType eventType,
+                PluginDataRow row) {
+            asyncEventCount.incrementAndGet();
+            return AsyncRowListenerSupport.processEventAsync(this,
+                                                            eventType,
+                                                            row);
+        }
+
+        public int getMaxConcurrentEvents() {
+            return maxConcurrentEvents;
+        }
+    }
+
+    /**
+     * Batch listener that fails a specific row.
+     */
+    public static class BatchRecorder implements BatchRowListener {
+
+        private final TestTask task;
+        private final int maxBatchSize;
+        private String failedTargetName;
+        private boolean isRollbackRequired;
+        private long maxBatchMillis = DEFAULT_MAX_BATCH_MILLIS;
+        private final List<String> batches = new ArrayList<String>();
+        private final List<String> retriedRows = new ArrayList<String>();
+        private final AtomicInteger rowsCleanedUpBeforeBatch =
+                new AtomicInteger();
+
+        public BatchRecorder(TestTask task,
+                             int maxBatchSize) {
+            this.task = task;
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public void init(PluginConfiguration config) {
+        }
+
+        public PluginDataRow processEvent(EventType eventType,
+                                          PluginDataRow row)
+                throws ExternalSystemException {
+            if (eventType == EventType.END_ROW_SUCCESS) {
+                retriedRows.add(getName(row));
+                if (getName(row).equals(failedTargetName)) {
+                    throw new ExternalSystemException(
+                            "failed to save " + getName(row));
+                }
+            }
+            return row;
+        }
+
+        public void processBatch(List<PluginDataRow> rows)
+                throws ExternalSystemException {
+            final List<String> names = new ArrayList<String>();
+            final List<PluginDataRow> failedRows =
+                    new ArrayList<PluginDataRow>();
+            for (PluginDataRow row : rows) {
+                names.add(getName(row));
+                if (task.isCleanedUp(row)) {
+                    rowsCleanedUpBeforeBatch.incrementAndGet();
+                }
+                if (getName(row).equals(failedTargetName)) {
+                    failedRows.add(row);
+                }
+            }
+            batches.add(names.toString());
+            if (failedRows.size() > 0) {
+                if (isRollbackRequired) {
+                    throw new ExternalSystemException("batch rolled back");
+                }
+                throw new BatchProcessingException("failed to save rows",
+                                                   failedRows,
+                                                   null);
+            }
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public long getMaxBatchMillis() {
+            return maxBatchMillis;
+        }
+    }
+}
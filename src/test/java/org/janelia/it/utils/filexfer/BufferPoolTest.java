@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+
+/**
+ * Tests the {@link BufferPool} class.
+ *
+ * @author Eric Trautman
+ */
+public class BufferPoolTest {
+
+    private static final int SIZE = 10000;
+    private static final int CAPACITY = 16 * 1024;
+
+    private BufferPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new BufferPool(2 * CAPACITY);
+    }
+
+    @Test
+    public void testGetCapacity() {
+        Assert.assertEquals("invalid capacity for small size",
+                            BufferPool.MIN_CAPACITY,
+                            BufferPool.getCapacity(1));
+        Assert.assertEquals("invalid capacity for power of two size",
+                            CAPACITY,
+                            BufferPool.getCapacity(CAPACITY));
+        Assert.assertEquals("invalid capacity for rounded size",
+                            CAPACITY,
+                            BufferPool.getCapacity(SIZE));
+    }
+
+    @Test
+    public void testLeaseAndRelease() {
+
+        final ByteBuffer first = pool.lease(SIZE);
+        Assert.assertTrue("leased buffer should be direct", first.isDirect());
+        Assert.assertEquals("invalid leased capacity",
+                            SIZE, first.capacity());
+        Assert.assertEquals("invalid leased limit", SIZE, first.limit());
+        Assert.assertEquals("invalid leased position", 0, first.position());
+
+        final ByteBuffer second = pool.lease(SIZE);
+        Assert.assertEquals("invalid miss count", 2, pool.getMissCount());
+        Assert.assertEquals("invalid leased bytes",
+                            2 * CAPACITY, pool.getLeasedBytes());
+
+        first.position(100);
+        pool.release(first);
+        pool.release(second);
+        Assert.assertEquals("invalid leased bytes after release",
+                            0, pool.getLeasedBytes());
+        Assert.assertEquals("invalid pooled bytes after release",
+                            2 * CAPACITY, pool.getPooledBytes());
+
+        final ByteBuffer third = pool.lease(SIZE - 1);
+        Assert.assertEquals("invalid hit count", 1, pool.getHitCount());
+        Assert.assertEquals("reused buffer has invalid capacity",
+                            SIZE - 1, third.capacity());
+        Assert.assertEquals("reused buffer has invalid position",
+                            0, third.position());
+
+        final ByteBuffer fourth = pool.lease(SIZE);
+        final ByteBuffer fifth = pool.lease(SIZE);
+        Assert.assertEquals("invalid hit count after second reuse",
+                            2, pool.getHitCount());
+        Assert.assertEquals("invalid miss count after reuse",
+                            3, pool.getMissCount());
+        Assert.assertEquals("invalid high water mark",
+                            3 * CAPACITY, pool.getHighWaterMark());
+
+        pool.release(third);
+        pool.release(fourth);
+        pool.release(fifth);
+        Assert.assertEquals("full pool should discard buffer",
+                            1, pool.getDiscardCount());
+        Assert.assertEquals("invalid pooled bytes after discard",
+                            2 * CAPACITY, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testReleaseIgnoresForeignBuffers() {
+
+        final ByteBuffer leased = pool.lease(SIZE);
+        pool.release(ByteBuffer.allocateDirect(SIZE));
+        pool.release(null);
+        Assert.assertEquals("foreign buffer should be ignored",
+                            CAPACITY, pool.getLeasedBytes());
+
+        pool.release(leased);
+        pool.release(leased);
+        Assert.assertEquals("second release should be ignored",
+                            CAPACITY, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testDiscard() {
+
+        final ByteBuffer leased = pool.lease(SIZE);
+        pool.discard(leased);
+        Assert.assertEquals("discarded buffer should not be leased",
+                            0, pool.getLeasedBytes());
+        Assert.assertEquals("discarded buffer should not be pooled",
+                            0, pool.getPooledBytes());
+        Assert.assertEquals("invalid discard count",
+                            1, pool.getDiscardCount());
+
+        pool.release(leased);
+        Assert.assertEquals("release after discard should be ignored",
+                            0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testUnreleasedLeaseIsNotPinned() throws Exception {
+
+        ByteBuffer leased = pool.lease(SIZE);
+        final WeakReference<ByteBuffer> leasedReference =
+                new WeakReference<ByteBuffer>(leased);
+        Assert.assertEquals("invalid leased bytes",
+                            CAPACITY, pool.getLeasedBytes());
+
+        //noinspection UnusedAssignment
+        leased = null;
+        for (int i = 0; (i < 50) && (leasedReference.get() != null); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        Assert.assertNull("pool should not keep unreleased buffer reachable",
+                          leasedReference.get());
+        long leasedBytes = pool.getLeasedBytes();
+        for (int i = 0; (i < 50) && (leasedBytes > 0); i++) {
+            Thread.sleep(20);
+            leasedBytes = pool.getLeasedBytes();
+        }
+        Assert.assertEquals("collected buffer should not be leased",
+                            0, leasedBytes);
+        Assert.assertEquals("collected buffer should be counted as discarded",
+                            1, pool.getDiscardCount());
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the {@link BufferSizeTuner} class.
+ *
+ * @author Eric Trautman
+ */
+public class BufferSizeTunerTest {
+
+    private static final String STORE = "/data (/dev/sdb1)";
+    private static final int DEFAULT_SIZE = 1024 * 1024;
+
+    private Map<String, String> persistedValues;
+    private BufferSizeTuner tuner;
+
+    @Before
+    public void setUp() {
+        persistedValues = new HashMap<String, String>();
+        tuner = new BufferSizeTuner();
+        tuner.setPersistence(new BufferSizeTuner.Persistence() {
+            @Override
+            public String load(String name) {
+                return persistedValues.get(name);
+            }
+
+            @Override
+            public void save(String name,
+                             String value) {
+                persistedValues.put(name, value);
+            }
+        });
+    }
+
+    @Test
+    public void testTuning() {
+
+        final int bestIndex = 2;
+        int bufferSize;
+        for (int i = 0; i < BufferSizeTuner.CANDIDATE_SIZES.length; i++) {
+
+            bufferSize = tuner.getBufferSize(STORE, DEFAULT_SIZE);
+            Assert.assertEquals("invalid candidate " + i + " size",
+                                BufferSizeTuner.CANDIDATE_SIZES[i],
+                                bufferSize);
+
+            // only one trial at a time, others get default size
+            Assert.assertEquals("invalid size during trial " + i,
+                                DEFAULT_SIZE,
+                                getBufferSizeFromOtherThread());
+
+            if (i == bestIndex) {
+                // small copies should not count as trials
+                tuner.recordTransfer(STORE, bufferSize,
+                                     new FileTransferStats(1024, 1));
+                bufferSize = tuner.getBufferSize(STORE, DEFAULT_SIZE);
+                Assert.assertEquals("small copy should not complete trial",
+                                    BufferSizeTuner.CANDIDATE_SIZES[i],
+                                    bufferSize);
+                tuner.recordTransfer(STORE, bufferSize, getStats(1000, 1000));
+            } else {
+                tuner.recordTransfer(STORE, bufferSize, getStats(1000, 2000));
+            }
+        }
+
+        final int expectedSize = BufferSizeTuner.CANDIDATE_SIZES[bestIndex];
+        Assert.assertEquals("invalid tuned size",
+                            expectedSize, tuner.getTunedSize(STORE));
+        Assert.assertEquals("invalid size after tuning",
+                            expectedSize,
+                            tuner.getBufferSize(STORE, DEFAULT_SIZE));
+        Assert.assertEquals("invalid persisted size",
+                            String.valueOf(expectedSize),
+                            persistedValues.get(
+                                    BufferSizeTuner.PERSISTENCE_NAME_PREFIX +
+                                    STORE));
+
+        // new session should use persisted size without tuning
+        final BufferSizeTuner nextSessionTuner = new BufferSizeTuner();
+        Assert.assertEquals("size should not be available without persistence",
+                            0, nextSessionTuner.getTunedSize(STORE));
+
+        setUp();
+        persistedValues.put(BufferSizeTuner.PERSISTENCE_NAME_PREFIX + STORE,
+                            String.valueOf(expectedSize));
+        Assert.assertEquals("persisted size not loaded",
+                            expectedSize,
+                            tuner.getBufferSize(STORE, DEFAULT_SIZE));
+    }
+
+    @Test
+    public void testFailedTrial() {
+        final int bufferSize = tuner.getBufferSize(STORE, DEFAULT_SIZE);
+        tuner.recordTransfer(STORE, bufferSize, null);
+        Assert.assertEquals("failed trial should be retried",
+                            bufferSize,
+                            tuner.getBufferSize(STORE, DEFAULT_SIZE));
+        Assert.assertEquals("unknown store should use default size",
+                            DEFAULT_SIZE,
+                            tuner.getBufferSize(null, DEFAULT_SIZE));
+    }
+
+    private int getBufferSizeFromOtherThread() {
+        final int[] size = new int[1];
+        final Thread thread = new Thread(
+                () -> size[0] = tuner.getBufferSize(STORE, DEFAULT_SIZE));
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Assert.fail("interrupted while waiting for other thread");
+        }
+        return size[0];
+    }
+
+    private FileTransferStats getStats(long megabytes,
+                                       long duration) {
+        return new FileTransferStats(megabytes * 1024 * 1024, duration);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import java.io.File;
+
+/**
+ * This tool compares the throughput of the digest calculating
+ * {@link FileTransferUtil#copy} modes (buffered, pipelined, and
+ * zero copy) by copying a (by default 1 gigabyte) file into a
+ * target directory.  Buffered copies are also timed with
+ * preallocated targets and with each target synced to storage.
+ * Batched syncing (with default limits) costs the same as the
+ * synced mode for large files since each file fills a batch.
+ * <h2>NOTE:</h2>
+ * Each mode copies the file several times, so the source is typically
+ * served from the operating system page cache.  Use a target directory
+ * on the file system of interest and a source larger than physical
+ * memory to measure disk bound transfers.
+ *
+ * @author Eric Trautman
+ */
+public class CopyBenchmark {
+
+    private static final long MEGABYTE = 1024L * 1024L;
+    private static final int BUFFER_SIZE = 10 * 1024 * 1024;
+    private static final int RUNS_PER_MODE = 3;
+
+    private static final String BUFFERED = "buffered";
+    private static final String PIPELINED = "pipelined";
+    private static final String ZERO_COPY = "zero-copy";
+    private static final String PREALLOCATED = "prealloc";
+    private static final String SYNCED = "file-sync";
+
+    private File file;
+    private File targetDirectory;
+    private String digestAlgorithm;
+
+    public CopyBenchmark(File file,
+                         File targetDirectory,
+                         String digestAlgorithm) {
+        this.file = file;
+        this.targetDirectory = targetDirectory;
+        this.digestAlgorithm = digestAlgorithm;
+    }
+
+    public void run()
+            throws Exception {
+
+        final long megabytes = file.length() / MEGABYTE;
+
+        System.out.println();
+        System.out.println("file: " + file.getAbsolutePath() +
+                           " (" + megabytes + " megabytes)");
+        System.out.println("target directory: " +
+                           targetDirectory.getAbsolutePath());
+        System.out.println("digest algorithm: " + digestAlgorithm);
+        System.out.println();
+        System.out.println(String.format("%-12s%12s%12s  %s",
+                                         "mode", "seconds",
+                                         "MB/s", "digest"));
+
+        final String[] modes =
+                { BUFFERED, PIPELINED, ZERO_COPY, PREALLOCATED, SYNCED };
+        for (String mode : modes) {
+            final FileTransferUtil util =
+                    new FileTransferUtil(BUFFER_SIZE, digestAlgorithm);
+            if (PIPELINED.equals(mode)) {
+                util.setPipelineBufferCount(3);
+            } else if (ZERO_COPY.equals(mode)) {
+                util.setZeroCopyTransfer(true);
+            } else if (PREALLOCATED.equals(mode)) {
+                util.setPreallocateTarget(true);
+            } else if (SYNCED.equals(mode)) {
+                util.setSyncPolicy(FileTransferUtil.SyncPolicy.FILE, null);
+            }
+
+            final File targetFile = new File(targetDirectory,
+                                             "copy-benchmark-" + mode + ".bin");
+
+            // warm up (page cache and JIT) before timing
+            copy(util, targetFile);
+
+            long bestElapsed = Long.MAX_VALUE;
+            DigestBytes digestBytes = null;
+            for (int i = 0; i < RUNS_PER_MODE; i++) {
+                final long start = System.nanoTime();
+                digestBytes = copy(util, targetFile);
+                bestElapsed = Math.min(bestElapsed, System.nanoTime() - start);
+            }
+
+            final double seconds = bestElapsed / 1000000000.0;
+            System.out.println(String.format("%-12s%12.3f%12.1f  %s",
+                                             mode,
+                                             seconds,
+                                             (megabytes / seconds),
+                                             digestBytes.toSum()));
+        }
+
+        System.out.println();
+    }
+
+    private DigestBytes copy(FileTransferUtil util,
+                             File targetFile)
+            throws Exception {
+        try {
+            return util.copy(file, targetFile);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            targetFile.delete();
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            File file;
+            boolean isTemporary = false;
+            if ((args.length > 0) && (! "-".equals(args[0]))) {
+                file = new File(args[0]);
+            } else {
+                file = DigestBenchmark.createTestFile(1024 * MEGABYTE);
+                isTemporary = true;
+            }
+
+            File targetDirectory;
+            if (args.length > 1) {
+                targetDirectory = new File(args[1]);
+            } else {
+                targetDirectory = file.getAbsoluteFile().getParentFile();
+            }
+
+            String digestAlgorithm = DigestAlgorithms.MD5;
+            if (args.length > 2) {
+                digestAlgorithm = args[2];
+            }
+
+            new CopyBenchmark(file, targetDirectory, digestAlgorithm).run();
+
+            if (isTemporary) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println(
+                    "\n\nUSAGE: java " + CopyBenchmark.class.getName() +
+                    " [file|-] [target directory] [algorithm]\n\n" +
+                    "  (a 1 gigabyte temporary file is used if no file " +
+                    "or '-' is specified)\n\n");
+        }
+    }
+}
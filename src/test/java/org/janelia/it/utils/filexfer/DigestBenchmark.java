@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This tool compares the throughput of the supported digest algorithms
+ * by calculating digests for a (by default 1 gigabyte) file with
+ * {@link FileTransferUtil#calculateDigest}.
+ * <h2>NOTE:</h2>
+ * Each algorithm reads the file several times, so the file is typically
+ * served from the operating system page cache and results reflect
+ * digest computation speed rather than disk speed.
+ * Run with a file larger than physical memory to measure combined
+ * read and digest throughput instead.
+ *
+ * @author Eric Trautman
+ */
+public class DigestBenchmark {
+
+    private static final long MEGABYTE = 1024L * 1024L;
+    private static final int BUFFER_SIZE = 10 * 1024 * 1024;
+    private static final int RUNS_PER_ALGORITHM = 3;
+
+    private File file;
+
+    public DigestBenchmark(File file) {
+        this.file = file;
+    }
+
+    public void run(List<String> algorithms)
+            throws Exception {
+
+        final long megabytes = file.length() / MEGABYTE;
+
+        System.out.println();
+        System.out.println("file: " + file.getAbsolutePath() +
+                           " (" + megabytes + " megabytes)");
+        System.out.println();
+        System.out.println(String.format("%-12s%12s%12s  %s",
+                                         "algorithm", "seconds",
+                                         "MB/s", "digest"));
+
+        for (String algorithm : algorithms) {
+            final FileTransferUtil util =
+                    new FileTransferUtil(BUFFER_SIZE, algorithm);
+
+            // warm up (page cache and JIT) before timing
+            util.calculateDigest(file);
+
+            long bestElapsed = Long.MAX_VALUE;
+            DigestBytes digestBytes = null;
+            for (int i = 0; i < RUNS_PER_ALGORITHM; i++) {
+                final long start = System.nanoTime();
+                digestBytes = util.calculateDigest(file);
+                bestElapsed = Math.min(bestElapsed, System.nanoTime() - start);
+            }
+
+            final double seconds = bestElapsed / 1000000000.0;
+            System.out.println(String.format("%-12s%12.3f%12.1f  %s",
+                                             algorithm,
+                                             seconds,
+                                             (megabytes / seconds),
+                                             digestBytes.toSum()));
+        }
+
+        System.out.println();
+    }
+
+    public static File createTestFile(long size)
+            throws IOException {
+        final File testFile = File.createTempFile("digest-benchmark-", ".bin");
+        testFile.deleteOnExit();
+
+        final byte[] data = new byte[BUFFER_SIZE];
+        new Random(size).nextBytes(data);
+
+        FileOutputStream out = new FileOutputStream(testFile);
+        try {
+            long remaining = size;
+            while (remaining > 0) {
+                final int length = (int) Math.min(remaining, data.length);
+                out.write(data, 0, length);
+                remaining -= length;
+            }
+        } finally {
+            out.close();
+        }
+        return testFile;
+    }
+
+    public static void main(String[] args) {
+        try {
+            File file;
+            boolean isTemporary = false;
+            if (args.length > 0) {
+                file = new File(args[0]);
+            } else {
+                file = createTestFile(1024 * MEGABYTE);
+                isTemporary = true;
+            }
+
+            List<String> algorithms;
+            if (args.length > 1) {
+                algorithms = Arrays.asList(args).subList(1, args.length);
+            } else {
+                algorithms = Arrays.asList(DigestAlgorithms.MD5,
+                                           DigestAlgorithms.SHA1,
+                                           AdlerMessageDigest.NAME,
+                                           CrcMessageDigest.NAME,
+                                           Crc32cMessageDigest.NAME,
+                                           XxHash64MessageDigest.NAME,
+                                           TreeMessageDigest.DEFAULT_NAME);
+            }
+
+            new DigestBenchmark(file).run(algorithms);
+
+            if (isTemporary) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println(
+                    "\n\nUSAGE: java " + DigestBenchmark.class.getName() +
+                    " [file] [algorithm ...]\n\n" +
+                    "  (a 1 gigabyte temporary file is used if no file " +
+                    "is specified)\n\n");
+        }
+    }
+}
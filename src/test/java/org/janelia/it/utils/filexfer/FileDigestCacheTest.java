@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Tests the {@link FileDigestCache} class.
+ *
+ * @author Eric Trautman
+ */
+public class FileDigestCacheTest {
+
+    private File testDirectory;
+    private File dataFile;
+    private long oldStartTime;
+    private DigestBytes digestBytes;
+
+    @Before
+    public void setUp() throws Exception {
+        testDirectory = new File(SDF.format(new Date()));
+        if (! testDirectory.mkdirs()) {
+            throw new IOException("failed to create " +
+                                  testDirectory.getAbsolutePath());
+        }
+        dataFile = new File(testDirectory, "data.txt");
+        writeData(dataFile, "test data");
+        // pretend digest was calculated well after the file was written
+        oldStartTime = dataFile.lastModified() +
+                       FileDigestCache.MODIFICATION_TIME_MARGIN + 1;
+        digestBytes = new DigestBytes(new byte[] {0, 1, -2, 127});
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = testDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        testDirectory.delete();
+    }
+
+    @Test
+    public void testDisabledCache() throws Exception {
+        final FileDigestCache cache = new FileDigestCache(10);
+        cache.put(dataFile, "md5", digestBytes, oldStartTime);
+        Assert.assertNull("disabled cache should not return digests",
+                          cache.get(dataFile, "md5"));
+    }
+
+    @Test
+    public void testGetAndPut() throws Exception {
+        final FileDigestCache cache = new FileDigestCache(10);
+        cache.load(testDirectory);
+
+        cache.put(dataFile, "md5", digestBytes, dataFile.lastModified());
+        Assert.assertNull("recently modified file should not be cached",
+                          cache.get(dataFile, "md5"));
+
+        cache.put(dataFile, "md5", digestBytes, oldStartTime);
+        Assert.assertEquals("invalid cached digest returned",
+                            digestBytes, cache.get(dataFile, "MD5"));
+        Assert.assertNull("digest for different algorithm returned",
+                          cache.get(dataFile, "sha1"));
+
+        writeData(dataFile, "changed test data");
+        Assert.assertNull("digest for changed file returned",
+                          cache.get(dataFile, "md5"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        final File otherFile = new File(testDirectory, "other.txt");
+        writeData(otherFile, "other data");
+        final File thirdFile = new File(testDirectory, "third.txt");
+        writeData(thirdFile, "third data");
+        final long startTime = Math.max(otherFile.lastModified(),
+                                        thirdFile.lastModified()) +
+                               FileDigestCache.MODIFICATION_TIME_MARGIN + 1;
+
+        final FileDigestCache cache = new FileDigestCache(2);
+        cache.load(testDirectory);
+        cache.put(dataFile, "md5", digestBytes, startTime);
+        cache.put(otherFile, "md5", digestBytes, startTime);
+        cache.get(dataFile, "md5"); // make otherFile least recently used
+        cache.put(thirdFile, "md5", digestBytes, startTime);
+
+        Assert.assertEquals("invalid size", 2, cache.size());
+        Assert.assertNotNull("most recently used digest evicted",
+                             cache.get(dataFile, "md5"));
+        Assert.assertNull("least recently used digest not evicted",
+                          cache.get(otherFile, "md5"));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        FileDigestCache cache = new FileDigestCache(10);
+        cache.load(testDirectory);
+        cache.put(dataFile, "md5", digestBytes, oldStartTime);
+        cache.save();
+
+        cache = new FileDigestCache(10);
+        cache.load(testDirectory);
+        Assert.assertEquals("invalid digest after reload",
+                            digestBytes, cache.get(dataFile, "md5"));
+    }
+
+    private void writeData(File file,
+                           String data) throws IOException {
+        final FileWriter writer = new FileWriter(file);
+        writer.write(data);
+        writer.close();
+    }
+
+    private static final SimpleDateFormat SDF =
+            new SimpleDateFormat("'digest-cache-test-'yyyyMMddHHmmssSSS");
+}
@@ -15,11 +15,21 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Tests the {@link FileTransferUtil} class.
@@ -116,6 +126,41 @@ public class FileTransferUtilTest {
 
     }
 
+    @Test
+    public void testMappedDigest() throws Exception {
+        DigestBytes bufferedDigestBytes;
+        DigestBytes mappedDigestBytes;
+        for (String algorithm : DigestAlgorithms.getValidNames()) {
+            if (! DigestAlgorithms.NONE.equals(algorithm)) {
+                util = new FileTransferUtil(bufferSize, algorithm);
+                util.setMappedDigestThreshold(-1);
+                bufferedDigestBytes = util.calculateDigest(sourceFile);
+
+                // map all files (in small windows) and bypass the cache
+                final MessageDigest digest =
+                        DigestAlgorithms.getMessageDigest(algorithm);
+                try (FileInputStream stream = new FileInputStream(sourceFile)) {
+                    final FileChannel channel = stream.getChannel();
+                    MappedDigestEngine.update(digest, channel,
+                                              0, channel.size(), 1000);
+                }
+                mappedDigestBytes = new DigestBytes(digest.digest());
+
+                Assert.assertEquals("invalid mapped " + algorithm + " digest",
+                                    bufferedDigestBytes, mappedDigestBytes);
+
+                util.setMappedDigestThreshold(0);
+                Assert.assertEquals("invalid calculated mapped " + algorithm +
+                                    " digest",
+                                    bufferedDigestBytes,
+                                    util.calculateDigest(sourceFile));
+            }
+        }
+
+        Assert.assertTrue("explicit unmap should be supported",
+                          MappedDigestEngine.isUnmapSupported());
+    }
+
     @Test(expected = IOException.class)
     public void testCopyWithMissingFromFile() throws Exception {
         util.copy(new File("this-file-should-not-exist"), targetFile);
@@ -155,6 +200,229 @@ public class FileTransferUtilTest {
                             copyDigestBytes, actualDigestBytes);
     }
 
+    @Test
+    public void testPipelinedCopy() throws Exception {
+        // use a small buffer to force many trips through the pipeline
+        util = new FileTransferUtil(FileTransferUtil.MIN_BUFFER_SIZE,
+                                    DigestAlgorithms.MD5);
+        util.setPipelineBufferCount(3);
+        DigestBytes copyDigestBytes = util.copy(sourceFile, targetFile);
+
+        util = new FileTransferUtil(bufferSize, DigestAlgorithms.MD5);
+        DigestBytes sourceDigestBytes = util.calculateDigest(sourceFile);
+        DigestBytes targetDigestBytes = util.calculateDigest(targetFile);
+        Assert.assertEquals("pipelined copy digest does not match source",
+                            sourceDigestBytes, copyDigestBytes);
+        Assert.assertEquals("pipelined target digest does not match source",
+                            sourceDigestBytes, targetDigestBytes);
+    }
+
+    @Test
+    public void testZeroCopyTransfer() throws Exception {
+        util = new FileTransferUtil(bufferSize, DigestAlgorithms.MD5);
+        util.setAuditDigestAlgorithms(Arrays.asList(CrcMessageDigest.NAME));
+        util.setZeroCopyTransfer(true);
+        final DigestBytes copyDigestBytes = util.copy(sourceFile, targetFile);
+
+        util = new FileTransferUtil(bufferSize, DigestAlgorithms.MD5);
+        Assert.assertEquals("zero copy digest does not match source",
+                            util.calculateDigest(sourceFile), copyDigestBytes);
+        Assert.assertEquals("zero copy target digest does not match source",
+                            copyDigestBytes, util.calculateDigest(targetFile));
+    }
+
+    @Test
+    public void testPreallocatedCopyWithSync() throws Exception {
+        util = new FileTransferUtil(bufferSize, DigestAlgorithms.MD5);
+        util.setPreallocateTarget(true);
+        util.setSyncPolicy(FileTransferUtil.SyncPolicy.FILE, null);
+        final DigestBytes copyDigestBytes = util.copy(sourceFile, targetFile);
+
+        Assert.assertEquals("preallocated target has invalid length",
+                            sourceFile.length(), targetFile.length());
+        Assert.assertEquals("preallocated target digest does not match source",
+                            copyDigestBytes, util.calculateDigest(targetFile));
+        Assert.assertNull("file sync policy should not have a batch",
+                          util.getSyncBatch());
+    }
+
+    @Test
+    public void testBatchedSync() throws Exception {
+        final SyncBatch batch = new SyncBatch(2, Long.MAX_VALUE);
+        util.setSyncPolicy(FileTransferUtil.SyncPolicy.BATCH, batch);
+
+        util.copy(sourceFile, targetFile);
+        Assert.assertEquals("first copy should be pending",
+                            1, batch.getPendingFileCount());
+        Assert.assertEquals("batch should not be synced after first copy",
+                            0, batch.getSyncCount());
+        Assert.assertFalse("first copy should not be synced",
+                           batch.isSynced(targetFile));
+
+        util.copy(sourceFile, nestedTargetFile);
+        Assert.assertEquals("full batch should be synced",
+                            1, batch.getSyncCount());
+        Assert.assertEquals("no copies should be pending after sync",
+                            0, batch.getPendingFileCount());
+        Assert.assertTrue("first copy should be synced",
+                          batch.isSynced(targetFile));
+    }
+
+    @Test
+    public void testProgressListener() throws Exception {
+        final List<Long> progress = new ArrayList<Long>();
+        final long sourceLength = sourceFile.length();
+        util = new FileTransferUtil(FileTransferUtil.MIN_BUFFER_SIZE,
+                                    DigestAlgorithms.MD5);
+        util.setProgressListener(
+                (fromFile, toFile, bytesTransferred, totalBytes) -> {
+                    Assert.assertEquals("invalid total bytes",
+                                        sourceLength, totalBytes);
+                    progress.add(bytesTransferred);
+                },
+                0);
+
+        util.copy(sourceFile, targetFile);
+
+        Assert.assertTrue("progress should be reported for each buffer",
+                          progress.size() > 2);
+        Assert.assertEquals("first notification should report no bytes",
+                            Long.valueOf(0), progress.get(0));
+        Assert.assertEquals("last notification should report all bytes",
+                            Long.valueOf(sourceLength),
+                            progress.get(progress.size() - 1));
+        for (int i = 1; i < progress.size(); i++) {
+            Assert.assertTrue("progress should not decrease",
+                              progress.get(i) >= progress.get(i - 1));
+        }
+    }
+
+    @Test
+    public void testResumableCopy() throws Exception {
+
+        final long chunkSize = FileTransferUtil.MIN_RESUMABLE_CHUNK_SIZE;
+        final File largeSourceFile = new File(targetFile.getName() + ".source");
+        try {
+            // 2.5 chunks of data
+            final byte[] data = new byte[(int) (chunkSize * 5 / 2)];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (i % 251);
+            }
+            Files.write(largeSourceFile.toPath(), data);
+
+            // simulate a transfer interrupted part way through its second chunk
+            final MessageDigest chunkDigest = DigestAlgorithms.getMessageDigest(
+                    TransferJournal.CHUNK_DIGEST_ALGORITHM);
+            chunkDigest.update(data, 0, (int) chunkSize);
+            final TransferJournal journal =
+                    TransferJournal.open(largeSourceFile, targetFile, chunkSize);
+            journal.addChunk(0, chunkSize,
+                             new DigestBytes(chunkDigest.digest()));
+            Files.write(targetFile.toPath(),
+                        Arrays.copyOf(data, (int) (chunkSize * 3 / 2)));
+            Assert.assertTrue("target should be an incomplete transfer",
+                              TransferJournal.isIncompleteTransfer(targetFile));
+            Assert.assertTrue("target should be resumable for its source",
+                              TransferJournal.isResumableTransfer(
+                                      largeSourceFile, targetFile));
+            Assert.assertFalse("target should not be resumable for " +
+                               "a different source",
+                               TransferJournal.isResumableTransfer(
+                                       sourceFile, targetFile));
+            final long lastModified = largeSourceFile.lastModified();
+            Assert.assertTrue("failed to change source modification time",
+                              largeSourceFile.setLastModified(
+                                      lastModified - 10000));
+            Assert.assertFalse("target should not be resumable for " +
+                               "a modified source",
+                               TransferJournal.isResumableTransfer(
+                                       largeSourceFile, targetFile));
+            Assert.assertTrue("failed to restore source modification time",
+                              largeSourceFile.setLastModified(lastModified));
+
+            util = new FileTransferUtil(bufferSize, DigestAlgorithms.MD5);
+            util.setResumableChunkSize(chunkSize);
+            final DigestBytes copyDigestBytes =
+                    util.copy(largeSourceFile, targetFile);
+
+            Assert.assertFalse("journal should be removed after transfer",
+                               journal.getJournalFile().exists());
+            Assert.assertEquals("resumed copy digest does not match source",
+                                util.calculateDigest(largeSourceFile),
+                                copyDigestBytes);
+            Assert.assertTrue("resumed target does not match source",
+                              Arrays.equals(data,
+                                            Files.readAllBytes(
+                                                    targetFile.toPath())));
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            largeSourceFile.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidResumableChunkSize() throws Exception {
+        util.setResumableChunkSize(FileTransferUtil.MIN_RESUMABLE_CHUNK_SIZE - 1);
+    }
+
+    @Test
+    public void testCopyWithAuditDigests() throws Exception {
+        util = new FileTransferUtil(FileTransferUtil.MIN_BUFFER_SIZE,
+                                    CrcMessageDigest.NAME);
+        util.setAuditDigestAlgorithms(
+                Arrays.asList(DigestAlgorithms.MD5,
+                              CrcMessageDigest.NAME, // duplicate is ignored
+                              DigestAlgorithms.SHA1));
+        util.setPipelineBufferCount(3);
+        final DigestBytes copyDigestBytes = util.copy(sourceFile, targetFile);
+
+        final Map<String, DigestBytes> copyDigests = util.getCopyDigests();
+        Assert.assertEquals("invalid algorithms for copy digests",
+                            Arrays.asList(CrcMessageDigest.NAME,
+                                          DigestAlgorithms.MD5,
+                                          DigestAlgorithms.SHA1),
+                            new ArrayList<String>(copyDigests.keySet()));
+        Assert.assertEquals("invalid primary copy digest",
+                            copyDigestBytes,
+                            copyDigests.get(CrcMessageDigest.NAME));
+
+        for (String algorithm : copyDigests.keySet()) {
+            final FileTransferUtil algorithmUtil =
+                    new FileTransferUtil(bufferSize, algorithm);
+            Assert.assertEquals("invalid " + algorithm + " copy digest",
+                                algorithmUtil.calculateDigest(targetFile),
+                                copyDigests.get(algorithm));
+        }
+    }
+
+    @Test
+    public void testMoveAndValidate() throws Exception {
+        util = new FileTransferUtil(bufferSize, DigestAlgorithms.MD5);
+        final DigestBytes sourceDigestBytes = util.copy(sourceFile, targetFile);
+
+        Assert.assertTrue("files in same directory should share file store",
+                          FileTransferUtil.isSameFileStore(targetFile,
+                                                           nestedTargetFile));
+
+        final boolean isMoved =
+                util.moveAndValidate(targetFile, nestedTargetFile, true);
+
+        Assert.assertTrue("file should have been moved", isMoved);
+        Assert.assertFalse("moved file should not exist",
+                           targetFile.exists());
+        Assert.assertEquals("invalid move digest",
+                            sourceDigestBytes,
+                            util.getCopyDigests().get(DigestAlgorithms.MD5));
+        Assert.assertEquals("moved file digest does not match source",
+                            sourceDigestBytes,
+                            util.calculateDigest(nestedTargetFile));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPipelineBufferCount() throws Exception {
+        util.setPipelineBufferCount(1);
+    }
+
     @Test
     public void testCopyAndValidateWithoutValidate() throws Exception {
         util.copyAndValidate(sourceFile, targetFile, false);
@@ -169,6 +437,27 @@ public class FileTransferUtilTest {
         util.copyAndValidate(sourceFile, targetFile, true);
     }
 
+    @Test
+    public void testCopyAndStartValidation() throws Exception {
+        final ExecutorService validationExecutor =
+                Executors.newSingleThreadExecutor();
+        try {
+            util = new FileTransferUtil(bufferSize, DigestAlgorithms.MD5);
+            final Future<DigestBytes> validation =
+                    util.copyAndStartValidation(sourceFile,
+                                                targetFile,
+                                                validationExecutor);
+            final DigestBytes validatedDigestBytes = validation.get();
+            Assert.assertEquals("validated digest does not match source",
+                                util.calculateDigest(sourceFile),
+                                validatedDigestBytes);
+            Assert.assertTrue("target file should exist after validation",
+                              targetFile.exists());
+        } finally {
+            validationExecutor.shutdown();
+        }
+    }
+
     @Test
     public void testCalculateDigestRetries() throws Exception {
         // create file during retry attempts to exercise
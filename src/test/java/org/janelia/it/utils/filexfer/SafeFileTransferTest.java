@@ -16,6 +16,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -33,6 +34,7 @@ public class SafeFileTransferTest {
     private FileTransferUtil validationUtil;
     private File sourceFile;
     private File targetFile;
+    private File sourceDirectory;
 
     @Before
     public void setUp() throws Exception {
@@ -45,6 +47,7 @@ public class SafeFileTransferTest {
         String targetName = SDF.format(new Date());
         // need to specify parent path to avoid NPE in copy calls
         targetFile = new File(".", targetName + ".test");
+        sourceDirectory = new File(".", targetName + "-src.test");
     }
 
     @After
@@ -54,6 +57,8 @@ public class SafeFileTransferTest {
             //noinspection ResultOfMethodCallIgnored
             targetFile.delete();
         }
+        deleteTree(targetFile);
+        deleteTree(sourceDirectory);
     }
 
     @Test
@@ -91,6 +96,63 @@ public class SafeFileTransferTest {
 
     }
 
+    @Test
+    public void testDirectoryCopy() throws Exception {
+
+        final int fileCount = 100;
+        File subDirectory;
+        for (int i = 0; i < fileCount; i++) {
+            subDirectory = new File(sourceDirectory, "dir-" + (i % 7));
+            writeFile(new File(subDirectory, "file-" + i + ".txt"),
+                      ("contents of file " + i).getBytes());
+        }
+
+        // large enough to be re-read for the digest instead of buffered
+        final byte[] largeContents =
+                new byte[ParallelDirectoryCopy.MAX_BUFFERED_FILE_SIZE + 1];
+        for (int i = 0; i < largeContents.length; i++) {
+            largeContents[i] = (byte) i;
+        }
+        writeFile(new File(sourceDirectory, "large.bin"), largeContents);
+
+        final File emptyDirectory = new File(sourceDirectory, "empty");
+        Assert.assertTrue("failed to create " + emptyDirectory.getAbsolutePath(),
+                          emptyDirectory.mkdirs());
+
+        final MessageDigest serialDigest =
+                MessageDigest.getInstance(SafeFileTransfer.DIGEST_ALGORITHM);
+        SafeFileTransfer.recursiveHashValidationHelper(sourceDirectory,
+                                                       serialDigest,
+                                                       1);
+        final DigestBytes serialDigestBytes =
+                new DigestBytes(serialDigest.digest());
+
+        final MessageDigest parallelDigest =
+                MessageDigest.getInstance(SafeFileTransfer.DIGEST_ALGORITHM);
+        ParallelDirectoryCopy.copy(sourceDirectory, targetFile, parallelDigest);
+        Assert.assertEquals("parallel copy digest does not match serial digest",
+                            serialDigestBytes,
+                            new DigestBytes(parallelDigest.digest()));
+
+        final MessageDigest targetDigest =
+                MessageDigest.getInstance(SafeFileTransfer.DIGEST_ALGORITHM);
+        ParallelDirectoryCopy.digest(targetFile, targetDigest);
+        Assert.assertEquals("target digest does not match serial digest",
+                            serialDigestBytes,
+                            new DigestBytes(targetDigest.digest()));
+
+        Assert.assertEquals("invalid number of target files",
+                            fileCount + 1, countFiles(targetFile));
+        Assert.assertFalse("empty directory should not be copied",
+                           new File(targetFile, "empty").exists());
+
+        // make sure public API still works for directories
+        deleteTree(targetFile);
+        SafeFileTransfer.copy(sourceDirectory, targetFile, false);
+        Assert.assertEquals("invalid number of target files after API copy",
+                            fileCount + 1, countFiles(targetFile));
+    }
+
     @Test
     public void testCalculateDigestRetries() throws Exception {
         // create file during retry attempts to exercise
@@ -114,6 +176,41 @@ public class SafeFileTransferTest {
                             targetDigestBytes, helperDigestBytes);
     }
 
+    private static void writeFile(File file,
+                                  byte[] contents)
+            throws IOException {
+        SafeFileTransfer.createParentDirectoriesIfNecessary(file);
+        Files.write(file.toPath(), contents);
+    }
+
+    private static int countFiles(File directory) {
+        int count = 0;
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    count += countFiles(file);
+                } else {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void deleteTree(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        if (file.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
     private static final SimpleDateFormat SDF =
             new SimpleDateFormat("'transfer-test-'yyyyMMddHHmmssSSS");
 
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests the {@link TransferScheduler} class.
+ *
+ * @author Eric Trautman
+ */
+public class TransferSchedulerTest {
+
+    private static final String SESSION_A = "A";
+    private static final String SESSION_B = "B";
+
+    private TransferScheduler scheduler;
+    private File toFile;
+    private List<String> startedTransfers;
+    private List<TransferScheduler.Permit> startedPermits;
+
+    @Before
+    public void setUp() {
+        scheduler = new TransferScheduler();
+        final File directory = new File(".").getAbsoluteFile();
+        toFile = new File(directory, "scheduler-test.txt");
+        startedTransfers =
+                Collections.synchronizedList(new ArrayList<String>());
+        startedPermits = Collections.synchronizedList(
+                new ArrayList<TransferScheduler.Permit>());
+    }
+
+    @Test
+    public void testUnlimited() throws Exception {
+        final TransferScheduler.Permit permit =
+                scheduler.acquire(SESSION_A, toFile);
+        Assert.assertFalse("unlimited permit should not be throttled",
+                           permit.isThrottled());
+        permit.throttle(Long.MAX_VALUE); // should return immediately
+        permit.release();
+    }
+
+    @Test
+    public void testFairSharing() throws Exception {
+
+        scheduler.setDefaultLimits(2, TransferScheduler.UNLIMITED);
+
+        final TransferScheduler.Permit a1 = scheduler.acquire(SESSION_A, toFile);
+        final TransferScheduler.Permit b1 = scheduler.acquire(SESSION_B, toFile);
+
+        // session A queues first, but B should start first when one of
+        // its transfers finishes because A already has an active transfer
+        final Thread a2 = startWaitingTransfer(SESSION_A, "a2");
+        final Thread b2 = startWaitingTransfer(SESSION_B, "b2");
+
+        Assert.assertEquals("no transfers should start while store is full",
+                            0, startedTransfers.size());
+
+        b1.release();
+        b1.release(); // second release should be ignored
+        b2.join(5000);
+        Assert.assertEquals("invalid transfers started after first release",
+                            Collections.singletonList("b2"),
+                            startedTransfers);
+
+        a1.release();
+        a2.join(5000);
+        Assert.assertEquals("invalid transfers started after second release",
+                            2, startedTransfers.size());
+        Assert.assertEquals("a2 should start last",
+                            "a2", startedTransfers.get(1));
+
+        for (TransferScheduler.Permit permit : startedPermits) {
+            permit.release();
+        }
+    }
+
+    @Test
+    public void testThrottle() throws Exception {
+
+        final double megabytesPerSecond = 20;
+        scheduler.setLimits(toFile.getParentFile(),
+                            TransferScheduler.UNLIMITED,
+                            megabytesPerSecond);
+
+        final TransferScheduler.Permit permit =
+                scheduler.acquire(SESSION_A, toFile);
+        Assert.assertTrue("permit should be throttled", permit.isThrottled());
+
+        final long megabyte = 1024 * 1024;
+        final int chunkCount = 5;
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < chunkCount; i++) {
+            permit.throttle(megabyte);
+        }
+        final long elapsed = System.currentTimeMillis() - start;
+        permit.release();
+
+        final long minimumElapsed =
+                (long) ((chunkCount * 1000) / megabytesPerSecond);
+        Assert.assertTrue("throttled transfer took " + elapsed +
+                          "ms, should have taken at least " +
+                          minimumElapsed + "ms",
+                          elapsed >= minimumElapsed);
+
+        scheduler.clearLimits();
+        Assert.assertFalse("permits should not be throttled after clear",
+                           scheduler.acquire(SESSION_A, toFile).isThrottled());
+    }
+
+    private Thread startWaitingTransfer(final String session,
+                                        final String transferName)
+            throws InterruptedException {
+
+        final Thread thread = new Thread(() -> {
+            try {
+                final TransferScheduler.Permit permit =
+                        scheduler.acquire(session, toFile);
+                // keep the permit so that the store stays full
+                startedTransfers.add(transferName);
+                startedPermits.add(permit);
+            } catch (InterruptedIOException e) {
+                startedTransfers.add("interrupted " + transferName);
+            }
+        });
+        thread.start();
+
+        // wait for transfer to start waiting
+        for (int i = 0; i < 100; i++) {
+            if (thread.getState() == Thread.State.WAITING) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(transferName + " should be waiting",
+                            Thread.State.WAITING, thread.getState());
+
+        return thread;
+    }
+}
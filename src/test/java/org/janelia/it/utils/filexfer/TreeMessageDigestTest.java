@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+/**
+ * Tests the {@link TreeMessageDigest} class.
+ *
+ * @author Eric Trautman
+ */
+public class TreeMessageDigestTest {
+
+    private static final String ALGORITHM = "tree-md5-1m";
+    private static final int MEGABYTE = 1024 * 1024;
+
+    private File testFile;
+
+    @Before
+    public void setUp() throws Exception {
+        testFile = File.createTempFile("tree-digest-test-", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        testFile.delete();
+    }
+
+    @Test
+    public void testNames() throws Exception {
+        final TreeMessageDigest digest = (TreeMessageDigest)
+                DigestAlgorithms.getMessageDigest("TREE-sha1-16m");
+        Assert.assertEquals("invalid leaf algorithm",
+                            DigestAlgorithms.SHA1, digest.getLeafAlgorithm());
+        Assert.assertEquals("invalid chunk size",
+                            16L * MEGABYTE, digest.getChunkSize());
+
+        final String[] invalidNames = {
+                "tree-md5", "tree-md5-0m", "tree-none-1m",
+                "tree-tree-1m", "tree-bogus-1m"
+        };
+        for (String name : invalidNames) {
+            try {
+                DigestAlgorithms.getMessageDigest(name);
+                Assert.fail("'" + name + "' should be invalid");
+            } catch (NoSuchAlgorithmException | IllegalStateException e) {
+                Assert.assertTrue(true); // test passed
+            }
+        }
+    }
+
+    @Test
+    public void testStreamedAndParallelDigestsMatch() throws Exception {
+
+        final byte[] data = new byte[(3 * MEGABYTE) + 12345];
+        new Random(42).nextBytes(data);
+        writeTestFile(data);
+
+        // root is the leaf digest of the concatenated chunk digests
+        final MessageDigest chunkMd5 = MessageDigest.getInstance("md5");
+        final MessageDigest rootMd5 = MessageDigest.getInstance("md5");
+        for (int start = 0; start < data.length; start += MEGABYTE) {
+            chunkMd5.update(data, start, Math.min(MEGABYTE, data.length - start));
+            rootMd5.update(chunkMd5.digest());
+        }
+        final DigestBytes expected = new DigestBytes(rootMd5.digest());
+
+        // streamed in uneven pieces that straddle chunk boundaries
+        final MessageDigest streamed =
+                DigestAlgorithms.getMessageDigest(ALGORITHM);
+        final int pieceSize = 300000;
+        for (int start = 0; start < data.length; start += pieceSize) {
+            streamed.update(data, start, Math.min(pieceSize, data.length - start));
+        }
+        Assert.assertEquals("invalid streamed digest",
+                            expected, new DigestBytes(streamed.digest()));
+
+        final FileTransferUtil util = new FileTransferUtil(64 * 1024, ALGORITHM);
+        Assert.assertEquals("invalid parallel digest",
+                            expected, util.calculateDigest(testFile));
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        final FileTransferUtil util = new FileTransferUtil(64 * 1024, ALGORITHM);
+        final MessageDigest streamed =
+                DigestAlgorithms.getMessageDigest(ALGORITHM);
+        Assert.assertEquals("invalid empty file digest",
+                            new DigestBytes(streamed.digest()),
+                            util.calculateDigest(testFile));
+    }
+
+    private void writeTestFile(byte[] data) throws Exception {
+        FileOutputStream out = new FileOutputStream(testFile);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026 Howard Hughes Medical Institute.
+ * All rights reserved.
+ * Use is subject to Janelia Farm Research Campus Software Copyright 1.1
+ * license terms (http://license.janelia.org/license/jfrc_copyright_1_1.html).
+ */
+
+package org.janelia.it.utils.filexfer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Tests the {@link XxHash64MessageDigest} and
+ * {@link Crc32cMessageDigest} classes.
+ *
+ * @author Eric Trautman
+ */
+public class XxHash64MessageDigestTest {
+
+    @Test
+    public void testKnownValues() throws Exception {
+        final MessageDigest digest =
+                DigestAlgorithms.getMessageDigest(XxHash64MessageDigest.NAME);
+
+        Assert.assertEquals("invalid digest for empty input",
+                            "ef46db3751d8e999",
+                            toSum(digest, ""));
+        Assert.assertEquals("invalid digest for short input",
+                            "44bc2cf5ad770999",
+                            toSum(digest, "abc"));
+        Assert.assertEquals("invalid digest for multiple stripe input",
+                            "fbcea83c8a378bf1",
+                            toSum(digest,
+                                  "Nobody inspects the spammish repetition"));
+    }
+
+    @Test
+    public void testIncrementalUpdates() throws Exception {
+        final byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+
+        final MessageDigest digest = new XxHash64MessageDigest();
+        final DigestBytes expected = new DigestBytes(digest.digest(data));
+
+        // feed the same data in uneven pieces to exercise stripe buffering
+        final int[] pieceSizes = { 1, 7, 31, 32, 33, 100 };
+        for (int pieceSize : pieceSizes) {
+            int offset = 0;
+            while (offset < data.length) {
+                final int length = Math.min(pieceSize, data.length - offset);
+                if (length == 1) {
+                    digest.update(data[offset]);
+                } else {
+                    digest.update(data, offset, length);
+                }
+                offset += length;
+            }
+            Assert.assertEquals("invalid digest for piece size " + pieceSize,
+                                expected, new DigestBytes(digest.digest()));
+        }
+    }
+
+    @Test
+    public void testCrc32c() throws Exception {
+        final MessageDigest digest =
+                DigestAlgorithms.getMessageDigest(Crc32cMessageDigest.NAME);
+        Assert.assertEquals("invalid crc32c check value",
+                            "e3069283",
+                            toSum(digest, "123456789"));
+    }
+
+    private String toSum(MessageDigest digest,
+                         String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        return new DigestBytes(digest.digest(bytes)).toSum();
+    }
+}